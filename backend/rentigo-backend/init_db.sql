@@ -53,6 +53,8 @@ CREATE TABLE IF NOT EXISTS user_role (
 CREATE TABLE IF NOT EXISTS vehicle_type (
   id             TINYINT         PRIMARY KEY,
   type_name      VARCHAR(32)     NOT NULL UNIQUE,
+  description    VARCHAR(255)    NULL,
+  seats          TINYINT         NOT NULL DEFAULT 5 COMMENT '座位数',
   deposit_amount DECIMAL(10,2)   NOT NULL DEFAULT 0.00 COMMENT '押金标准金额',
   created_at     DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP,
   updated_at     DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -89,6 +91,7 @@ CREATE TABLE IF NOT EXISTS location (
   reserved_field1 VARCHAR(255)    NULL COMMENT '预留字段1',
   reserved_field2 VARCHAR(255)    NULL COMMENT '预留字段2'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+CREATE INDEX idx_location_city ON location(city);
 
 -- 7. 车辆表
 CREATE TABLE IF NOT EXISTS vehicle (
@@ -100,6 +103,7 @@ CREATE TABLE IF NOT EXISTS vehicle (
   daily_price      DECIMAL(10,2)     NOT NULL,
   status           TINYINT           NOT NULL DEFAULT 0 COMMENT '0=AVAILABLE,1=RENTED,2=MAINTAIN',
   license_plate    VARCHAR(32)       UNIQUE,
+  version          INT               NOT NULL DEFAULT 0 COMMENT '乐观锁版本号，每次预订递增',
   created_at       DATETIME          NOT NULL DEFAULT CURRENT_TIMESTAMP,
   updated_at       DATETIME          NOT NULL DEFAULT CURRENT_TIMESTAMP
                                     ON UPDATE CURRENT_TIMESTAMP,
@@ -111,7 +115,16 @@ CREATE TABLE IF NOT EXISTS vehicle (
   CONSTRAINT fk_vehicle_loc  FOREIGN KEY (location_id)
     REFERENCES location(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
-CREATE INDEX idx_vehicle_loc_status ON vehicle(location_id, status);
+-- keyset 分页 (daily_price, id)：InnoDB 二级索引隐含主键 id，无需显式追加
+CREATE INDEX idx_vehicle_price ON vehicle(daily_price);
+-- 以 (location_id, status) 为前缀，同时覆盖按网点/状态的等值查询和 fk_vehicle_loc
+CREATE INDEX idx_vehicle_loc_status_price ON vehicle(location_id, status, daily_price);
+-- 多条件搜索：等值条件在前、价格区间/排序列在后
+CREATE INDEX idx_vehicle_status_price ON vehicle(status, daily_price);
+CREATE INDEX idx_vehicle_type_status_price ON vehicle(vehicle_type_id, status, daily_price);
+CREATE INDEX idx_vehicle_loc_type_status_price ON vehicle(location_id, vehicle_type_id, status, daily_price);
+CREATE INDEX idx_vehicle_status_color_price ON vehicle(status, color, daily_price);
+CREATE INDEX idx_vehicle_type_seats ON vehicle_type(seats);
 CREATE INDEX idx_vehicle_type_deposit ON vehicle_type(deposit_amount);
 
 -- 索引优化
@@ -134,6 +147,7 @@ CREATE TABLE IF NOT EXISTS rentals (
   deposit_paid_at      DATETIME          NULL COMMENT '押金支付时间',
   deposit_returned_at  DATETIME          NULL COMMENT '押金退还时间',
   overtime_amount      DECIMAL(10,2)     NOT NULL DEFAULT 0.00 COMMENT '超时费用',
+  batch_id             CHAR(36)          NULL COMMENT '批量预订编号，同一批次共用一笔押金支付',
   version              INT               NOT NULL DEFAULT 0,
   created_at           DATETIME          NOT NULL DEFAULT CURRENT_TIMESTAMP,
   updated_at           DATETIME          NOT NULL DEFAULT CURRENT_TIMESTAMP
@@ -152,6 +166,16 @@ CREATE INDEX idx_rental_user          ON rentals(user_id, status);
 CREATE INDEX idx_rental_vehicle_stat  ON rentals(vehicle_id, status);
 CREATE INDEX idx_rentals_deposit_status ON rentals(deposit_status);
 CREATE INDEX idx_rentals_start_end_time ON rentals(start_time, end_time);
+-- 按时间段找车的两个反连接：按 vehicle_id 定位后只扫描窗口开始之后结束/归还的记录，其余判断列都在索引内，无需回表
+CREATE INDEX idx_rentals_vehicle_end    ON rentals(vehicle_id, end_time, start_time, actual_return_time, status);
+CREATE INDEX idx_rentals_vehicle_return ON rentals(vehicle_id, actual_return_time, start_time, status);
+-- 启动时重建待支付保留期限：只读 status = PENDING_PAYMENT 的 id 与创建时间
+CREATE INDEX idx_rentals_status_created ON rentals(status, created_at);
+CREATE INDEX idx_rentals_batch          ON rentals(batch_id);
+-- 管理端租赁分页：按 (created_at, id) 倒序的 keyset，按用户、车辆过滤时各有对应索引（InnoDB 二级索引隐含主键 id）
+CREATE INDEX idx_rentals_created         ON rentals(created_at);
+CREATE INDEX idx_rentals_user_created    ON rentals(user_id, created_at);
+CREATE INDEX idx_rentals_vehicle_created ON rentals(vehicle_id, created_at);
 
 -- 9. 支付表
 CREATE TABLE IF NOT EXISTS payment (
@@ -163,7 +187,10 @@ CREATE TABLE IF NOT EXISTS payment (
   status            TINYINT            NOT NULL DEFAULT 0 COMMENT '0=INIT,1=PAID,2=FAILED,3=REFUNDED',
   description       VARCHAR(255)       NULL COMMENT '支付描述',
   transaction_id    VARCHAR(100)       NULL COMMENT '交易ID',
+  stripe_session_id VARCHAR(100)       NULL COMMENT 'Stripe Checkout Session ID',
   payment_method    VARCHAR(50)        NULL COMMENT '支付方式',
+  checkout_url      VARCHAR(1024)      NULL COMMENT 'Stripe Checkout 页面地址',
+  checkout_attempted_at DATETIME       NULL COMMENT '最近一次创建 Stripe 会话的时间（认领/重试）',
   created_at        DATETIME           NOT NULL DEFAULT CURRENT_TIMESTAMP,
   updated_at        DATETIME           NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   reserved_field1   VARCHAR(255)       NULL COMMENT '预留字段1',
@@ -175,44 +202,42 @@ CREATE TABLE IF NOT EXISTS payment (
   CONSTRAINT chk_payment_type CHECK (payment_type IN (0,1,2)),
   CONSTRAINT chk_payment_status CHECK (status IN (0,1,2,3))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+CREATE INDEX idx_payment_stripe_session ON payment(stripe_session_id);
+-- 待创建 Stripe 会话的支付（提交后创建失败或进程中断）由定时任务补建
+CREATE INDEX idx_payment_checkout_backlog ON payment(status, stripe_session_id, checkout_attempted_at);
+
+-- =======================================
+-- 9.1 计价规则表：周末 / 季节调价与长租折扣，应用启动时编译为内存价格表
+-- =======================================
+CREATE TABLE IF NOT EXISTS pricing_rule (
+  id                  BIGINT UNSIGNED PRIMARY KEY AUTO_INCREMENT,
+  name                VARCHAR(100)      NOT NULL,
+  rule_type           TINYINT           NOT NULL COMMENT '0=WEEKEND,1=SEASON,2=DURATION',
+  vehicle_type_id     TINYINT           NULL COMMENT '为空表示全部车型',
+  location_id         SMALLINT UNSIGNED NULL COMMENT '为空表示全部网点',
+  adjustment_percent  DECIMAL(5,2)      NOT NULL COMMENT '调价百分比，负数为折扣',
+  start_date          DATE              NULL COMMENT 'SEASON 生效首日',
+  end_date            DATE              NULL COMMENT 'SEASON 生效末日（含）',
+  min_days            INT               NULL COMMENT 'DURATION 起始计费天数',
+  enabled             TINYINT(1)        NOT NULL DEFAULT 1,
+  created_at          DATETIME          NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at          DATETIME          NOT NULL DEFAULT CURRENT_TIMESTAMP
+                                        ON UPDATE CURRENT_TIMESTAMP,
+  CONSTRAINT fk_pricing_rule_type FOREIGN KEY (vehicle_type_id)
+    REFERENCES vehicle_type(id),
+  CONSTRAINT fk_pricing_rule_loc FOREIGN KEY (location_id)
+    REFERENCES location(id),
+  CONSTRAINT chk_pricing_rule_type CHECK (rule_type IN (0,1,2))
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- =============================================
 -- 10. 触发器：并发锁定 & 乐观锁 & 状态机
 -- =============================================
 DELIMITER $$
 
--- 10.1 BEFORE INSERT: 锁定车辆行 & 计算总金额 & 押金
-CREATE TRIGGER trg_rental_before_insert
-BEFORE INSERT ON rentals
-FOR EACH ROW
-BEGIN
-  DECLARE days INT;
-  DECLARE vehicle_type_id_val TINYINT;
-  DECLARE deposit_val DECIMAL(10,2);
-  
-  -- 锁定车辆行并获取相关信息
-  SELECT v.daily_price, v.vehicle_type_id 
-  INTO @daily_price, vehicle_type_id_val
-  FROM vehicle v
-  WHERE v.id = NEW.vehicle_id
-  FOR UPDATE;
-  
-  -- 获取车型对应的押金标准
-  SELECT vt.deposit_amount 
-  INTO deposit_val
-  FROM vehicle_type vt 
-  WHERE vt.id = vehicle_type_id_val;
-  
-  -- 计算租期天数
-  SET days = TIMESTAMPDIFF(DAY, NEW.start_time, NEW.end_time);
-  IF days < 1 THEN
-    SET days = 1;
-  END IF;
-  
-  -- 设置总金额和押金金额
-  SET NEW.total_amount = @daily_price * days;
-  SET NEW.deposit_amount = deposit_val;
-END$$
+-- 10.1 BEFORE INSERT 触发器已移除：租金与押金由应用计算（计价规则见 pricing_rule），
+--      插入租赁时不再在行锁内查车辆与车型做计算
+DROP TRIGGER IF EXISTS trg_rental_before_insert$$
 
 -- 10.2 BEFORE UPDATE: 乐观锁 version 自增
 CREATE TRIGGER trg_rental_before_update
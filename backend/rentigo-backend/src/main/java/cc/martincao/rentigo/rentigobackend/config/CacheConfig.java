@@ -0,0 +1,33 @@
+package cc.martincao.rentigo.rentigobackend.config;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.cache.VehicleCatalogCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 本地缓存配置（Caffeine）：限制条目数、设置过期时间并记录命中统计
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.vehicles.maximum-size:1000}") long maximumSize,
+            @Value("${app.cache.vehicles.ttl:10m}") Duration ttl) {
+        // 指定缓存名后不会在运行时隐式创建未配置的缓存
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(VehicleCatalogCache.CACHE_NAME);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        return cacheManager;
+    }
+}
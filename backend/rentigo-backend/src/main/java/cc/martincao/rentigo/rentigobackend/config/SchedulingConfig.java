@@ -0,0 +1,12 @@
+package cc.martincao.rentigo.rentigobackend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务（SSE 心跳等）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
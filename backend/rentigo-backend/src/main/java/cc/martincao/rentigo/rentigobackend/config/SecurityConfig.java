@@ -64,7 +64,10 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/payment/webhook").permitAll()
                 
                 // 允许访问车辆列表（无需认证）
-                .requestMatchers(HttpMethod.GET, "/api/vehicle/list").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/vehicle/list", "/api/vehicle/page", "/api/vehicle/search",
+                        "/api/vehicle/facets", "/api/vehicle/nearby", "/api/vehicle/stream",
+                        "/api/vehicle/availability", "/api/vehicle/available", "/api/vehicle/types", "/api/locations",
+                        "/api/rentals/calendar", "/api/rentals/quote").permitAll()
                 
                 // 允许访问静态资源和测试页面
                 .requestMatchers("/css/**", "/js/**", "/images/**", "/test.html").permitAll()
@@ -0,0 +1,185 @@
+package cc.martincao.rentigo.rentigobackend.payment.checkout;
+
+import cc.martincao.rentigo.rentigobackend.payment.dto.CreatePaymentSessionResponse;
+import cc.martincao.rentigo.rentigobackend.payment.event.CheckoutRequestedEvent;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.payment.repository.PaymentRepository;
+import cc.martincao.rentigo.rentigobackend.payment.service.PaymentService;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在事务之外创建 Stripe Checkout 会话
+ * <p>
+ * 预订事务只写入待支付记录（相当于发件箱），提交后由本组件在独立线程池里调用 Stripe，
+ * Stripe 变慢时不会占住数据库连接。请求线程最多等待 sync-wait：会话及时创建则同步返回支付链接，
+ * 否则返回待定状态，客户端轮询即可；后台调用完成后链接写回支付记录。
+ * 提交后未能创建（Stripe 报错、进程重启）的记录由定时任务补建。同一笔支付在本进程内只有一个进行中的调用，
+ * 跨实例由支付记录上的认领时间保证不会并发创建。
+ * <p>
+ * 租赁取消（包括保留期满）后，同样在线程池里让其押金会话失效并作废待支付记录；
+ * 没能及时处理的（Stripe 报错、进程重启）由定时任务按租赁状态补做。
+ */
+@Component
+public class CheckoutRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutRelay.class);
+
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final ExecutorService executor;
+    private final long syncWaitMillis;
+    private final Duration retryAfter;
+    private final int batchSize;
+    private final Map<Long, CompletableFuture<CreatePaymentSessionResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public CheckoutRelay(PaymentService paymentService,
+                         PaymentRepository paymentRepository,
+                         @Value("${app.checkout.threads:8}") int threads,
+                         @Value("${app.checkout.sync-wait:3s}") Duration syncWait,
+                         @Value("${app.checkout.retry-after:1m}") Duration retryAfter,
+                         @Value("${app.checkout.batch-size:100}") int batchSize) {
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stripe-checkout-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.syncWaitMillis = syncWait.toMillis();
+        this.retryAfter = retryAfter;
+        this.batchSize = batchSize;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCheckoutRequested(CheckoutRequestedEvent event) {
+        open(event.getPaymentId());
+    }
+
+    /**
+     * 开始为支付记录创建会话；已有进行中的调用时复用
+     */
+    public CompletableFuture<CreatePaymentSessionResponse> open(Long paymentId) {
+        CompletableFuture<CreatePaymentSessionResponse> existing = inFlight.get(paymentId);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<CreatePaymentSessionResponse> created = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(paymentId, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(paymentService.openCheckoutSession(paymentId));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to open checkout session for payment {}: {}", paymentId, e.getMessage());
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(paymentId, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(paymentId, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        if (event.getStatus() == RentalStatus.CANCELLED) {
+            cancelDeposits(event.getRentalId());
+        }
+    }
+
+    private void cancelDeposits(Long rentalId) {
+        try {
+            executor.execute(() -> {
+                try {
+                    paymentService.cancelPendingDeposits(rentalId);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to cancel pending deposits of rental {}: {}", rentalId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 关闭中，交给下次启动后的定时清理
+            log.debug("Checkout executor rejected deposit cancellation for rental {}", rentalId);
+        }
+    }
+
+    /**
+     * 最多等待 sync-wait 取得会话；超时、失败或正由其他实例创建时返回 empty，由客户端轮询
+     */
+    public Optional<CreatePaymentSessionResponse> await(Long paymentId) {
+        try {
+            return Optional.ofNullable(open(paymentId).get(syncWaitMillis, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException | ExecutionException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 补建提交后没能创建会话的待支付记录
+     */
+    @Scheduled(fixedDelayString = "${app.checkout.retry-interval:30s}")
+    public void retryBacklog() {
+        List<Long> backlog = paymentRepository.findCheckoutBacklog(PaymentStatus.PENDING,
+                LocalDateTime.now().minus(retryAfter), RentalStatus.CANCELLED, PageRequest.of(0, batchSize));
+        if (!backlog.isEmpty()) {
+            log.info("Retrying checkout session creation for {} payments", backlog.size());
+            backlog.forEach(this::open);
+        }
+    }
+
+    /**
+     * 补做已取消租赁的押金作废（事件丢失、Stripe 调用失败时）
+     */
+    @Scheduled(fixedDelayString = "${app.checkout.retry-interval:30s}")
+    public void cancelAbandoned() {
+        List<Long> rentalIds = paymentRepository.findAbandonedPayments(PaymentStatus.PENDING, PaymentType.DEPOSIT,
+                RentalStatus.CANCELLED, PageRequest.of(0, batchSize));
+        if (!rentalIds.isEmpty()) {
+            log.info("Cancelling pending deposits of {} cancelled rentals", rentalIds.size());
+            rentalIds.forEach(this::cancelDeposits);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -22,6 +22,7 @@ public class PaymentResponseDTO {
     private PaymentStatus status;
     private String paymentMethod;
     private String stripeSessionId;
+    private String checkoutUrl;
     private String transactionId;
     private String description;
     private LocalDateTime createdAt;
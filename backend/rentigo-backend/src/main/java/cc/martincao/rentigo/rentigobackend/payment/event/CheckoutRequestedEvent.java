@@ -0,0 +1,19 @@
+package cc.martincao.rentigo.rentigobackend.payment.event;
+
+/**
+ * 待支付记录已落库、需要创建 Stripe 会话
+ * <p>
+ * 监听方应使用 {@code @TransactionalEventListener}，在事务提交后（数据库连接已归还）再调用 Stripe。
+ */
+public class CheckoutRequestedEvent {
+
+    private final Long paymentId;
+
+    public CheckoutRequestedEvent(Long paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+}
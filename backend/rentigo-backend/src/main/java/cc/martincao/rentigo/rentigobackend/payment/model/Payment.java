@@ -52,6 +52,14 @@ public class Payment {
     @Column(name = "payment_method", length = 50)
     private String paymentMethod;
 
+    // Stripe Checkout 页面地址，会话创建成功后写入
+    @Column(name = "checkout_url", length = 1024)
+    private String checkoutUrl;
+
+    // 最近一次开始创建 Stripe 会话的时间，用于认领与失败重试
+    @Column(name = "checkout_attempted_at")
+    private LocalDateTime checkoutAttemptedAt;
+
     @Column(name = "paid_at")
     private LocalDateTime paidAt;
 
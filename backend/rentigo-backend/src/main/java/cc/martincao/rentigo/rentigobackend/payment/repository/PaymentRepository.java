@@ -3,8 +3,15 @@ package cc.martincao.rentigo.rentigobackend.payment.repository;
 import cc.martincao.rentigo.rentigobackend.payment.model.Payment;
 import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
 import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +40,64 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     
     // 根据 Stripe Session ID 或 Transaction ID 查找支付记录
     List<Payment> findByStripeSessionIdOrTransactionId(String sessionId, String transactionId);
+    
+    // 连同租赁一起取出（创建 Stripe 会话需要租赁 id 与批次号）
+    @Query("select p from Payment p join fetch p.rental where p.id = :id")
+    Optional<Payment> findWithRentalById(@Param("id") Long id);
+    
+    // 租赁（或其所在批次）最近的一笔指定类型支付；批量预订的押金挂在批次第一条租赁上
+    @Query("select p from Payment p join fetch p.rental r where p.paymentType = :type "
+            + "and (r.id = :rentalId or (r.batchId is not null and r.batchId = :batchId)) order by p.id desc")
+    List<Payment> findLatestForRental(@Param("rentalId") Long rentalId, @Param("batchId") String batchId,
+                                      @Param("type") PaymentType type, Pageable pageable);
+    
+    /**
+     * 认领一笔待支付记录的 Stripe 会话创建：尚无会话且从未尝试（或上次尝试早于 staleBefore）时才成功，
+     * 保证同一时刻只有一个线程（或实例）在为它调用 Stripe
+     */
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.checkoutAttemptedAt = :now where p.id = :id and p.status = :pending "
+            + "and p.stripeSessionId is null and (p.checkoutAttemptedAt is null or p.checkoutAttemptedAt < :staleBefore)")
+    int claimCheckout(@Param("id") Long id, @Param("pending") PaymentStatus pending,
+                      @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+    
+    // 会话创建期间支付已作废（租赁取消）时不再写入，返回 0
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.stripeSessionId = :sessionId, p.checkoutUrl = :url "
+            + "where p.id = :id and p.status = :pending and p.stripeSessionId is null")
+    int attachCheckoutSession(@Param("id") Long id, @Param("pending") PaymentStatus pending,
+                              @Param("sessionId") String sessionId, @Param("url") String url);
+    
+    // Stripe 调用失败时释放认领
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.checkoutAttemptedAt = null where p.id = :id and p.stripeSessionId is null")
+    int releaseCheckout(@Param("id") Long id);
+    
+    /**
+     * 作废一笔待支付记录；只在它没有会话或会话正是调用方已让其失效的那个时才成功，
+     * 期间新挂上的会话不会被跳过
+     */
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.status = :failed where p.id = :id and p.status = :pending "
+            + "and (p.stripeSessionId is null or p.stripeSessionId = :expiredSessionId)")
+    int failPending(@Param("id") Long id, @Param("pending") PaymentStatus pending,
+                    @Param("failed") PaymentStatus failed, @Param("expiredSessionId") String expiredSessionId);
+    
+    // 租赁已取消但押金仍待支付的租赁 id（支付页需要失效）
+    @Query("select distinct p.rental.id from Payment p where p.status = :pending and p.paymentType = :type "
+            + "and p.rental.status = :cancelled order by p.rental.id")
+    List<Long> findAbandonedPayments(@Param("pending") PaymentStatus pending, @Param("type") PaymentType type,
+                                     @Param("cancelled") RentalStatus cancelled, Pageable pageable);
+    
+    // 创建超过 staleBefore 仍没有会话、且不在创建中的待支付记录（租赁已取消的不再补建）
+    @Query("select p.id from Payment p where p.status = :pending and p.stripeSessionId is null "
+            + "and coalesce(p.checkoutAttemptedAt, p.createdAt) < :staleBefore "
+            + "and p.rental.status <> :cancelled order by p.id")
+    List<Long> findCheckoutBacklog(@Param("pending") PaymentStatus pending,
+                                   @Param("staleBefore") LocalDateTime staleBefore,
+                                   @Param("cancelled") RentalStatus cancelled, Pageable pageable);
 }
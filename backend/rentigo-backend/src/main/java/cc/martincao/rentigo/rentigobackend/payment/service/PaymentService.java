@@ -15,6 +15,23 @@ public interface PaymentService {
      */
     CreatePaymentSessionResponse createCheckoutSession(CreatePaymentSessionRequest request, Long userId);
     
+    /**
+     * 只创建待支付记录（加入调用方事务），Stripe 会话稍后由 {@link #openCheckoutSession} 创建
+     */
+    PaymentResponseDTO createPendingPayment(CreatePaymentSessionRequest request, Long userId);
+    
+    /**
+     * 为待支付记录创建 Stripe 会话，调用 Stripe 期间不持有数据库事务。
+     * 已有会话时直接返回；其他线程正在创建时返回 null
+     */
+    CreatePaymentSessionResponse openCheckoutSession(Long paymentId);
+    
+    /**
+     * 租赁取消后作废其待支付押金：先让 Stripe 会话失效，再把记录标为失败。
+     * 会话已完成（用户刚好付款）或 Stripe 调用失败时保持待支付，交给 webhook 记账或下次清理
+     */
+    void cancelPendingDeposits(Long rentalId);
+    
     /**
      * 处理 Stripe Webhook
      */
@@ -34,4 +51,9 @@ public interface PaymentService {
      * 根据ID获取支付记录
      */
     PaymentResponseDTO getPaymentById(Long paymentId);
+    
+    /**
+     * 租赁（或其所在批次）最近的一笔押金支付，没有时返回 null
+     */
+    PaymentResponseDTO findLatestDeposit(Long rentalId, String batchId);
 }
@@ -5,11 +5,14 @@ import cc.martincao.rentigo.rentigobackend.payment.dto.CreatePaymentSessionRespo
 import cc.martincao.rentigo.rentigobackend.payment.dto.PaymentResponseDTO;
 import cc.martincao.rentigo.rentigobackend.payment.exception.PaymentBusinessException;
 import cc.martincao.rentigo.rentigobackend.payment.model.Payment;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
 import cc.martincao.rentigo.rentigobackend.payment.repository.PaymentRepository;
 import cc.martincao.rentigo.rentigobackend.payment.service.PaymentService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -49,6 +52,41 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
     
+    @Override
+    public PaymentResponseDTO createPendingPayment(CreatePaymentSessionRequest request, Long userId) {
+        log.info("Creating pending payment for rental {} by user {}", request.getRentalId(), userId);
+        
+        // 简化版本：不落库，返回与请求对应的待支付记录
+        PaymentResponseDTO payment = new PaymentResponseDTO();
+        payment.setRentalId(request.getRentalId());
+        payment.setUserId(userId);
+        payment.setAmount(request.getAmount());
+        payment.setPaymentType(request.getPaymentType());
+        payment.setStatus(PaymentStatus.PENDING);
+        payment.setPaymentMethod(request.getPaymentMethod());
+        payment.setDescription(request.getDescription());
+        return payment;
+    }
+    
+    @Override
+    public CreatePaymentSessionResponse openCheckoutSession(Long paymentId) {
+        log.info("Opening checkout session for payment {}", paymentId);
+        return new CreatePaymentSessionResponse(
+            "cs_test_mock_session_id", 
+            "https://checkout.stripe.com/pay/cs_test_mock_session_id",
+            null
+        );
+    }
+    
+    @Override
+    public void cancelPendingDeposits(Long rentalId) {
+        log.info("Cancelling pending deposits for rental {}", rentalId);
+        for (Payment payment : paymentRepository.findByRentalIdAndPaymentTypeOrderByCreatedAtDesc(rentalId, PaymentType.DEPOSIT)) {
+            paymentRepository.failPending(payment.getId(), PaymentStatus.PENDING, PaymentStatus.FAILED,
+                    payment.getStripeSessionId());
+        }
+    }
+    
     @Override
     public void handleWebhook(String payload, String sigHeader) {
         log.info("Handling webhook");
@@ -83,4 +121,14 @@ public class PaymentServiceImpl implements PaymentService {
                 .map(payment -> modelMapper.map(payment, PaymentResponseDTO.class))
                 .orElse(null);
     }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentResponseDTO findLatestDeposit(Long rentalId, String batchId) {
+        return paymentRepository.findLatestForRental(rentalId, batchId, PaymentType.DEPOSIT, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .map(payment -> modelMapper.map(payment, PaymentResponseDTO.class))
+                .orElse(null);
+    }
 }
@@ -25,13 +25,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,9 +43,22 @@ public class StripePaymentService implements PaymentService {
     
     private static final Logger log = LoggerFactory.getLogger(StripePaymentService.class);
     
+    // Stripe 要求 Checkout Session 的有效期在 30 分钟到 24 小时之间；另留一分钟给请求耗时和时钟偏差
+    private static final Duration MIN_SESSION_TTL = Duration.ofMinutes(30);
+    private static final Duration MAX_SESSION_TTL = Duration.ofHours(24);
+    private static final Duration SESSION_EXPIRY_MARGIN = Duration.ofMinutes(1);
+    
     @Value("${stripe.webhook.secret}")
     private String stripeWebhookSecret;
     
+    // 押金支付页与待支付保留期限同时失效（从租赁创建时间起算），避免租赁已取消后仍能付款
+    @Value("${app.rental-hold.ttl:45m}")
+    private Duration rentalHoldTtl = Duration.ofMinutes(45);
+    
+    // 认领后超过该时间仍未写入会话，视为上次创建失败（应大于 Stripe 客户端的请求超时）
+    @Value("${app.checkout.claim-timeout:5m}")
+    private Duration checkoutClaimTimeout = Duration.ofMinutes(5);
+    
     private final PaymentRepository paymentRepository;
     private final RentalRepository rentalRepository;
     private final UserRepository userRepository;
@@ -69,86 +85,188 @@ public class StripePaymentService implements PaymentService {
         Stripe.apiKey = stripeSecretKey;
     }
     
+    /**
+     * 创建支付记录并立即创建 Stripe 会话。
+     * 两步各自在很短的事务内完成，调用 Stripe 期间不占用数据库连接
+     */
     @Override
-    @Transactional
     public CreatePaymentSessionResponse createCheckoutSession(CreatePaymentSessionRequest request, Long userId) {
         log.info("Creating Stripe checkout session for rental {} by user {}", request.getRentalId(), userId);
+        PaymentResponseDTO payment = createPendingPayment(request, userId);
+        return openCheckoutSession(payment.getId());
+    }
+    
+    @Override
+    @Transactional
+    public PaymentResponseDTO createPendingPayment(CreatePaymentSessionRequest request, Long userId) {
+        // 1. 验证租赁和用户
+        Rental rental = rentalRepository.findById(request.getRentalId())
+                .orElseThrow(() -> new PaymentBusinessException("Rental not found"));
         
-        try {
-            // 1. 验证租赁和用户
-            Rental rental = rentalRepository.findById(request.getRentalId())
-                    .orElseThrow(() -> new PaymentBusinessException("Rental not found"));
-            
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new PaymentBusinessException("User not found"));
-            
-            if (!rental.getUser().getId().equals(userId)) {
-                throw new PaymentBusinessException("You can only pay for your own rentals");
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new PaymentBusinessException("User not found"));
+        
+        if (!rental.getUser().getId().equals(userId)) {
+            throw new PaymentBusinessException("You can only pay for your own rentals");
+        }
+        
+        // 2. 创建支付记录
+        Payment payment = new Payment();
+        payment.setRental(rental);
+        payment.setUser(user);
+        payment.setAmount(request.getAmount());
+        payment.setPaymentType(request.getPaymentType());
+        payment.setStatus(PaymentStatus.PENDING);
+        payment.setPaymentMethod(request.getPaymentMethod());
+        payment.setDescription(request.getDescription());
+        payment = paymentRepository.save(payment);
+        return convertToDTO(payment);
+    }
+    
+    @Override
+    public CreatePaymentSessionResponse openCheckoutSession(Long paymentId) {
+        Payment payment = paymentRepository.findWithRentalById(paymentId)
+                .orElseThrow(() -> new PaymentBusinessException("Payment not found"));
+        if (payment.getStripeSessionId() != null) {
+            return toSessionResponse(payment);
+        }
+        if (payment.getStatus() != PaymentStatus.PENDING) {
+            throw new PaymentBusinessException("Payment is not pending");
+        }
+        Instant expiresAt = null;
+        if (payment.getPaymentType() == PaymentType.DEPOSIT) {
+            expiresAt = depositSessionExpiry(payment.getRental().getCreatedAt(), rentalHoldTtl, Instant.now());
+            if (expiresAt == null) {
+                // 剩余保留时间不够 Stripe 的最短有效期：作废这笔押金，不再补建，租赁随保留期满取消
+                paymentRepository.failPending(paymentId, PaymentStatus.PENDING, PaymentStatus.FAILED, null);
+                throw new PaymentBusinessException("Payment hold expires too soon to open a checkout session");
             }
-            
-            // 2. 创建支付记录
-            Payment payment = new Payment();
-            payment.setRental(rental);
-            payment.setUser(user);
-            payment.setAmount(request.getAmount());
-            payment.setPaymentType(request.getPaymentType());
-            payment.setStatus(PaymentStatus.PENDING);
-            payment.setDescription(request.getDescription());
-            payment = paymentRepository.save(payment);
-            
-            // 3. 创建Stripe Session
-            SessionCreateParams.Builder builder = SessionCreateParams.builder()
-                    .setMode(SessionCreateParams.Mode.PAYMENT)
-                    .setSuccessUrl(frontendSuccessUrl + "?session_id={CHECKOUT_SESSION_ID}")
-                    .setCancelUrl(frontendCancelUrl)
-                    .setClientReferenceId(payment.getId().toString())  // 使用 payment ID 作为参考ID
-                    .setPaymentIntentData(
-                        SessionCreateParams.PaymentIntentData.builder()
-                            .putMetadata("payment_id", payment.getId().toString())
-                            .putMetadata("rental_id", rental.getId().toString())
-                            .putMetadata("payment_type", request.getPaymentType().toString())
-                            .build()
-                    );
-            
-            // 添加付款项目
-            builder.addLineItem(
-                SessionCreateParams.LineItem.builder()
-                    .setPriceData(
-                        SessionCreateParams.LineItem.PriceData.builder()
-                            .setCurrency("usd")
-                            .setProductData(
-                                SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                    .setName(request.getDescription())
-                                    .build()
-                            )
-                            .setUnitAmount(request.getAmount().multiply(new java.math.BigDecimal("100")).longValue())
-                            .build()
-                    )
-                    .setQuantity(1L)
-                    .build()
-            );
-            
-            SessionCreateParams params = builder.build();
-            Session session = Session.create(params);
-            
+        }
+        // 认领后再调用 Stripe，避免同一笔支付被并发创建出多个会话；上次尝试超过认领时限视为失败，可重新认领
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentRepository.claimCheckout(paymentId, PaymentStatus.PENDING, now, now.minus(checkoutClaimTimeout)) == 0) {
+            log.debug("Checkout session for payment {} is being created elsewhere", paymentId);
+            return null;
+        }
+        
+        try {
+            Session session = Session.create(buildSessionParams(payment, payment.getRental(), expiresAt));
             // 4. 更新支付记录，添加Stripe会话ID
+            if (paymentRepository.attachCheckoutSession(paymentId, PaymentStatus.PENDING,
+                    session.getId(), session.getUrl()) == 0) {
+                // 创建期间租赁已取消、押金已作废：新会话立即失效
+                expireCheckoutSession(session.getId());
+                throw new PaymentBusinessException("Payment is no longer pending");
+            }
             payment.setStripeSessionId(session.getId());
-            payment = paymentRepository.save(payment);
-            
-            // 5. 返回响应
-            return CreatePaymentSessionResponse.builder()
-                .sessionId(session.getId())
-                .checkoutUrl(session.getUrl())
-                .payment(modelMapper.map(payment, PaymentResponseDTO.class))
-                .message("Payment session created successfully")
-                .build();
-            
+            payment.setCheckoutUrl(session.getUrl());
+            log.info("Created Stripe checkout session {} for payment {}", session.getId(), paymentId);
+            return toSessionResponse(payment);
         } catch (StripeException e) {
             log.error("Failed to create Stripe session", e);
+            // 释放认领，定时补建任务稍后重试
+            paymentRepository.releaseCheckout(paymentId);
             throw new PaymentBusinessException("Failed to create Stripe payment session: " + e.getMessage());
-        } catch (Exception e) {
-            log.error("Failed to create checkout session", e);
-            throw new PaymentBusinessException("Failed to create payment session: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 押金会话的失效时间：与待支付保留期限同时到期。剩余时间不足 Stripe 的最短有效期时返回 null
+     */
+    static Instant depositSessionExpiry(Date rentalCreatedAt, Duration holdTtl, Instant now) {
+        Instant holdEnd = rentalCreatedAt.toInstant().plus(holdTtl);
+        if (holdEnd.isBefore(now.plus(MIN_SESSION_TTL).plus(SESSION_EXPIRY_MARGIN))) {
+            return null;
+        }
+        Instant latest = now.plus(MAX_SESSION_TTL);
+        return holdEnd.isAfter(latest) ? latest : holdEnd;
+    }
+    
+    private SessionCreateParams buildSessionParams(Payment payment, Rental rental, Instant expiresAt) {
+        SessionCreateParams.Builder builder = SessionCreateParams.builder()
+                .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setSuccessUrl(frontendSuccessUrl + "?session_id={CHECKOUT_SESSION_ID}")
+                .setCancelUrl(frontendCancelUrl)
+                .setClientReferenceId(payment.getId().toString())  // 使用 payment ID 作为参考ID
+                .setPaymentIntentData(
+                    SessionCreateParams.PaymentIntentData.builder()
+                        .putMetadata("payment_id", payment.getId().toString())
+                        .putMetadata("rental_id", rental.getId().toString())
+                        .putMetadata("payment_type", payment.getPaymentType().toString())
+                        .build()
+                );
+        if (rental.getBatchId() != null) {
+            builder.putMetadata("batch_id", rental.getBatchId());
+        }
+        
+        if (expiresAt != null) {
+            builder.setExpiresAt(expiresAt.getEpochSecond());
+        }
+        
+        // 添加付款项目
+        builder.addLineItem(
+            SessionCreateParams.LineItem.builder()
+                .setPriceData(
+                    SessionCreateParams.LineItem.PriceData.builder()
+                        .setCurrency("usd")
+                        .setProductData(
+                            SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                .setName(payment.getDescription())
+                                .build()
+                        )
+                        .setUnitAmount(payment.getAmount().multiply(new java.math.BigDecimal("100")).longValue())
+                        .build()
+                )
+                .setQuantity(1L)
+                .build()
+        );
+        return builder.build();
+    }
+    
+    private CreatePaymentSessionResponse toSessionResponse(Payment payment) {
+        return CreatePaymentSessionResponse.builder()
+            .sessionId(payment.getStripeSessionId())
+            .checkoutUrl(payment.getCheckoutUrl())
+            .payment(convertToDTO(payment))
+            .message("Payment session created successfully")
+            .build();
+    }
+    
+    @Override
+    public void cancelPendingDeposits(Long rentalId) {
+        for (Payment payment : paymentRepository.findByRentalIdAndPaymentTypeOrderByCreatedAtDesc(rentalId, PaymentType.DEPOSIT)) {
+            if (payment.getStatus() != PaymentStatus.PENDING) {
+                continue;
+            }
+            // 先让会话失效再作废记录：失效不成功时保持待支付，不能让记录作废而支付页仍可付款
+            String sessionId = payment.getStripeSessionId();
+            if (sessionId != null && !expireCheckoutSession(sessionId)) {
+                continue;
+            }
+            if (paymentRepository.failPending(payment.getId(), PaymentStatus.PENDING, PaymentStatus.FAILED, sessionId) > 0) {
+                log.info("Cancelled pending deposit payment {} of cancelled rental {}", payment.getId(), rentalId);
+            }
+        }
+    }
+    
+    /**
+     * 让 Stripe 会话失效；会话已失效时也返回 true。会话已完成（已付款）或调用失败时返回 false
+     */
+    private boolean expireCheckoutSession(String sessionId) {
+        try {
+            Session session = Session.retrieve(sessionId);
+            if ("open".equals(session.getStatus())) {
+                session.expire();
+                log.info("Expired Stripe checkout session {}", sessionId);
+                return true;
+            }
+            if ("complete".equals(session.getStatus())) {
+                log.warn("Checkout session {} was completed before it could be expired", sessionId);
+            }
+            return "expired".equals(session.getStatus());
+        } catch (StripeException e) {
+            log.warn("Failed to expire Stripe checkout session {}: {}", sessionId, e.getMessage());
+            return false;
         }
     }
     
@@ -190,7 +308,10 @@ public class StripePaymentService implements PaymentService {
         String sessionId = session.getId();
         log.info("Processing checkout.session.completed for session ID: {}", sessionId);
         
+        // 会话创建重试时，同一笔支付可能对应多个会话，未记录的会话按 client_reference_id（支付 id）找回
         Payment payment = paymentRepository.findByStripeSessionId(sessionId)
+                .or(() -> Optional.ofNullable(session.getClientReferenceId())
+                        .flatMap(paymentId -> paymentRepository.findById(Long.parseLong(paymentId))))
                 .orElseThrow(() -> new PaymentBusinessException("Payment not found for session: " + sessionId));
         
         updatePaymentAndRentalStatus(payment, session);
@@ -277,8 +398,21 @@ public class StripePaymentService implements PaymentService {
         Rental rental = payment.getRental();
         switch (payment.getPaymentType()) {
             case DEPOSIT:
-                rental.depositPaid();
-                rental.setDepositPaidAt(Date.from(Instant.now()));
+                // 批量预订的押金合并为一笔支付（挂在批次第一条租赁上），整批一起更新
+                List<Rental> rentals = rental.getBatchId() != null
+                        ? rentalRepository.findByBatchId(rental.getBatchId())
+                        : List.of(rental);
+                Date paidAt = Date.from(Instant.now());
+                if (rental.getStatus() == RentalStatus.CANCELLED) {
+                    // 会话失效前一刻完成的付款：租赁已取消，押金需要人工退款
+                    log.warn("Deposit payment {} succeeded for cancelled rental {}, refund required",
+                            payment.getId(), rental.getId());
+                }
+                for (Rental paid : rentals) {
+                    paid.depositPaid();
+                    paid.setDepositPaidAt(paidAt);
+                }
+                rentalRepository.saveAll(rentals);
                 break;
             case RENTAL:
                 rental.rentalFeePaid();
@@ -314,6 +448,16 @@ public class StripePaymentService implements PaymentService {
                 .orElseThrow(() -> new PaymentBusinessException("Payment not found"));
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentResponseDTO findLatestDeposit(Long rentalId, String batchId) {
+        return paymentRepository.findLatestForRental(rentalId, batchId, PaymentType.DEPOSIT, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .map(this::convertToDTO)
+                .orElse(null);
+    }
+    
     private PaymentResponseDTO convertToDTO(Payment payment) {
         return modelMapper.map(payment, PaymentResponseDTO.class);
     }
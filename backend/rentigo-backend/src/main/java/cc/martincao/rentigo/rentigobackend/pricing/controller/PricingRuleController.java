@@ -0,0 +1,71 @@
+package cc.martincao.rentigo.rentigobackend.pricing.controller;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleDTO;
+import cc.martincao.rentigo.rentigobackend.pricing.dto.UtilizationDTO;
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.engine.PricingRuleEngine;
+import cc.martincao.rentigo.rentigobackend.pricing.service.PricingRuleService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 计价规则管理；修改在事务提交后立即生效，其他实例在下一次指纹比对（app.pricing.reload-interval）时生效
+ */
+@RestController
+@RequestMapping("/api/admin/pricing-rules")
+@PreAuthorize("hasRole('ADMIN')")
+@SecurityRequirement(name = "bearerAuth")
+public class PricingRuleController {
+
+    private final PricingRuleService pricingRuleService;
+    private final PricingRuleEngine pricingRuleEngine;
+    private final UtilizationPricing utilizationPricing;
+
+    public PricingRuleController(PricingRuleService pricingRuleService, PricingRuleEngine pricingRuleEngine,
+                                 UtilizationPricing utilizationPricing) {
+        this.pricingRuleService = pricingRuleService;
+        this.pricingRuleEngine = pricingRuleEngine;
+        this.utilizationPricing = utilizationPricing;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<PricingRuleDTO>> listRules() {
+        return ResponseEntity.ok(pricingRuleService.listRules());
+    }
+
+    @PostMapping
+    public ResponseEntity<PricingRuleDTO> createRule(@RequestBody PricingRuleDTO rule) {
+        return ResponseEntity.ok(pricingRuleService.createRule(rule));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<PricingRuleDTO> updateRule(@PathVariable Long id, @RequestBody PricingRuleDTO rule) {
+        return ResponseEntity.ok(pricingRuleService.updateRule(id, rule));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> removeRule(@PathVariable Long id) {
+        pricingRuleService.removeRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /** 直接改库后手动重新编译 */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Long>> reload() {
+        pricingRuleEngine.reload();
+        return ResponseEntity.ok(Map.of(
+                "version", pricingRuleEngine.version(),
+                "tables", (long) pricingRuleEngine.tableCount()));
+    }
+
+    /** 各网点、车型的出租率与动态调价系数 */
+    @GetMapping("/utilization")
+    public ResponseEntity<List<UtilizationDTO>> utilization() {
+        return ResponseEntity.ok(utilizationPricing.snapshot());
+    }
+}
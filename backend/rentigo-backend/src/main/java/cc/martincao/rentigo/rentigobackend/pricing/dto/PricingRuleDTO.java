@@ -0,0 +1,29 @@
+package cc.martincao.rentigo.rentigobackend.pricing.dto;
+
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRuleType;
+import lombok.Data;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class PricingRuleDTO {
+    private Long id;
+    private String name;
+    private PricingRuleType ruleType;
+    private Byte vehicleTypeId;        // 为空表示全部车型
+    private Integer locationId;        // 为空表示全部网点
+    private BigDecimal adjustmentPercent;
+    private LocalDate startDate;       // SEASON
+    private LocalDate endDate;         // SEASON，含当天
+    private Integer minDays;           // DURATION
+    private Boolean enabled;
+
+    public static PricingRuleDTO fromEntity(PricingRule rule) {
+        PricingRuleDTO dto = new PricingRuleDTO();
+        BeanUtils.copyProperties(rule, dto);
+        return dto;
+    }
+}
@@ -0,0 +1,9 @@
+package cc.martincao.rentigo.rentigobackend.pricing.dto;
+
+import java.util.Date;
+
+/**
+ * 规则表的变更指纹：条数与最后修改时间，任一变化即需重新编译
+ */
+public record PricingRuleFingerprint(long count, Date lastUpdated) {
+}
@@ -0,0 +1,22 @@
+package cc.martincao.rentigo.rentigobackend.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 一个 (网点, 车型) 分组的出租率与当前调价系数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UtilizationDTO {
+    private Integer locationId;
+    private Byte vehicleTypeId;
+    private int fleet;                 // 在营车辆数（可租 + 已租出）
+    private int rented;
+    private double utilization;        // 加权平均出租率
+    private BigDecimal multiplier;     // 日租金调价系数，1.0000 表示不调整
+}
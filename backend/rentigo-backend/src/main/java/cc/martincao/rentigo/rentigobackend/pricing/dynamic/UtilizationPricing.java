@@ -0,0 +1,263 @@
+package cc.martincao.rentigo.rentigobackend.pricing.dynamic;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.UtilizationDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.LocationAvailabilityDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleAvailabilityCounters;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按出租率动态调价
+ * <p>
+ * 按 (网点, 车型) 取在营车辆数（可租 + 已租出）与已租出数，计数来自 {@link VehicleAvailabilityCounters}，这里只保存出租率的
+ * 随时间衰减的指数加权平均（半衰期 app.dynamic-pricing.half-life），短时间内的集中借还不会让价格剧烈跳动。
+ * 车辆变更（事务提交后，借出、归还、调拨、上下架）在计数器应用增量之后，把变更前后两个分组的加权平均推进到当前时刻并换成新的出租率；
+ * 启动、批量变更后及定时对全部分组做同样的刷新，跟上计数器对账的修正。
+ * <p>
+ * 出租率高于 high-utilization 时日租金线性上浮，满租时达到 max-multiplier；低于 low-utilization 时线性下调，空置时为 min-multiplier。
+ * 系数按 step 取整，报价缓存不会因为细小波动失效。
+ * <p>
+ * 每个分组的状态是不可变对象，整体替换；报价路径只做两次 ConcurrentHashMap 读取和一次衰减计算，不加锁。
+ */
+@Component
+public class UtilizationPricing {
+
+    // 系数以万分之一为单位
+    public static final int BASIS = 10_000;
+
+    private static final Logger log = LoggerFactory.getLogger(UtilizationPricing.class);
+
+    private final VehicleAvailabilityCounters counters;
+    private final boolean enabled;
+    private final double tauMillis;
+    private final double lowUtilization;
+    private final double highUtilization;
+    private final int minMultiplier;
+    private final int maxMultiplier;
+    private final int step;
+    private final Map<Key, Utilization> groups = new ConcurrentHashMap<>();
+
+    public UtilizationPricing(VehicleAvailabilityCounters counters,
+                              @Value("${app.dynamic-pricing.enabled:true}") boolean enabled,
+                              @Value("${app.dynamic-pricing.half-life:6h}") Duration halfLife,
+                              @Value("${app.dynamic-pricing.low-utilization:0.3}") double lowUtilization,
+                              @Value("${app.dynamic-pricing.high-utilization:0.7}") double highUtilization,
+                              @Value("${app.dynamic-pricing.min-multiplier:0.8}") BigDecimal minMultiplier,
+                              @Value("${app.dynamic-pricing.max-multiplier:1.3}") BigDecimal maxMultiplier,
+                              @Value("${app.dynamic-pricing.step:0.01}") BigDecimal step) {
+        if (!(0 < lowUtilization && lowUtilization <= highUtilization && highUtilization < 1)) {
+            throw new IllegalArgumentException("Utilization thresholds must satisfy 0 < low <= high < 1");
+        }
+        this.counters = counters;
+        this.enabled = enabled;
+        this.tauMillis = halfLife.toMillis() / Math.log(2);
+        this.lowUtilization = lowUtilization;
+        this.highUtilization = highUtilization;
+        this.minMultiplier = basisPoints(minMultiplier);
+        this.maxMultiplier = basisPoints(maxMultiplier);
+        this.step = Math.max(basisPoints(step), 1);
+        if (this.minMultiplier > BASIS || this.maxMultiplier < BASIS) {
+            throw new IllegalArgumentException("Multiplier bounds must satisfy min <= 1 <= max");
+        }
+    }
+
+    /**
+     * 按计数器刷新全部分组；计数器在同一事件中先于本监听器对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.dynamic-pricing.reconcile-interval:5m}",
+            fixedDelayString = "${app.dynamic-pricing.reconcile-interval:5m}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        int refreshed = reconcile(System.currentTimeMillis());
+        log.info("Utilization pricing reconciled for {} location / vehicle type groups", refreshed);
+    }
+
+    int reconcile(long now) {
+        Set<Key> keys = new HashSet<>(groups.keySet());
+        for (VehicleStatus status : List.of(VehicleStatus.AVAILABLE, VehicleStatus.RENTED)) {
+            for (LocationAvailabilityDTO location : counters.summary(status)) {
+                location.getByVehicleType().keySet()
+                        .forEach(typeId -> keys.add(new Key(location.getLocationId(), typeId)));
+            }
+        }
+        refresh(keys, now);
+        return keys.size();
+    }
+
+    /**
+     * 计数器在提交后才应用增量（见 {@link VehicleAvailabilityCounters#onVehicleChanged}），
+     * 这里同样在提交前登记，登记晚于计数器，提交后读到的已是变更后的计数
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Set<Key> keys = new HashSet<>(2);
+        addKey(keys, event.getPrevious());
+        addKey(keys, event.getCurrent());
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(keys, System.currentTimeMillis());
+                }
+            });
+        } else {
+            refresh(keys, System.currentTimeMillis());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesBulkChanged(VehiclesBulkChangedEvent event) {
+        reconcile();
+    }
+
+    /**
+     * 加权平均以旧出租率推进到 now，之后以计数器当前的出租率继续
+     */
+    void refresh(Collection<Key> keys, long now) {
+        for (Key key : keys) {
+            double utilization = utilization(fleet(key), counters.count(key.locationId(), key.vehicleTypeId(),
+                    VehicleStatus.RENTED));
+            groups.compute(key, (k, state) -> state == null
+                    ? Utilization.initial(utilization, now)
+                    : state.retarget(utilization, now, tauMillis));
+        }
+    }
+
+    /**
+     * 当前调价系数（万分之一）；未启用或没有在营车辆时为 {@link #BASIS}
+     */
+    public int multiplier(Integer locationId, Byte vehicleTypeId) {
+        return multiplier(locationId, vehicleTypeId, System.currentTimeMillis());
+    }
+
+    int multiplier(Integer locationId, Byte vehicleTypeId, long now) {
+        if (!enabled) {
+            return BASIS;
+        }
+        Key key = new Key(locationId, vehicleTypeId);
+        Utilization state = groups.get(key);
+        if (state == null || fleet(key) <= 0) {
+            return BASIS;
+        }
+        return toMultiplier(state.smoothedAt(now, tauMillis));
+    }
+
+    /**
+     * 调价后的日租金（分），四舍五入
+     */
+    public long dailyPriceCents(Integer locationId, Byte vehicleTypeId, long dailyPriceCents) {
+        return applyMultiplier(dailyPriceCents, multiplier(locationId, vehicleTypeId));
+    }
+
+    public static long applyMultiplier(long dailyPriceCents, int multiplier) {
+        return (Math.multiplyExact(dailyPriceCents, multiplier) + BASIS / 2) / BASIS;
+    }
+
+    /**
+     * 各分组的出租率与当前系数（按网点、车型排序）
+     */
+    public List<UtilizationDTO> snapshot() {
+        long now = System.currentTimeMillis();
+        List<UtilizationDTO> result = new ArrayList<>();
+        groups.forEach((key, state) -> {
+            long fleet = fleet(key);
+            double smoothed = state.smoothedAt(now, tauMillis);
+            result.add(new UtilizationDTO(key.locationId(), key.vehicleTypeId(), (int) fleet,
+                    (int) counters.count(key.locationId(), key.vehicleTypeId(), VehicleStatus.RENTED),
+                    Math.round(smoothed * 10_000) / 10_000.0,
+                    BigDecimal.valueOf(fleet > 0 ? toMultiplier(smoothed) : BASIS, 4)));
+        });
+        result.sort(Comparator.comparing(UtilizationDTO::getLocationId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(UtilizationDTO::getVehicleTypeId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    int toMultiplier(double utilization) {
+        double multiplier = BASIS;
+        if (utilization > highUtilization) {
+            multiplier += (maxMultiplier - BASIS) * (utilization - highUtilization) / (1 - highUtilization);
+        } else if (utilization < lowUtilization) {
+            multiplier -= (BASIS - minMultiplier) * (lowUtilization - utilization) / lowUtilization;
+        }
+        long stepped = Math.round(multiplier / step) * step;
+        return (int) Math.max(minMultiplier, Math.min(maxMultiplier, stepped));
+    }
+
+    // 可租和已租出的车辆在营，维修、下架的不计入
+    private long fleet(Key key) {
+        return counters.count(key.locationId(), key.vehicleTypeId(), VehicleStatus.AVAILABLE)
+                + counters.count(key.locationId(), key.vehicleTypeId(), VehicleStatus.RENTED);
+    }
+
+    private static void addKey(Set<Key> keys, VehicleDTO vehicle) {
+        if (vehicle != null && vehicle.getLocationId() != null) {
+            keys.add(new Key(vehicle.getLocationId(), vehicle.getVehicleTypeId()));
+        }
+    }
+
+    private static double utilization(long fleet, long rented) {
+        return fleet > 0 ? Math.min(Math.max((double) rented / fleet, 0), 1) : 0;
+    }
+
+    private static int basisPoints(BigDecimal value) {
+        return value.movePointRight(4).intValue();
+    }
+
+    record Key(Integer locationId, Byte vehicleTypeId) {
+    }
+
+    /**
+     * 一个分组截至 updatedAt 的加权平均出租率，以及此后的出租率；两次变更之间出租率不变，衰减可以按时间精确推算
+     */
+    private record Utilization(double target, double smoothed, long updatedAt) {
+
+        static Utilization initial(double utilization, long now) {
+            return new Utilization(utilization, utilization, now);
+        }
+
+        double smoothedAt(long now, double tauMillis) {
+            long elapsed = now - updatedAt;
+            if (elapsed <= 0) {
+                return smoothed;
+            }
+            return target + (smoothed - target) * Math.exp(-elapsed / tauMillis);
+        }
+
+        Utilization retarget(double utilization, long now, double tauMillis) {
+            return new Utilization(utilization, smoothedAt(now, tauMillis), Math.max(now, updatedAt));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cc.martincao.rentigo.rentigobackend.pricing.engine;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleFingerprint;
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.event.PricingRulesChangedEvent;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.repository.PricingRuleRepository;
+import cc.martincao.rentigo.rentigobackend.rental.pricing.RentalPricing;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 规则计价引擎：周末、季节调价与长租折扣
+ * <p>
+ * 启用的规则在载入时按 (车型, 网点) 编译成不可变的 {@link PricingTable}：规则里出现过的车型、网点各自一张表，
+ * 其余组合共用"全部车型 / 全部网点"的表。报价只需一次表查找加几次数组读取，不查库、不加锁。
+ * 规则修改后（本实例在事务提交后立即、其他实例在下次比对指纹时）重新编译并整体替换快照。
+ * 没有任何规则时结果与 {@link RentalPricing#rentalFeeCents} 完全一致。
+ */
+@Component
+public class PricingRuleEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingRuleEngine.class);
+
+    // 表键中"全部车型 / 全部网点"的占位值
+    private static final long ANY = 0xFFFF_FFFFL;
+
+    private final PricingRuleRepository pricingRuleRepository;
+    private final ZoneId zone;
+    private final long zoneOffsetMillis;
+    private final boolean fixedOffset;
+    private final int horizonDays;
+
+    private volatile Snapshot snapshot;
+
+    public PricingRuleEngine(PricingRuleRepository pricingRuleRepository,
+                             @Value("${app.pricing.zone:UTC}") ZoneId zone,
+                             @Value("${app.pricing.horizon-days:1100}") int horizonDays) {
+        this.pricingRuleRepository = pricingRuleRepository;
+        this.zone = zone;
+        this.fixedOffset = zone.getRules().isFixedOffset();
+        this.zoneOffsetMillis = fixedOffset ? zone.getRules().getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : 0;
+        this.horizonDays = horizonDays;
+        this.snapshot = compile(List.of(), null, 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        PricingRuleFingerprint fingerprint = pricingRuleRepository.fingerprint();
+        List<PricingRule> rules = pricingRuleRepository.findByEnabledTrueOrderByIdAsc();
+        snapshot = compile(rules, fingerprint, snapshot.version() + 1);
+        log.info("Pricing rules compiled: {} rules into {} tables (version {})",
+                rules.size(), snapshot.tables().size(), snapshot.version());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPricingRulesChanged(PricingRulesChangedEvent event) {
+        reload();
+    }
+
+    /**
+     * 其他实例修改的规则：指纹变化时重新载入
+     */
+    @Scheduled(fixedDelayString = "${app.pricing.reload-interval:1m}")
+    public void reloadIfChanged() {
+        if (!Objects.equals(pricingRuleRepository.fingerprint(), snapshot.fingerprint())) {
+            reload();
+        }
+    }
+
+    /**
+     * 价格表版本，每次重新编译递增；报价缓存以此区分新旧规则
+     */
+    public long version() {
+        return snapshot.version();
+    }
+
+    public int tableCount() {
+        return snapshot.tables().size();
+    }
+
+    /**
+     * 租金：日租金先乘以出租率调价系数（{@link UtilizationPricing}，万分之一），再按计价规则逐日计价
+     */
+    public BigDecimal rentalFee(Vehicle vehicle, int multiplier, Date startTime, Date endTime) {
+        long dailyPriceCents = UtilizationPricing.applyMultiplier(RentalPricing.toCents(vehicle.getDailyPrice()), multiplier);
+        return RentalPricing.fromCents(rentalFeeCents(vehicle.getVehicleType().getId(), vehicle.getLocation().getId(),
+                dailyPriceCents, startTime.getTime(), endTime.getTime()));
+    }
+
+    /**
+     * 租金（分）：计费天数同 {@link RentalPricing#billableDays}，第 i 天按起租日（app.pricing.zone）后第 i 个日历日的系数计价
+     */
+    public long rentalFeeCents(Byte vehicleTypeId, Integer locationId, long dailyPriceCents,
+                               long startMillis, long endMillis) {
+        Snapshot current = snapshot;
+        long typeKey = vehicleTypeId != null && current.typeIds().contains(vehicleTypeId) ? vehicleTypeId : ANY;
+        long locationKey = locationId != null && current.locationIds().contains(locationId) ? locationId : ANY;
+        PricingTable table = current.tables().get(key(typeKey, locationKey));
+        return table.feeCents(dailyPriceCents, epochDay(startMillis), RentalPricing.billableDays(startMillis, endMillis));
+    }
+
+    long epochDay(long millis) {
+        if (fixedOffset) {
+            return Math.floorDiv(millis + zoneOffsetMillis, RentalPricing.DAY_MILLIS);
+        }
+        return LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone).toEpochDay();
+    }
+
+    private Snapshot compile(List<PricingRule> rules, PricingRuleFingerprint fingerprint, long version) {
+        // 从前一个月开始预计算，覆盖进行中和未来的租期
+        long originDay = LocalDate.now(zone).toEpochDay() - 31;
+        Set<Byte> typeIds = new LinkedHashSet<>();
+        Set<Integer> locationIds = new LinkedHashSet<>();
+        for (PricingRule rule : rules) {
+            if (rule.getVehicleTypeId() != null) {
+                typeIds.add(rule.getVehicleTypeId());
+            }
+            if (rule.getLocationId() != null) {
+                locationIds.add(rule.getLocationId());
+            }
+        }
+        Map<Long, PricingTable> tables = new HashMap<>();
+        for (Byte typeId : withAny(typeIds)) {
+            for (Integer locationId : withAny(locationIds)) {
+                List<PricingRule> applicable = rules.stream()
+                        .filter(r -> r.getVehicleTypeId() == null || r.getVehicleTypeId().equals(typeId))
+                        .filter(r -> r.getLocationId() == null || r.getLocationId().equals(locationId))
+                        .toList();
+                tables.put(key(typeId != null ? typeId : ANY, locationId != null ? locationId : ANY),
+                        PricingTable.compile(applicable, originDay, horizonDays));
+            }
+        }
+        return new Snapshot(Set.copyOf(typeIds), Set.copyOf(locationIds), Map.copyOf(tables), fingerprint, version);
+    }
+
+    private static <T> List<T> withAny(Set<T> ids) {
+        List<T> values = new ArrayList<>(ids);
+        values.add(null);
+        return values;
+    }
+
+    private static long key(long typeKey, long locationKey) {
+        return typeKey << 32 | locationKey;
+    }
+
+    private record Snapshot(Set<Byte> typeIds,
+                            Set<Integer> locationIds,
+                            Map<Long, PricingTable> tables,
+                            PricingRuleFingerprint fingerprint,
+                            long version) {
+    }
+}
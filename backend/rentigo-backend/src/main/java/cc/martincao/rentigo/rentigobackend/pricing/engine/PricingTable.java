@@ -0,0 +1,126 @@
+package cc.martincao.rentigo.rentigobackend.pricing.engine;
+
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRuleType;
+
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 一组计价规则编译成的不可变价格表
+ * <p>
+ * 每天的价格系数以万分比表示（10000 = 原价），编译时在 [originDay, originDay + horizon) 内预先算好前缀和，
+ * 任意租期的系数之和只需两次数组读取；长租折扣按起始天数升序排列，档位很少，顺序查找即可。
+ * 超出预计算范围的日期逐天计算，结果相同。
+ */
+final class PricingTable {
+
+    static final int BASIS = 10_000;
+
+    private final long originDay;
+    private final long[] prefix;
+    private final int weekendBp;
+    private final long[] seasonStart;
+    private final long[] seasonEnd;
+    private final int[] seasonBp;
+    private final int[] tierMinDays;
+    private final int[] tierBp;
+
+    private PricingTable(long originDay, int horizonDays, int weekendBp, long[] seasonStart, long[] seasonEnd,
+                         int[] seasonBp, int[] tierMinDays, int[] tierBp) {
+        this.originDay = originDay;
+        this.weekendBp = weekendBp;
+        this.seasonStart = seasonStart;
+        this.seasonEnd = seasonEnd;
+        this.seasonBp = seasonBp;
+        this.tierMinDays = tierMinDays;
+        this.tierBp = tierBp;
+        this.prefix = new long[horizonDays + 1];
+        for (int i = 0; i < horizonDays; i++) {
+            prefix[i + 1] = prefix[i] + dayFactor(originDay + i);
+        }
+    }
+
+    /**
+     * 编译规则；调用方已按车型 / 网点筛选出适用的规则
+     */
+    static PricingTable compile(List<PricingRule> rules, long originDay, int horizonDays) {
+        int weekend = 0;
+        List<PricingRule> seasons = rules.stream().filter(r -> r.getRuleType() == PricingRuleType.SEASON).toList();
+        TreeMap<Integer, Integer> tiers = new TreeMap<>();
+        for (PricingRule rule : rules) {
+            int bp = basisPoints(rule);
+            if (rule.getRuleType() == PricingRuleType.WEEKEND) {
+                weekend += bp;
+            } else if (rule.getRuleType() == PricingRuleType.DURATION) {
+                tiers.merge(rule.getMinDays(), bp, Integer::sum);
+            }
+        }
+        long[] seasonStart = new long[seasons.size()];
+        long[] seasonEnd = new long[seasons.size()];
+        int[] seasonBp = new int[seasons.size()];
+        for (int i = 0; i < seasons.size(); i++) {
+            seasonStart[i] = seasons.get(i).getStartDate().toEpochDay();
+            seasonEnd[i] = seasons.get(i).getEndDate().toEpochDay();
+            seasonBp[i] = basisPoints(seasons.get(i));
+        }
+        int[] tierMinDays = tiers.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] tierBp = tiers.values().stream().mapToInt(Integer::intValue).toArray();
+        return new PricingTable(originDay, horizonDays, weekend, seasonStart, seasonEnd, seasonBp, tierMinDays, tierBp);
+    }
+
+    /**
+     * 租金（分）：日租金 × 各天系数之和，再按长租折扣调整；各步四舍五入到分
+     */
+    long feeCents(long dailyPriceCents, long startDay, long days) {
+        long from = startDay - originDay;
+        long factorSum;
+        if (from >= 0 && from + days < prefix.length) {
+            factorSum = prefix[(int) (from + days)] - prefix[(int) from];
+        } else {
+            factorSum = 0;
+            for (long day = startDay; day < startDay + days; day++) {
+                factorSum += dayFactor(day);
+            }
+        }
+        long fee = divideRounded(Math.multiplyExact(dailyPriceCents, factorSum));
+        int tier = tierFor(days);
+        return tier == 0 ? fee : divideRounded(Math.multiplyExact(fee, Math.max(BASIS + tier, 0)));
+    }
+
+    /**
+     * 计费天数对应的长租调价（万分比），未达到任何档位时为 0
+     */
+    int tierFor(long days) {
+        int bp = 0;
+        for (int i = 0; i < tierMinDays.length && tierMinDays[i] <= days; i++) {
+            bp = tierBp[i];
+        }
+        return bp;
+    }
+
+    /**
+     * epochDay 当天的价格系数（万分比），调价累加后不低于 0
+     */
+    int dayFactor(long epochDay) {
+        int factor = BASIS;
+        // 1970-01-01 为周四：floorMod(epochDay + 3, 7) 中 0 为周一，5、6 为周六、周日
+        if (Math.floorMod(epochDay + 3, 7) >= 5) {
+            factor += weekendBp;
+        }
+        for (int i = 0; i < seasonBp.length; i++) {
+            if (epochDay >= seasonStart[i] && epochDay <= seasonEnd[i]) {
+                factor += seasonBp[i];
+            }
+        }
+        return Math.max(factor, 0);
+    }
+
+    private static long divideRounded(long value) {
+        return (value + BASIS / 2) / BASIS;
+    }
+
+    private static int basisPoints(PricingRule rule) {
+        return rule.getAdjustmentPercent().movePointRight(2).intValueExact();
+    }
+}
@@ -0,0 +1,17 @@
+package cc.martincao.rentigo.rentigobackend.pricing.event;
+
+/**
+ * 计价规则已修改，事务提交后重新编译价格表
+ */
+public class PricingRulesChangedEvent {
+
+    private final Long ruleId;
+
+    public PricingRulesChangedEvent(Long ruleId) {
+        this.ruleId = ruleId;
+    }
+
+    public Long getRuleId() {
+        return ruleId;
+    }
+}
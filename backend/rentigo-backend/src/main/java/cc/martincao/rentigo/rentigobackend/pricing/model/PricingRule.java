@@ -0,0 +1,66 @@
+package cc.martincao.rentigo.rentigobackend.pricing.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * 计价规则：在日租金基础上按百分比调价
+ * <p>
+ * vehicleTypeId / locationId 为空表示适用于全部车型 / 网点。同一天命中的多条规则调价幅度相加。
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "pricing_rule")
+public class PricingRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "rule_type", nullable = false)
+    private PricingRuleType ruleType;
+
+    @Column(name = "vehicle_type_id")
+    private Byte vehicleTypeId;
+
+    @Column(name = "location_id")
+    private Integer locationId;
+
+    // 调价百分比：20.00 表示加价 20%，-10.00 表示九折
+    @Column(name = "adjustment_percent", nullable = false, precision = 5, scale = 2)
+    private BigDecimal adjustmentPercent;
+
+    // SEASON：生效日期区间（含首尾）
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    // DURATION：起始计费天数
+    @Column(name = "min_days")
+    private Integer minDays;
+
+    @Column(nullable = false)
+    private Boolean enabled = true;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Date createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt;
+}
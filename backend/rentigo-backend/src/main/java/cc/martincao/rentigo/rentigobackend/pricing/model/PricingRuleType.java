@@ -0,0 +1,18 @@
+package cc.martincao.rentigo.rentigobackend.pricing.model;
+
+public enum PricingRuleType {
+    /**
+     * 周末（周六、周日）加价或折扣，按天生效
+     */
+    WEEKEND,
+
+    /**
+     * 季节性（旺季 / 淡季）调价，日期区间 [startDate, endDate] 内按天生效
+     */
+    SEASON,
+
+    /**
+     * 长租折扣，计费天数达到 minDays 时对整单生效；多档时取满足条件的最高档
+     */
+    DURATION
+}
@@ -0,0 +1,20 @@
+package cc.martincao.rentigo.rentigobackend.pricing.repository;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleFingerprint;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface PricingRuleRepository extends JpaRepository<PricingRule, Long> {
+
+    List<PricingRule> findByEnabledTrueOrderByIdAsc();
+
+    List<PricingRule> findAllByOrderByIdAsc();
+
+    // 各实例定期比对，发现其他实例修改了规则后重新载入
+    @Query("select new cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleFingerprint(count(r), max(r.updatedAt)) "
+            + "from PricingRule r")
+    PricingRuleFingerprint fingerprint();
+}
@@ -0,0 +1,16 @@
+package cc.martincao.rentigo.rentigobackend.pricing.service;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleDTO;
+
+import java.util.List;
+
+public interface PricingRuleService {
+    // 全部规则（含停用）
+    List<PricingRuleDTO> listRules();
+
+    PricingRuleDTO createRule(PricingRuleDTO rule);
+
+    PricingRuleDTO updateRule(Long id, PricingRuleDTO rule);
+
+    void removeRule(Long id);
+}
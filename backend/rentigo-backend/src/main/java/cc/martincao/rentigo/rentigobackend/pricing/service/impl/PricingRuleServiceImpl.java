@@ -0,0 +1,122 @@
+package cc.martincao.rentigo.rentigobackend.pricing.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleDTO;
+import cc.martincao.rentigo.rentigobackend.pricing.event.PricingRulesChangedEvent;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRuleType;
+import cc.martincao.rentigo.rentigobackend.pricing.repository.PricingRuleRepository;
+import cc.martincao.rentigo.rentigobackend.pricing.service.PricingRuleService;
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Service
+public class PricingRuleServiceImpl implements PricingRuleService {
+
+    // 调价范围：最多降价 90%，最多加价 500%
+    private static final BigDecimal MIN_ADJUSTMENT = new BigDecimal("-90");
+    private static final BigDecimal MAX_ADJUSTMENT = new BigDecimal("500");
+
+    private final PricingRuleRepository pricingRuleRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PricingRuleServiceImpl(PricingRuleRepository pricingRuleRepository,
+                                  ReferenceDataRegistry referenceData,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.pricingRuleRepository = pricingRuleRepository;
+        this.referenceData = referenceData;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public List<PricingRuleDTO> listRules() {
+        return pricingRuleRepository.findAllByOrderByIdAsc().stream()
+                .map(PricingRuleDTO::fromEntity)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public PricingRuleDTO createRule(PricingRuleDTO dto) {
+        PricingRule rule = new PricingRule();
+        apply(dto, rule);
+        rule = pricingRuleRepository.save(rule);
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(rule.getId()));
+        return PricingRuleDTO.fromEntity(rule);
+    }
+
+    @Override
+    @Transactional
+    public PricingRuleDTO updateRule(Long id, PricingRuleDTO dto) {
+        PricingRule rule = pricingRuleRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Pricing rule not found"));
+        apply(dto, rule);
+        rule = pricingRuleRepository.save(rule);
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(rule.getId()));
+        return PricingRuleDTO.fromEntity(rule);
+    }
+
+    @Override
+    @Transactional
+    public void removeRule(Long id) {
+        pricingRuleRepository.findById(id).ifPresent(rule -> {
+            pricingRuleRepository.delete(rule);
+            eventPublisher.publishEvent(new PricingRulesChangedEvent(id));
+        });
+    }
+
+    private void apply(PricingRuleDTO dto, PricingRule rule) {
+        validate(dto);
+        BeanUtils.copyProperties(dto, rule, "id", "enabled");
+        rule.setEnabled(dto.getEnabled() == null || dto.getEnabled());
+        // 与规则类型无关的字段清空，避免编译时误用
+        if (dto.getRuleType() != PricingRuleType.SEASON) {
+            rule.setStartDate(null);
+            rule.setEndDate(null);
+        }
+        if (dto.getRuleType() != PricingRuleType.DURATION) {
+            rule.setMinDays(null);
+        }
+    }
+
+    private void validate(PricingRuleDTO dto) {
+        if (dto.getName() == null || dto.getName().isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (dto.getRuleType() == null) {
+            throw new IllegalArgumentException("ruleType is required");
+        }
+        BigDecimal adjustment = dto.getAdjustmentPercent();
+        if (adjustment == null || adjustment.scale() > 2
+                || adjustment.compareTo(MIN_ADJUSTMENT) < 0 || adjustment.compareTo(MAX_ADJUSTMENT) > 0) {
+            throw new IllegalArgumentException("adjustmentPercent must be between -90 and 500 with at most 2 decimals");
+        }
+        if (dto.getVehicleTypeId() != null && referenceData.findVehicleType(dto.getVehicleTypeId()).isEmpty()) {
+            throw new IllegalArgumentException("Unknown vehicle type: " + dto.getVehicleTypeId());
+        }
+        if (dto.getLocationId() != null && !referenceData.locationExists(dto.getLocationId())) {
+            throw new IllegalArgumentException("Unknown location: " + dto.getLocationId());
+        }
+        switch (dto.getRuleType()) {
+            case SEASON -> {
+                if (dto.getStartDate() == null || dto.getEndDate() == null
+                        || dto.getEndDate().isBefore(dto.getStartDate())) {
+                    throw new IllegalArgumentException("SEASON rules need startDate <= endDate");
+                }
+            }
+            case DURATION -> {
+                if (dto.getMinDays() == null || dto.getMinDays() < 2) {
+                    throw new IllegalArgumentException("DURATION rules need minDays >= 2");
+                }
+            }
+            case WEEKEND -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package cc.martincao.rentigo.rentigobackend.reference;
+
+import cc.martincao.rentigo.rentigobackend.reference.dto.LocationDTO;
+import cc.martincao.rentigo.rentigobackend.reference.dto.VehicleTypeDTO;
+import cc.martincao.rentigo.rentigobackend.reference.event.ReferenceDataRefreshedEvent;
+import cc.martincao.rentigo.rentigobackend.user.Role;
+import cc.martincao.rentigo.rentigobackend.user.repository.RoleRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.LocationRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * 参考数据注册表（车型、网点、角色），进程内不可变快照
+ * <p>
+ * 启动完成后整体载入，管理员修改后调用 {@link #refresh()} 重新载入并整体替换（copy-on-write），读取无需加锁；
+ * 每次载入后发布 {@link ReferenceDataRefreshedEvent}。
+ * 写路径需要关联实体时，返回按快照新建的游离实体（只带 id 等字段），保存时 Hibernate 只取其主键写外键，不再查库。
+ */
+@Component
+public class ReferenceDataRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataRegistry.class);
+
+    private final VehicleTypeRepository vehicleTypeRepository;
+    private final LocationRepository locationRepository;
+    private final RoleRepository roleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long epoch = System.currentTimeMillis();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), Map.of(), 0);
+
+    public ReferenceDataRegistry(VehicleTypeRepository vehicleTypeRepository,
+                                 LocationRepository locationRepository,
+                                 RoleRepository roleRepository,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.vehicleTypeRepository = vehicleTypeRepository;
+        this.locationRepository = locationRepository;
+        this.roleRepository = roleRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        Map<Byte, VehicleTypeDTO> types = vehicleTypeRepository.findAll().stream()
+                .sorted(Comparator.comparing(VehicleType::getId))
+                .collect(toOrderedMap(VehicleType::getId, VehicleTypeDTO::fromEntity));
+        Map<Integer, LocationDTO> locations = locationRepository.findAll().stream()
+                .sorted(Comparator.comparing(Location::getId))
+                .collect(toOrderedMap(Location::getId, LocationDTO::fromEntity));
+        Map<String, Integer> roles = roleRepository.findAll().stream()
+                .collect(toOrderedMap(Role::getName, Role::getId));
+        snapshot = new Snapshot(types, locations, roles, snapshot.version() + 1);
+        log.info("Reference data loaded: {} vehicle types, {} locations, {} roles",
+                types.size(), locations.size(), roles.size());
+        eventPublisher.publishEvent(new ReferenceDataRefreshedEvent(snapshot.version()));
+    }
+
+    /**
+     * 全部车型（按 id 排序）；返回的 DTO 为快照内部对象，调用方不应修改
+     */
+    public List<VehicleTypeDTO> vehicleTypes() {
+        return List.copyOf(snapshot.types().values());
+    }
+
+    /**
+     * 全部网点（按 id 排序）；返回的 DTO 为快照内部对象，调用方不应修改
+     */
+    public List<LocationDTO> locations() {
+        return List.copyOf(snapshot.locations().values());
+    }
+
+    public boolean vehicleTypeExists(Byte vehicleTypeId) {
+        return vehicleTypeId != null && snapshot.types().containsKey(vehicleTypeId);
+    }
+
+    public boolean locationExists(Integer locationId) {
+        return locationId != null && snapshot.locations().containsKey(locationId);
+    }
+
+    /**
+     * 按快照新建的游离车型实体，可直接作为关联写入
+     */
+    public Optional<VehicleType> findVehicleType(Byte id) {
+        VehicleTypeDTO dto = id != null ? snapshot.types().get(id) : null;
+        if (dto == null) {
+            return Optional.empty();
+        }
+        VehicleType type = new VehicleType();
+        type.setId(dto.getId());
+        type.setTypeName(dto.getTypeName());
+        type.setDescription(dto.getDescription());
+        type.setSeats(dto.getSeats());
+        type.setDepositAmount(dto.getDepositAmount());
+        return Optional.of(type);
+    }
+
+    /**
+     * 按快照新建的游离网点实体，可直接作为关联写入
+     */
+    public Optional<Location> findLocation(Integer id) {
+        LocationDTO dto = id != null ? snapshot.locations().get(id) : null;
+        if (dto == null) {
+            return Optional.empty();
+        }
+        Location location = new Location();
+        location.setId(dto.getId());
+        location.setCity(dto.getCity());
+        location.setCenterName(dto.getCenterName());
+        location.setAddress(dto.getAddress());
+        location.setLat(dto.getLat());
+        location.setLng(dto.getLng());
+        return Optional.of(location);
+    }
+
+    /**
+     * 按快照新建的游离角色实体，可直接作为关联写入
+     */
+    public Optional<Role> findRole(String name) {
+        Integer id = name != null ? snapshot.roles().get(name) : null;
+        if (id == null) {
+            return Optional.empty();
+        }
+        Role role = new Role();
+        role.setId(id);
+        role.setName(name);
+        return Optional.of(role);
+    }
+
+    /**
+     * 快照版本，每次重新载入递增
+     */
+    public long version() {
+        return snapshot.version();
+    }
+
+    public String etag() {
+        return "\"" + epoch + "-reference-" + snapshot.version() + "\"";
+    }
+
+    private static <T, K, V> Collector<T, ?, Map<K, V>> toOrderedMap(Function<T, K> key, Function<T, V> value) {
+        return Collectors.collectingAndThen(
+                Collectors.toMap(key, value, (a, b) -> a, LinkedHashMap::new),
+                Collections::unmodifiableMap);
+    }
+
+    private record Snapshot(Map<Byte, VehicleTypeDTO> types,
+                            Map<Integer, LocationDTO> locations,
+                            Map<String, Integer> roles,
+                            long version) {
+    }
+}
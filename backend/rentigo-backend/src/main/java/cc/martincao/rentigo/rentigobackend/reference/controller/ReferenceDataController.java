@@ -0,0 +1,67 @@
+package cc.martincao.rentigo.rentigobackend.reference.controller;
+
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.reference.dto.LocationDTO;
+import cc.martincao.rentigo.rentigobackend.reference.dto.VehicleTypeDTO;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class ReferenceDataController {
+
+    private final ReferenceDataRegistry referenceData;
+    private final CacheControl cacheControl;
+
+    public ReferenceDataController(ReferenceDataRegistry referenceData,
+                                   @Value("${app.reference-data.max-age:1h}") Duration maxAge) {
+        this.referenceData = referenceData;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    /** 全部车型，可长期缓存；过期后凭 ETag 条件请求 */
+    @GetMapping("/vehicle/types")
+    public ResponseEntity<List<VehicleTypeDTO>> vehicleTypes(WebRequest request) {
+        String etag = referenceData.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(referenceData.vehicleTypes());
+    }
+
+    /** 全部服务网点，可长期缓存；过期后凭 ETag 条件请求 */
+    @GetMapping("/locations")
+    public ResponseEntity<List<LocationDTO>> locations(WebRequest request) {
+        String etag = referenceData.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(referenceData.locations());
+    }
+
+    /** 管理员修改车型/网点/角色后重新载入参考数据 */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/admin/reference-data/refresh")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Integer>> refresh() {
+        referenceData.refresh();
+        return ResponseEntity.ok(Map.of(
+                "vehicleTypes", referenceData.vehicleTypes().size(),
+                "locations", referenceData.locations().size()));
+    }
+}
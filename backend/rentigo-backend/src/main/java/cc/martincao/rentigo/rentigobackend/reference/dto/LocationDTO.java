@@ -0,0 +1,25 @@
+package cc.martincao.rentigo.rentigobackend.reference.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationDTO {
+    private Integer id;
+    private String city;
+    private String centerName;
+    private String address;
+    private BigDecimal lat;
+    private BigDecimal lng;
+
+    public static LocationDTO fromEntity(Location location) {
+        return new LocationDTO(location.getId(), location.getCity(), location.getCenterName(),
+                location.getAddress(), location.getLat(), location.getLng());
+    }
+}
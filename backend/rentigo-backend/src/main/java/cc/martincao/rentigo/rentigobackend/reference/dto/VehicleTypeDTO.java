@@ -0,0 +1,24 @@
+package cc.martincao.rentigo.rentigobackend.reference.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleTypeDTO {
+    private Byte id;
+    private String typeName;
+    private String description;
+    private Integer seats;
+    private BigDecimal depositAmount;
+
+    public static VehicleTypeDTO fromEntity(VehicleType type) {
+        return new VehicleTypeDTO(type.getId(), type.getTypeName(), type.getDescription(),
+                type.getSeats(), type.getDepositAmount());
+    }
+}
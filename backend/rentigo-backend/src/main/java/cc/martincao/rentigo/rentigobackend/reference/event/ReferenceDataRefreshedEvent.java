@@ -0,0 +1,17 @@
+package cc.martincao.rentigo.rentigobackend.reference.event;
+
+/**
+ * 参考数据快照已重新载入（启动或管理员刷新），依赖网点、车型的进程内索引据此重建
+ */
+public class ReferenceDataRefreshedEvent {
+
+    private final long version;
+
+    public ReferenceDataRefreshedEvent(long version) {
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,85 @@
+package cc.martincao.rentigo.rentigobackend.rental.availability;
+
+import cc.martincao.rentigo.rentigobackend.rental.exception.BookingConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 预订准入：同一辆车的预订决策在进程内串行执行
+ * <p>
+ * 车辆 id 映射到固定数量的锁分段之一。锁在事务内获取，事务结束（提交或回滚）后才释放，
+ * 因此下一个请求看到的一定是上一个请求的最终结果。等待超过上限直接抛出 {@link BookingConflictException}，
+ * 热门车辆被集中抢订时，落败的请求很快得到明确的冲突响应，而不是排队等待数据库行锁超时。
+ * <p>
+ * 只约束本进程；多实例之间由车辆版本号（乐观锁强制递增）在提交时兜底。
+ */
+@Component
+public class BookingAdmission {
+
+    private final ReentrantLock[] stripes;
+    private final long maxWaitNanos;
+
+    public BookingAdmission(@Value("${app.booking.admission-stripes:256}") int stripes,
+                            @Value("${app.booking.admission-max-wait:200ms}") Duration maxWait) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * 在当前事务内取得该车辆的预订权，事务结束时自动释放
+     */
+    public void enter(Long vehicleId) {
+        acquire(stripeIndex(vehicleId));
+    }
+
+    /**
+     * 一次取得多辆车的预订权（批量预订）。按分段下标升序加锁，两个批次争用同一组车辆时不会互相等待成环；
+     * 任一分段等待超时即抛出冲突，已取得的分段随事务结束释放。
+     */
+    public void enterAll(Collection<Long> vehicleIds) {
+        SortedSet<Integer> indexes = new TreeSet<>();
+        vehicleIds.forEach(vehicleId -> indexes.add(stripeIndex(vehicleId)));
+        indexes.forEach(this::acquire);
+    }
+
+    private void acquire(int index) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Booking admission requires an active transaction");
+        }
+        ReentrantLock lock = stripes[index];
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new BookingConflictException("Vehicle is being booked by another request, please retry");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private int stripeIndex(Long vehicleId) {
+        // 打散连续 id，避免相邻车辆集中到少数分段
+        int hash = Long.hashCode(vehicleId) * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
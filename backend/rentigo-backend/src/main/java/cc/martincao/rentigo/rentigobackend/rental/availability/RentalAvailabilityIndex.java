@@ -0,0 +1,231 @@
+package cc.martincao.rentigo.rentigobackend.rental.availability;
+
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.exception.BookingConflictException;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 车辆占用时间段索引（进程内）
+ * <p>
+ * 每辆车的未取消租赁按开始时间排序存放在原始类型数组中，并维护结束时间的前缀最大值：
+ * 查询 [from, to) 是否冲突只需二分找到最后一个 start &lt; to 的位置，再比较该处的前缀最大结束时间是否 &gt; from，O(log n)。
+ * <p>
+ * 每辆车的数组不可变，写入时复制后整体替换（同一辆车的写入经 {@link ConcurrentHashMap#compute} 串行化），读取无需加锁。
+ * 新建租赁通过 {@link #reserve} 在事务内原子地"检查并占用"，事务回滚时撤销；
+ * 归还、取消等变更由 {@link RentalChangedEvent}（事务提交后）更新。已结束超过一天的时间段在写入时顺带清理。
+ */
+@Component
+public class RentalAvailabilityIndex {
+
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final Logger log = LoggerFactory.getLogger(RentalAvailabilityIndex.class);
+
+    private final RentalRepository rentalRepository;
+    private final Map<Long, VehicleIntervals> byVehicle = new ConcurrentHashMap<>();
+
+    public RentalAvailabilityIndex(RentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long since = System.currentTimeMillis() - RETENTION_MILLIS;
+        List<RentalInterval> intervals = rentalRepository.findIntervalsEndingAfter(new Date(since), RentalStatus.CANCELLED);
+        Map<Long, VehicleIntervals> rebuilt = new HashMap<>();
+        for (RentalInterval interval : intervals) {
+            rebuilt.compute(interval.vehicleId(),
+                    (id, current) -> (current != null ? current : VehicleIntervals.EMPTY).with(interval));
+        }
+        byVehicle.clear();
+        byVehicle.putAll(rebuilt);
+        log.info("Rental availability index built with {} intervals over {} vehicles", intervals.size(), rebuilt.size());
+    }
+
+    /**
+     * 车辆在 [start, end) 内是否空闲
+     */
+    public boolean isFree(Long vehicleId, Date start, Date end) {
+        VehicleIntervals intervals = byVehicle.get(vehicleId);
+        return intervals == null || !intervals.overlaps(start.getTime(), end.getTime());
+    }
+
+    /**
+     * 检查并占用时间段（同一辆车原子执行），冲突时抛出 {@link BookingConflictException}。
+     * 在事务内调用时，事务回滚会自动撤销占用。
+     */
+    public void reserve(Long rentalId, Long vehicleId, Date start, Date end) {
+        RentalInterval interval = new RentalInterval(rentalId, vehicleId, start.getTime(), end.getTime());
+        byVehicle.compute(vehicleId, (id, intervals) -> {
+            VehicleIntervals current = intervals != null ? intervals : VehicleIntervals.EMPTY;
+            if (current.overlaps(interval.start(), interval.end())) {
+                throw new BookingConflictException("Vehicle is already booked for the requested period");
+            }
+            return current.with(interval).pruneEndedBefore(System.currentTimeMillis() - RETENTION_MILLIS);
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        remove(vehicleId, rentalId);
+                    }
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        RentalInterval interval = RentalInterval.of(event);
+        byVehicle.compute(event.getVehicleId(), (id, intervals) -> {
+            VehicleIntervals current = intervals != null ? intervals : VehicleIntervals.EMPTY;
+            current = current.without(event.getRentalId());
+            if (interval != null) {
+                current = current.with(interval);
+            }
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    public int size() {
+        return byVehicle.values().stream().mapToInt(VehicleIntervals::size).sum();
+    }
+
+    private void remove(Long vehicleId, Long rentalId) {
+        byVehicle.computeIfPresent(vehicleId, (id, intervals) -> {
+            VehicleIntervals remaining = intervals.without(rentalId);
+            return remaining.isEmpty() ? null : remaining;
+        });
+    }
+
+    /**
+     * 单辆车的占用时间段，按开始时间升序；maxEnd[i] 为前 i+1 个时间段的最大结束时间
+     */
+    static final class VehicleIntervals {
+
+        static final VehicleIntervals EMPTY = new VehicleIntervals(new long[0], new long[0], new long[0], new long[0]);
+
+        private final long[] rentalIds;
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] maxEnd;
+
+        private VehicleIntervals(long[] rentalIds, long[] starts, long[] ends, long[] maxEnd) {
+            this.rentalIds = rentalIds;
+            this.starts = starts;
+            this.ends = ends;
+            this.maxEnd = maxEnd;
+        }
+
+        boolean overlaps(long from, long to) {
+            // 最后一个 start < to 的位置
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < to) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low > 0 && maxEnd[low - 1] > from;
+        }
+
+        VehicleIntervals with(RentalInterval interval) {
+            VehicleIntervals base = without(interval.rentalId());
+            int n = base.starts.length;
+            int at = 0;
+            while (at < n && base.starts[at] <= interval.start()) {
+                at++;
+            }
+            long[] ids = insert(base.rentalIds, at, interval.rentalId());
+            long[] newStarts = insert(base.starts, at, interval.start());
+            long[] newEnds = insert(base.ends, at, interval.end());
+            return new VehicleIntervals(ids, newStarts, newEnds, prefixMax(newEnds));
+        }
+
+        VehicleIntervals without(long rentalId) {
+            for (int i = 0; i < rentalIds.length; i++) {
+                if (rentalIds[i] == rentalId) {
+                    long[] newEnds = remove(ends, i);
+                    return new VehicleIntervals(remove(rentalIds, i), remove(starts, i), newEnds, prefixMax(newEnds));
+                }
+            }
+            return this;
+        }
+
+        VehicleIntervals pruneEndedBefore(long cutoff) {
+            int kept = 0;
+            for (long end : ends) {
+                if (end > cutoff) {
+                    kept++;
+                }
+            }
+            if (kept == ends.length) {
+                return this;
+            }
+            long[] ids = new long[kept];
+            long[] newStarts = new long[kept];
+            long[] newEnds = new long[kept];
+            for (int i = 0, j = 0; i < ends.length; i++) {
+                if (ends[i] > cutoff) {
+                    ids[j] = rentalIds[i];
+                    newStarts[j] = starts[i];
+                    newEnds[j++] = ends[i];
+                }
+            }
+            return new VehicleIntervals(ids, newStarts, newEnds, prefixMax(newEnds));
+        }
+
+        boolean isEmpty() {
+            return starts.length == 0;
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        private static long[] prefixMax(long[] values) {
+            long[] result = new long[values.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < values.length; i++) {
+                max = Math.max(max, values[i]);
+                result[i] = max;
+            }
+            return result;
+        }
+
+        private static long[] insert(long[] values, int at, long value) {
+            long[] result = Arrays.copyOf(values, values.length + 1);
+            System.arraycopy(values, at, result, at + 1, values.length - at);
+            result[at] = value;
+            return result;
+        }
+
+        private static long[] remove(long[] values, int at) {
+            long[] result = new long[values.length - 1];
+            System.arraycopy(values, 0, result, 0, at);
+            System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package cc.martincao.rentigo.rentigobackend.rental.availability;
+
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+
+import java.util.Date;
+
+/**
+ * 一条租赁占用的时间段 [start, end)；已归还的租赁以实际归还时间为结束
+ */
+public record RentalInterval(Long rentalId, Long vehicleId, long start, long end) {
+
+    /**
+     * 供 JPQL 构造表达式使用
+     */
+    public RentalInterval(Long rentalId, Long vehicleId, Date startTime, Date endTime, Date actualReturnTime) {
+        this(rentalId, vehicleId, startTime.getTime(),
+                (actualReturnTime != null ? actualReturnTime : endTime).getTime());
+    }
+
+    /**
+     * 事件对应的占用时间段；已取消的租赁不占用车辆，返回 null
+     */
+    public static RentalInterval of(RentalChangedEvent event) {
+        if (event.getStatus() == RentalStatus.CANCELLED) {
+            return null;
+        }
+        return new RentalInterval(event.getRentalId(), event.getVehicleId(), event.getStartTime(),
+                event.getEndTime(), event.getActualReturnTime());
+    }
+}
@@ -0,0 +1,185 @@
+package cc.martincao.rentigo.rentigobackend.rental.calendar;
+
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalInterval;
+import cc.martincao.rentigo.rentigobackend.rental.dto.CalendarGranularity;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalCalendarDTO;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 车辆占用日历
+ * <p>
+ * 以 (车辆, 月份) 为键缓存该月按小时的占用位图（一个月最多 744 位，12 个 long），按天的位图由小时位图折算，
+ * 因此两种粒度共用同一份缓存。缓存未命中的车辆在一次查询中批量加载。
+ * <p>
+ * 租赁变更（事务提交后的 {@link RentalChangedEvent}）失效该租赁覆盖的所有月份。
+ * 加载期间若发生失效，加载结果写入后立即作废，避免把提交前读到的旧数据留在缓存中。
+ * 缓存只在本进程内失效，多实例部署时由过期时间兜底。
+ */
+@Component
+public class RentalOccupancyCalendar {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final RentalRepository rentalRepository;
+    private final ZoneId zone;
+    private final int maxVehicles;
+    private final Cache<MonthKey, long[]> hoursByMonth;
+    // 每次失效前递增，用于发现与加载并发的失效
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public RentalOccupancyCalendar(RentalRepository rentalRepository,
+                                   @Value("${app.rental-calendar.zone:UTC}") ZoneId zone,
+                                   @Value("${app.rental-calendar.max-vehicles:100}") int maxVehicles,
+                                   @Value("${app.rental-calendar.maximum-size:50000}") long maximumSize,
+                                   @Value("${app.rental-calendar.ttl:10m}") Duration ttl) {
+        this.rentalRepository = rentalRepository;
+        this.zone = zone;
+        this.maxVehicles = maxVehicles;
+        this.hoursByMonth = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public RentalCalendarDTO getCalendar(List<Long> vehicleIds, YearMonth month, CalendarGranularity granularity) {
+        if (vehicleIds == null || vehicleIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one vehicle id is required");
+        }
+        if (vehicleIds.size() > maxVehicles) {
+            throw new IllegalArgumentException("At most " + maxVehicles + " vehicles per calendar request");
+        }
+        if (month == null) {
+            throw new IllegalArgumentException("Month is required");
+        }
+        CalendarGranularity resolved = granularity != null ? granularity : CalendarGranularity.DAY;
+        Set<Long> ids = new LinkedHashSet<>(vehicleIds);
+        Map<Long, long[]> hours = loadHours(ids, month);
+
+        long monthStart = monthStart(month);
+        int slots = resolved == CalendarGranularity.HOUR ? hoursIn(month) : month.lengthOfMonth();
+        Map<Long, String> occupancy = new LinkedHashMap<>();
+        for (Long vehicleId : ids) {
+            BitSet hourBits = BitSet.valueOf(hours.get(vehicleId));
+            BitSet bits = resolved == CalendarGranularity.HOUR ? hourBits : toDays(hourBits, month, monthStart);
+            occupancy.put(vehicleId, encode(bits, slots));
+        }
+        return new RentalCalendarDTO(month.toString(), zone.getId(), resolved, new Date(monthStart), slots, occupancy);
+    }
+
+    /**
+     * 事务提交后失效：开始时间所在月到计划结束、实际归还中较晚者所在月，覆盖变更前后的占用范围
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        Date end = event.getActualReturnTime() != null && event.getActualReturnTime().after(event.getEndTime())
+                ? event.getActualReturnTime() : event.getEndTime();
+        YearMonth first = YearMonth.from(event.getStartTime().toInstant().atZone(zone));
+        YearMonth last = YearMonth.from(end.toInstant().atZone(zone));
+        invalidations.incrementAndGet();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            hoursByMonth.invalidate(new MonthKey(event.getVehicleId(), month));
+        }
+    }
+
+    public long size() {
+        return hoursByMonth.estimatedSize();
+    }
+
+    private Map<Long, long[]> loadHours(Set<Long> vehicleIds, YearMonth month) {
+        Map<Long, long[]> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long vehicleId : vehicleIds) {
+            long[] cached = hoursByMonth.getIfPresent(new MonthKey(vehicleId, month));
+            if (cached != null) {
+                result.put(vehicleId, cached);
+            } else {
+                missing.add(vehicleId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long generation = invalidations.get();
+        long monthStart = monthStart(month);
+        long monthEnd = monthStart(month.plusMonths(1));
+        Map<Long, BitSet> loaded = new HashMap<>();
+        missing.forEach(vehicleId -> loaded.put(vehicleId, new BitSet()));
+        for (RentalInterval interval : rentalRepository.findIntervalsOverlapping(missing,
+                new Date(monthStart), new Date(monthEnd), RentalStatus.CANCELLED)) {
+            long from = Math.max(interval.start(), monthStart);
+            long to = Math.min(interval.end(), monthEnd);
+            if (from < to) {
+                // 与 [from, to) 有交集的每个小时都置位
+                loaded.get(interval.vehicleId()).set((int) ((from - monthStart) / HOUR),
+                        (int) ((to - monthStart + HOUR - 1) / HOUR));
+            }
+        }
+        Map<MonthKey, long[]> entries = new HashMap<>();
+        loaded.forEach((vehicleId, bits) -> {
+            long[] words = bits.toLongArray();
+            result.put(vehicleId, words);
+            entries.put(new MonthKey(vehicleId, month), words);
+        });
+        hoursByMonth.putAll(entries);
+        if (invalidations.get() != generation) {
+            hoursByMonth.invalidateAll(entries.keySet());
+        }
+        return result;
+    }
+
+    private BitSet toDays(BitSet hourBits, YearMonth month, long monthStart) {
+        BitSet days = new BitSet(month.lengthOfMonth());
+        int dayStartHour = 0;
+        for (int day = 0; day < month.lengthOfMonth(); day++) {
+            long nextDayStart = month.atDay(day + 1).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            int nextDayStartHour = (int) ((nextDayStart - monthStart) / HOUR);
+            int occupied = hourBits.nextSetBit(dayStartHour);
+            if (occupied >= 0 && occupied < nextDayStartHour) {
+                days.set(day);
+            }
+            dayStartHour = nextDayStartHour;
+        }
+        return days;
+    }
+
+    private int hoursIn(YearMonth month) {
+        return (int) ((monthStart(month.plusMonths(1)) - monthStart(month)) / HOUR);
+    }
+
+    private long monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static String encode(BitSet bits, int slots) {
+        // toByteArray 会截掉末尾的 0 字节，补齐到固定长度方便客户端按位读取
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(bits.toByteArray(), (slots + 7) / 8));
+    }
+
+    private record MonthKey(Long vehicleId, YearMonth month) {
+    }
+}
@@ -1,17 +1,33 @@
 package cc.martincao.rentigo.rentigobackend.rental.controller;
 
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.payment.checkout.CheckoutRelay;
+import cc.martincao.rentigo.rentigobackend.rental.calendar.RentalOccupancyCalendar;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalRequestDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.CalendarGranularity;
+import cc.martincao.rentigo.rentigobackend.rental.dto.CheckoutStatus;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalCheckoutDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalQuoteDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalCalendarDTO;
 import cc.martincao.rentigo.rentigobackend.rental.dto.RentalRequestDTO;
 import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.quote.RentalQuoteService;
 import cc.martincao.rentigo.rentigobackend.rental.service.RentalService;
 import cc.martincao.rentigo.rentigobackend.user.User;
 import cc.martincao.rentigo.rentigobackend.user.repository.UserRepository;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -20,10 +36,18 @@ public class RentalController {
 
     private final RentalService rentalService;
     private final UserRepository userRepository;
+    private final RentalOccupancyCalendar occupancyCalendar;
+    private final CheckoutRelay checkoutRelay;
+    private final RentalQuoteService quoteService;
 
-    public RentalController(RentalService rentalService, UserRepository userRepository) {
+    public RentalController(RentalService rentalService, UserRepository userRepository,
+                            RentalOccupancyCalendar occupancyCalendar, CheckoutRelay checkoutRelay,
+                            RentalQuoteService quoteService) {
         this.rentalService = rentalService;
         this.userRepository = userRepository;
+        this.occupancyCalendar = occupancyCalendar;
+        this.checkoutRelay = checkoutRelay;
+        this.quoteService = quoteService;
     }
 
     @PostMapping
@@ -31,9 +55,44 @@ public class RentalController {
     public ResponseEntity<RentalResponseDTO> createRental(@RequestBody RentalRequestDTO request) {
         Long userId = getCurrentUserId();
         RentalResponseDTO rental = rentalService.createRental(request, userId);
+        // 预订已提交；支付页能及时创建就一并返回，否则返回 PENDING 由客户端轮询
+        checkoutRelay.await(rental.getPaymentId()).ifPresent(session -> {
+            rental.setCheckoutStatus(CheckoutStatus.READY);
+            rental.setCheckoutUrl(session.getCheckoutUrl());
+            rental.setPaymentSessionId(session.getSessionId());
+        });
         return ResponseEntity.ok(rental);
     }
 
+    /**
+     * 批量预订多辆车：全部成功或全部失败，押金合并为一个支付链接
+     */
+    @PostMapping("/batch")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<BatchRentalResponseDTO> createBatchRental(@RequestBody BatchRentalRequestDTO request) {
+        Long userId = getCurrentUserId();
+        BatchRentalResponseDTO batch = rentalService.createBatchRental(request, userId);
+        checkoutRelay.await(batch.getPaymentId()).ifPresent(session -> {
+            batch.setCheckoutStatus(CheckoutStatus.READY);
+            batch.setCheckoutUrl(session.getCheckoutUrl());
+        });
+        return ResponseEntity.ok(batch);
+    }
+
+    /**
+     * 轮询押金支付页；仍在创建中时顺带触发一次创建（例如上次调用 Stripe 失败）
+     */
+    @GetMapping("/{id}/checkout")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<RentalCheckoutDTO> getCheckout(@PathVariable Long id) {
+        Long userId = getCurrentUserId();
+        RentalCheckoutDTO checkout = rentalService.getCheckout(id, userId);
+        if (checkout.getStatus() == CheckoutStatus.PENDING) {
+            checkoutRelay.open(checkout.getPaymentId());
+        }
+        return ResponseEntity.ok(checkout);
+    }
+
     @PostMapping("/{id}/return")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<RentalResponseDTO> returnRental(@PathVariable Long id) {
@@ -50,6 +109,39 @@ public class RentalController {
         return ResponseEntity.ok(rentals);
     }
 
+    /**
+     * 当前用户租赁记录的 keyset 分页，按创建时间倒序
+     */
+    @GetMapping("/my/page")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CursorPage<RentalResponseDTO>> getMyRentalsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(rentalService.getMyRentals(getCurrentUserId(), cursor, size));
+    }
+
+    /**
+     * 预订前报价：租金、押金与逾期计费规则，不创建租赁（ISO-8601 时间）
+     */
+    @GetMapping("/quote")
+    public ResponseEntity<RentalQuoteDTO> quote(
+            @RequestParam Long vehicleId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date endTime) {
+        return ResponseEntity.ok(quoteService.quote(vehicleId, startTime, endTime));
+    }
+
+    /**
+     * 多辆车一个月的占用位图，例如 ?vehicleIds=1,2,3&month=2025-07&granularity=HOUR
+     */
+    @GetMapping("/calendar")
+    public ResponseEntity<RentalCalendarDTO> getOccupancyCalendar(
+            @RequestParam List<Long> vehicleIds,
+            @RequestParam YearMonth month,
+            @RequestParam(defaultValue = "DAY") CalendarGranularity granularity) {
+        return ResponseEntity.ok(occupancyCalendar.getCalendar(vehicleIds, month, granularity));
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
     @SecurityRequirement(name = "bearerAuth")
@@ -58,6 +150,31 @@ public class RentalController {
         return ResponseEntity.ok(rentals);
     }
 
+    /**
+     * 管理端 keyset 分页查询，按创建时间倒序；可按状态、网点、车辆、用户和创建时间范围过滤
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CursorPage<RentalResponseDTO>> searchRentals(
+            @RequestParam(required = false) RentalStatus status,
+            @RequestParam(required = false) Integer locationId,
+            @RequestParam(required = false) Long vehicleId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        RentalSearchCriteria criteria = new RentalSearchCriteria();
+        criteria.setStatus(status);
+        criteria.setLocationId(locationId);
+        criteria.setVehicleId(vehicleId);
+        criteria.setUserId(userId);
+        criteria.setCreatedFrom(createdFrom);
+        criteria.setCreatedTo(createdTo);
+        return ResponseEntity.ok(rentalService.searchRentals(criteria, cursor, size));
+    }
+
     @PostMapping("/{id}/force-finish")
     @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
     @SecurityRequirement(name = "bearerAuth")
@@ -76,6 +193,10 @@ public class RentalController {
 
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // JWT 过滤器已把用户实体作为 principal 放入上下文，不必再按用户名查一次
+        if (authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
         String username = authentication.getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -0,0 +1,13 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量预订：多辆车（各自的租期）一次提交，要么全部成功要么全部失败
+ */
+@Data
+public class BatchRentalRequestDTO {
+    private List<RentalRequestDTO> rentals;
+}
@@ -0,0 +1,24 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 批量预订结果：全部租赁共用一个押金支付链接
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRentalResponseDTO {
+    private String batchId;
+    private List<RentalResponseDTO> rentals;
+    private BigDecimal totalAmount;    // 各租赁租金之和
+    private BigDecimal depositAmount;  // 合并后的押金
+    private Long paymentId;            // 合并押金的支付记录
+    private CheckoutStatus checkoutStatus;  // 支付页状态，PENDING 时轮询任一租赁的 checkout 接口
+    private String checkoutUrl;        // 合并押金的 Stripe 支付链接
+}
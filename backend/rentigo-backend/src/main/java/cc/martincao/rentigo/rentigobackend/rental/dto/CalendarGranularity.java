@@ -0,0 +1,9 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+/**
+ * 占用日历的粒度：每个时段对应位图中的一位
+ */
+public enum CalendarGranularity {
+    HOUR,
+    DAY
+}
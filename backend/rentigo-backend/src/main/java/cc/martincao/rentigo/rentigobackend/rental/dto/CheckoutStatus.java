@@ -0,0 +1,26 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+/**
+ * 租赁押金支付页的状态
+ */
+public enum CheckoutStatus {
+    /**
+     * 支付页正在创建，稍后轮询 GET /api/rentals/{id}/checkout
+     */
+    PENDING,
+
+    /**
+     * 支付页已就绪，checkoutUrl 可用
+     */
+    READY,
+
+    /**
+     * 已支付
+     */
+    PAID,
+
+    /**
+     * 租赁已取消（例如保留期满未支付），不再提供支付页
+     */
+    CANCELLED
+}
@@ -0,0 +1,19 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 逾期计费规则：宽限小时数内不收费，之后按小时计费，每个逾期天封顶
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OvertimePolicyDTO {
+    private int graceHours;
+    private BigDecimal hourlyRate;     // 逾期每小时价格
+    private BigDecimal dailyCap;       // 每个逾期天（24 个计费小时）的封顶金额
+}
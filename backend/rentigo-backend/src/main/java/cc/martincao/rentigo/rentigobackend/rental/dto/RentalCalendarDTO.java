@@ -0,0 +1,30 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 多辆车一个月的占用日历
+ * <p>
+ * occupancy 的值是 Base64 编码的位图：第 i 个时段（小时或天，从 from 开始）对应第 i / 8 个字节的第 i % 8 位（低位在前），
+ * 置位表示该时段内车辆有未取消的租赁。字节数固定为 (slots + 7) / 8。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RentalCalendarDTO {
+    private String month;                    // 例如 2025-07
+    private String zone;                     // 按该时区划分月份和天
+    private CalendarGranularity granularity;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Date from;                       // 第一个时段的开始时间
+
+    private int slots;                       // 当月的小时数或天数
+    private Map<Long, String> occupancy;     // 车辆 id -> 位图
+}
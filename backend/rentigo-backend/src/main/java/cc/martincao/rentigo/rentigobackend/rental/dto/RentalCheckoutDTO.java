@@ -0,0 +1,19 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 押金支付页轮询结果；批量预订中任一租赁都返回整批共用的支付页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RentalCheckoutDTO {
+    private Long rentalId;
+    private Long paymentId;
+    private CheckoutStatus status;
+    private String checkoutUrl;        // status 为 READY 时可用
+    private String paymentSessionId;
+}
@@ -0,0 +1,47 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import cc.martincao.rentigo.rentigobackend.common.util.CursorCodec;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 租赁 keyset 分页位置：按 (created_at, id) 倒序，记录上一页最后一行的排序键
+ */
+@Getter
+public class RentalKeyset {
+
+    private static final RentalKeyset FIRST = new RentalKeyset(null, null);
+
+    private final Date lastCreatedAt;
+    private final Long lastId;            // 第一页为 null
+
+    public RentalKeyset(Date lastCreatedAt, Long lastId) {
+        this.lastCreatedAt = lastCreatedAt;
+        this.lastId = lastId;
+    }
+
+    public static RentalKeyset first() {
+        return FIRST;
+    }
+
+    public static RentalKeyset fromCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return first();
+        }
+        String[] parts = CursorCodec.decode(cursor, 2);
+        try {
+            return new RentalKeyset(new Date(Long.parseLong(parts[0])), Long.valueOf(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public static String toCursor(RentalResponseDTO last) {
+        return CursorCodec.encode(last.getCreatedAt().getTime(), last.getId());
+    }
+
+    public boolean isFirstPage() {
+        return lastId == null;
+    }
+}
@@ -0,0 +1,26 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 预订前的报价，金额与按相同条件创建租赁时一致
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RentalQuoteDTO {
+    private Long vehicleId;
+    private Date startTime;
+    private Date endTime;
+    private long billableDays;
+    private BigDecimal dailyPrice;
+    private BigDecimal priceMultiplier;  // 出租率调价系数，1.0000 表示不调整
+    private BigDecimal rentalFee;      // 已应用计价规则
+    private BigDecimal depositAmount;
+    private OvertimePolicyDTO overtimePolicy;
+}
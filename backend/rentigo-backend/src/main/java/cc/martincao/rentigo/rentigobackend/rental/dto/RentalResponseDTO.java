@@ -4,11 +4,13 @@ import cc.martincao.rentigo.rentigobackend.rental.model.DepositStatus;
 import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.util.Date;
 
 @Data
+@NoArgsConstructor
 public class RentalResponseDTO {
     private Long id;
     private Long userId;
@@ -41,6 +43,9 @@ public class RentalResponseDTO {
     // 超时费用
     private BigDecimal overtimeAmount;
     
+    // 批量预订编号（单独预订为 null）
+    private String batchId;
+    
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
     private Date createdAt;
     
@@ -48,7 +53,37 @@ public class RentalResponseDTO {
     private Date updatedAt;
     
     // 支付相关字段
+    private Long paymentId;            // 押金支付记录
+    private CheckoutStatus checkoutStatus;  // 支付页状态，PENDING 时轮询 GET /api/rentals/{id}/checkout
     private String checkoutUrl;        // Stripe 支付链接
     private String paymentStatus;      // 支付状态
     private String paymentSessionId;   // Stripe Session ID
+
+    /**
+     * JPQL 构造表达式使用：租赁与用户名、车型一条查询取回，支付相关字段不填
+     */
+    public RentalResponseDTO(Long id, Long userId, String username, Long vehicleId, String vehicleModel,
+                             Date startTime, Date endTime, Date actualReturnTime, RentalStatus status,
+                             BigDecimal totalAmount, BigDecimal depositAmount, DepositStatus depositStatus,
+                             Date depositPaidAt, Date depositReturnedAt, BigDecimal overtimeAmount,
+                             String batchId, Date createdAt, Date updatedAt) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.vehicleId = vehicleId;
+        this.vehicleModel = vehicleModel;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.actualReturnTime = actualReturnTime;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.depositAmount = depositAmount;
+        this.depositStatus = depositStatus;
+        this.depositPaidAt = depositPaidAt;
+        this.depositReturnedAt = depositReturnedAt;
+        this.overtimeAmount = overtimeAmount;
+        this.batchId = batchId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,20 @@
+package cc.martincao.rentigo.rentigobackend.rental.dto;
+
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 管理端租赁查询条件，为空的字段不参与过滤
+ */
+@Data
+public class RentalSearchCriteria {
+    private RentalStatus status;
+    private Integer locationId;        // 车辆当前所在网点
+    private Long vehicleId;
+    private Long userId;
+    // 创建时间范围 [createdFrom, createdTo)
+    private Date createdFrom;
+    private Date createdTo;
+}
@@ -0,0 +1,60 @@
+package cc.martincao.rentigo.rentigobackend.rental.event;
+
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+
+import java.util.Date;
+
+/**
+ * 租赁时间段变更事件（归还、强制结束、取消等），携带变更后的快照
+ * <p>
+ * 监听方应使用 {@code @TransactionalEventListener}，保证只在事务提交后生效。
+ */
+public class RentalChangedEvent {
+
+    private final Long rentalId;
+    private final Long vehicleId;
+    private final Date startTime;
+    private final Date endTime;
+    private final Date actualReturnTime;
+    private final RentalStatus status;
+
+    public RentalChangedEvent(Long rentalId, Long vehicleId, Date startTime, Date endTime,
+                              Date actualReturnTime, RentalStatus status) {
+        this.rentalId = rentalId;
+        this.vehicleId = vehicleId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.actualReturnTime = actualReturnTime;
+        this.status = status;
+    }
+
+    public static RentalChangedEvent of(Rental rental) {
+        return new RentalChangedEvent(rental.getId(), rental.getVehicle().getId(), rental.getStartTime(),
+                rental.getEndTime(), rental.getActualReturnTime(), rental.getStatus());
+    }
+
+    public Long getRentalId() {
+        return rentalId;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    public Date getActualReturnTime() {
+        return actualReturnTime;
+    }
+
+    public RentalStatus getStatus() {
+        return status;
+    }
+}
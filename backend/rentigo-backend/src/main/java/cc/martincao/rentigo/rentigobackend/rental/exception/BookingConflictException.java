@@ -0,0 +1,10 @@
+package cc.martincao.rentigo.rentigobackend.rental.exception;
+
+/**
+ * 预订与其他请求冲突（时间段已被占用，或同一车辆正在被其他请求预订），客户端可换时间段或稍后重试
+ */
+public class BookingConflictException extends RentalBusinessException {
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package cc.martincao.rentigo.rentigobackend.rental.hold;
+
+import java.util.Date;
+
+/**
+ * 待支付租赁的保留记录（启动时重建过期时间轮用）
+ */
+public record PendingHold(Long rentalId, long createdAt) {
+
+    // JPQL 构造表达式使用
+    public PendingHold(Long rentalId, Date createdAt) {
+        this(rentalId, createdAt.getTime());
+    }
+}
@@ -0,0 +1,204 @@
+package cc.martincao.rentigo.rentigobackend.rental.hold;
+
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 待支付租赁的保留期限（哈希时间轮）
+ * <p>
+ * 新建租赁处于 PENDING_PAYMENT 时会占用车辆时间段；用户放弃支付后，保留期满即自动取消。
+ * 时间轮按固定刻度划分为 2 的幂个槽，保留记录按到期刻度放入对应槽：登记、撤销都是 O(1)，
+ * 每个刻度只检查当前槽，几十万条待支付记录也不需要排序或逐条定时。
+ * 登记只写入无锁队列，由定时刻度线程统一放入槽中，槽本身只被刻度线程访问。
+ * <p>
+ * 到期的租赁分批用一条 UPDATE 取消，条件里限定仍为待支付，刚好完成支付的不受影响；
+ * 取消后发布 {@link RentalChangedEvent}，占用时间段随之释放。启动时从 rentals 表重建。
+ */
+@Component
+public class ReservationHoldWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationHoldWheel.class);
+
+    private final RentalRepository rentalRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final int batchSize;
+
+    private final List<Hold>[] wheel;
+    private final int mask;
+    private final Queue<Hold> incoming = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    // 已处理到的刻度（绝对值），首次推进时初始化
+    private long currentTick = Long.MIN_VALUE;
+
+    @SuppressWarnings("unchecked")
+    public ReservationHoldWheel(RentalRepository rentalRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.rental-hold.ttl:45m}") Duration ttl,
+                                @Value("${app.rental-hold.tick:1s}") Duration tick,
+                                @Value("${app.rental-hold.wheel-size:512}") int wheelSize,
+                                @Value("${app.rental-hold.batch-size:500}") int batchSize) {
+        this.rentalRepository = rentalRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.ttlMillis = ttl.toMillis();
+        this.tickMillis = tick.toMillis();
+        this.batchSize = batchSize;
+        int slots = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.wheel = new List[slots];
+        for (int i = 0; i < slots; i++) {
+            this.wheel[i] = new ArrayList<>();
+        }
+        this.mask = slots - 1;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<PendingHold> pending = rentalRepository.findPendingHolds(RentalStatus.PENDING_PAYMENT);
+        pending.forEach(hold -> schedule(hold.rentalId(), hold.createdAt() + ttlMillis));
+        log.info("Scheduled {} pending payment holds", pending.size());
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    /**
+     * 新建的待支付租赁登记保留期限；状态离开待支付（支付、归还、取消）时撤销
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRentalChanged(RentalChangedEvent event) {
+        if (event.getStatus() == RentalStatus.PENDING_PAYMENT) {
+            schedule(event.getRentalId(), System.currentTimeMillis() + ttlMillis);
+        } else {
+            cancel(event.getRentalId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rental-hold.tick:1s}")
+    public void tick() {
+        List<Long> due = advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                expire(batch);
+            } catch (RuntimeException e) {
+                // 下一个刻度重试
+                log.warn("Failed to expire {} pending payment holds: {}", batch.size(), e.getMessage());
+                batch.forEach(rentalId -> schedule(rentalId, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    void schedule(Long rentalId, long deadline) {
+        Hold hold = new Hold(rentalId, ceilTick(deadline));
+        Hold replaced = holds.put(rentalId, hold);
+        if (replaced != null) {
+            replaced.cancelled = true;
+        }
+        incoming.add(hold);
+    }
+
+    void cancel(Long rentalId) {
+        Hold hold = holds.remove(rentalId);
+        if (hold != null) {
+            hold.cancelled = true;
+        }
+    }
+
+    /**
+     * 推进到 now，返回到期的租赁 id
+     */
+    synchronized List<Long> advance(long now) {
+        long target = now / tickMillis;
+        if (currentTick == Long.MIN_VALUE) {
+            currentTick = target - 1;
+        }
+        List<Long> due = new ArrayList<>();
+        for (Hold hold; (hold = incoming.poll()) != null; ) {
+            if (hold.cancelled) {
+                continue;
+            }
+            if (hold.tick <= target) {
+                expireHold(hold, due);
+            } else {
+                wheel[(int) (hold.tick & mask)].add(hold);
+            }
+        }
+        // 落后超过一圈时每个槽扫一次即可
+        long steps = Math.min(Math.max(target - currentTick, 0), wheel.length);
+        for (long t = currentTick + 1; t <= currentTick + steps; t++) {
+            List<Hold> slot = wheel[(int) (t & mask)];
+            int kept = 0;
+            for (Hold hold : slot) {
+                if (hold.cancelled) {
+                    continue;
+                }
+                if (hold.tick <= target) {
+                    expireHold(hold, due);
+                } else {
+                    slot.set(kept++, hold);
+                }
+            }
+            slot.subList(kept, slot.size()).clear();
+        }
+        currentTick = Math.max(currentTick, target);
+        return due;
+    }
+
+    void expire(List<Long> rentalIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int cancelled = rentalRepository.cancelPending(rentalIds, RentalStatus.PENDING_PAYMENT,
+                    RentalStatus.CANCELLED, new Date());
+            if (cancelled > 0) {
+                rentalRepository.findChangeEvents(rentalIds, RentalStatus.CANCELLED).forEach(eventPublisher::publishEvent);
+                log.info("Cancelled {} rentals whose payment hold expired", cancelled);
+            }
+        });
+    }
+
+    private void expireHold(Hold hold, List<Long> due) {
+        if (holds.remove(hold.rentalId, hold)) {
+            due.add(hold.rentalId);
+        }
+    }
+
+    private long ceilTick(long deadline) {
+        return Math.floorDiv(deadline + tickMillis - 1, tickMillis);
+    }
+
+    private static final class Hold {
+        private final Long rentalId;
+        private final long tick;
+        private volatile boolean cancelled;
+
+        private Hold(Long rentalId, long tick) {
+            this.rentalId = rentalId;
+            this.tick = tick;
+        }
+    }
+}
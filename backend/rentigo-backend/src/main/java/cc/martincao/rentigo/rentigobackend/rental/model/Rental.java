@@ -66,6 +66,10 @@ public class Rental {
     @Column(name = "overtime_amount", nullable = false, precision = 10, scale = 2)
     private BigDecimal overtimeAmount = BigDecimal.ZERO;
 
+    // 批量预订编号：同一批次的租赁共用一笔押金支付
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
     @Version
     private Integer version = 0;
 
@@ -0,0 +1,110 @@
+package cc.martincao.rentigo.rentigobackend.rental.pricing;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 租金与逾期费计算
+ * <p>
+ * 内部统一以分（long）计算，报价路径只做整数运算、不分配对象；BigDecimal 只在入口和出口转换一次。
+ * 计费规则：
+ * <ul>
+ *   <li>租金 = 日租金 × 计费天数：整天数，不足一天的部分不计，最少一天（原 trg_rental_before_insert 触发器的规则）</li>
+ *   <li>逾期宽限 6 小时：逾期不足 7 个整小时不收费；超过后去掉 6 小时，剩余按小时向上取整</li>
+ *   <li>逾期每小时 = 日租金 ÷ 24（四舍五入到分）× 2</li>
+ *   <li>每个逾期天（计费小时数按 24 向上取整）封顶日租金 × 1.5</li>
+ * </ul>
+ */
+public final class RentalPricing {
+
+    public static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    // 逾期宽限时长
+    public static final long GRACE_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    // 逾期每小时按基础小时价的倍数收费
+    public static final int OVERTIME_RATE_MULTIPLIER = 2;
+
+    private RentalPricing() {
+    }
+
+    /**
+     * 租金（分）：日租金 × 计费天数
+     */
+    public static long rentalFeeCents(long dailyPriceCents, long startMillis, long endMillis) {
+        return Math.multiplyExact(dailyPriceCents, billableDays(startMillis, endMillis));
+    }
+
+    /**
+     * 计费天数：整天数（不足一天的部分舍去），最少一天
+     */
+    public static long billableDays(long startMillis, long endMillis) {
+        return Math.max((endMillis - startMillis) / DAY_MILLIS, 1);
+    }
+
+    /**
+     * 逾期应计费小时数，宽限期内为 0
+     */
+    public static long chargeableOvertimeHours(long endMillis, long returnMillis) {
+        long overdueMillis = returnMillis - endMillis;
+        // 按整小时判断宽限：逾期 6 小时 59 分仍在宽限内
+        if (overdueMillis / HOUR_MILLIS <= GRACE_MILLIS / HOUR_MILLIS) {
+            return 0;
+        }
+        return ceilDiv(overdueMillis - GRACE_MILLIS, HOUR_MILLIS);
+    }
+
+    /**
+     * 逾期费（分）；不足一分的封顶金额四舍五入
+     */
+    public static long overtimeFeeCents(long dailyPriceCents, long endMillis, long returnMillis) {
+        long hours = chargeableOvertimeHours(endMillis, returnMillis);
+        if (hours == 0) {
+            return 0;
+        }
+        long fee = Math.multiplyExact(hourlyOvertimeCents(dailyPriceCents), hours);
+        // 封顶 = 日租金 × 1.5 × 逾期天数，可能带半分：以半分为单位即 日租金（分）× 3 × 天数
+        long capHalfCents = Math.multiplyExact(dailyPriceCents * 3, ceilDiv(hours, 24));
+        return fee * 2 <= capHalfCents ? fee : (capHalfCents + 1) / 2;
+    }
+
+    /**
+     * 逾期每小时价格（分）
+     */
+    public static long hourlyOvertimeCents(long dailyPriceCents) {
+        // 日租金 ÷ 24 四舍五入到分
+        return (dailyPriceCents + 12) / 24 * OVERTIME_RATE_MULTIPLIER;
+    }
+
+    /**
+     * 单个逾期天的封顶金额（分）：日租金 × 1.5，四舍五入
+     */
+    public static long overtimeDailyCapCents(long dailyPriceCents) {
+        return (Math.multiplyExact(dailyPriceCents, 3) + 1) / 2;
+    }
+
+    public static BigDecimal rentalFee(BigDecimal dailyPrice, Date startTime, Date endTime) {
+        return fromCents(rentalFeeCents(toCents(dailyPrice), startTime.getTime(), endTime.getTime()));
+    }
+
+    public static BigDecimal overtimeFee(BigDecimal dailyPrice, Date endTime, Date returnTime) {
+        return fromCents(overtimeFeeCents(toCents(dailyPrice), endTime.getTime(), returnTime.getTime()));
+    }
+
+    /**
+     * 金额转为分；超过两位小数的金额视为错误数据
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,137 @@
+package cc.martincao.rentigo.rentigobackend.rental.quote;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.engine.PricingRuleEngine;
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.rental.dto.OvertimePolicyDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalQuoteDTO;
+import cc.martincao.rentigo.rentigobackend.rental.exception.RentalBusinessException;
+import cc.martincao.rentigo.rentigobackend.rental.pricing.RentalPricing;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * 预订前报价，只读不写库
+ * <p>
+ * 报价按 (车辆, 起止时间, 价格版本) 缓存，价格版本由计价规则版本、参考数据（车型押金）版本、车辆计价信息（日租金、车型、网点）
+ * 和当前的出租率调价系数组成：
+ * 任何一项变化后旧条目不再命中，随容量淘汰或过期，无需逐条失效。
+ * 车辆计价信息单独缓存，车辆变更事件（事务提交后）失效对应车辆，
+ * 命中时一次报价只有两次缓存查找；多实例部署时由过期时间兜底。
+ * <p>
+ * 缓存的 DTO 在各请求间共享，调用方不应修改。
+ */
+@Component
+public class RentalQuoteService {
+
+    private final VehicleRepository vehicleRepository;
+    private final PricingRuleEngine pricingEngine;
+    private final UtilizationPricing utilizationPricing;
+    private final ReferenceDataRegistry referenceData;
+    private final long maxPeriodMillis;
+    private final Cache<Long, VehiclePricing> vehicles;
+    private final Cache<QuoteKey, RentalQuoteDTO> quotes;
+
+    public RentalQuoteService(VehicleRepository vehicleRepository,
+                              PricingRuleEngine pricingEngine,
+                              UtilizationPricing utilizationPricing,
+                              ReferenceDataRegistry referenceData,
+                              @Value("${app.rental-quote.max-days:365}") int maxDays,
+                              @Value("${app.rental-quote.maximum-size:100000}") long maximumSize,
+                              @Value("${app.rental-quote.ttl:10m}") Duration ttl,
+                              @Value("${app.rental-quote.vehicle-ttl:1m}") Duration vehicleTtl) {
+        this.vehicleRepository = vehicleRepository;
+        this.pricingEngine = pricingEngine;
+        this.utilizationPricing = utilizationPricing;
+        this.referenceData = referenceData;
+        this.maxPeriodMillis = maxDays * RentalPricing.DAY_MILLIS;
+        this.vehicles = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(vehicleTtl)
+                .build();
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public RentalQuoteDTO quote(Long vehicleId, Date startTime, Date endTime) {
+        if (vehicleId == null) {
+            throw new IllegalArgumentException("Vehicle id is required");
+        }
+        if (startTime == null || endTime == null) {
+            throw new RentalBusinessException("Start time and end time are required");
+        }
+        if (!endTime.after(startTime)) {
+            throw new RentalBusinessException("End time must be after start time");
+        }
+        if (endTime.getTime() - startTime.getTime() > maxPeriodMillis) {
+            throw new RentalBusinessException("Rental period must not exceed "
+                    + maxPeriodMillis / RentalPricing.DAY_MILLIS + " days");
+        }
+        VehiclePricing vehicle = vehicles.get(vehicleId, this::loadVehicle);
+        QuoteKey key = new QuoteKey(vehicleId, startTime.getTime(), endTime.getTime(),
+                pricingEngine.version(), referenceData.version(), vehicle,
+                utilizationPricing.multiplier(vehicle.locationId(), vehicle.vehicleTypeId()));
+        return quotes.get(key, k -> price(k, vehicle));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        vehicles.invalidate(event.getVehicleId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesBulkChanged(VehiclesBulkChangedEvent event) {
+        vehicles.invalidateAll();
+    }
+
+    public long cachedQuoteCount() {
+        return quotes.estimatedSize();
+    }
+
+    private VehiclePricing loadVehicle(Long vehicleId) {
+        Vehicle vehicle = vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new RuntimeException("Vehicle not found"));
+        Byte typeId = vehicle.getVehicleType() != null ? vehicle.getVehicleType().getId() : null;
+        Integer locationId = vehicle.getLocation() != null ? vehicle.getLocation().getId() : null;
+        return new VehiclePricing(RentalPricing.toCents(vehicle.getDailyPrice()), typeId, locationId);
+    }
+
+    private RentalQuoteDTO price(QuoteKey key, VehiclePricing vehicle) {
+        // 租金按调价后的日租金计算；逾期费仍按车辆日租金（与归还时一致）
+        long dailyPriceCents = UtilizationPricing.applyMultiplier(vehicle.dailyPriceCents(), key.multiplier());
+        long feeCents = pricingEngine.rentalFeeCents(vehicle.vehicleTypeId(), vehicle.locationId(),
+                dailyPriceCents, key.startMillis(), key.endMillis());
+        BigDecimal deposit = referenceData.findVehicleType(vehicle.vehicleTypeId())
+                .map(VehicleType::getDepositAmount)
+                .orElse(BigDecimal.ZERO);
+        OvertimePolicyDTO overtime = new OvertimePolicyDTO(
+                (int) (RentalPricing.GRACE_MILLIS / RentalPricing.HOUR_MILLIS),
+                RentalPricing.fromCents(RentalPricing.hourlyOvertimeCents(vehicle.dailyPriceCents())),
+                RentalPricing.fromCents(RentalPricing.overtimeDailyCapCents(vehicle.dailyPriceCents())));
+        return new RentalQuoteDTO(key.vehicleId(), new Date(key.startMillis()), new Date(key.endMillis()),
+                RentalPricing.billableDays(key.startMillis(), key.endMillis()),
+                RentalPricing.fromCents(vehicle.dailyPriceCents()), BigDecimal.valueOf(key.multiplier(), 4),
+                RentalPricing.fromCents(feeCents), deposit, overtime);
+    }
+
+    private record VehiclePricing(long dailyPriceCents, Byte vehicleTypeId, Integer locationId) {
+    }
+
+    private record QuoteKey(long vehicleId, long startMillis, long endMillis,
+                            long rulesVersion, long referenceVersion, VehiclePricing vehicle, int multiplier) {
+    }
+}
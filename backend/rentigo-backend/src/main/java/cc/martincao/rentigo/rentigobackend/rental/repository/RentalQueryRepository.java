@@ -0,0 +1,19 @@
+package cc.martincao.rentigo.rentigobackend.rental.repository;
+
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalKeyset;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalSearchCriteria;
+
+import java.util.List;
+
+/**
+ * 管理端租赁动态条件 + keyset 分页查询（Criteria API 实现）
+ */
+public interface RentalQueryRepository {
+
+    /**
+     * 按条件查询 keyset 位置之后的最多 limit 条租赁（按创建时间、id 倒序），
+     * 用户名、车型随租赁一条 SQL 以 RentalResponseDTO 投影取回
+     */
+    List<RentalResponseDTO> findPage(RentalSearchCriteria criteria, RentalKeyset keyset, int limit);
+}
@@ -0,0 +1,78 @@
+package cc.martincao.rentigo.rentigobackend.rental.repository;
+
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalKeyset;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class RentalQueryRepositoryImpl implements RentalQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<RentalResponseDTO> findPage(RentalSearchCriteria criteria, RentalKeyset keyset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RentalResponseDTO> query = cb.createQuery(RentalResponseDTO.class);
+        Root<Rental> rental = query.from(Rental.class);
+        Join<Rental, User> user = rental.join("user");
+        Join<Rental, Vehicle> vehicle = rental.join("vehicle");
+
+        Path<Long> id = rental.get("id");
+        Path<Date> createdAt = rental.get("createdAt");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getStatus() != null) {
+            predicates.add(cb.equal(rental.get("status"), criteria.getStatus()));
+        }
+        if (criteria.getUserId() != null) {
+            predicates.add(cb.equal(user.get("id"), criteria.getUserId()));
+        }
+        if (criteria.getVehicleId() != null) {
+            predicates.add(cb.equal(vehicle.get("id"), criteria.getVehicleId()));
+        }
+        if (criteria.getLocationId() != null) {
+            // 网点 id 即车辆表外键列，不需要再 join location
+            predicates.add(cb.equal(vehicle.get("location").get("id"), criteria.getLocationId()));
+        }
+        if (criteria.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(createdAt, criteria.getCreatedFrom()));
+        }
+        if (criteria.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(createdAt, criteria.getCreatedTo()));
+        }
+        if (!keyset.isFirstPage()) {
+            // (created_at, id) < (:lastCreatedAt, :lastId)，展开为 OR 形式以便走索引
+            predicates.add(cb.or(
+                    cb.lessThan(createdAt, keyset.getLastCreatedAt()),
+                    cb.and(cb.equal(createdAt, keyset.getLastCreatedAt()), cb.lessThan(id, keyset.getLastId()))));
+        }
+
+        query.select(cb.construct(RentalResponseDTO.class,
+                        id, user.get("id"), user.get("username"), vehicle.get("id"), vehicle.get("model"),
+                        rental.get("startTime"), rental.get("endTime"), rental.get("actualReturnTime"),
+                        rental.get("status"), rental.get("totalAmount"), rental.get("depositAmount"),
+                        rental.get("depositStatus"), rental.get("depositPaidAt"), rental.get("depositReturnedAt"),
+                        rental.get("overtimeAmount"), rental.get("batchId"), createdAt, rental.get("updatedAt")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
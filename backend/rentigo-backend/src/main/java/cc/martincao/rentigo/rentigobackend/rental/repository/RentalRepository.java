@@ -1,28 +1,85 @@
 package cc.martincao.rentigo.rentigobackend.rental.repository;
 
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalInterval;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.hold.PendingHold;
 import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
 import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
-public interface RentalRepository extends JpaRepository<Rental, Long> {
+public interface RentalRepository extends JpaRepository<Rental, Long>, RentalQueryRepository {
     
-    // 查找某用户的所有租赁记录
-    List<Rental> findByUserIdOrderByCreatedAtDesc(Long userId);
+    // 查找某用户的所有租赁记录：与 findAllDtos 相同的投影，一条查询，不加载实体；分页请用 findPage
+    @Query("select new cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO("
+            + "r.id, u.id, u.username, v.id, v.model, r.startTime, r.endTime, r.actualReturnTime, r.status, "
+            + "r.totalAmount, r.depositAmount, r.depositStatus, r.depositPaidAt, r.depositReturnedAt, "
+            + "r.overtimeAmount, r.batchId, r.createdAt, r.updatedAt) "
+            + "from Rental r join r.user u join r.vehicle v "
+            + "where u.id = :userId order by r.createdAt desc, r.id desc")
+    List<RentalResponseDTO> findDtosByUserId(@Param("userId") Long userId);
     
     // 查找某车辆当前是否有未完成的租赁（保留原有方法，用于其他地方）
     Optional<Rental> findFirstByVehicleIdAndStatusInOrderByCreatedAtDesc(
             Long vehicleId, List<RentalStatus> activeStatuses);
     
-    // 查找所有租赁记录（管理员用）
-    List<Rental> findAllByOrderByCreatedAtDesc();
+    // 查找所有租赁记录（管理员用）：用户名、车型一条查询投影取回；大量数据请用 findPage 分页
+    @Query("select new cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO("
+            + "r.id, u.id, u.username, v.id, v.model, r.startTime, r.endTime, r.actualReturnTime, r.status, "
+            + "r.totalAmount, r.depositAmount, r.depositStatus, r.depositPaidAt, r.depositReturnedAt, "
+            + "r.overtimeAmount, r.batchId, r.createdAt, r.updatedAt) "
+            + "from Rental r join r.user u join r.vehicle v order by r.createdAt desc, r.id desc")
+    List<RentalResponseDTO> findAllDtos();
     
     // 根据状态查找租赁记录
     List<Rental> findByStatusOrderByCreatedAtDesc(RentalStatus status);
     
+    // 同一批量预订的全部租赁
+    List<Rental> findByBatchId(String batchId);
+    
     // 查找指定车辆、未实际归还、且状态为活跃的租赁记录
     List<Rental> findByVehicleIdAndActualReturnTimeIsNullAndStatusIn(
             Long vehicleId, List<RentalStatus> activeStatuses);
+
+    // 占用时间段索引的初始数据：未取消且（实际归还或计划）结束时间晚于 since 的租赁
+    @Query("select new cc.martincao.rentigo.rentigobackend.rental.availability.RentalInterval("
+            + "r.id, r.vehicle.id, r.startTime, r.endTime, r.actualReturnTime) from Rental r "
+            + "where r.status <> :cancelled and coalesce(r.actualReturnTime, r.endTime) > :since")
+    List<RentalInterval> findIntervalsEndingAfter(@Param("since") Date since,
+                                                  @Param("cancelled") RentalStatus cancelled);
+
+    // 占用日历：指定车辆在 [from, to) 内有占用的未取消租赁
+    @Query("select new cc.martincao.rentigo.rentigobackend.rental.availability.RentalInterval("
+            + "r.id, r.vehicle.id, r.startTime, r.endTime, r.actualReturnTime) from Rental r "
+            + "where r.vehicle.id in :vehicleIds and r.status <> :cancelled "
+            + "and r.startTime < :to and coalesce(r.actualReturnTime, r.endTime) > :from")
+    List<RentalInterval> findIntervalsOverlapping(@Param("vehicleIds") Collection<Long> vehicleIds,
+                                                  @Param("from") Date from, @Param("to") Date to,
+                                                  @Param("cancelled") RentalStatus cancelled);
+
+    // 待支付保留期限时间轮的初始数据
+    @Query("select new cc.martincao.rentigo.rentigobackend.rental.hold.PendingHold(r.id, r.createdAt) "
+            + "from Rental r where r.status = :pending")
+    List<PendingHold> findPendingHolds(@Param("pending") RentalStatus pending);
+
+    // 批量取消保留期满的租赁：只取消仍在待支付的记录，期间已完成支付的不受影响
+    @Modifying
+    @Query("update Rental r set r.status = :cancelled, r.version = r.version + 1, r.updatedAt = :now "
+            + "where r.id in :ids and r.status = :pending")
+    int cancelPending(@Param("ids") Collection<Long> ids, @Param("pending") RentalStatus pending,
+                      @Param("cancelled") RentalStatus cancelled, @Param("now") Date now);
+
+    @Query("select new cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent("
+            + "r.id, r.vehicle.id, r.startTime, r.endTime, r.actualReturnTime, r.status) "
+            + "from Rental r where r.id in :ids and r.status = :status")
+    List<RentalChangedEvent> findChangeEvents(@Param("ids") Collection<Long> ids,
+                                              @Param("status") RentalStatus status);
 }
@@ -1,7 +1,12 @@
 package cc.martincao.rentigo.rentigobackend.rental.service;
 
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalRequestDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalCheckoutDTO;
 import cc.martincao.rentigo.rentigobackend.rental.dto.RentalRequestDTO;
 import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalSearchCriteria;
 
 import java.util.List;
 
@@ -10,14 +15,26 @@ public interface RentalService {
     // 创建租赁订单
     RentalResponseDTO createRental(RentalRequestDTO request, Long userId);
     
+    // 批量创建租赁订单（全部成功或全部失败），押金合并为一笔支付
+    BatchRentalResponseDTO createBatchRental(BatchRentalRequestDTO request, Long userId);
+    
+    // 查询押金支付页状态（支付页在预订提交后异步创建，客户端轮询）
+    RentalCheckoutDTO getCheckout(Long rentalId, Long userId);
+    
     // 归还车辆
     RentalResponseDTO returnRental(Long rentalId, Long userId);
     
     // 查询当前用户的租赁记录
     List<RentalResponseDTO> getMyRentals(Long userId);
+
+    // 分页查询当前用户的租赁记录，按创建时间倒序
+    CursorPage<RentalResponseDTO> getMyRentals(Long userId, String cursor, int size);
     
     // 查询所有租赁记录（管理员）
     List<RentalResponseDTO> getAllRentals();
+
+    // 管理端按条件分页查询租赁，按创建时间倒序
+    CursorPage<RentalResponseDTO> searchRentals(RentalSearchCriteria criteria, String cursor, int size);
     
     // 强制结束租赁（操作员/管理员）
     RentalResponseDTO forceFinishRental(Long rentalId);
@@ -1,86 +1,136 @@
 package cc.martincao.rentigo.rentigobackend.rental.service.impl;
 
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
 import cc.martincao.rentigo.rentigobackend.payment.dto.CreatePaymentSessionRequest;
-import cc.martincao.rentigo.rentigobackend.payment.dto.CreatePaymentSessionResponse;
+import cc.martincao.rentigo.rentigobackend.payment.dto.PaymentResponseDTO;
+import cc.martincao.rentigo.rentigobackend.payment.event.CheckoutRequestedEvent;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
 import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
 import cc.martincao.rentigo.rentigobackend.payment.service.PaymentService;
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.engine.PricingRuleEngine;
+import cc.martincao.rentigo.rentigobackend.rental.availability.BookingAdmission;
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalAvailabilityIndex;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalRequestDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.CheckoutStatus;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalCheckoutDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalKeyset;
 import cc.martincao.rentigo.rentigobackend.rental.dto.RentalRequestDTO;
 import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.exception.BookingConflictException;
 import cc.martincao.rentigo.rentigobackend.rental.exception.RentalBusinessException;
 import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
 import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.pricing.RentalPricing;
 import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
 import cc.martincao.rentigo.rentigobackend.rental.service.RentalService;
 import cc.martincao.rentigo.rentigobackend.user.User;
 import cc.martincao.rentigo.rentigobackend.user.repository.UserRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
 import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class RentalServiceImpl implements RentalService {
 
+    // 可预订的车辆状态：维修中、停用的车辆不接受预订
+    private static final List<VehicleStatus> BOOKABLE_STATUSES = List.of(VehicleStatus.AVAILABLE, VehicleStatus.RENTED);
+
+    // 单次批量预订的租赁数上限
+    static final int MAX_BATCH_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final RentalRepository rentalRepository;
     private final VehicleRepository vehicleRepository;
     private final UserRepository userRepository;
     private final PaymentService paymentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RentalAvailabilityIndex availabilityIndex;
+    private final BookingAdmission bookingAdmission;
+    private final PricingRuleEngine pricingEngine;
+    private final UtilizationPricing utilizationPricing;
+    // 单笔租赁的最长时长，与报价使用同一上限
+    private final long maxPeriodMillis;
 
     public RentalServiceImpl(RentalRepository rentalRepository,
                             VehicleRepository vehicleRepository,
                             UserRepository userRepository,
-                            PaymentService paymentService) {
+                            PaymentService paymentService,
+                            ApplicationEventPublisher eventPublisher,
+                            RentalAvailabilityIndex availabilityIndex,
+                            BookingAdmission bookingAdmission,
+                            PricingRuleEngine pricingEngine,
+                            UtilizationPricing utilizationPricing,
+                            @Value("${app.rental-quote.max-days:365}") int maxDays) {
         this.rentalRepository = rentalRepository;
         this.vehicleRepository = vehicleRepository;
         this.userRepository = userRepository;
         this.paymentService = paymentService;
+        this.eventPublisher = eventPublisher;
+        this.availabilityIndex = availabilityIndex;
+        this.bookingAdmission = bookingAdmission;
+        this.pricingEngine = pricingEngine;
+        this.utilizationPricing = utilizationPricing;
+        this.maxPeriodMillis = maxDays * RentalPricing.DAY_MILLIS;
     }
 
     @Override
     @Transactional
     public RentalResponseDTO createRental(RentalRequestDTO request, Long userId) {
+        validatePeriod(request.getStartTime(), request.getEndTime());
+
         // 验证用户存在
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        // 验证车辆存在且可用
-        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
+        // 时间段已被占用的请求无需排队，直接拒绝
+        if (!availabilityIndex.isFree(request.getVehicleId(), request.getStartTime(), request.getEndTime())) {
+            throw new BookingConflictException("Vehicle is already booked for the requested period");
+        }
+        // 同一辆车的预订在本进程内串行，直到本事务结束
+        bookingAdmission.enter(request.getVehicleId());
+
+        // 验证车辆存在且可用；提交时递增车辆版本号，其他实例的并发预订在提交时冲突
+        Vehicle vehicle = vehicleRepository.findForBooking(request.getVehicleId())
                 .orElseThrow(() -> new RuntimeException("Vehicle not found"));
 
-        if (vehicle.getStatus() != VehicleStatus.AVAILABLE) {
+        // 当前已租出的车辆仍可预订其他时间段，是否冲突由占用时间段索引判断
+        if (!BOOKABLE_STATUSES.contains(vehicle.getStatus())) {
             throw new RentalBusinessException("Vehicle is not available for rent");
         }
 
         // 创建租赁记录
-        Rental rental = new Rental();
-        rental.setUser(user);
-        rental.setVehicle(vehicle);
-        rental.setStartTime(request.getStartTime());
-        rental.setEndTime(request.getEndTime());
-        rental.setStatus(RentalStatus.PENDING_PAYMENT);
-        
-        // 计算租赁费用和押金
-        BigDecimal dailyPrice = vehicle.getDailyPrice();
-        long days = TimeUnit.DAYS.convert(
-            request.getEndTime().getTime() - request.getStartTime().getTime(), 
-            TimeUnit.MILLISECONDS
-        );
-        BigDecimal totalAmount = dailyPrice.multiply(new BigDecimal(days));
-        BigDecimal depositAmount = vehicle.getVehicleType().getDepositAmount();
-        
-        rental.setTotalAmount(totalAmount);
-        rental.setDepositAmount(depositAmount);
-        rental = rentalRepository.save(rental);
+        Rental rental = rentalRepository.save(newRental(user, vehicle, request));
+        BigDecimal depositAmount = rental.getDepositAmount();
+
+        // 原子地检查并占用时间段，冲突则抛出异常回滚；事务回滚时占用自动撤销
+        availabilityIndex.reserve(rental.getId(), vehicle.getId(), rental.getStartTime(), rental.getEndTime());
+        // 提交后登记待支付保留期限，期满未支付自动取消
+        eventPublisher.publishEvent(RentalChangedEvent.of(rental));
 
         // 自动创建押金支付会话
         CreatePaymentSessionRequest paymentRequest = new CreatePaymentSessionRequest();
@@ -90,19 +140,128 @@ public class RentalServiceImpl implements RentalService {
         paymentRequest.setPaymentMethod("card");
         paymentRequest.setDescription("车辆租赁押金 - " + vehicle.getModel());
 
-        try {
-            CreatePaymentSessionResponse paymentResponse = paymentService.createCheckoutSession(paymentRequest, userId);
-            RentalResponseDTO response = new RentalResponseDTO();
-            BeanUtils.copyProperties(rental, response);
-            response.setUserId(rental.getUser().getId());
-            response.setUsername(rental.getUser().getUsername());
-            response.setVehicleId(rental.getVehicle().getId());
-            response.setVehicleModel(rental.getVehicle().getModel());
-            response.setCheckoutUrl(paymentResponse.getCheckoutUrl());
-            return response;
-        } catch (Exception e) {
-            throw new RentalBusinessException("Failed to create payment session: " + e.getMessage());
+        // 事务内只写入待支付记录，Stripe 会话在提交后创建
+        PaymentResponseDTO payment = paymentService.createPendingPayment(paymentRequest, userId);
+        eventPublisher.publishEvent(new CheckoutRequestedEvent(payment.getId()));
+
+        RentalResponseDTO response = new RentalResponseDTO();
+        BeanUtils.copyProperties(rental, response);
+        response.setUserId(rental.getUser().getId());
+        response.setUsername(rental.getUser().getUsername());
+        response.setVehicleId(rental.getVehicle().getId());
+        response.setVehicleModel(rental.getVehicle().getModel());
+        response.setPaymentId(payment.getId());
+        response.setCheckoutStatus(CheckoutStatus.PENDING);
+        return response;
+    }
+    
+    @Override
+    @Transactional
+    public BatchRentalResponseDTO createBatchRental(BatchRentalRequestDTO request, Long userId) {
+        List<RentalRequestDTO> items = request.getRentals();
+        if (items == null || items.isEmpty()) {
+            throw new RentalBusinessException("At least one rental is required");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new RentalBusinessException("At most " + MAX_BATCH_SIZE + " rentals per batch");
+        }
+        for (RentalRequestDTO item : items) {
+            if (item.getVehicleId() == null) {
+                throw new RentalBusinessException("Vehicle id is required");
+            }
+            validatePeriod(item.getStartTime(), item.getEndTime());
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // 任一时间段已被占用则整批拒绝，无需排队
+        for (RentalRequestDTO item : items) {
+            if (!availabilityIndex.isFree(item.getVehicleId(), item.getStartTime(), item.getEndTime())) {
+                throw new BookingConflictException("Vehicle " + item.getVehicleId()
+                        + " is already booked for the requested period");
+            }
+        }
+        Set<Long> vehicleIds = items.stream().map(RentalRequestDTO::getVehicleId).collect(Collectors.toSet());
+        bookingAdmission.enterAll(vehicleIds);
+
+        // 一次查询取出全部车辆，提交时逐辆递增版本号
+        Map<Long, Vehicle> vehicles = vehicleRepository.findAllForBooking(vehicleIds).stream()
+                .collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+
+        String batchId = UUID.randomUUID().toString();
+        List<Rental> rentals = new ArrayList<>(items.size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        BigDecimal depositAmount = BigDecimal.ZERO;
+        for (RentalRequestDTO item : items) {
+            Vehicle vehicle = vehicles.get(item.getVehicleId());
+            if (vehicle == null) {
+                throw new RuntimeException("Vehicle not found: " + item.getVehicleId());
+            }
+            if (!BOOKABLE_STATUSES.contains(vehicle.getStatus())) {
+                throw new RentalBusinessException("Vehicle " + vehicle.getId() + " is not available for rent");
+            }
+            Rental rental = newRental(user, vehicle, item);
+            rental.setBatchId(batchId);
+            rentals.add(rental);
+            totalAmount = totalAmount.add(rental.getTotalAmount());
+            depositAmount = depositAmount.add(rental.getDepositAmount());
+        }
+        rentals = rentalRepository.saveAll(rentals);
+
+        // 同一批次内同一辆车的时间段重叠也会在这里冲突，整批回滚
+        for (Rental rental : rentals) {
+            availabilityIndex.reserve(rental.getId(), rental.getVehicle().getId(),
+                    rental.getStartTime(), rental.getEndTime());
+            eventPublisher.publishEvent(RentalChangedEvent.of(rental));
+        }
+
+        // 押金合并为一笔支付，挂在批次的第一条租赁上；支付成功后整批更新
+        CreatePaymentSessionRequest paymentRequest = new CreatePaymentSessionRequest();
+        paymentRequest.setRentalId(rentals.get(0).getId());
+        paymentRequest.setPaymentType(PaymentType.DEPOSIT);
+        paymentRequest.setAmount(depositAmount);
+        paymentRequest.setPaymentMethod("card");
+        paymentRequest.setDescription("车辆租赁押金 - 批量预订 " + rentals.size() + " 辆");
+
+        PaymentResponseDTO payment = paymentService.createPendingPayment(paymentRequest, userId);
+        eventPublisher.publishEvent(new CheckoutRequestedEvent(payment.getId()));
+
+        List<RentalResponseDTO> responses = rentals.stream()
+                .map(this::convertToResponseDTO)
+                .collect(Collectors.toList());
+        return new BatchRentalResponseDTO(batchId, responses, totalAmount, depositAmount,
+                payment.getId(), CheckoutStatus.PENDING, null);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public RentalCheckoutDTO getCheckout(Long rentalId, Long userId) {
+        Rental rental = rentalRepository.findById(rentalId)
+                .orElseThrow(() -> new RuntimeException("Rental not found"));
+        if (!rental.getUser().getId().equals(userId)) {
+            throw new RentalBusinessException("You can only view your own rentals");
+        }
+
+        RentalCheckoutDTO checkout = new RentalCheckoutDTO();
+        checkout.setRentalId(rentalId);
+        PaymentResponseDTO payment = paymentService.findLatestDeposit(rentalId, rental.getBatchId());
+        if (payment == null) {
+            throw new RentalBusinessException("No deposit payment for this rental");
+        }
+        checkout.setPaymentId(payment.getId());
+        if (payment.getStatus() == PaymentStatus.SUCCESS) {
+            checkout.setStatus(CheckoutStatus.PAID);
+        } else if (rental.getStatus() == RentalStatus.CANCELLED || payment.getStatus() != PaymentStatus.PENDING) {
+            checkout.setStatus(CheckoutStatus.CANCELLED);
+        } else if (payment.getStripeSessionId() != null) {
+            checkout.setStatus(CheckoutStatus.READY);
+            checkout.setCheckoutUrl(payment.getCheckoutUrl());
+            checkout.setPaymentSessionId(payment.getStripeSessionId());
+        } else {
+            checkout.setStatus(CheckoutStatus.PENDING);
         }
+        return checkout;
     }
     
     @Override
@@ -129,50 +288,22 @@ public class RentalServiceImpl implements RentalService {
         boolean needsAdditionalPayment = false;
         BigDecimal additionalAmount = BigDecimal.ZERO;
         
-        if (rental.getActualReturnTime().after(rental.getEndTime())) {
-            // 计算逾期时间（小时）
-            long overdueMillis = rental.getActualReturnTime().getTime() - rental.getEndTime().getTime();
-            long overdueHours = TimeUnit.HOURS.convert(overdueMillis, TimeUnit.MILLISECONDS);
-            
-            if (overdueHours > 6) {
-                // 超过6小时需要补交费用
-                needsAdditionalPayment = true;
-                
-                // 不满一小时按一小时计算
-                // 计算去掉6小时免费期后的逾期毫秒数
-                long overdueMillisAfterFree = rental.getActualReturnTime().getTime() - rental.getEndTime().getTime() - TimeUnit.HOURS.toMillis(6);
-                // 向上取整到小时（不满一小时按一小时计算）
-                long chargeableHoursCeilUp = (overdueMillisAfterFree + TimeUnit.HOURS.toMillis(1) - 1) / TimeUnit.HOURS.toMillis(1);
-                
-                BigDecimal dailyPrice = rental.getVehicle().getDailyPrice();
-                // 每小时基础价格 = 每日价格 ÷ 24
-                BigDecimal hourlyBasePrice = dailyPrice.divide(new BigDecimal("24"), 2, java.math.RoundingMode.HALF_UP);
-                // 每小时超时价格 = 每小时基础价格 × 2
-                BigDecimal hourlyOvertimePrice = hourlyBasePrice.multiply(new BigDecimal("2"));
-                
-                // 计算总超时费用（使用向上取整的小时数）
-                BigDecimal totalOvertimeFee = hourlyOvertimePrice.multiply(new BigDecimal(chargeableHoursCeilUp));
-                
-                // 每日补交上限 = 每日价格 × 1.5
-                BigDecimal dailyFeeLimit = dailyPrice.multiply(new BigDecimal("1.5"));
-                
-                // 计算实际需要补交的天数（基于向上取整的小时数）
-                long overdueDays = (chargeableHoursCeilUp / 24) + (chargeableHoursCeilUp % 24 > 0 ? 1 : 0);
-                BigDecimal maxTotalFee = dailyFeeLimit.multiply(new BigDecimal(overdueDays));
-                
-                // 取较小值作为最终费用
-                additionalAmount = totalOvertimeFee.min(maxTotalFee);
-                
-                // 设置超时费用到租赁记录
-                rental.setOvertimeAmount(additionalAmount);
-                
-                // 更新总金额（这里只是记录，实际支付通过Payment系统处理）
-                rental.setTotalAmount(rental.getTotalAmount().add(additionalAmount));
-                
-                // TODO: 创建新的Payment记录用于补交逾期费用
-                // 这里预留接口，待Payment模块完成后实现
-                // createOvertimePayment(rental.getId(), additionalAmount, "Overtime return fee");
-            }
+        // 超过宽限期的逾期需要补交费用，规则见 RentalPricing
+        BigDecimal overtimeFee = RentalPricing.overtimeFee(rental.getVehicle().getDailyPrice(),
+                rental.getEndTime(), rental.getActualReturnTime());
+        if (overtimeFee.signum() > 0) {
+            needsAdditionalPayment = true;
+            additionalAmount = overtimeFee;
+
+            // 设置超时费用到租赁记录
+            rental.setOvertimeAmount(additionalAmount);
+
+            // 更新总金额（这里只是记录，实际支付通过Payment系统处理）
+            rental.setTotalAmount(rental.getTotalAmount().add(additionalAmount));
+
+            // TODO: 创建新的Payment记录用于补交逾期费用
+            // 这里预留接口，待Payment模块完成后实现
+            // createOvertimePayment(rental.getId(), additionalAmount, "Overtime return fee");
         }
 
         // 保存租赁记录
@@ -184,29 +315,51 @@ public class RentalServiceImpl implements RentalService {
             System.out.println("Rental " + rentalId + " requires additional payment: " + additionalAmount);
         }
         rental = rentalRepository.save(rental);
+        // 占用时间段按实际归还时间截止
+        eventPublisher.publishEvent(RentalChangedEvent.of(rental));
 
         // 释放车辆
-        Vehicle vehicle = rental.getVehicle();
-        vehicle.setStatus(VehicleStatus.AVAILABLE);
-        vehicleRepository.save(vehicle);
+        changeVehicleStatus(rental.getVehicle(), VehicleStatus.AVAILABLE);
 
         return convertToResponseDTO(rental);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<RentalResponseDTO> getMyRentals(Long userId) {
-        List<Rental> rentals = rentalRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return rentals.stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return rentalRepository.findDtosByUserId(userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<RentalResponseDTO> getMyRentals(Long userId, String cursor, int size) {
+        RentalSearchCriteria criteria = new RentalSearchCriteria();
+        criteria.setUserId(userId);
+        return findPage(criteria, cursor, size);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<RentalResponseDTO> getAllRentals() {
-        List<Rental> rentals = rentalRepository.findAllByOrderByCreatedAtDesc();
-        return rentals.stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return rentalRepository.findAllDtos();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<RentalResponseDTO> searchRentals(RentalSearchCriteria criteria, String cursor, int size) {
+        if (criteria.getCreatedFrom() != null && criteria.getCreatedTo() != null
+                && !criteria.getCreatedTo().after(criteria.getCreatedFrom())) {
+            throw new IllegalArgumentException("createdTo must be after createdFrom");
+        }
+        return findPage(criteria, cursor, size);
+    }
+
+    private CursorPage<RentalResponseDTO> findPage(RentalSearchCriteria criteria, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        RentalKeyset keyset = RentalKeyset.fromCursor(cursor);
+        // 多取一行用于判断是否还有下一页
+        List<RentalResponseDTO> rows = rentalRepository.findPage(criteria, keyset, pageSize + 1);
+        return CursorPage.of(rows, pageSize, RentalKeyset::toCursor);
     }
 
     @Override
@@ -223,11 +376,11 @@ public class RentalServiceImpl implements RentalService {
         rental.setActualReturnTime(new Date());
         rental.setStatus(RentalStatus.FINISHED);
         rental = rentalRepository.save(rental);
+        // 占用时间段按实际归还时间截止
+        eventPublisher.publishEvent(RentalChangedEvent.of(rental));
 
         // 释放车辆
-        Vehicle vehicle = rental.getVehicle();
-        vehicle.setStatus(VehicleStatus.AVAILABLE);
-        vehicleRepository.save(vehicle);
+        changeVehicleStatus(rental.getVehicle(), VehicleStatus.AVAILABLE);
 
         return convertToResponseDTO(rental);
     }
@@ -284,12 +437,52 @@ public class RentalServiceImpl implements RentalService {
         rental = rentalRepository.save(rental);
 
         // 更新车辆状态为已租出（重用之前获取的vehicle对象）
-        vehicle.setStatus(VehicleStatus.RENTED);
-        vehicleRepository.save(vehicle);
+        changeVehicleStatus(vehicle, VehicleStatus.RENTED);
 
         return convertToResponseDTO(rental);
     }
 
+    /**
+     * 待支付的新租赁：租金按出租率调价后的日租金、由计价规则引擎按计费天数计算（原由 trg_rental_before_insert 触发器计算），
+     * 与报价一致；押金取车型的押金标准
+     */
+    private Rental newRental(User user, Vehicle vehicle, RentalRequestDTO request) {
+        Rental rental = new Rental();
+        rental.setUser(user);
+        rental.setVehicle(vehicle);
+        rental.setStartTime(request.getStartTime());
+        rental.setEndTime(request.getEndTime());
+        rental.setStatus(RentalStatus.PENDING_PAYMENT);
+
+        int multiplier = utilizationPricing.multiplier(vehicle.getLocation().getId(), vehicle.getVehicleType().getId());
+        rental.setTotalAmount(pricingEngine.rentalFee(vehicle, multiplier, request.getStartTime(), request.getEndTime()));
+        rental.setDepositAmount(vehicle.getVehicleType().getDepositAmount());
+        return rental;
+    }
+
+    private void validatePeriod(Date startTime, Date endTime) {
+        if (startTime == null || endTime == null) {
+            throw new RentalBusinessException("Start time and end time are required");
+        }
+        if (!endTime.after(startTime)) {
+            throw new RentalBusinessException("End time must be after start time");
+        }
+        if (endTime.getTime() - startTime.getTime() > maxPeriodMillis) {
+            throw new RentalBusinessException("Rental period must not exceed "
+                    + maxPeriodMillis / RentalPricing.DAY_MILLIS + " days");
+        }
+    }
+
+    /**
+     * 更新车辆状态并发布变更事件（事务提交后刷新车辆缓存等）
+     */
+    private void changeVehicleStatus(Vehicle vehicle, VehicleStatus status) {
+        VehicleDTO previous = VehicleDTO.fromEntity(vehicle);
+        vehicle.setStatus(status);
+        vehicleRepository.save(vehicle);
+        eventPublisher.publishEvent(VehicleChangedEvent.updated(previous, VehicleDTO.fromEntity(vehicle)));
+    }
+
     private RentalResponseDTO convertToResponseDTO(Rental rental) {
         RentalResponseDTO dto = new RentalResponseDTO();
         BeanUtils.copyProperties(rental, dto);
@@ -1,5 +1,6 @@
 package cc.martincao.rentigo.rentigobackend.user.service.impl;
 
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
 import cc.martincao.rentigo.rentigobackend.user.User;
 import cc.martincao.rentigo.rentigobackend.user.Role;
 import cc.martincao.rentigo.rentigobackend.user.dto.*;
@@ -32,19 +33,22 @@ public class UserServiceImpl implements UserService {
     private final JwtTokenProvider jwtTokenProvider;
     private final ModelMapper modelMapper;
     private final RoleRepository roleRepository;
+    private final ReferenceDataRegistry referenceData;
 
     public UserServiceImpl(UserRepository userRepository,
                          PasswordEncoder passwordEncoder,
                          AuthenticationManager authenticationManager,
                          JwtTokenProvider jwtTokenProvider,
                          ModelMapper modelMapper,
-                         RoleRepository roleRepository) {
+                         RoleRepository roleRepository,
+                         ReferenceDataRegistry referenceData) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtTokenProvider = jwtTokenProvider;
         this.modelMapper = modelMapper;
         this.roleRepository = roleRepository;
+        this.referenceData = referenceData;
     }
 
     /** 注册 */
@@ -62,7 +66,8 @@ public class UserServiceImpl implements UserService {
         user.setEmail(req.getEmail());
         user.setPasswordHash(passwordEncoder.encode(req.getPassword()));
 
-        Role userRole = roleRepository.findByName("ROLE_USER")
+        // 默认角色取自参考数据快照，注册不再查 role 表
+        Role userRole = referenceData.findRole("ROLE_USER")
                 .orElseThrow(() -> new RoleNotFoundException("Default user role not found."));
         user.setRoles(new HashSet<>(Set.of(userRole)));
 
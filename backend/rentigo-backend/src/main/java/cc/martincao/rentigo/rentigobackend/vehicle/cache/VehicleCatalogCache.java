@@ -0,0 +1,97 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.cache;
+
+import cc.martincao.rentigo.rentigobackend.reference.event.ReferenceDataRefreshedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 车辆目录缓存（"vehicles"）的定向失效
+ * <p>
+ * 缓存键：地点 ID（该地点的可用车辆）与 'all'（全部车辆）。
+ * 车辆变更只失效其变更前后所在地点和 'all'，其他地点的缓存保持热度；
+ * 参考数据刷新后车辆 DTO 里的车型名称、押金可能已变，整个缓存清空。
+ * 失效之后再推进 {@link VehicleCatalogVersion}。
+ */
+@Component
+public class VehicleCatalogCache {
+
+    public static final String CACHE_NAME = "vehicles";
+    public static final String ALL_KEY = "all";
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleCatalogCache.class);
+
+    private final CacheManager cacheManager;
+    private final VehicleCatalogVersion catalogVersion;
+
+    public VehicleCatalogCache(CacheManager cacheManager, VehicleCatalogVersion catalogVersion) {
+        this.cacheManager = cacheManager;
+        this.catalogVersion = catalogVersion;
+    }
+
+    /**
+     * 事务提交后再失效，避免并发读在提交前把旧数据重新加载进缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        evict(event.getAffectedLocationIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesBulkChanged(VehiclesBulkChangedEvent event) {
+        evict(event.getLocationIds());
+    }
+
+    @EventListener(ReferenceDataRefreshedEvent.class)
+    public void onReferenceDataRefreshed() {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.clear();
+            log.debug("Cleared vehicle cache after reference data refresh");
+        }
+        catalogVersion.bumpAll();
+    }
+
+    public void evict(Collection<Integer> locationIds) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            for (Integer locationId : locationIds) {
+                cache.evict(locationId);
+            }
+            cache.evict(ALL_KEY);
+            log.debug("Evicted vehicle cache entries for locations {} and '{}'", locationIds, ALL_KEY);
+        }
+        catalogVersion.bump(locationIds);
+    }
+
+    /**
+     * 命中率等统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (!(cache instanceof CaffeineCache caffeineCache)) {
+            return result;
+        }
+        CacheStats stats = caffeineCache.getNativeCache().stats();
+        result.put("size", caffeineCache.getNativeCache().estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("loadCount", stats.loadCount());
+        return result;
+    }
+}
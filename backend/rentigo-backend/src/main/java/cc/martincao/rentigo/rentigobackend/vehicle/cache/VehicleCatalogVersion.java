@@ -0,0 +1,48 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 车辆目录版本号，用于条件 GET（ETag / If-None-Match）
+ * <p>
+ * 全局序号单调递增；每次变更把受影响地点的版本设为新的序号，整表版本即最新序号。
+ * 参考数据（车型名称、押金）变化会影响所有地点，{@link #bumpAll()} 把所有地点的版本至少推进到新的序号。
+ * ETag 带上进程启动时间，重启后旧 ETag 不会误命中。
+ * 版本只在 {@link VehicleCatalogCache} 失效缓存之后推进，拿到新 ETag 的请求不会读到旧缓存。
+ */
+@Component
+public class VehicleCatalogVersion {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Integer, Long> locationVersions = new ConcurrentHashMap<>();
+    // 所有地点版本的下限
+    private final AtomicLong allVersion = new AtomicLong();
+
+    public void bump(Collection<Integer> locationIds) {
+        long next = sequence.incrementAndGet();
+        for (Integer locationId : locationIds) {
+            locationVersions.merge(locationId, next, Math::max);
+        }
+    }
+
+    public void bumpAll() {
+        long next = sequence.incrementAndGet();
+        allVersion.accumulateAndGet(next, Math::max);
+    }
+
+    /**
+     * 地点为 null 时返回整表的 ETag
+     */
+    public String etag(Integer locationId) {
+        if (locationId == null) {
+            return "\"" + epoch + "-all-" + sequence.get() + "\"";
+        }
+        return "\"" + epoch + "-" + locationId + "-" + Math.max(locationVersions.getOrDefault(locationId, 0L), allVersion.get()) + "\"";
+    }
+}
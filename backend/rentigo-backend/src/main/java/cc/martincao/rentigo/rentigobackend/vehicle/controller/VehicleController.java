@@ -1,31 +1,242 @@
 package cc.martincao.rentigo.rentigobackend.vehicle.controller;
 
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.vehicle.cache.VehicleCatalogCache;
+import cc.martincao.rentigo.rentigobackend.vehicle.cache.VehicleCatalogVersion;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.LocationAvailabilityDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.NearbyLocationDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleBulkUpdateRequest;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleBulkUpdateResult;
 import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleFacetQuery;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleFacetResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportFormat;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleAvailabilityCounters;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleFacetIndex;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.service.VehicleImportService;
 import cc.martincao.rentigo.rentigobackend.vehicle.service.VehicleService;
+import cc.martincao.rentigo.rentigobackend.vehicle.stream.VehicleAvailabilityBroadcaster;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/vehicle")
 public class VehicleController {
 
     private final VehicleService vehicleService;
+    private final VehicleCatalogCache vehicleCatalogCache;
+    private final VehicleFacetIndex vehicleFacetIndex;
+    private final VehicleImportService vehicleImportService;
+    private final VehicleCatalogVersion catalogVersion;
+    private final VehicleAvailabilityBroadcaster availabilityBroadcaster;
+    private final VehicleAvailabilityCounters availabilityCounters;
 
-    public VehicleController(VehicleService vehicleService) {
+    public VehicleController(VehicleService vehicleService,
+                             VehicleCatalogCache vehicleCatalogCache,
+                             VehicleFacetIndex vehicleFacetIndex,
+                             VehicleImportService vehicleImportService,
+                             VehicleCatalogVersion catalogVersion,
+                             VehicleAvailabilityBroadcaster availabilityBroadcaster,
+                             VehicleAvailabilityCounters availabilityCounters) {
         this.vehicleService = vehicleService;
+        this.vehicleCatalogCache = vehicleCatalogCache;
+        this.vehicleFacetIndex = vehicleFacetIndex;
+        this.vehicleImportService = vehicleImportService;
+        this.catalogVersion = catalogVersion;
+        this.availabilityBroadcaster = availabilityBroadcaster;
+        this.availabilityCounters = availabilityCounters;
     }
 
+    /**
+     * 支持条件 GET：If-None-Match 与当前目录版本一致时直接返回 304，不查库也不序列化
+     */
     @GetMapping("/list")
-    public ResponseEntity<List<VehicleDTO>> listVehicles(@RequestParam(required = false) Integer locationId) {
-        if (locationId != null) {
-            return ResponseEntity.ok(vehicleService.listVehicles(locationId));
-        } else {
-            return ResponseEntity.ok(vehicleService.listAllVehicles());
+    public ResponseEntity<List<VehicleDTO>> listVehicles(@RequestParam(required = false) Integer locationId,
+                                                         WebRequest request) {
+        // 先取版本再取数据：期间若有变更，ETag 只会偏旧，下次轮询会重新拉取
+        String etag = catalogVersion.etag(locationId);
+        if (request.checkNotModified(etag)) {
+            return null;
         }
+        List<VehicleDTO> vehicles = locationId != null
+                ? vehicleService.listVehicles(locationId)
+                : vehicleService.listAllVehicles();
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(vehicles);
+    }
+
+    /**
+     * keyset 分页列表，可按地点、车型、状态过滤，按 id 或日租金排序
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<VehicleDTO>> pageVehicles(
+            @RequestParam(required = false) Integer locationId,
+            @RequestParam(required = false) Byte vehicleTypeId,
+            @RequestParam(required = false) VehicleStatus status,
+            @RequestParam(defaultValue = "ID") VehicleSortKey sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setLocationId(locationId);
+        criteria.setVehicleTypeId(vehicleTypeId);
+        criteria.setStatus(status);
+        return ResponseEntity.ok(vehicleService.pageVehicles(criteria, sort, direction, cursor, size));
+    }
+
+    /**
+     * 多条件搜索（车型、座位数、价格区间、颜色、地点/城市），默认只返回可用车辆
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<VehicleDTO>> searchVehicles(
+            @RequestParam(required = false) Integer locationId,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Byte vehicleTypeId,
+            @RequestParam(required = false) Integer minSeats,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String color,
+            @RequestParam(defaultValue = "AVAILABLE") VehicleStatus status,
+            @RequestParam(defaultValue = "PRICE") VehicleSortKey sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setLocationId(locationId);
+        criteria.setCity(city);
+        criteria.setVehicleTypeId(vehicleTypeId);
+        criteria.setMinSeats(minSeats);
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+        criteria.setColor(color);
+        criteria.setStatus(status);
+        return ResponseEntity.ok(vehicleService.pageVehicles(criteria, sort, direction, cursor, size));
+    }
+
+    /**
+     * 按时间段找车：在 /search 的条件基础上，只返回 [startTime, endTime) 内没有未取消租赁的可预订车辆，游标分页
+     */
+    @GetMapping("/available")
+    public ResponseEntity<CursorPage<VehicleDTO>> searchAvailableVehicles(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date endTime,
+            @RequestParam(required = false) Integer locationId,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Byte vehicleTypeId,
+            @RequestParam(required = false) Integer minSeats,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String color,
+            @RequestParam(defaultValue = "PRICE") VehicleSortKey sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setLocationId(locationId);
+        criteria.setCity(city);
+        criteria.setVehicleTypeId(vehicleTypeId);
+        criteria.setMinSeats(minSeats);
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+        criteria.setColor(color);
+        criteria.setAvailableFrom(startTime);
+        criteria.setAvailableTo(endTime);
+        return ResponseEntity.ok(vehicleService.pageVehicles(criteria, sort, direction, cursor, size));
+    }
+
+    /**
+     * 分面浏览：基于内存位图索引过滤，并返回各维度计数（如 "SUV (42)"），不访问数据库
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<VehicleFacetResult> browseFacets(
+            @RequestParam(required = false) Byte vehicleTypeId,
+            @RequestParam(required = false) Integer locationId,
+            @RequestParam(defaultValue = "AVAILABLE") VehicleStatus status,
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest request) {
+        // 分面结果取自索引，用索引自身的版本，避免索引尚未应用变更时就发出新 ETag
+        String etag = vehicleFacetIndex.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setVehicleTypeId(vehicleTypeId);
+        query.setLocationId(locationId);
+        query.setStatus(status);
+        query.setColor(color);
+        query.setMinPrice(minPrice);
+        query.setMaxPrice(maxPrice);
+        query.setLimit(limit);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(vehicleFacetIndex.search(query));
+    }
+
+    /**
+     * 附近有可用车辆的服务网点，按距离由近到远
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyLocationDTO>> nearbyLocations(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "10") double radiusKm,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(vehicleService.findNearbyLocations(lat, lng, radiusKm, limit));
+    }
+
+    /**
+     * 各地点车辆数汇总（默认可用车辆），读内存计数器，不查库
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<List<LocationAvailabilityDTO>> availabilitySummary(
+            @RequestParam(defaultValue = "AVAILABLE") VehicleStatus status,
+            WebRequest request) {
+        String etag = availabilityCounters.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(availabilityCounters.summary(status));
+    }
+
+    /**
+     * 订阅车辆可用性变化（SSE），可按地点过滤；收到 resync 事件时应重新拉取列表
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAvailability(@RequestParam(required = false) Integer locationId) {
+        SseEmitter emitter = availabilityBroadcaster.subscribe(locationId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
     }
 
     @PostMapping("/add")
@@ -35,6 +246,17 @@ public class VehicleController {
         return ResponseEntity.ok(vehicleService.addVehicle(vehicleDTO));
     }
 
+    /**
+     * 批量导入（CSV 带表头，或每行一个 JSON 对象），请求体流式读取，返回逐行错误
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<VehicleImportResult> importVehicles(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                              InputStream body) {
+        return ResponseEntity.ok(vehicleImportService.importVehicles(body, VehicleImportFormat.fromContentType(contentType)));
+    }
+
     @PutMapping("/update/{id}")
     @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
     @SecurityRequirement(name = "bearerAuth")
@@ -42,6 +264,16 @@ public class VehicleController {
         return ResponseEntity.ok(vehicleService.updateVehicle(id, vehicleDTO));
     }
 
+    /**
+     * 按条件批量修改（整点转维修、某车型统一调价、整批调拨），一条 UPDATE 完成
+     */
+    @PostMapping("/bulk-update")
+    @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<VehicleBulkUpdateResult> bulkUpdateVehicles(@RequestBody VehicleBulkUpdateRequest request) {
+        return ResponseEntity.ok(vehicleService.bulkUpdateVehicles(request));
+    }
+
     @DeleteMapping("/remove/{id}")
     @PreAuthorize("hasRole('OPERATOR') or hasRole('ADMIN')")
     @SecurityRequirement(name = "bearerAuth")
@@ -49,4 +281,22 @@ public class VehicleController {
         vehicleService.removeVehicle(id);
         return ResponseEntity.noContent().build();
     }
+
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(vehicleCatalogCache.stats());
+    }
+
+    /**
+     * 从数据库全量重建分面索引（例如绕过应用直接改库之后）
+     */
+    @PostMapping("/facets/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Map<String, Integer>> rebuildFacetIndex() {
+        vehicleFacetIndex.rebuild();
+        return ResponseEntity.ok(Map.of("size", vehicleFacetIndex.size()));
+    }
 }
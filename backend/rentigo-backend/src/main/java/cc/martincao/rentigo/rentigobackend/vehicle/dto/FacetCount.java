@@ -0,0 +1,17 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分面计数，例如 {value: "3", label: "SUV", count: 42}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCount {
+    private String value;
+    private String label;
+    private int count;
+}
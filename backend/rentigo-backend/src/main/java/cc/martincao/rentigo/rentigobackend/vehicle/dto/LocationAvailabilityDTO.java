@@ -0,0 +1,19 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 单个地点的车辆数汇总：总数及按车型拆分（车型 id -> 数量）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationAvailabilityDTO {
+    private Integer locationId;
+    private long total;
+    private Map<Byte, Long> byVehicleType;
+}
@@ -0,0 +1,20 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 附近有可用车辆的服务网点
+ */
+@Data
+public class NearbyLocationDTO {
+    private Integer locationId;
+    private String city;
+    private String centerName;
+    private String address;
+    private BigDecimal lat;
+    private BigDecimal lng;
+    private double distanceKm;      // 与查询坐标的球面距离
+    private int availableVehicles;  // 当前可用车辆数
+}
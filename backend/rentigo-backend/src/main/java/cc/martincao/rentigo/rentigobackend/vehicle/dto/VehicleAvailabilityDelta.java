@@ -0,0 +1,24 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 车辆可用性变化（SSE 推送内容）
+ * <p>
+ * 车辆被删除时 removed 为 true；调拨时原地点的订阅者也会收到，locationId 为新地点。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleAvailabilityDelta {
+    private Long vehicleId;
+    private Integer locationId;
+    private VehicleStatus status;
+    private BigDecimal dailyPrice;
+    private boolean removed;
+}
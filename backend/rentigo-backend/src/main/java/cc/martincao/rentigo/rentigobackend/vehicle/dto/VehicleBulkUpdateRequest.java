@@ -0,0 +1,12 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.Data;
+
+/**
+ * 批量修改请求：按 filter 选中车辆，应用 patch
+ */
+@Data
+public class VehicleBulkUpdateRequest {
+    private VehicleSearchCriteria filter;
+    private VehiclePatch patch;
+}
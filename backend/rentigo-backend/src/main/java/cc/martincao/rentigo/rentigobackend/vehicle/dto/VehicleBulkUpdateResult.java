@@ -0,0 +1,15 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleBulkUpdateResult {
+    private int updated;
+    private Set<Integer> affectedLocationIds;  // 变更前后涉及的地点，其缓存已失效
+}
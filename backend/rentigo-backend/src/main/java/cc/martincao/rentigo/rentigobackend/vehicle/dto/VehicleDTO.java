@@ -1,11 +1,21 @@
 package cc.martincao.rentigo.rentigobackend.vehicle.dto;
 
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 
+/**
+ * 车辆视图
+ * <p>
+ * 全参构造器供 JPQL / Criteria 构造器投影使用（select new ...VehicleDTO(...)），字段顺序即参数顺序
+ */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class VehicleDTO {
     private Long id;
     private String model;
@@ -17,4 +27,19 @@ public class VehicleDTO {
     private BigDecimal dailyPrice;
     private VehicleStatus status;
     private String licensePlate;
+
+    public static VehicleDTO fromEntity(Vehicle vehicle) {
+        VehicleDTO dto = new VehicleDTO();
+        dto.setId(vehicle.getId());
+        dto.setModel(vehicle.getModel());
+        dto.setVehicleTypeId(vehicle.getVehicleType().getId());
+        dto.setVehicleTypeName(vehicle.getVehicleType().getTypeName());
+        dto.setDepositAmount(vehicle.getVehicleType().getDepositAmount());
+        dto.setLocationId(vehicle.getLocation().getId());
+        dto.setColor(vehicle.getColor());
+        dto.setDailyPrice(vehicle.getDailyPrice());
+        dto.setStatus(vehicle.getStatus());
+        dto.setLicensePlate(vehicle.getLicensePlate());
+        return dto;
+    }
 }
@@ -0,0 +1,20 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 分面浏览的过滤条件，字段为 null 表示不限
+ */
+@Data
+public class VehicleFacetQuery {
+    private Byte vehicleTypeId;
+    private Integer locationId;
+    private VehicleStatus status;
+    private String color;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private int limit = 20;
+}
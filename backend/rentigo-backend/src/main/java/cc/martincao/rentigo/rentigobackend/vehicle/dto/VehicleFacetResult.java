@@ -0,0 +1,23 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分面浏览结果
+ * <p>
+ * facets 的每个维度只应用其他维度的过滤条件，
+ * 因此选中 "SUV" 后车型维度仍会列出其他车型的数量。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleFacetResult {
+    private int total;                            // 命中的车辆总数
+    private List<VehicleDTO> items;               // 按日租金、id 升序的前 limit 辆
+    private Map<String, List<FacetCount>> facets; // vehicleType / location / status / color / price
+}
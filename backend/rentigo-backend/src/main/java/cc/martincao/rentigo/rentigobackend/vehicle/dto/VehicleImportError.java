@@ -0,0 +1,16 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 导入失败的行，line 为文件中的物理行号（从 1 开始）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleImportError {
+    private long line;
+    private String message;
+}
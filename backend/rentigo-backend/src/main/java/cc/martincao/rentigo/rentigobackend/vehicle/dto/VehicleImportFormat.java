@@ -0,0 +1,33 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import org.springframework.http.MediaType;
+
+/**
+ * 批量导入的文件格式，由请求的 Content-Type 决定
+ */
+public enum VehicleImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    VehicleImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static VehicleImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType type = MediaType.parseMediaType(contentType);
+            for (VehicleImportFormat format : values()) {
+                if (type.isCompatibleWith(MediaType.parseMediaType(format.mediaType))) {
+                    return format;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+    }
+}
@@ -0,0 +1,18 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入结果
+ */
+@Data
+public class VehicleImportResult {
+    private long total;       // 读取的数据行数（不含表头和空行）
+    private long imported;
+    private long failed;
+    private boolean errorsTruncated;  // 失败行过多时只返回前若干条
+    private List<VehicleImportError> errors = new ArrayList<>();
+}
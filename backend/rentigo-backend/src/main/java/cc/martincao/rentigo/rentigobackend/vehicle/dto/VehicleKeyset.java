@@ -0,0 +1,61 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import cc.martincao.rentigo.rentigobackend.common.util.CursorCodec;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+/**
+ * 车辆 keyset 分页位置：排序方式 + 上一页最后一行的排序键
+ */
+@Getter
+public class VehicleKeyset {
+
+    private final VehicleSortKey sortKey;
+    private final Sort.Direction direction;
+    private final BigDecimal lastPrice;   // 仅 PRICE 排序使用
+    private final Long lastId;            // 第一页为 null
+
+    public VehicleKeyset(VehicleSortKey sortKey, Sort.Direction direction, BigDecimal lastPrice, Long lastId) {
+        this.sortKey = sortKey;
+        this.direction = direction;
+        this.lastPrice = lastPrice;
+        this.lastId = lastId;
+    }
+
+    public static VehicleKeyset first(VehicleSortKey sortKey, Sort.Direction direction) {
+        return new VehicleKeyset(sortKey, direction, null, null);
+    }
+
+    /**
+     * 解析游标，游标中的排序方式必须与本次请求一致
+     */
+    public static VehicleKeyset fromCursor(String cursor, VehicleSortKey sortKey, Sort.Direction direction) {
+        if (cursor == null || cursor.isBlank()) {
+            return first(sortKey, direction);
+        }
+        String[] parts = CursorCodec.decode(cursor, 4);
+        if (!sortKey.name().equals(parts[0]) || !direction.name().equals(parts[1])) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+        try {
+            BigDecimal lastPrice = "null".equals(parts[2]) ? null : new BigDecimal(parts[2]);
+            if (sortKey == VehicleSortKey.PRICE && lastPrice == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new VehicleKeyset(sortKey, direction, lastPrice, Long.valueOf(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public static String toCursor(VehicleSortKey sortKey, Sort.Direction direction, VehicleDTO last) {
+        BigDecimal price = sortKey == VehicleSortKey.PRICE ? last.getDailyPrice() : null;
+        return CursorCodec.encode(sortKey, direction, price == null ? "null" : price.toPlainString(), last.getId());
+    }
+
+    public boolean isFirstPage() {
+        return lastId == null;
+    }
+}
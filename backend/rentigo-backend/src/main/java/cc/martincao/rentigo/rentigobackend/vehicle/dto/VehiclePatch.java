@@ -0,0 +1,30 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 批量修改的内容，为空的字段保持不变；priceDelta 与 priceFactor 二选一
+ */
+@Data
+public class VehiclePatch {
+    private VehicleStatus status;
+    private BigDecimal priceDelta;   // 日租金加减额，例如 -20
+    private BigDecimal priceFactor;  // 日租金倍率，例如 1.1 表示上调 10%
+    private Integer locationId;      // 调拨到的地点
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return status == null && priceDelta == null && priceFactor == null && locationId == null;
+    }
+
+    /**
+     * 改状态或调拨时不动租用中的车辆，避免与进行中的订单冲突
+     */
+    public boolean skipsRentedVehicles() {
+        return status != null || locationId != null;
+    }
+}
@@ -0,0 +1,37 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 车辆查询条件，为空的字段不参与过滤
+ */
+@Data
+public class VehicleSearchCriteria {
+    private Integer locationId;
+    private String city;
+    private Byte vehicleTypeId;
+    private Integer minSeats;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private String color;
+    private VehicleStatus status;
+    // 可用时间窗 [availableFrom, availableTo)：排除窗口内有未取消租赁的车辆；未指定 status 时只返回可预订（可用或当前租出）的车辆
+    private Date availableFrom;
+    private Date availableTo;
+
+    @JsonIgnore
+    public boolean hasAvailabilityWindow() {
+        return availableFrom != null || availableTo != null;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return locationId == null && (city == null || city.isBlank()) && vehicleTypeId == null && minSeats == null
+                && minPrice == null && maxPrice == null && (color == null || color.isBlank()) && status == null;
+    }
+}
@@ -0,0 +1,9 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+/**
+ * 车辆分页排序键，均以 id 作为次序键保证顺序稳定
+ */
+public enum VehicleSortKey {
+    ID,      // (id)
+    PRICE    // (daily_price, id)
+}
@@ -0,0 +1,19 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.dto;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 按 (地点, 车型, 状态) 分组的车辆数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleStatusCount {
+    private Integer locationId;
+    private Byte vehicleTypeId;
+    private VehicleStatus status;
+    private Long count;
+}
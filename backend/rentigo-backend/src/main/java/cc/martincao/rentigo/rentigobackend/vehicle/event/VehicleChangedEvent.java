@@ -0,0 +1,64 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.event;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 车辆变更事件
+ * <p>
+ * previous 为变更前快照（新增时为 null），current 为变更后快照（删除时为 null）。
+ * 监听方应使用 {@code @TransactionalEventListener}，保证只在事务提交后生效。
+ */
+public class VehicleChangedEvent {
+
+    private final VehicleDTO previous;
+    private final VehicleDTO current;
+
+    public VehicleChangedEvent(VehicleDTO previous, VehicleDTO current) {
+        if (previous == null && current == null) {
+            throw new IllegalArgumentException("Either previous or current snapshot is required");
+        }
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public static VehicleChangedEvent added(VehicleDTO current) {
+        return new VehicleChangedEvent(null, current);
+    }
+
+    public static VehicleChangedEvent updated(VehicleDTO previous, VehicleDTO current) {
+        return new VehicleChangedEvent(previous, current);
+    }
+
+    public static VehicleChangedEvent removed(VehicleDTO previous) {
+        return new VehicleChangedEvent(previous, null);
+    }
+
+    public VehicleDTO getPrevious() {
+        return previous;
+    }
+
+    public VehicleDTO getCurrent() {
+        return current;
+    }
+
+    public Long getVehicleId() {
+        return current != null ? current.getId() : previous.getId();
+    }
+
+    /**
+     * 受影响的地点：变更前后所在地点（车辆调拨时为两个）
+     */
+    public Set<Integer> getAffectedLocationIds() {
+        Set<Integer> locationIds = new LinkedHashSet<>(2);
+        if (previous != null && previous.getLocationId() != null) {
+            locationIds.add(previous.getLocationId());
+        }
+        if (current != null && current.getLocationId() != null) {
+            locationIds.add(current.getLocationId());
+        }
+        return locationIds;
+    }
+}
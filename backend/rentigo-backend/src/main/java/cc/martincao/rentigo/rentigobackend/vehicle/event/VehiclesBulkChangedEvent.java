@@ -0,0 +1,44 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.event;
+
+import java.util.Set;
+
+/**
+ * 批量变更事件（批量导入、批量修改）
+ * <p>
+ * 批量操作不逐辆发布 {@link VehicleChangedEvent}，监听方按涉及的地点整体失效或重建。
+ * 涉及的车辆不超过 {@link #MAX_TRACKED_VEHICLE_IDS} 辆时同时带上车辆 id，监听方可只回读这些车辆；
+ * 超过上限时 id 集合为空，表示未逐辆记录。
+ */
+public class VehiclesBulkChangedEvent {
+
+    public static final int MAX_TRACKED_VEHICLE_IDS = 1000;
+
+    private final Set<Integer> locationIds;
+    private final Set<Long> vehicleIds;
+    private final long count;
+
+    public VehiclesBulkChangedEvent(Set<Integer> locationIds, long count) {
+        this(locationIds, Set.of(), count);
+    }
+
+    public VehiclesBulkChangedEvent(Set<Integer> locationIds, Set<Long> vehicleIds, long count) {
+        this.locationIds = Set.copyOf(locationIds);
+        this.vehicleIds = vehicleIds.size() > MAX_TRACKED_VEHICLE_IDS ? Set.of() : Set.copyOf(vehicleIds);
+        this.count = count;
+    }
+
+    public Set<Integer> getLocationIds() {
+        return locationIds;
+    }
+
+    /**
+     * 涉及的车辆 id；为空表示未逐辆记录
+     */
+    public Set<Long> getVehicleIds() {
+        return vehicleIds;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
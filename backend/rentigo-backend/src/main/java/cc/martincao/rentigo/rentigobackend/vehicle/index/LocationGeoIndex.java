@@ -0,0 +1,159 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.index;
+
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.reference.dto.LocationDTO;
+import cc.martincao.rentigo.rentigobackend.reference.event.ReferenceDataRefreshedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务网点的网格空间索引（进程内）
+ * <p>
+ * 按经纬度把网点划入固定大小的网格，半径查询只扫描与外接矩形相交的网格，再用球面距离精确过滤。
+ * 网点取自 {@link ReferenceDataRegistry}，每次参考数据重新载入（启动、管理员刷新）后重建；
+ * 索引为不可变快照并整体替换，查询无需加锁。
+ */
+@Component
+public class LocationGeoIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private static final Logger log = LoggerFactory.getLogger(LocationGeoIndex.class);
+
+    private final ReferenceDataRegistry referenceData;
+    private final double cellDegrees;
+
+    private volatile Grid grid;
+
+    public LocationGeoIndex(ReferenceDataRegistry referenceData,
+                            @Value("${app.geo-index.cell-degrees:0.1}") double cellDegrees) {
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("Grid cell size must be positive");
+        }
+        this.referenceData = referenceData;
+        this.cellDegrees = cellDegrees;
+        this.grid = new Grid(List.of(), cellDegrees);
+    }
+
+    /**
+     * 按参考数据快照重建，没有坐标的网点不参与附近查询
+     */
+    @EventListener(ReferenceDataRefreshedEvent.class)
+    public void rebuild() {
+        List<LocationDTO> located = referenceData.locations().stream()
+                .filter(location -> location.getLat() != null && location.getLng() != null)
+                .toList();
+        grid = new Grid(located, cellDegrees);
+        log.info("Location geo index built with {} locations", located.size());
+    }
+
+    public int size() {
+        return grid.locations.length;
+    }
+
+    /**
+     * 半径内的网点，按距离升序
+     */
+    public List<Hit> within(double lat, double lng, double radiusKm) {
+        Grid snapshot = grid;
+        List<Hit> hits = new ArrayList<>();
+        double latSpan = radiusKm / KM_PER_DEGREE_LAT;
+        // 高纬度时经度方向的 1 度更短，外接矩形相应放宽；接近极点时退化为整圈
+        double cosLat = Math.cos(Math.toRadians(Math.min(89.9, Math.abs(lat) + latSpan)));
+        double lngSpan = Math.min(180, radiusKm / (KM_PER_DEGREE_LAT * cosLat));
+
+        int minRow = snapshot.row(lat - latSpan);
+        int maxRow = snapshot.row(lat + latSpan);
+        int minCol = snapshot.col(lng - lngSpan);
+        int maxCol = snapshot.col(lng + lngSpan);
+        long cellCount = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+
+        boolean crossesAntimeridian = lng - lngSpan < -180 || lng + lngSpan > 180;
+        if (cellCount > snapshot.cells.size() || crossesAntimeridian) {
+            // 半径很大时逐个网格探测反而更慢，直接扫描非空网格
+            for (int[] members : snapshot.cells.values()) {
+                collect(snapshot, members, lat, lng, radiusKm, hits);
+            }
+        } else {
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    int[] members = snapshot.cells.get(Grid.key(row, col));
+                    if (members != null) {
+                        collect(snapshot, members, lat, lng, radiusKm, hits);
+                    }
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits;
+    }
+
+    private static void collect(Grid snapshot, int[] members, double lat, double lng, double radiusKm, List<Hit> hits) {
+        for (int i : members) {
+            double distance = distanceKm(lat, lng, snapshot.lats[i], snapshot.lngs[i]);
+            if (distance <= radiusKm) {
+                hits.add(new Hit(snapshot.locations[i], distance));
+            }
+        }
+    }
+
+    /**
+     * Haversine 球面距离
+     */
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public record Hit(LocationDTO location, double distanceKm) {
+    }
+
+    private static final class Grid {
+        private final double cellDegrees;
+        private final LocationDTO[] locations;
+        private final double[] lats;
+        private final double[] lngs;
+        private final Map<Long, int[]> cells;
+
+        private Grid(List<LocationDTO> source, double cellDegrees) {
+            this.cellDegrees = cellDegrees;
+            this.locations = source.toArray(new LocationDTO[0]);
+            this.lats = new double[locations.length];
+            this.lngs = new double[locations.length];
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int i = 0; i < locations.length; i++) {
+                lats[i] = locations[i].getLat().doubleValue();
+                lngs[i] = locations[i].getLng().doubleValue();
+                buckets.computeIfAbsent(key(row(lats[i]), col(lngs[i])), k -> new ArrayList<>()).add(i);
+            }
+            this.cells = new HashMap<>(buckets.size() * 2);
+            buckets.forEach((key, members) -> cells.put(key, members.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        private int row(double lat) {
+            return (int) Math.floor(lat / cellDegrees);
+        }
+
+        private int col(double lng) {
+            return (int) Math.floor(lng / cellDegrees);
+        }
+
+        private static long key(int row, int col) {
+            return ((long) row << 32) | (col & 0xffffffffL);
+        }
+    }
+}
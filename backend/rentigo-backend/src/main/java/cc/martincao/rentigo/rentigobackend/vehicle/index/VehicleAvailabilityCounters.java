@@ -0,0 +1,186 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.index;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.LocationAvailabilityDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleStatusCount;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 车辆数计数器（进程内），按 (地点, 车型, 状态) 维护
+ * <p>
+ * 每次车辆变更（事务提交后）把旧状态的计数减一、新状态加一，多个变更可并发更新（读锁 + 原子计数）；
+ * 启动、批量变更后以及定时从数据库 group by 对账，写锁内整体替换，用于修正极端并发下的漂移。
+ * 每次对账推进一代，增量在提交前记下当时的代，提交后若已跨过对账（对账结果已包含该变更）则丢弃，避免重复计入。
+ * 汇总查询只遍历计数表，不访问数据库。
+ */
+@Component
+public class VehicleAvailabilityCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleAvailabilityCounters.class);
+
+    private final VehicleRepository vehicleRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Key, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    // 对账代数，只在写锁内推进
+    private volatile long generation;
+
+    public VehicleAvailabilityCounters(VehicleRepository vehicleRepository) {
+        this.vehicleRepository = vehicleRepository;
+    }
+
+    /**
+     * 与数据库对账；返回与对账前不一致的计数项数量。
+     * 以下监听器都排在最前，读计数的监听器（出租率调价）在同一事件中能看到更新后的计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Scheduled(initialDelayString = "${app.availability-counters.reconcile-interval:5m}",
+            fixedDelayString = "${app.availability-counters.reconcile-interval:5m}")
+    public int reconcile() {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            Map<Key, Long> actual = new HashMap<>();
+            for (VehicleStatusCount row : vehicleRepository.countByLocationTypeAndStatus()) {
+                actual.put(new Key(row.getLocationId(), row.getVehicleTypeId(), row.getStatus()), row.getCount());
+            }
+            int drift = 0;
+            for (Map.Entry<Key, AtomicLong> entry : counters.entrySet()) {
+                if (entry.getValue().get() != actual.getOrDefault(entry.getKey(), 0L)) {
+                    drift++;
+                }
+            }
+            for (Key key : actual.keySet()) {
+                if (!counters.containsKey(key)) {
+                    drift++;
+                }
+            }
+            counters.clear();
+            actual.forEach((key, count) -> counters.put(key, new AtomicLong(count)));
+            version.incrementAndGet();
+            if (drift > 0) {
+                log.info("Vehicle availability counters reconciled, {} counters corrected", drift);
+            }
+            return drift;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 提交前记下对账代数，提交后再应用增量。
+     * 对账恰好落在记代与提交之间时该增量会被丢弃，由下次对账补回；这个窗口只有提交本身，
+     * 比提交后到监听器执行之间（可能重复计入）要短得多
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        Key before = key(event.getPrevious());
+        Key after = key(event.getCurrent());
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        long tagged = generation;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(before, after, tagged);
+                }
+            });
+        } else {
+            apply(before, after, tagged);
+        }
+    }
+
+    private void apply(Key before, Key after, long tagged) {
+        lock.readLock().lock();
+        try {
+            if (tagged != generation) {
+                return;
+            }
+            if (before != null) {
+                counters.computeIfAbsent(before, k -> new AtomicLong()).decrementAndGet();
+            }
+            if (after != null) {
+                counters.computeIfAbsent(after, k -> new AtomicLong()).incrementAndGet();
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 批量导入/修改后直接对账，比逐辆推算更简单可靠
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onVehiclesBulkChanged(VehiclesBulkChangedEvent event) {
+        reconcile();
+    }
+
+    /**
+     * 各地点指定状态的车辆数（按地点 id 排序），没有该状态车辆的地点不出现在结果中
+     */
+    public List<LocationAvailabilityDTO> summary(VehicleStatus status) {
+        Map<Integer, LocationAvailabilityDTO> byLocation = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            counters.forEach((key, counter) -> {
+                long count = counter.get();
+                if (key.status() != status || count <= 0) {
+                    return;
+                }
+                LocationAvailabilityDTO location = byLocation.computeIfAbsent(key.locationId(),
+                        id -> new LocationAvailabilityDTO(id, 0, new TreeMap<>()));
+                location.setTotal(location.getTotal() + count);
+                location.getByVehicleType().merge(key.vehicleTypeId(), count, Long::sum);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(byLocation.values());
+    }
+
+    public long count(Integer locationId, Byte vehicleTypeId, VehicleStatus status) {
+        AtomicLong counter = counters.get(new Key(locationId, vehicleTypeId, status));
+        return counter != null ? Math.max(counter.get(), 0) : 0;
+    }
+
+    public String etag() {
+        return "\"" + epoch + "-availability-" + version.get() + "\"";
+    }
+
+    private static Key key(VehicleDTO vehicle) {
+        if (vehicle == null || vehicle.getLocationId() == null || vehicle.getStatus() == null) {
+            return null;
+        }
+        return new Key(vehicle.getLocationId(), vehicle.getVehicleTypeId(), vehicle.getStatus());
+    }
+
+    private record Key(Integer locationId, Byte vehicleTypeId, VehicleStatus status) {
+    }
+}
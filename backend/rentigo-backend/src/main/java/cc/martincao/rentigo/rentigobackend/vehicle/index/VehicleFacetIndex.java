@@ -0,0 +1,437 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.index;
+
+import cc.martincao.rentigo.rentigobackend.reference.event.ReferenceDataRefreshedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.FacetCount;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleFacetQuery;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleFacetResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 车队分面索引（进程内）
+ * <p>
+ * 每辆车占用一个槽位（bit 位置），车型、地点、状态、颜色、价格区间各维护一组 BitSet，
+ * 浏览查询即为位图求交，并同时给出各维度的分面计数，无需访问数据库。
+ * <p>
+ * 参考数据每次载入（含启动时的首次载入）后从 {@link VehicleRepository} 全量构建，
+ * 车型名称等展示字段随之更新；之后由 {@link VehicleChangedEvent}（事务提交后）增量维护：
+ * 事件只用来确定哪辆车变了，应用的是回读的已提交行，而不是事件里的快照。
+ * <p>
+ * 回读和全量扫描都在锁外进行，写锁只覆盖内存中的替换，查询不会等待数据库。
+ * 每次回读前领取一个递增序号：序号小于已替换的全量构建、或小于该车已应用的回读时，说明已有更晚开始的读取，直接丢弃；
+ * 全量构建替换时，把扫描开始后才应用的单车回读补到新位图上。
+ * 读写通过读写锁互斥，查询看到的总是某次变更前或变更后的完整状态。
+ */
+@Component
+public class VehicleFacetIndex {
+
+    public static final String FACET_VEHICLE_TYPE = "vehicleType";
+    public static final String FACET_LOCATION = "location";
+    public static final String FACET_STATUS = "status";
+    public static final String FACET_COLOR = "color";
+    public static final String FACET_PRICE = "price";
+
+    private static final int MAX_LIMIT = 100;
+    private static final BitSet EMPTY = new BitSet();
+    private static final Comparator<VehicleDTO> PRICE_ORDER = Comparator
+            .comparing(VehicleDTO::getDailyPrice, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(VehicleDTO::getId);
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleFacetIndex.class);
+
+    private final VehicleRepository vehicleRepository;
+    private final int priceBucketWidth;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long epoch = System.currentTimeMillis();
+    // 每次写入后递增，作为分面结果的 ETag；在写锁内推进，读到新版本即能看到对应数据
+    private volatile long version;
+    // 每次回读数据库前领取，序号越大读取开始得越晚
+    private final AtomicLong readSequence = new AtomicLong();
+
+    // 以下字段只在写锁内修改
+    private Bitmaps bitmaps = new Bitmaps();
+    // 当前位图所基于的全量扫描的序号
+    private long rebuiltAt;
+    // 全量扫描之后各车最近一次应用的回读（row 为 null 表示已删除）
+    private final Map<Long, Applied> appliedById = new HashMap<>();
+
+    public VehicleFacetIndex(VehicleRepository vehicleRepository,
+                             @Value("${app.vehicle-index.price-bucket-width:100}") int priceBucketWidth) {
+        if (priceBucketWidth <= 0) {
+            throw new IllegalArgumentException("Price bucket width must be positive");
+        }
+        this.vehicleRepository = vehicleRepository;
+        this.priceBucketWidth = priceBucketWidth;
+    }
+
+    /**
+     * 全量重建：在锁外扫描并构建新位图，写锁内只做替换。
+     * 扫描期间已应用的单车回读开始得更晚，替换时补到新位图上，不会被扫描结果覆盖
+     */
+    @EventListener(ReferenceDataRefreshedEvent.class)
+    public void rebuild() {
+        long sequence = readSequence.incrementAndGet();
+        Bitmaps fresh = new Bitmaps();
+        vehicleRepository.findAllDtos().forEach(fresh::insert);
+
+        lock.writeLock().lock();
+        try {
+            if (sequence < rebuiltAt) {
+                // 更晚开始的全量构建已经替换
+                return;
+            }
+            appliedById.values().removeIf(applied -> applied.sequence() < sequence);
+            appliedById.forEach(fresh::replace);
+            bitmaps = fresh;
+            rebuiltAt = sequence;
+            version++;
+            log.info("Vehicle facet index built with {} vehicles", fresh.slotById.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 各提交线程的监听器之间没有先后保证，快照可能晚于更新的变更或重建才到达；
+     * 按 id 回读已提交行，只在没有更晚开始的读取已应用时才写入，迟到的事件不会把旧状态写回索引
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        Long vehicleId = event.getVehicleId();
+        long sequence = readSequence.incrementAndGet();
+        Map<Long, VehicleDTO> rows = new HashMap<>();
+        vehicleRepository.findDtoById(vehicleId).ifPresent(row -> rows.put(vehicleId, row));
+        apply(sequence, List.of(vehicleId), rows);
+    }
+
+    /**
+     * 批量导入/修改：事件带有车辆 id 时只回读这些车辆，否则整体重建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesBulkChanged(VehiclesBulkChangedEvent event) {
+        Set<Long> vehicleIds = event.getVehicleIds();
+        if (vehicleIds.isEmpty()) {
+            rebuild();
+            return;
+        }
+        long sequence = readSequence.incrementAndGet();
+        Map<Long, VehicleDTO> rows = new HashMap<>();
+        vehicleRepository.findDtosByIds(vehicleIds).forEach(row -> rows.put(row.getId(), row));
+        apply(sequence, vehicleIds, rows);
+    }
+
+    /**
+     * 应用一次回读的结果；rows 中没有的 id 视为已删除
+     */
+    private void apply(long sequence, Collection<Long> vehicleIds, Map<Long, VehicleDTO> rows) {
+        lock.writeLock().lock();
+        try {
+            if (sequence < rebuiltAt) {
+                // 全量扫描开始得更晚，已包含这次变更
+                return;
+            }
+            for (Long vehicleId : vehicleIds) {
+                Applied last = appliedById.get(vehicleId);
+                if (last != null && last.sequence() > sequence) {
+                    continue;
+                }
+                Applied applied = new Applied(sequence, rows.get(vehicleId));
+                appliedById.put(vehicleId, applied);
+                bitmaps.replace(vehicleId, applied);
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 位图求交得到命中车辆与分面计数；返回的 DTO 为索引内部快照，调用方不应修改
+     */
+    public VehicleFacetResult search(VehicleFacetQuery query) {
+        lock.readLock().lock();
+        try {
+            Bitmaps bitmaps = this.bitmaps;
+            BitSet type = filter(bitmaps.byType, query.getVehicleTypeId());
+            BitSet location = filter(bitmaps.byLocation, query.getLocationId());
+            BitSet status = filter(bitmaps.byStatus, query.getStatus());
+            BitSet color = filter(bitmaps.byColor, colorKey(query.getColor()));
+            BitSet price = bitmaps.priceFilter(query.getMinPrice(), query.getMaxPrice());
+
+            BitSet matched = bitmaps.intersect(type, location, status, color, price);
+
+            Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+            facets.put(FACET_VEHICLE_TYPE, sortByCount(counts(bitmaps.byType,
+                    bitmaps.intersect(null, location, status, color, price),
+                    id -> bitmaps.typeNames.getOrDefault(id, String.valueOf(id)))));
+            facets.put(FACET_LOCATION, sortByCount(counts(bitmaps.byLocation,
+                    bitmaps.intersect(type, null, status, color, price), String::valueOf)));
+            facets.put(FACET_STATUS, counts(bitmaps.byStatus,
+                    bitmaps.intersect(type, location, null, color, price), Enum::name));
+            facets.put(FACET_COLOR, sortByCount(counts(bitmaps.byColor,
+                    bitmaps.intersect(type, location, status, null, price), bitmaps.colorNames::get)));
+            facets.put(FACET_PRICE, counts(bitmaps.byPriceBucket,
+                    bitmaps.intersect(type, location, status, color, null), this::priceBucketLabel));
+
+            int limit = Math.min(Math.max(query.getLimit(), 0), MAX_LIMIT);
+            return new VehicleFacetResult(matched.cardinality(), bitmaps.cheapest(matched, limit), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 指定地点的可用车辆数，没有可用车辆的地点不出现在结果中
+     */
+    public Map<Integer, Integer> availableCounts(Collection<Integer> locationIds) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Integer locationId : locationIds) {
+                Integer count = bitmaps.availableByLocation.get(locationId);
+                if (count != null) {
+                    counts.put(locationId, count);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String etag() {
+        return "\"" + epoch + "-facets-" + version + "\"";
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static <K> void setBit(Map<K, BitSet> bitmaps, K key, int slot) {
+        if (key != null) {
+            bitmaps.computeIfAbsent(key, k -> new BitSet()).set(slot);
+        }
+    }
+
+    private static <K> void clearBit(Map<K, BitSet> bitmaps, K key, int slot) {
+        if (key == null) {
+            return;
+        }
+        BitSet bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.clear(slot);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    /**
+     * null 表示该维度不过滤；取值不存在时返回空位图
+     */
+    private static <K> BitSet filter(Map<K, BitSet> bitmaps, K key) {
+        return key == null ? null : bitmaps.getOrDefault(key, EMPTY);
+    }
+
+    private static <K> List<FacetCount> counts(Map<K, BitSet> bitmaps, BitSet base, Function<K, String> labelOf) {
+        List<FacetCount> counts = new ArrayList<>();
+        for (Map.Entry<K, BitSet> entry : bitmaps.entrySet()) {
+            BitSet bits = (BitSet) entry.getValue().clone();
+            bits.and(base);
+            int count = bits.cardinality();
+            if (count > 0) {
+                counts.add(new FacetCount(String.valueOf(entry.getKey()), labelOf.apply(entry.getKey()), count));
+            }
+        }
+        return counts;
+    }
+
+    private static List<FacetCount> sortByCount(List<FacetCount> counts) {
+        counts.sort(Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+        return counts;
+    }
+
+    private Integer priceBucket(BigDecimal price) {
+        return price == null ? null : price.intValue() / priceBucketWidth;
+    }
+
+    private String priceBucketLabel(Integer bucket) {
+        // 左闭右开区间 [from, to)
+        return bucket * priceBucketWidth + "-" + (bucket + 1) * priceBucketWidth;
+    }
+
+    private static String colorKey(String color) {
+        if (color == null || color.isBlank()) {
+            return null;
+        }
+        return color.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 一套完整的位图；全量构建时在锁外填充新实例，再整体替换
+     */
+    private final class Bitmaps {
+
+        // 槽位分配：删除后的槽位优先复用，保持位图紧凑
+        final Map<Long, Integer> slotById = new HashMap<>();
+        final List<VehicleDTO> slots = new ArrayList<>();
+        final Deque<Integer> freeSlots = new ArrayDeque<>();
+        final BitSet live = new BitSet();
+
+        final Map<Byte, BitSet> byType = new HashMap<>();
+        final Map<Integer, BitSet> byLocation = new HashMap<>();
+        final Map<VehicleStatus, BitSet> byStatus = new EnumMap<>(VehicleStatus.class);
+        final Map<String, BitSet> byColor = new HashMap<>();
+        final NavigableMap<Integer, BitSet> byPriceBucket = new TreeMap<>();
+
+        // 各地点可用车辆数，供附近网点查询按地点直接取数
+        final Map<Integer, Integer> availableByLocation = new HashMap<>();
+
+        // 分面展示名
+        final Map<Byte, String> typeNames = new HashMap<>();
+        final Map<String, String> colorNames = new HashMap<>();
+
+        void replace(Long vehicleId, Applied applied) {
+            remove(vehicleId);
+            if (applied.row() != null) {
+                insert(applied.row());
+            }
+        }
+
+        void insert(VehicleDTO vehicle) {
+            int slot;
+            if (freeSlots.isEmpty()) {
+                slot = slots.size();
+                slots.add(vehicle);
+            } else {
+                slot = freeSlots.pop();
+                slots.set(slot, vehicle);
+            }
+            slotById.put(vehicle.getId(), slot);
+            live.set(slot);
+
+            setBit(byType, vehicle.getVehicleTypeId(), slot);
+            setBit(byLocation, vehicle.getLocationId(), slot);
+            setBit(byStatus, vehicle.getStatus(), slot);
+            setBit(byColor, colorKey(vehicle.getColor()), slot);
+            setBit(byPriceBucket, priceBucket(vehicle.getDailyPrice()), slot);
+            if (vehicle.getStatus() == VehicleStatus.AVAILABLE && vehicle.getLocationId() != null) {
+                availableByLocation.merge(vehicle.getLocationId(), 1, Integer::sum);
+            }
+
+            if (vehicle.getVehicleTypeId() != null && vehicle.getVehicleTypeName() != null) {
+                typeNames.put(vehicle.getVehicleTypeId(), vehicle.getVehicleTypeName());
+            }
+            if (vehicle.getColor() != null) {
+                colorNames.putIfAbsent(colorKey(vehicle.getColor()), vehicle.getColor().trim());
+            }
+        }
+
+        void remove(Long vehicleId) {
+            Integer slot = slotById.remove(vehicleId);
+            if (slot == null) {
+                return;
+            }
+            VehicleDTO vehicle = slots.get(slot);
+            clearBit(byType, vehicle.getVehicleTypeId(), slot);
+            clearBit(byLocation, vehicle.getLocationId(), slot);
+            clearBit(byStatus, vehicle.getStatus(), slot);
+            clearBit(byColor, colorKey(vehicle.getColor()), slot);
+            clearBit(byPriceBucket, priceBucket(vehicle.getDailyPrice()), slot);
+            if (vehicle.getStatus() == VehicleStatus.AVAILABLE && vehicle.getLocationId() != null) {
+                availableByLocation.computeIfPresent(vehicle.getLocationId(), (id, count) -> count > 1 ? count - 1 : null);
+            }
+
+            live.clear(slot);
+            slots.set(slot, null);
+            freeSlots.push(slot);
+        }
+
+        BitSet intersect(BitSet... filters) {
+            BitSet result = (BitSet) live.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    result.and(filter);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 合并区间覆盖的价格桶，再对首尾两个桶内的车辆按实际价格精确过滤
+         */
+        BitSet priceFilter(BigDecimal minPrice, BigDecimal maxPrice) {
+            if (minPrice == null && maxPrice == null) {
+                return null;
+            }
+            int low = minPrice == null ? Integer.MIN_VALUE : priceBucket(minPrice);
+            int high = maxPrice == null ? Integer.MAX_VALUE : priceBucket(maxPrice);
+            BitSet result = new BitSet();
+            if (low > high) {
+                return result;
+            }
+            byPriceBucket.subMap(low, true, high, true).values().forEach(result::or);
+            if (minPrice != null) {
+                refine(result, byPriceBucket.get(low), price -> price.compareTo(minPrice) < 0);
+            }
+            if (maxPrice != null) {
+                refine(result, byPriceBucket.get(high), price -> price.compareTo(maxPrice) > 0);
+            }
+            return result;
+        }
+
+        void refine(BitSet result, BitSet edgeBucket, Predicate<BigDecimal> outOfRange) {
+            if (edgeBucket == null) {
+                return;
+            }
+            for (int slot = edgeBucket.nextSetBit(0); slot >= 0; slot = edgeBucket.nextSetBit(slot + 1)) {
+                if (outOfRange.test(slots.get(slot).getDailyPrice())) {
+                    result.clear(slot);
+                }
+            }
+        }
+
+        /**
+         * 用大小为 limit 的大顶堆取日租金最低的 limit 辆，避免对全部命中结果排序
+         */
+        List<VehicleDTO> cheapest(BitSet matched, int limit) {
+            if (limit == 0) {
+                return new ArrayList<>();
+            }
+            PriorityQueue<VehicleDTO> heap = new PriorityQueue<>(limit + 1, PRICE_ORDER.reversed());
+            for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+                heap.offer(slots.get(slot));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            List<VehicleDTO> items = new ArrayList<>(heap);
+            items.sort(PRICE_ORDER);
+            return items;
+        }
+    }
+
+    private record Applied(long sequence, VehicleDTO row) {
+    }
+}
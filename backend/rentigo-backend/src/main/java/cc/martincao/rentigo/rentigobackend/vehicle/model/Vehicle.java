@@ -23,11 +23,12 @@ public class Vehicle {
     @Column(nullable = false)
     private String model;
 
-    @ManyToOne
+    // 读路径走 VehicleDTO 投影，不需要随实体加载关联
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicle_type_id", nullable = false)
     private VehicleType vehicleType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "location_id", nullable = false)
     private Location location;
 
@@ -43,6 +44,10 @@ public class Vehicle {
     @Column(name = "license_plate", unique = true)
     private String licensePlate;
 
+    // 预订时强制递增，多实例并发预订同一辆车时提交失败
+    @Version
+    private Integer version = 0;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Date createdAt;
@@ -0,0 +1,39 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.repository;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleKeyset;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehiclePatch;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+
+import java.util.List;
+
+/**
+ * 动态条件 + keyset 分页查询、批量修改（Criteria API 实现）
+ */
+public interface VehicleQueryRepository {
+
+    /**
+     * 按条件查询 keyset 位置之后的最多 limit 条车辆，以 VehicleDTO 投影一条 SQL 取回
+     */
+    List<VehicleDTO> findPage(VehicleSearchCriteria criteria, VehicleKeyset keyset, int limit);
+
+    /**
+     * 批量修改会命中的车辆当前所在的地点
+     */
+    List<Integer> findBulkUpdateLocationIds(VehicleSearchCriteria filter, VehiclePatch patch);
+
+    /**
+     * 批量修改会命中的车辆 id，最多 limit 个
+     */
+    List<Long> findBulkUpdateIds(VehicleSearchCriteria filter, VehiclePatch patch, int limit);
+
+    /**
+     * 应用 patch 后日租金会小于等于 0 或超出列精度的车辆数
+     */
+    long countInvalidPricesAfter(VehicleSearchCriteria filter, VehiclePatch patch);
+
+    /**
+     * 一条 UPDATE 语句完成批量修改，返回修改的行数
+     */
+    int bulkUpdate(VehicleSearchCriteria filter, VehiclePatch patch);
+}
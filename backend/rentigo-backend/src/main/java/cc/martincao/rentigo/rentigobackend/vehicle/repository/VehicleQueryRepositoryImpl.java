@@ -0,0 +1,261 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.repository;
+
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleKeyset;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehiclePatch;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CommonAbstractCriteria;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class VehicleQueryRepositoryImpl implements VehicleQueryRepository {
+
+    private static final BigDecimal MAX_DAILY_PRICE = new BigDecimal("99999999.99");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<VehicleDTO> findPage(VehicleSearchCriteria criteria, VehicleKeyset keyset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<VehicleDTO> query = cb.createQuery(VehicleDTO.class);
+        Root<Vehicle> vehicle = query.from(Vehicle.class);
+        Join<Vehicle, VehicleType> vehicleType = vehicle.join("vehicleType");
+        // 地点 id 即外键列；只有按城市过滤时才 join location 表
+        Path<Integer> locationId = vehicle.get("location").get("id");
+
+        Path<Long> id = vehicle.get("id");
+        Path<BigDecimal> price = vehicle.get("dailyPrice");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getLocationId() != null) {
+            predicates.add(cb.equal(locationId, criteria.getLocationId()));
+        }
+        if (criteria.getCity() != null && !criteria.getCity().isBlank()) {
+            Join<Vehicle, Location> location = vehicle.join("location");
+            predicates.add(cb.equal(location.get("city"), criteria.getCity().trim()));
+        }
+        if (criteria.getVehicleTypeId() != null) {
+            predicates.add(cb.equal(vehicleType.get("id"), criteria.getVehicleTypeId()));
+        }
+        if (criteria.getMinSeats() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(vehicleType.get("seats"), criteria.getMinSeats()));
+        }
+        if (criteria.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(price, criteria.getMinPrice()));
+        }
+        if (criteria.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(price, criteria.getMaxPrice()));
+        }
+        if (criteria.getColor() != null && !criteria.getColor().isBlank()) {
+            predicates.add(cb.equal(vehicle.get("color"), criteria.getColor().trim()));
+        }
+        if (criteria.getStatus() != null) {
+            predicates.add(cb.equal(vehicle.get("status"), criteria.getStatus()));
+        } else if (criteria.hasAvailabilityWindow()) {
+            predicates.add(vehicle.get("status").in(VehicleStatus.AVAILABLE, VehicleStatus.RENTED));
+        }
+        if (criteria.hasAvailabilityWindow()) {
+            predicates.add(freeDuring(cb, query, id, criteria.getAvailableFrom(), criteria.getAvailableTo()));
+        }
+
+        boolean ascending = keyset.getDirection() == Sort.Direction.ASC;
+        if (!keyset.isFirstPage()) {
+            predicates.add(afterKeyset(cb, keyset, id, price, ascending));
+        }
+        query.select(cb.construct(VehicleDTO.class,
+                        id, vehicle.get("model"), vehicleType.get("id"), vehicleType.get("typeName"),
+                        vehicleType.get("depositAmount"), locationId, vehicle.get("color"), price,
+                        vehicle.get("status"), vehicle.get("licensePlate")))
+                .where(predicates.toArray(new Predicate[0]));
+
+        if (keyset.getSortKey() == VehicleSortKey.PRICE) {
+            query.orderBy(ascending ? cb.asc(price) : cb.desc(price), ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 窗口 [from, to) 内没有未取消租赁。租赁占用到 coalesce(实际归还, 计划结束)，该表达式无法走索引，
+     * 拆成两个都能按 (vehicle_id, 时间) 定位的反连接：按计划结束时间（未归还或晚于 from 归还）与按实际归还时间（超时归还）。
+     * 两者都只扫描 from 之后结束的少量记录，历史租赁再多也不影响
+     */
+    private Predicate freeDuring(CriteriaBuilder cb, CriteriaQuery<?> query, Path<Long> vehicleId, Date from, Date to) {
+        Subquery<Integer> byPlannedEnd = query.subquery(Integer.class);
+        Root<Rental> planned = byPlannedEnd.from(Rental.class);
+        byPlannedEnd.select(cb.literal(1)).where(
+                cb.equal(planned.get("vehicle").get("id"), vehicleId),
+                cb.greaterThan(planned.<Date>get("endTime"), from),
+                cb.lessThan(planned.<Date>get("startTime"), to),
+                cb.or(cb.isNull(planned.get("actualReturnTime")), cb.greaterThan(planned.<Date>get("actualReturnTime"), from)),
+                cb.notEqual(planned.get("status"), RentalStatus.CANCELLED));
+
+        Subquery<Integer> byActualReturn = query.subquery(Integer.class);
+        Root<Rental> returned = byActualReturn.from(Rental.class);
+        byActualReturn.select(cb.literal(1)).where(
+                cb.equal(returned.get("vehicle").get("id"), vehicleId),
+                cb.greaterThan(returned.<Date>get("actualReturnTime"), from),
+                cb.lessThan(returned.<Date>get("startTime"), to),
+                cb.notEqual(returned.get("status"), RentalStatus.CANCELLED));
+
+        return cb.and(cb.not(cb.exists(byPlannedEnd)), cb.not(cb.exists(byActualReturn)));
+    }
+
+    /**
+     * (daily_price, id) > (:lastPrice, :lastId)，降序时取反；展开为 OR 形式以便走索引
+     */
+    private Predicate afterKeyset(CriteriaBuilder cb, VehicleKeyset keyset,
+                                  Path<Long> id, Path<BigDecimal> price, boolean ascending) {
+        Predicate idAfter = ascending ? cb.greaterThan(id, keyset.getLastId()) : cb.lessThan(id, keyset.getLastId());
+        if (keyset.getSortKey() != VehicleSortKey.PRICE) {
+            return idAfter;
+        }
+        Predicate priceAfter = ascending
+                ? cb.greaterThan(price, keyset.getLastPrice())
+                : cb.lessThan(price, keyset.getLastPrice());
+        return cb.or(priceAfter, cb.and(cb.equal(price, keyset.getLastPrice()), idAfter));
+    }
+
+    @Override
+    public List<Integer> findBulkUpdateLocationIds(VehicleSearchCriteria filter, VehiclePatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Integer> query = cb.createQuery(Integer.class);
+        Root<Vehicle> vehicle = query.from(Vehicle.class);
+        query.select(vehicle.get("location").get("id"))
+                .distinct(true)
+                .where(bulkPredicates(cb, query, vehicle, filter, patch));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Long> findBulkUpdateIds(VehicleSearchCriteria filter, VehiclePatch patch, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Vehicle> vehicle = query.from(Vehicle.class);
+        query.select(vehicle.get("id"))
+                .where(bulkPredicates(cb, query, vehicle, filter, patch));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countInvalidPricesAfter(VehicleSearchCriteria filter, VehiclePatch patch) {
+        if (patch.getPriceDelta() == null && patch.getPriceFactor() == null) {
+            return 0;
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Vehicle> vehicle = query.from(Vehicle.class);
+        Expression<BigDecimal> newPrice = patchedPrice(cb, vehicle.get("dailyPrice"), patch);
+        Predicate[] predicates = bulkPredicates(cb, query, vehicle, filter, patch);
+        query.select(cb.count(vehicle)).where(cb.and(predicates),
+                cb.or(cb.le(newPrice, BigDecimal.ZERO), cb.gt(newPrice, MAX_DAILY_PRICE)));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public int bulkUpdate(VehicleSearchCriteria filter, VehiclePatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Vehicle> update = cb.createCriteriaUpdate(Vehicle.class);
+        Root<Vehicle> vehicle = update.from(Vehicle.class);
+
+        if (patch.getStatus() != null) {
+            update.set(vehicle.<VehicleStatus>get("status"), patch.getStatus());
+        }
+        if (patch.getPriceDelta() != null || patch.getPriceFactor() != null) {
+            Path<BigDecimal> price = vehicle.get("dailyPrice");
+            update.set(price, patchedPrice(cb, price, patch));
+        }
+        if (patch.getLocationId() != null) {
+            update.set(vehicle.<Location>get("location"), entityManager.getReference(Location.class, patch.getLocationId()));
+        }
+        // 批量 UPDATE 不经过实体生命周期，@UpdateTimestamp 和 @Version 都不会生效
+        update.set(vehicle.<Date>get("updatedAt"), new Date());
+        Path<Integer> version = vehicle.get("version");
+        update.set(version, cb.sum(version, 1));
+        update.where(bulkPredicates(cb, update, vehicle, filter, patch));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static Expression<BigDecimal> patchedPrice(CriteriaBuilder cb, Expression<BigDecimal> price, VehiclePatch patch) {
+        Expression<BigDecimal> patched = patch.getPriceFactor() != null
+                ? cb.prod(price, patch.getPriceFactor())
+                : cb.sum(price, patch.getPriceDelta());
+        return cb.function("round", BigDecimal.class, patched, cb.literal(2));
+    }
+
+    /**
+     * UPDATE 语句不能 join，车型和地点上的条件改用外键列或子查询
+     */
+    private static Predicate[] bulkPredicates(CriteriaBuilder cb, CommonAbstractCriteria query, Root<Vehicle> vehicle,
+                                              VehicleSearchCriteria filter, VehiclePatch patch) {
+        Path<Integer> locationId = vehicle.get("location").get("id");
+        Path<Byte> vehicleTypeId = vehicle.get("vehicleType").get("id");
+        Path<BigDecimal> price = vehicle.get("dailyPrice");
+        Path<VehicleStatus> status = vehicle.get("status");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getLocationId() != null) {
+            predicates.add(cb.equal(locationId, filter.getLocationId()));
+        }
+        if (filter.getCity() != null && !filter.getCity().isBlank()) {
+            Subquery<Integer> inCity = query.subquery(Integer.class);
+            Root<Location> location = inCity.from(Location.class);
+            inCity.select(location.get("id")).where(cb.equal(location.get("city"), filter.getCity().trim()));
+            predicates.add(locationId.in(inCity));
+        }
+        if (filter.getVehicleTypeId() != null) {
+            predicates.add(cb.equal(vehicleTypeId, filter.getVehicleTypeId()));
+        }
+        if (filter.getMinSeats() != null) {
+            Subquery<Byte> withSeats = query.subquery(Byte.class);
+            Root<VehicleType> vehicleType = withSeats.from(VehicleType.class);
+            withSeats.select(vehicleType.get("id"))
+                    .where(cb.greaterThanOrEqualTo(vehicleType.get("seats"), filter.getMinSeats()));
+            predicates.add(vehicleTypeId.in(withSeats));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(price, filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(price, filter.getMaxPrice()));
+        }
+        if (filter.getColor() != null && !filter.getColor().isBlank()) {
+            predicates.add(cb.equal(vehicle.get("color"), filter.getColor().trim()));
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(status, filter.getStatus()));
+        }
+        if (patch.skipsRentedVehicles()) {
+            predicates.add(cb.notEqual(status, VehicleStatus.RENTED));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+}
@@ -1,13 +1,62 @@
 package cc.martincao.rentigo.rentigobackend.vehicle.repository;
 
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleStatusCount;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
-    List<Vehicle> findByLocationIdAndStatus(Integer locationId, VehicleStatus status);
+public interface VehicleRepository extends JpaRepository<Vehicle, Long>, VehicleQueryRepository {
+
+    /**
+     * 读路径投影：车辆 join 车型一条 SQL 直接构造 VehicleDTO，不产生托管实体；
+     * 地点只取外键列，无需 join location 表
+     */
+    String DTO_PROJECTION = "select new cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO("
+            + "v.id, v.model, t.id, t.typeName, t.depositAmount, v.location.id, "
+            + "v.color, v.dailyPrice, v.status, v.licensePlate) "
+            + "from Vehicle v join v.vehicleType t ";
+
+    @Query(DTO_PROJECTION + "where v.location.id = :locationId and v.status = :status order by v.id")
+    List<VehicleDTO> findDtosByLocationIdAndStatus(@Param("locationId") Integer locationId,
+                                                   @Param("status") VehicleStatus status);
+
+    @Query(DTO_PROJECTION + "order by v.id")
+    List<VehicleDTO> findAllDtos();
+
+    @Query(DTO_PROJECTION + "where v.id = :id")
+    Optional<VehicleDTO> findDtoById(@Param("id") Long id);
+
+    @Query(DTO_PROJECTION + "where v.id in :ids order by v.id")
+    List<VehicleDTO> findDtosByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 预订用：提交时无论车辆是否被修改都递增版本号，与其他并发预订（或车辆变更）冲突则提交失败
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select v from Vehicle v where v.id = :id")
+    Optional<Vehicle> findForBooking(@Param("id") Long id);
+
+    /**
+     * 批量预订用，语义同 {@link #findForBooking}。
+     * 不能 join fetch 车型：锁模式会作用到车型上，而车型没有版本号；车型数量很少，按需加载即可
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select v from Vehicle v where v.id in :ids")
+    List<Vehicle> findAllForBooking(@Param("ids") Collection<Long> ids);
+
+    @Query("select new cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleStatusCount("
+            + "v.location.id, v.vehicleType.id, v.status, count(v)) "
+            + "from Vehicle v group by v.location.id, v.vehicleType.id, v.status")
+    List<VehicleStatusCount> countByLocationTypeAndStatus();
 }
@@ -0,0 +1,12 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.service;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportFormat;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportResult;
+
+import java.io.InputStream;
+
+public interface VehicleImportService {
+
+    // 流式读取并分批写入，单行校验失败不影响其他行
+    VehicleImportResult importVehicles(InputStream input, VehicleImportFormat format);
+}
@@ -1,6 +1,13 @@
 package cc.martincao.rentigo.rentigobackend.vehicle.service;
 
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.NearbyLocationDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleBulkUpdateRequest;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleBulkUpdateResult;
 import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 
@@ -9,9 +16,19 @@ public interface VehicleService {
     
     List<VehicleDTO> listAllVehicles();
 
+    // keyset 分页查询，cursor 为上一页返回的 nextCursor（第一页为空）
+    CursorPage<VehicleDTO> pageVehicles(VehicleSearchCriteria criteria, VehicleSortKey sortKey,
+                                        Sort.Direction direction, String cursor, int size);
+
+    // 半径内有可用车辆的网点，按距离由近到远
+    List<NearbyLocationDTO> findNearbyLocations(double lat, double lng, double radiusKm, int limit);
+
     VehicleDTO addVehicle(VehicleDTO vehicleDTO);
 
     VehicleDTO updateVehicle(Long id, VehicleDTO vehicleDTO);
 
     void removeVehicle(Long id);
+
+    // 按条件批量修改状态 / 日租金 / 地点，一条 UPDATE 完成
+    VehicleBulkUpdateResult bulkUpdateVehicles(VehicleBulkUpdateRequest request);
 }
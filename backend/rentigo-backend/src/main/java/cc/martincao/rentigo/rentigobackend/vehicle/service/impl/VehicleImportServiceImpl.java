@@ -0,0 +1,370 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportError;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportFormat;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.service.VehicleImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * 车辆批量导入
+ * <p>
+ * 逐行流式解析（CSV 或 NDJSON），车型/地点按 {@link ReferenceDataRegistry} 快照校验；
+ * 通过校验的行攒满 batchSize 后以一条多行 INSERT 写入，每批一个独立事务，
+ * 某一批失败只影响该批的行。内存占用与批大小相关，与文件大小无关（车牌去重集合除外）。
+ */
+@Service
+public class VehicleImportServiceImpl implements VehicleImportService {
+
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_MODEL_LENGTH = 64;
+    private static final int MAX_COLOR_LENGTH = 32;
+    private static final int MAX_PLATE_LENGTH = 32;
+    private static final BigDecimal MAX_DAILY_PRICE = new BigDecimal("99999999.99");
+
+    private static final Set<String> CSV_COLUMNS = Set.of(
+            "model", "vehicleTypeId", "locationId", "color", "dailyPrice", "status", "licensePlate");
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of(
+            "model", "vehicleTypeId", "locationId", "dailyPrice");
+
+    private static final String INSERT_PREFIX = "insert into vehicle (model, vehicle_type_id, location_id, color, "
+            + "daily_price, status, license_plate, version, created_at, updated_at) values ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleImportServiceImpl.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceDataRegistry referenceData;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public VehicleImportServiceImpl(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    ReferenceDataRegistry referenceData,
+                                    ObjectMapper objectMapper,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${app.vehicle-import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.referenceData = referenceData;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.min(Math.max(batchSize, 1), MAX_BATCH_SIZE);
+    }
+
+    @Override
+    public VehicleImportResult importVehicles(InputStream input, VehicleImportFormat format) {
+        VehicleImportResult result = new VehicleImportResult();
+        Set<String> seenPlates = new HashSet<>();
+        Set<Integer> touchedLocations = new HashSet<>();
+        Set<Long> importedIds = new HashSet<>();
+        List<PendingRow> chunk = new ArrayList<>(batchSize);
+        Map<String, Integer> csvColumns = null;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == VehicleImportFormat.CSV && csvColumns == null) {
+                    csvColumns = parseHeader(line);
+                    continue;
+                }
+                result.setTotal(result.getTotal() + 1);
+
+                VehicleDTO row;
+                try {
+                    row = format == VehicleImportFormat.CSV
+                            ? fromCsv(csvColumns, line)
+                            : objectMapper.readValue(line, VehicleDTO.class);
+                } catch (JsonProcessingException e) {
+                    reject(result, lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    reject(result, lineNumber, "Malformed row: " + e.getMessage());
+                    continue;
+                }
+
+                String error = validate(row, seenPlates);
+                if (error != null) {
+                    reject(result, lineNumber, error);
+                    continue;
+                }
+                chunk.add(new PendingRow(lineNumber, row));
+                if (chunk.size() == batchSize) {
+                    flush(chunk, result, touchedLocations, importedIds);
+                    chunk.clear();
+                }
+            }
+            flush(chunk, result, touchedLocations, importedIds);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import stream", e);
+        } finally {
+            // 已提交的批次无论后续是否中断（客户端断开、运行时异常）都要通知缓存与索引
+            if (result.getImported() > 0) {
+                eventPublisher.publishEvent(new VehiclesBulkChangedEvent(touchedLocations,
+                        importedIds.size() == result.getImported() ? importedIds : Set.of(), result.getImported()));
+            }
+        }
+        log.info("Vehicle import finished: {} rows, {} imported, {} failed",
+                result.getTotal(), result.getImported(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * 一批一个事务：先排除库中已存在的车牌，再用一条多行 INSERT 写入。
+     * 导入总数不超过事件的记录上限时收集生成的 id，超过后不再收集
+     */
+    private void flush(List<PendingRow> chunk, VehicleImportResult result, Set<Integer> touchedLocations,
+                       Set<Long> importedIds) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<PendingRow> duplicates = new ArrayList<>();
+        List<PendingRow> inserted = new ArrayList<>(chunk.size());
+        List<Long> generatedIds = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> existingPlates = findExistingPlates(chunk);
+                for (PendingRow row : chunk) {
+                    String plate = row.vehicle().getLicensePlate();
+                    (plate != null && existingPlates.contains(plate) ? duplicates : inserted).add(row);
+                }
+                generatedIds.addAll(insertRows(inserted));
+            });
+        } catch (DataAccessException e) {
+            String message = "Batch insert failed: " + e.getMostSpecificCause().getMessage();
+            chunk.forEach(row -> reject(result, row.line(), message));
+            return;
+        }
+        duplicates.forEach(row -> reject(result, row.line(),
+                "licensePlate already exists: " + row.vehicle().getLicensePlate()));
+        result.setImported(result.getImported() + inserted.size());
+        inserted.forEach(row -> touchedLocations.add(row.vehicle().getLocationId()));
+        if (result.getImported() <= VehiclesBulkChangedEvent.MAX_TRACKED_VEHICLE_IDS) {
+            importedIds.addAll(generatedIds);
+        } else {
+            importedIds.clear();
+        }
+    }
+
+    private Set<String> findExistingPlates(List<PendingRow> chunk) {
+        List<String> plates = chunk.stream()
+                .map(row -> row.vehicle().getLicensePlate())
+                .filter(Objects::nonNull)
+                .toList();
+        if (plates.isEmpty()) {
+            return Set.of();
+        }
+        String sql = "select license_plate from vehicle where license_plate in ("
+                + String.join(", ", Collections.nCopies(plates.size(), "?")) + ")";
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, plates.toArray()));
+    }
+
+    /**
+     * 返回生成的车辆 id；驱动未返回全部 id 时返回空列表
+     */
+    private List<Long> insertRows(List<PendingRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(rows.size(), ROW_PLACEHOLDERS));
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Object[] args = new Object[rows.size() * 9];
+        int i = 0;
+        for (PendingRow row : rows) {
+            VehicleDTO vehicle = row.vehicle();
+            args[i++] = vehicle.getModel();
+            args[i++] = vehicle.getVehicleTypeId();
+            args[i++] = vehicle.getLocationId();
+            args[i++] = vehicle.getColor();
+            args[i++] = vehicle.getDailyPrice();
+            args[i++] = vehicle.getStatus().ordinal();
+            args[i++] = vehicle.getLicensePlate();
+            args[i++] = now;
+            args[i++] = now;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"});
+            new ArgumentPreparedStatementSetter(args).setValues(statement);
+            return statement;
+        }, keys);
+        List<Long> ids = keys.getKeyList().stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+        return ids.size() == rows.size() ? ids : List.of();
+    }
+
+    /**
+     * 校验并规范化一行，返回错误信息，通过时返回 null
+     */
+    private String validate(VehicleDTO row, Set<String> seenPlates) {
+        row.setModel(trimToNull(row.getModel()));
+        row.setColor(trimToNull(row.getColor()));
+        row.setLicensePlate(trimToNull(row.getLicensePlate()));
+
+        if (row.getModel() == null) {
+            return "model is required";
+        }
+        if (row.getModel().length() > MAX_MODEL_LENGTH) {
+            return "model is longer than " + MAX_MODEL_LENGTH + " characters";
+        }
+        if (!referenceData.vehicleTypeExists(row.getVehicleTypeId())) {
+            return "Unknown vehicleTypeId: " + row.getVehicleTypeId();
+        }
+        if (!referenceData.locationExists(row.getLocationId())) {
+            return "Unknown locationId: " + row.getLocationId();
+        }
+        if (row.getDailyPrice() == null || row.getDailyPrice().signum() <= 0
+                || row.getDailyPrice().compareTo(MAX_DAILY_PRICE) > 0) {
+            return "dailyPrice must be positive and at most " + MAX_DAILY_PRICE;
+        }
+        if (row.getColor() != null && row.getColor().length() > MAX_COLOR_LENGTH) {
+            return "color is longer than " + MAX_COLOR_LENGTH + " characters";
+        }
+        if (row.getStatus() == null) {
+            row.setStatus(VehicleStatus.AVAILABLE);
+        }
+        if (row.getLicensePlate() != null) {
+            if (row.getLicensePlate().length() > MAX_PLATE_LENGTH) {
+                return "licensePlate is longer than " + MAX_PLATE_LENGTH + " characters";
+            }
+            if (!seenPlates.add(row.getLicensePlate())) {
+                return "Duplicate licensePlate in file: " + row.getLicensePlate();
+            }
+        }
+        return null;
+    }
+
+    private static void reject(VehicleImportResult result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new VehicleImportError(line, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            if (!CSV_COLUMNS.contains(name)) {
+                throw new IllegalArgumentException("Unknown CSV column: " + name);
+            }
+            columns.put(name, i);
+        }
+        for (String required : REQUIRED_CSV_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Missing CSV column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static VehicleDTO fromCsv(Map<String, Integer> columns, String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != columns.size()) {
+            throw new IllegalArgumentException("expected " + columns.size() + " columns but found " + fields.size());
+        }
+        VehicleDTO row = new VehicleDTO();
+        row.setModel(field(columns, fields, "model"));
+        String typeId = field(columns, fields, "vehicleTypeId");
+        row.setVehicleTypeId(typeId == null ? null : Byte.valueOf(typeId));
+        String locationId = field(columns, fields, "locationId");
+        row.setLocationId(locationId == null ? null : Integer.valueOf(locationId));
+        row.setColor(field(columns, fields, "color"));
+        String price = field(columns, fields, "dailyPrice");
+        row.setDailyPrice(price == null ? null : new BigDecimal(price));
+        String status = field(columns, fields, "status");
+        row.setStatus(status == null ? null : VehicleStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+        row.setLicensePlate(field(columns, fields, "licensePlate"));
+        return row;
+    }
+
+    private static String field(Map<String, Integer> columns, List<String> fields, String name) {
+        Integer index = columns.get(name);
+        return index == null ? null : trimToNull(fields.get(index));
+    }
+
+    /**
+     * 按 RFC 4180 拆分一行：支持双引号包裹的字段与 "" 转义，不支持跨行字段
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private record PendingRow(long line, VehicleDTO vehicle) {
+    }
+}
@@ -1,62 +1,131 @@
 package cc.martincao.rentigo.rentigobackend.vehicle.service.impl;
 
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.reference.dto.LocationDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.cache.VehicleCatalogCache;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.NearbyLocationDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleBulkUpdateRequest;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleBulkUpdateResult;
 import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleKeyset;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehiclePatch;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.LocationGeoIndex;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleFacetIndex;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
-import cc.martincao.rentigo.rentigobackend.vehicle.repository.LocationRepository;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
 import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
 import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
-import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleTypeRepository;
 import cc.martincao.rentigo.rentigobackend.vehicle.service.VehicleService;
 import org.springframework.beans.BeanUtils;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class VehicleServiceImpl implements VehicleService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final double MAX_NEARBY_RADIUS_KM = 500;
+
     private final VehicleRepository vehicleRepository;
-    private final VehicleTypeRepository vehicleTypeRepository;
-    private final LocationRepository locationRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LocationGeoIndex locationGeoIndex;
+    private final VehicleFacetIndex vehicleFacetIndex;
 
     public VehicleServiceImpl(VehicleRepository vehicleRepository, 
-                             VehicleTypeRepository vehicleTypeRepository, 
-                             LocationRepository locationRepository) {
+                             ReferenceDataRegistry referenceData,
+                             ApplicationEventPublisher eventPublisher,
+                             LocationGeoIndex locationGeoIndex,
+                             VehicleFacetIndex vehicleFacetIndex) {
         this.vehicleRepository = vehicleRepository;
-        this.vehicleTypeRepository = vehicleTypeRepository;
-        this.locationRepository = locationRepository;
+        this.referenceData = referenceData;
+        this.eventPublisher = eventPublisher;
+        this.locationGeoIndex = locationGeoIndex;
+        this.vehicleFacetIndex = vehicleFacetIndex;
     }
 
     @Override
-    @Cacheable(value = "vehicles", key = "#locationId")
+    @Cacheable(value = VehicleCatalogCache.CACHE_NAME, key = "#locationId")
     public List<VehicleDTO> listVehicles(Integer locationId) {
-        return vehicleRepository.findByLocationIdAndStatus(locationId, VehicleStatus.AVAILABLE)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return vehicleRepository.findDtosByLocationIdAndStatus(locationId, VehicleStatus.AVAILABLE);
     }
     
     @Override
-    @Cacheable(value = "vehicles", key = "'all'")
+    @Cacheable(value = VehicleCatalogCache.CACHE_NAME, key = "'all'")
     public List<VehicleDTO> listAllVehicles() {
-        return vehicleRepository.findAll()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return vehicleRepository.findAllDtos();
+    }
+
+    @Override
+    public CursorPage<VehicleDTO> pageVehicles(VehicleSearchCriteria criteria, VehicleSortKey sortKey,
+                                               Sort.Direction direction, String cursor, int size) {
+        if (criteria.hasAvailabilityWindow()) {
+            if (criteria.getAvailableFrom() == null || criteria.getAvailableTo() == null) {
+                throw new IllegalArgumentException("Both availableFrom and availableTo are required");
+            }
+            if (!criteria.getAvailableTo().after(criteria.getAvailableFrom())) {
+                throw new IllegalArgumentException("availableTo must be after availableFrom");
+            }
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        VehicleKeyset keyset = VehicleKeyset.fromCursor(cursor, sortKey, direction);
+        // 多取一行用于判断是否还有下一页
+        List<VehicleDTO> rows = vehicleRepository.findPage(criteria, keyset, pageSize + 1);
+        return CursorPage.of(rows, pageSize, last -> VehicleKeyset.toCursor(sortKey, direction, last));
+    }
+
+    @Override
+    public List<NearbyLocationDTO> findNearbyLocations(double lat, double lng, double radiusKm, int limit) {
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            throw new IllegalArgumentException("Coordinates out of range");
+        }
+        if (radiusKm <= 0 || radiusKm > MAX_NEARBY_RADIUS_KM) {
+            throw new IllegalArgumentException("radiusKm must be in (0, " + MAX_NEARBY_RADIUS_KM + "]");
+        }
+        int maxResults = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // 两个内存索引：网格找出半径内网点（已按距离排序），分面索引给出各网点可用车辆数
+        List<LocationGeoIndex.Hit> hits = locationGeoIndex.within(lat, lng, radiusKm);
+        Map<Integer, Integer> available = vehicleFacetIndex.availableCounts(
+                hits.stream().map(hit -> hit.location().getId()).toList());
+
+        List<NearbyLocationDTO> result = new ArrayList<>();
+        for (LocationGeoIndex.Hit hit : hits) {
+            Integer count = available.get(hit.location().getId());
+            if (count == null) {
+                continue;
+            }
+            result.add(toNearbyDTO(hit, count));
+            if (result.size() == maxResults) {
+                break;
+            }
+        }
+        return result;
     }
 
+    // 缓存失效由 VehicleCatalogCache 监听 VehicleChangedEvent 完成，只失效受影响的地点和 'all'
     @Override
-    @CacheEvict(value = "vehicles", allEntries = true)
+    @Transactional
     public VehicleDTO addVehicle(VehicleDTO vehicleDTO) {
-        // Validate vehicle type and location exist
-        VehicleType vehicleType = vehicleTypeRepository.findById(vehicleDTO.getVehicleTypeId())
+        // Validate vehicle type and location exist (against the in-memory reference snapshot)
+        VehicleType vehicleType = referenceData.findVehicleType(vehicleDTO.getVehicleTypeId())
                 .orElseThrow(() -> new RuntimeException("Vehicle type not found"));
-        Location location = locationRepository.findById(vehicleDTO.getLocationId())
+        Location location = referenceData.findLocation(vehicleDTO.getLocationId())
                 .orElseThrow(() -> new RuntimeException("Location not found"));
         
         Vehicle vehicle = new Vehicle();
@@ -66,19 +135,23 @@ public class VehicleServiceImpl implements VehicleService {
         vehicle.setLocation(location);
         
         Vehicle savedVehicle = vehicleRepository.save(vehicle);
-        return convertToDTO(savedVehicle);
+        VehicleDTO result = convertToDTO(savedVehicle);
+        eventPublisher.publishEvent(VehicleChangedEvent.added(result));
+        return result;
     }
 
     @Override
-    @CacheEvict(value = "vehicles", allEntries = true)
+    @Transactional
     public VehicleDTO updateVehicle(Long id, VehicleDTO vehicleDTO) {
         Vehicle vehicle = vehicleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vehicle not found"));
+        // 记录变更前快照（可能涉及地点调拨）
+        VehicleDTO previous = convertToDTO(vehicle);
         
-        // Validate vehicle type and location exist
-        VehicleType vehicleType = vehicleTypeRepository.findById(vehicleDTO.getVehicleTypeId())
+        // Validate vehicle type and location exist (against the in-memory reference snapshot)
+        VehicleType vehicleType = referenceData.findVehicleType(vehicleDTO.getVehicleTypeId())
                 .orElseThrow(() -> new RuntimeException("Vehicle type not found"));
-        Location location = locationRepository.findById(vehicleDTO.getLocationId())
+        Location location = referenceData.findLocation(vehicleDTO.getLocationId())
                 .orElseThrow(() -> new RuntimeException("Location not found"));
         
         BeanUtils.copyProperties(vehicleDTO, vehicle, "id", "createdAt", "vehicleTypeName", "depositAmount");
@@ -86,22 +159,84 @@ public class VehicleServiceImpl implements VehicleService {
         vehicle.setLocation(location);
 
         Vehicle savedVehicle = vehicleRepository.save(vehicle);
-        return convertToDTO(savedVehicle);
+        VehicleDTO result = convertToDTO(savedVehicle);
+        eventPublisher.publishEvent(VehicleChangedEvent.updated(previous, result));
+        return result;
     }
 
     @Override
-    @CacheEvict(value = "vehicles", allEntries = true)
+    @Transactional
     public void removeVehicle(Long id) {
-        vehicleRepository.deleteById(id);
+        vehicleRepository.findById(id).ifPresent(vehicle -> {
+            VehicleDTO previous = convertToDTO(vehicle);
+            vehicleRepository.delete(vehicle);
+            eventPublisher.publishEvent(VehicleChangedEvent.removed(previous));
+        });
     }
 
-    private VehicleDTO convertToDTO(Vehicle vehicle) {
-        VehicleDTO dto = new VehicleDTO();
-        BeanUtils.copyProperties(vehicle, dto);
-        dto.setVehicleTypeId(vehicle.getVehicleType().getId());
-        dto.setVehicleTypeName(vehicle.getVehicleType().getTypeName());
-        dto.setDepositAmount(vehicle.getVehicleType().getDepositAmount());
-        dto.setLocationId(vehicle.getLocation().getId());
+    @Override
+    @Transactional
+    public VehicleBulkUpdateResult bulkUpdateVehicles(VehicleBulkUpdateRequest request) {
+        VehicleSearchCriteria filter = request.getFilter();
+        VehiclePatch patch = request.getPatch();
+        // 不允许无条件修改整个车队
+        if (filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("A non-empty filter is required");
+        }
+        if (filter.hasAvailabilityWindow()) {
+            throw new IllegalArgumentException("Availability window is not supported for bulk updates");
+        }
+        if (patch == null || patch.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        if (patch.getPriceDelta() != null && patch.getPriceFactor() != null) {
+            throw new IllegalArgumentException("priceDelta and priceFactor are mutually exclusive");
+        }
+        if (patch.getPriceFactor() != null && patch.getPriceFactor().signum() <= 0) {
+            throw new IllegalArgumentException("priceFactor must be positive");
+        }
+        if (patch.getStatus() == VehicleStatus.RENTED) {
+            throw new IllegalArgumentException("Vehicles can only become RENTED through a rental");
+        }
+        if (patch.getLocationId() != null && !referenceData.locationExists(patch.getLocationId())) {
+            throw new IllegalArgumentException("Location not found");
+        }
+        long invalidPrices = vehicleRepository.countInvalidPricesAfter(filter, patch);
+        if (invalidPrices > 0) {
+            throw new IllegalArgumentException("Price change would leave " + invalidPrices
+                    + " vehicle(s) with a non-positive or out-of-range daily price");
+        }
+
+        // 先取命中车辆的原地点，用于定向失效缓存；命中车辆不多时一并记下 id，索引只需回读这些车辆
+        Set<Integer> affectedLocationIds = new TreeSet<>(vehicleRepository.findBulkUpdateLocationIds(filter, patch));
+        List<Long> affectedIds = vehicleRepository.findBulkUpdateIds(filter, patch,
+                VehiclesBulkChangedEvent.MAX_TRACKED_VEHICLE_IDS + 1);
+        int updated = vehicleRepository.bulkUpdate(filter, patch);
+        if (updated == 0) {
+            return new VehicleBulkUpdateResult(0, Set.of());
+        }
+        if (patch.getLocationId() != null) {
+            affectedLocationIds.add(patch.getLocationId());
+        }
+        eventPublisher.publishEvent(new VehiclesBulkChangedEvent(affectedLocationIds, Set.copyOf(affectedIds), updated));
+        return new VehicleBulkUpdateResult(updated, affectedLocationIds);
+    }
+
+    private NearbyLocationDTO toNearbyDTO(LocationGeoIndex.Hit hit, int availableVehicles) {
+        LocationDTO location = hit.location();
+        NearbyLocationDTO dto = new NearbyLocationDTO();
+        dto.setLocationId(location.getId());
+        dto.setCity(location.getCity());
+        dto.setCenterName(location.getCenterName());
+        dto.setAddress(location.getAddress());
+        dto.setLat(location.getLat());
+        dto.setLng(location.getLng());
+        dto.setDistanceKm(hit.distanceKm());
+        dto.setAvailableVehicles(availableVehicles);
         return dto;
     }
+
+    private VehicleDTO convertToDTO(Vehicle vehicle) {
+        return VehicleDTO.fromEntity(vehicle);
+    }
 }
@@ -0,0 +1,329 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.stream;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleAvailabilityDelta;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 车辆可用性 SSE 推送
+ * <p>
+ * 订阅按地点分组（不指定地点则订阅全部）。车辆变更事件在事务提交后到达，
+ * 只把变化放入各订阅者自己的有界队列，由少量分发线程异步写出，发布方从不阻塞在网络 IO 上。
+ * 队列写满说明客户端跟不上：丢弃积压并改发一条 resync，客户端收到后重新拉取列表即可。
+ * 空闲连接只占用 SseEmitter 和一个空队列，不占线程。
+ * <p>
+ * SseEmitter.send 是阻塞写，客户端不读时会一直占住分发线程，直到容器的写超时。
+ * 单次写出超过 write-timeout 的订阅者会被摘除，分发池临时补一个线程顶替被卡住的线程
+ * （至多 max-stalled-writes 个），其他订阅者不受影响；卡住的写返回后补充的线程随之回收。
+ */
+@Component
+public class VehicleAvailabilityBroadcaster {
+
+    public static final String EVENT_AVAILABILITY = "availability";
+    public static final String EVENT_RESYNC = "resync";
+
+    // 订阅全部地点时使用的分组键
+    private static final Integer ALL_LOCATIONS = -1;
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleAvailabilityBroadcaster.class);
+
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong eventSequence = new AtomicLong();
+    // 正在写出的订阅者，供卡死检测扫描
+    private final Set<Subscriber> writing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor dispatcher;
+    private final int dispatchThreads;
+    private final int maxStalledWrites;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+    // 仍卡在写出中的订阅者数量，决定分发池补充的线程数
+    private int stalledWrites;
+
+    public VehicleAvailabilityBroadcaster(@Value("${app.vehicle-stream.dispatch-threads:2}") int dispatchThreads,
+                                          @Value("${app.vehicle-stream.queue-capacity:256}") int queueCapacity,
+                                          @Value("${app.vehicle-stream.max-subscribers:10000}") int maxSubscribers,
+                                          @Value("${app.vehicle-stream.timeout:30m}") Duration timeout,
+                                          @Value("${app.vehicle-stream.write-timeout:10s}") Duration writeTimeout,
+                                          @Value("${app.vehicle-stream.max-stalled-writes:16}") int maxStalledWrites) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads + maxStalledWrites,
+                1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "vehicle-sse-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatchThreads = dispatchThreads;
+        this.maxStalledWrites = maxStalledWrites;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+    }
+
+    /**
+     * 新建订阅；达到连接上限时返回 null
+     */
+    public SseEmitter subscribe(Integer locationId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        return register(locationId, emitter) ? emitter : null;
+    }
+
+    boolean register(Integer locationId, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+        Integer key = locationId == null ? ALL_LOCATIONS : locationId;
+        Subscriber subscriber = new Subscriber(key, emitter);
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return true;
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehicleChanged(VehicleChangedEvent event) {
+        VehicleDTO current = event.getCurrent();
+        VehicleAvailabilityDelta delta = current != null
+                ? new VehicleAvailabilityDelta(current.getId(), current.getLocationId(), current.getStatus(),
+                        current.getDailyPrice(), false)
+                : new VehicleAvailabilityDelta(event.getVehicleId(), event.getPrevious().getLocationId(),
+                        event.getPrevious().getStatus(), event.getPrevious().getDailyPrice(), true);
+        Message message = new Message(EVENT_AVAILABILITY, eventSequence.incrementAndGet(), delta);
+        fanOut(event.getAffectedLocationIds(), message);
+    }
+
+    /**
+     * 批量变更不逐辆推送，通知相关订阅者整体刷新
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVehiclesBulkChanged(VehiclesBulkChangedEvent event) {
+        fanOut(event.getLocationIds(), new Message(EVENT_RESYNC, eventSequence.incrementAndGet(), null));
+    }
+
+    /**
+     * 定期发送注释行，及时发现已断开的连接，也避免代理因空闲关闭连接
+     */
+    @Scheduled(fixedDelayString = "${app.vehicle-stream.heartbeat-interval:25s}")
+    public void heartbeat() {
+        for (Set<Subscriber> group : subscribers.values()) {
+            group.forEach(subscriber -> subscriber.enqueue(Message.HEARTBEAT));
+        }
+    }
+
+    /**
+     * 摘除单次写出超时的订阅者，并为每个被卡住的分发线程补一个线程
+     */
+    @Scheduled(fixedDelayString = "${app.vehicle-stream.write-timeout:10s}")
+    public void evictStalled() {
+        evictStalled(System.nanoTime());
+    }
+
+    void evictStalled(long now) {
+        for (Subscriber subscriber : writing) {
+            if (subscriber.markStalled(now)) {
+                log.debug("Evicting stalled vehicle stream subscriber");
+                subscriber.close();
+                resizeDispatcher(1);
+            }
+        }
+    }
+
+    private synchronized void resizeDispatcher(int delta) {
+        stalledWrites += delta;
+        dispatcher.setCorePoolSize(dispatchThreads + Math.min(Math.max(stalledWrites, 0), maxStalledWrites));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (Set<Subscriber> group : subscribers.values()) {
+            group.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    private void fanOut(Collection<Integer> locationIds, Message message) {
+        for (Integer locationId : locationIds) {
+            deliver(subscribers.get(locationId), message);
+        }
+        deliver(subscribers.get(ALL_LOCATIONS), message);
+    }
+
+    private void deliver(Set<Subscriber> group, Message message) {
+        if (group != null) {
+            group.forEach(subscriber -> subscriber.enqueue(message));
+        }
+    }
+
+    private record Message(String name, long id, Object data) {
+        static final Message HEARTBEAT = new Message(null, 0, null);
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).id(Long.toString(id));
+            return data != null ? event.data(data, MediaType.APPLICATION_JSON) : event.data("{}");
+        }
+    }
+
+    private final class Subscriber {
+        private final Integer key;
+        private final SseEmitter emitter;
+        private final Queue<Message> queue = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // 以下写出状态由 this 保护
+        private boolean sending;
+        private boolean stalled;
+        private long sendStartedAt;
+
+        private Subscriber(Integer key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        void enqueue(Message message) {
+            if (closed.get()) {
+                return;
+            }
+            synchronized (queue) {
+                if (queue.size() >= queueCapacity) {
+                    // 跟不上的订阅者：丢弃积压，只保留一条 resync
+                    queue.clear();
+                    queue.add(new Message(EVENT_RESYNC, eventSequence.incrementAndGet(), null));
+                } else {
+                    queue.add(message);
+                }
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 应用关闭中，分发池已停止
+                scheduled.set(false);
+                close();
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed.get()) {
+                    List<Message> batch;
+                    synchronized (queue) {
+                        if (queue.isEmpty()) {
+                            break;
+                        }
+                        batch = new ArrayList<>(queue);
+                        queue.clear();
+                    }
+                    for (Message message : batch) {
+                        if (closed.get()) {
+                            break;
+                        }
+                        send(message);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Closing vehicle stream subscriber: {}", e.getMessage());
+                emitter.completeWithError(e);
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            // 释放标记后若又有新消息入队，重新调度
+            boolean pending;
+            synchronized (queue) {
+                pending = !queue.isEmpty();
+            }
+            if (pending && !closed.get() && scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void send(Message message) throws IOException {
+            synchronized (this) {
+                sending = true;
+                sendStartedAt = System.nanoTime();
+            }
+            writing.add(this);
+            boolean wasStalled;
+            try {
+                emitter.send(message.toEvent());
+            } finally {
+                writing.remove(this);
+                synchronized (this) {
+                    sending = false;
+                    wasStalled = stalled;
+                }
+                if (wasStalled) {
+                    // 已被摘除：结束连接，并收回顶替本线程的补充线程
+                    resizeDispatcher(-1);
+                    emitter.complete();
+                }
+            }
+        }
+
+        synchronized boolean markStalled(long now) {
+            if (sending && !stalled && now - sendStartedAt > writeTimeoutNanos) {
+                stalled = true;
+                return true;
+            }
+            return false;
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                Set<Subscriber> group = subscribers.get(key);
+                if (group != null) {
+                    group.remove(this);
+                }
+                subscriberCount.decrementAndGet();
+                synchronized (queue) {
+                    queue.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cc.martincao.rentigo.rentigobackend.payment.checkout;
+
+import cc.martincao.rentigo.rentigobackend.payment.dto.CreatePaymentSessionResponse;
+import cc.martincao.rentigo.rentigobackend.payment.event.CheckoutRequestedEvent;
+import cc.martincao.rentigo.rentigobackend.payment.exception.PaymentBusinessException;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.payment.repository.PaymentRepository;
+import cc.martincao.rentigo.rentigobackend.payment.service.PaymentService;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CheckoutRelayTest {
+
+    private PaymentService paymentService;
+    private PaymentRepository paymentRepository;
+    private CheckoutRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        paymentService = mock(PaymentService.class);
+        paymentRepository = mock(PaymentRepository.class);
+        relay = new CheckoutRelay(paymentService, paymentRepository, 4, Duration.ofMillis(300),
+                Duration.ofMinutes(1), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    @Test
+    void await_returnsSessionCreatedWithinTheWait() {
+        when(paymentService.openCheckoutSession(1L)).thenReturn(session("cs_1"));
+
+        relay.onCheckoutRequested(new CheckoutRequestedEvent(1L));
+        Optional<CreatePaymentSessionResponse> session = relay.await(1L);
+
+        assertEquals("https://checkout.test/cs_1", session.orElseThrow().getCheckoutUrl());
+        // 后台创建可能在 await 之前就已完成，此时 await 会再取一次已有会话
+        verify(paymentService, atLeastOnce()).openCheckoutSession(1L);
+    }
+
+    @Test
+    void slowStripe_returnsEmptyButKeepsCreatingInBackground() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.openCheckoutSession(2L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return session("cs_2");
+        });
+
+        CompletableFuture<CreatePaymentSessionResponse> inFlight = relay.open(2L);
+        assertEquals(Optional.empty(), relay.await(2L), "the request thread stops waiting after sync-wait");
+
+        release.countDown();
+        assertEquals("cs_2", inFlight.get(5, TimeUnit.SECONDS).getSessionId());
+        verify(paymentService, times(1)).openCheckoutSession(2L);
+    }
+
+    @Test
+    void concurrentOpens_shareOneStripeCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.openCheckoutSession(3L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return session("cs_3");
+        });
+
+        CompletableFuture<CreatePaymentSessionResponse> first = relay.open(3L);
+        CompletableFuture<CreatePaymentSessionResponse> second = relay.open(3L);
+        assertSame(first, second);
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        verify(paymentService, times(1)).openCheckoutSession(3L);
+        // 完成后不再占位，下次轮询可以重新触发
+        for (int i = 0; i < 50 && relay.inFlightCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, relay.inFlightCount());
+    }
+
+    @Test
+    void failedOrClaimedElsewhere_returnsEmpty() {
+        when(paymentService.openCheckoutSession(4L)).thenThrow(new PaymentBusinessException("Stripe is down"));
+        when(paymentService.openCheckoutSession(5L)).thenReturn(null);
+
+        assertEquals(Optional.empty(), relay.await(4L));
+        assertEquals(Optional.empty(), relay.await(5L));
+    }
+
+    @Test
+    void retryBacklog_opensEveryStalePayment() {
+        when(paymentRepository.findCheckoutBacklog(eq(PaymentStatus.PENDING), any(), eq(RentalStatus.CANCELLED), any()))
+                .thenReturn(List.of(6L, 7L));
+        when(paymentService.openCheckoutSession(any())).thenAnswer(invocation -> session("cs_" + invocation.getArgument(0)));
+
+        relay.retryBacklog();
+
+        verify(paymentService, timeout(1000)).openCheckoutSession(6L);
+        verify(paymentService, timeout(1000)).openCheckoutSession(7L);
+    }
+
+    @Test
+    void cancelledRental_cancelsItsPendingDepositInTheBackground() {
+        relay.onRentalChanged(new RentalChangedEvent(8L, 1L, null, null, null, RentalStatus.PAID));
+        relay.onRentalChanged(new RentalChangedEvent(9L, 1L, null, null, null, RentalStatus.CANCELLED));
+
+        verify(paymentService, timeout(1000)).cancelPendingDeposits(9L);
+        verify(paymentService, never()).cancelPendingDeposits(8L);
+    }
+
+    @Test
+    void cancelAbandoned_retriesEveryCancelledRentalWithAPendingDeposit() {
+        when(paymentRepository.findAbandonedPayments(PaymentStatus.PENDING, PaymentType.DEPOSIT,
+                RentalStatus.CANCELLED, PageRequest.of(0, 100)))
+                .thenReturn(List.of(10L, 11L));
+        doThrow(new PaymentBusinessException("Stripe is down")).when(paymentService).cancelPendingDeposits(10L);
+
+        relay.cancelAbandoned();
+
+        verify(paymentService, timeout(1000)).cancelPendingDeposits(10L);
+        verify(paymentService, timeout(1000)).cancelPendingDeposits(11L);
+    }
+
+    private static CreatePaymentSessionResponse session(String sessionId) {
+        return new CreatePaymentSessionResponse(sessionId, "https://checkout.test/" + sessionId, null);
+    }
+}
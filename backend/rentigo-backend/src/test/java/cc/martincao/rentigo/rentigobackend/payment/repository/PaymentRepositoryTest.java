@@ -0,0 +1,164 @@
+package cc.martincao.rentigo.rentigobackend.payment.repository;
+
+import cc.martincao.rentigo.rentigobackend.payment.model.Payment;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PaymentRepositoryTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    private JpaFixtures fixtures;
+    private User user;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new JpaFixtures(entityManager);
+        user = fixtures.user("renter");
+        vehicle = fixtures.vehicle(fixtures.type("Sedan"), fixtures.location("Beijing"), "Sedan",
+                VehicleStatus.AVAILABLE);
+    }
+
+    @Test
+    void claimCheckout_admitsOneCallerUntilTheClaimGoesStale() {
+        Payment payment = persistPayment(persistRental(RentalStatus.PENDING_PAYMENT, null), PaymentStatus.PENDING);
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(1, paymentRepository.claimCheckout(payment.getId(), PaymentStatus.PENDING, now, now.minusMinutes(5)));
+        assertEquals(0, paymentRepository.claimCheckout(payment.getId(), PaymentStatus.PENDING, now, now.minusMinutes(5)),
+                "a fresh claim blocks other callers");
+        // 认领超时（例如持有者进程退出）后可被重新认领
+        assertEquals(1, paymentRepository.claimCheckout(payment.getId(), PaymentStatus.PENDING,
+                now.plusMinutes(6), now.plusMinutes(1)));
+
+        // Stripe 调用失败后释放，立即可重试
+        assertEquals(1, paymentRepository.releaseCheckout(payment.getId()));
+        assertEquals(1, paymentRepository.claimCheckout(payment.getId(), PaymentStatus.PENDING, now, now.minusMinutes(5)));
+
+        assertEquals(1, paymentRepository.attachCheckoutSession(payment.getId(), PaymentStatus.PENDING,
+                "cs_1", "https://checkout.test/cs_1"));
+        assertEquals(0, paymentRepository.attachCheckoutSession(payment.getId(), PaymentStatus.PENDING,
+                "cs_2", "https://checkout.test/cs_2"),
+                "a session is attached at most once");
+        assertEquals(0, paymentRepository.releaseCheckout(payment.getId()));
+        assertEquals(0, paymentRepository.claimCheckout(payment.getId(), PaymentStatus.PENDING,
+                now.plusHours(1), now.plusHours(1)));
+        entityManager.clear();
+
+        Payment stored = paymentRepository.findWithRentalById(payment.getId()).orElseThrow();
+        assertEquals("cs_1", stored.getStripeSessionId());
+        assertEquals("https://checkout.test/cs_1", stored.getCheckoutUrl());
+    }
+
+    @Test
+    void findCheckoutBacklog_returnsStalePendingPaymentsWithoutSession() {
+        Payment unclaimed = persistPayment(persistRental(RentalStatus.PENDING_PAYMENT, null), PaymentStatus.PENDING);
+        Payment claimedLongAgo = persistPayment(persistRental(RentalStatus.PENDING_PAYMENT, null), PaymentStatus.PENDING);
+        claimedLongAgo.setCheckoutAttemptedAt(LocalDateTime.now().minusHours(1));
+        Payment claimedJustNow = persistPayment(persistRental(RentalStatus.PENDING_PAYMENT, null), PaymentStatus.PENDING);
+        claimedJustNow.setCheckoutAttemptedAt(LocalDateTime.now().plusMinutes(5));
+        Payment withSession = persistPayment(persistRental(RentalStatus.PENDING_PAYMENT, null), PaymentStatus.PENDING);
+        withSession.setStripeSessionId("cs_ready");
+        persistPayment(persistRental(RentalStatus.CANCELLED, null), PaymentStatus.PENDING);
+        persistPayment(persistRental(RentalStatus.PAID, null), PaymentStatus.SUCCESS);
+        entityManager.flush();
+
+        List<Long> backlog = paymentRepository.findCheckoutBacklog(PaymentStatus.PENDING,
+                LocalDateTime.now().plusMinutes(1), RentalStatus.CANCELLED, PageRequest.of(0, 10));
+
+        assertEquals(List.of(unclaimed.getId(), claimedLongAgo.getId()), backlog);
+        assertEquals(List.of(unclaimed.getId()), paymentRepository.findCheckoutBacklog(PaymentStatus.PENDING,
+                LocalDateTime.now().plusMinutes(1), RentalStatus.CANCELLED, PageRequest.of(0, 1)));
+    }
+
+    @Test
+    void failPending_skipsPaymentsThatGainedASessionMeanwhile() {
+        Rental cancelled = persistRental(RentalStatus.CANCELLED, null);
+        Payment withoutSession = persistPayment(cancelled, PaymentStatus.PENDING);
+        Payment withSession = persistPayment(cancelled, PaymentStatus.PENDING);
+        withSession.setStripeSessionId("cs_open");
+        Payment paid = persistPayment(persistRental(RentalStatus.CANCELLED, null), PaymentStatus.SUCCESS);
+        persistPayment(persistRental(RentalStatus.PENDING_PAYMENT, null), PaymentStatus.PENDING);
+        entityManager.flush();
+
+        assertEquals(List.of(cancelled.getId()), paymentRepository.findAbandonedPayments(PaymentStatus.PENDING,
+                PaymentType.DEPOSIT, RentalStatus.CANCELLED, PageRequest.of(0, 10)));
+
+        // 调用方读到“没有会话”之后会话才挂上：不能作废，否则支付页仍然可付款
+        assertEquals(0, paymentRepository.failPending(withSession.getId(), PaymentStatus.PENDING,
+                PaymentStatus.FAILED, null));
+        assertEquals(1, paymentRepository.failPending(withSession.getId(), PaymentStatus.PENDING,
+                PaymentStatus.FAILED, "cs_open"));
+        assertEquals(1, paymentRepository.failPending(withoutSession.getId(), PaymentStatus.PENDING,
+                PaymentStatus.FAILED, null));
+        assertEquals(0, paymentRepository.failPending(paid.getId(), PaymentStatus.PENDING,
+                PaymentStatus.FAILED, null));
+        // 作废后创建完成的会话不再写入
+        assertEquals(0, paymentRepository.attachCheckoutSession(withoutSession.getId(), PaymentStatus.PENDING,
+                "cs_late", "https://checkout.test/cs_late"));
+        entityManager.clear();
+
+        assertEquals(List.of(), paymentRepository.findAbandonedPayments(PaymentStatus.PENDING,
+                PaymentType.DEPOSIT, RentalStatus.CANCELLED, PageRequest.of(0, 10)));
+        assertEquals(PaymentStatus.FAILED, paymentRepository.findById(withoutSession.getId()).orElseThrow().getStatus());
+        assertNull(paymentRepository.findById(withoutSession.getId()).orElseThrow().getStripeSessionId());
+    }
+
+    @Test
+    void findLatestForRental_findsTheBatchDepositFromAnyRentalInTheBatch() {
+        Rental anchor = persistRental(RentalStatus.PENDING_PAYMENT, "batch-1");
+        Rental sibling = persistRental(RentalStatus.PENDING_PAYMENT, "batch-1");
+        Rental single = persistRental(RentalStatus.PENDING_PAYMENT, null);
+        persistPayment(anchor, PaymentStatus.FAILED);
+        Payment retry = persistPayment(anchor, PaymentStatus.PENDING);
+        persistPayment(single, PaymentStatus.PENDING);
+        entityManager.flush();
+
+        assertEquals(List.of(retry.getId()), paymentRepository.findLatestForRental(sibling.getId(), "batch-1",
+                PaymentType.DEPOSIT, PageRequest.of(0, 1)).stream().map(Payment::getId).toList());
+        assertEquals(List.of(), paymentRepository.findLatestForRental(persistRental(RentalStatus.PAID, null).getId(),
+                null, PaymentType.DEPOSIT, PageRequest.of(0, 1)));
+    }
+
+    private Rental persistRental(RentalStatus status, String batchId) {
+        long start = System.currentTimeMillis() + DAY;
+        Rental rental = fixtures.rental(user, vehicle, new Date(start), new Date(start + DAY), status);
+        rental.setBatchId(batchId);
+        return rental;
+    }
+
+    private Payment persistPayment(Rental rental, PaymentStatus status) {
+        return fixtures.payment(rental, PaymentType.DEPOSIT, status);
+    }
+}
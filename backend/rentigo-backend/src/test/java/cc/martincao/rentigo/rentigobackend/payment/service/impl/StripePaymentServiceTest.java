@@ -0,0 +1,91 @@
+package cc.martincao.rentigo.rentigobackend.payment.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.payment.exception.PaymentBusinessException;
+import cc.martincao.rentigo.rentigobackend.payment.model.Payment;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.payment.repository.PaymentRepository;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import cc.martincao.rentigo.rentigobackend.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StripePaymentServiceTest {
+
+    private static final Duration HOLD = Duration.ofMinutes(45);
+    private static final Instant NOW = Instant.parse("2030-01-07T10:00:00Z");
+
+    private PaymentRepository paymentRepository;
+    private StripePaymentService service;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        service = new StripePaymentService(paymentRepository, mock(RentalRepository.class), mock(UserRepository.class),
+                new ModelMapper(), "https://app.test/success", "https://app.test/cancel", "sk_test_unused");
+    }
+
+    @Test
+    void depositSessionExpiry_endsWithTheHold() {
+        assertEquals(NOW.plus(HOLD), StripePaymentService.depositSessionExpiry(Date.from(NOW), HOLD, NOW));
+        // 预订后过了 10 分钟才创建（补建、认领超时）：仍与保留期限同时失效，而不是再给满 45 分钟
+        assertEquals(NOW.plus(HOLD), StripePaymentService.depositSessionExpiry(Date.from(NOW),
+                HOLD, NOW.plus(Duration.ofMinutes(10))));
+        // 剩余不足 Stripe 的 30 分钟下限
+        assertNull(StripePaymentService.depositSessionExpiry(Date.from(NOW), HOLD, NOW.plus(Duration.ofMinutes(15))));
+        // 超过 24 小时按 Stripe 上限截断
+        assertEquals(NOW.plus(Duration.ofHours(24)),
+                StripePaymentService.depositSessionExpiry(Date.from(NOW), Duration.ofHours(48), NOW));
+    }
+
+    @Test
+    void openCheckoutSession_refusesWhenTheHoldEndsTooSoon() {
+        Payment payment = deposit(1L, Date.from(Instant.now().minus(Duration.ofMinutes(20))), null);
+        when(paymentRepository.findWithRentalById(1L)).thenReturn(Optional.of(payment));
+
+        assertThrows(PaymentBusinessException.class, () -> service.openCheckoutSession(1L));
+        verify(paymentRepository).failPending(1L, PaymentStatus.PENDING, PaymentStatus.FAILED, null);
+        verify(paymentRepository, never()).claimCheckout(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void cancelPendingDeposits_failsPendingPaymentsWithoutSession() {
+        Payment pending = deposit(2L, new Date(), null);
+        Payment paid = deposit(3L, new Date(), null);
+        paid.setStatus(PaymentStatus.SUCCESS);
+        when(paymentRepository.findByRentalIdAndPaymentTypeOrderByCreatedAtDesc(7L, PaymentType.DEPOSIT))
+                .thenReturn(List.of(pending, paid));
+
+        service.cancelPendingDeposits(7L);
+
+        verify(paymentRepository).failPending(2L, PaymentStatus.PENDING, PaymentStatus.FAILED, null);
+        verify(paymentRepository, never()).failPending(eq(3L), any(), any(), any());
+    }
+
+    private static Payment deposit(Long id, Date rentalCreatedAt, String sessionId) {
+        Rental rental = new Rental();
+        rental.setId(7L);
+        rental.setCreatedAt(rentalCreatedAt);
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setRental(rental);
+        payment.setPaymentType(PaymentType.DEPOSIT);
+        payment.setStatus(PaymentStatus.PENDING);
+        payment.setStripeSessionId(sessionId);
+        return payment;
+    }
+}
@@ -0,0 +1,156 @@
+package cc.martincao.rentigo.rentigobackend.pricing.dynamic;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleStatusCount;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleAvailabilityCounters;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UtilizationPricingTest {
+
+    private static final byte SUV = 1;
+    private static final int BEIJING = 1;
+    private static final int SHANGHAI = 2;
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final List<VehicleStatusCount> rows = new ArrayList<>();
+    private VehicleRepository vehicleRepository;
+    private VehicleAvailabilityCounters counters;
+    private UtilizationPricing pricing;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = mock(VehicleRepository.class);
+        counters = new VehicleAvailabilityCounters(vehicleRepository);
+        pricing = newPricing(true);
+    }
+
+    @Test
+    void withoutFleet_leavesPricesUnchanged() {
+        assertEquals(UtilizationPricing.BASIS, pricing.multiplier(BEIJING, SUV, T0));
+        assertEquals(9900, pricing.dailyPriceCents(BEIJING, SUV, 9900));
+    }
+
+    @Test
+    void multiplier_isFlatBetweenThresholdsAndBoundedOutside() {
+        assertEquals(8000, pricing.toMultiplier(0));
+        assertEquals(9000, pricing.toMultiplier(0.15));
+        assertEquals(10_000, pricing.toMultiplier(0.3));
+        assertEquals(10_000, pricing.toMultiplier(0.7));
+        assertEquals(11_500, pricing.toMultiplier(0.85));
+        assertEquals(13_000, pricing.toMultiplier(1));
+        // 按 1% 取整
+        assertEquals(12_300, pricing.toMultiplier(0.9333));
+    }
+
+    @Test
+    void reconcile_seedsUtilizationPerLocationAndType() {
+        fleet(BEIJING, 0, 10);
+        fleet(SHANGHAI, 10, 0);
+        assertEquals(2, pricing.reconcile(T0));
+
+        assertEquals(13_000, pricing.multiplier(BEIJING, SUV, T0));
+        assertEquals(8000, pricing.multiplier(SHANGHAI, SUV, T0));
+        assertEquals(12_870, pricing.dailyPriceCents(BEIJING, SUV, 9900));
+    }
+
+    @Test
+    void rentals_moveTheAverageGraduallyWithTheHalfLife() {
+        fleet(BEIJING, 4, 0);
+        pricing.reconcile(T0);
+        for (long id = 1; id <= 4; id++) {
+            change(vehicle(id, BEIJING, VehicleStatus.AVAILABLE), vehicle(id, BEIJING, VehicleStatus.RENTED), T0);
+        }
+
+        // 刚全部借出时仍接近空置价，一个半衰期后出租率约为 0.5，之后逐步接近满租价
+        assertEquals(8000, pricing.multiplier(BEIJING, SUV, T0));
+        assertEquals(10_000, pricing.multiplier(BEIJING, SUV, T0 + 6 * HOUR));
+        assertEquals(12_800, pricing.multiplier(BEIJING, SUV, T0 + 36 * HOUR));
+
+        // 全部归还后回落
+        for (long id = 1; id <= 4; id++) {
+            change(vehicle(id, BEIJING, VehicleStatus.RENTED), vehicle(id, BEIJING, VehicleStatus.AVAILABLE),
+                    T0 + 36 * HOUR);
+        }
+        assertEquals(12_800, pricing.multiplier(BEIJING, SUV, T0 + 36 * HOUR));
+        assertEquals(8000, pricing.multiplier(BEIJING, SUV, T0 + 96 * HOUR));
+    }
+
+    @Test
+    void transfersAndMaintenance_changeTheFleetOfEachGroup() {
+        fleet(BEIJING, 1, 1);
+        fleet(SHANGHAI, 0, 1);
+        pricing.reconcile(T0);
+
+        // 北京唯一的空闲车调往上海；上海的已租车辆进入维修
+        change(vehicle(1, BEIJING, VehicleStatus.AVAILABLE), vehicle(1, SHANGHAI, VehicleStatus.AVAILABLE), T0);
+        change(vehicle(2, SHANGHAI, VehicleStatus.RENTED), vehicle(2, SHANGHAI, VehicleStatus.MAINTENANCE), T0);
+
+        var snapshot = pricing.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(BEIJING, snapshot.get(0).getLocationId());
+        assertEquals(1, snapshot.get(0).getFleet());
+        assertEquals(1, snapshot.get(0).getRented());
+        assertEquals(1, snapshot.get(1).getFleet());
+        assertEquals(0, snapshot.get(1).getRented());
+    }
+
+    @Test
+    void disabled_neverAdjusts() {
+        fleet(BEIJING, 0, 10);
+        pricing = newPricing(false);
+        pricing.reconcile();
+        pricing.onVehicleChanged(VehicleChangedEvent.added(vehicle(1, BEIJING, VehicleStatus.RENTED)));
+
+        assertEquals(UtilizationPricing.BASIS, pricing.multiplier(BEIJING, SUV, T0));
+        assertTrue(pricing.snapshot().isEmpty());
+    }
+
+    /**
+     * 计数器按数据库中的车辆数对账
+     */
+    private void fleet(int locationId, long available, long rented) {
+        rows.add(new VehicleStatusCount(locationId, SUV, VehicleStatus.AVAILABLE, available));
+        rows.add(new VehicleStatusCount(locationId, SUV, VehicleStatus.RENTED, rented));
+        when(vehicleRepository.countByLocationTypeAndStatus()).thenReturn(List.copyOf(rows));
+        counters.reconcile();
+    }
+
+    /**
+     * 与提交后的顺序一致：计数器先应用增量，再刷新加权平均
+     */
+    private void change(VehicleDTO previous, VehicleDTO current, long now) {
+        counters.onVehicleChanged(VehicleChangedEvent.updated(previous, current));
+        pricing.refresh(Stream.of(previous, current)
+                .map(vehicle -> new UtilizationPricing.Key(vehicle.getLocationId(), SUV))
+                .distinct()
+                .toList(), now);
+    }
+
+    private UtilizationPricing newPricing(boolean enabled) {
+        return new UtilizationPricing(counters, enabled, Duration.ofHours(6), 0.3, 0.7,
+                new BigDecimal("0.8"), new BigDecimal("1.3"), new BigDecimal("0.01"));
+    }
+
+    private static VehicleDTO vehicle(long id, int locationId, VehicleStatus status) {
+        VehicleDTO vehicle = new VehicleDTO();
+        vehicle.setId(id);
+        vehicle.setVehicleTypeId(SUV);
+        vehicle.setLocationId(locationId);
+        vehicle.setStatus(status);
+        return vehicle;
+    }
+}
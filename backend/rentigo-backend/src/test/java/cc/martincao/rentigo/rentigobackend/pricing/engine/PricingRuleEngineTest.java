@@ -0,0 +1,158 @@
+package cc.martincao.rentigo.rentigobackend.pricing.engine;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleFingerprint;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRuleType;
+import cc.martincao.rentigo.rentigobackend.pricing.repository.PricingRuleRepository;
+import cc.martincao.rentigo.rentigobackend.rental.pricing.RentalPricing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PricingRuleEngineTest {
+
+    private static final byte SUV = 1;
+    private static final byte SEDAN = 2;
+    private static final int BEIJING = 1;
+    private static final int SHANGHAI = 2;
+    private static final long DAILY = 10_000;   // 100.00
+
+    private PricingRuleRepository repository;
+    private final List<PricingRule> rules = new ArrayList<>();
+    private PricingRuleEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PricingRuleRepository.class);
+        when(repository.findByEnabledTrueOrderByIdAsc()).thenAnswer(invocation -> List.copyOf(rules));
+        when(repository.fingerprint()).thenAnswer(invocation -> new PricingRuleFingerprint(rules.size(), new Date(rules.size())));
+        engine = new PricingRuleEngine(repository, ZoneOffset.UTC, 400);
+    }
+
+    @Test
+    void withoutRules_matchesBaseDailyPricing() {
+        engine.reload();
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            long start = millis(LocalDate.now().plusDays(random.nextInt(800) - 100)) + random.nextInt(86_400_000);
+            long end = start + (long) (random.nextDouble() * 40 * RentalPricing.DAY_MILLIS);
+            long daily = random.nextInt(200_000);
+            assertEquals(RentalPricing.rentalFeeCents(daily, start, end),
+                    engine.rentalFeeCents(SUV, BEIJING, daily, start, end));
+        }
+    }
+
+    @Test
+    void weekendSurcharge_appliesPerWeekendDay() {
+        rules.add(rule(PricingRuleType.WEEKEND, null, null, "20"));
+        engine.reload();
+
+        // 周五 10:00 起租 3 天：周五、周六、周日
+        LocalDate friday = nextFriday();
+        long start = millis(friday) + 10 * RentalPricing.HOUR_MILLIS;
+        assertEquals(DAILY + 2 * 12_000, engine.rentalFeeCents(SUV, BEIJING, DAILY, start, start + 3 * RentalPricing.DAY_MILLIS));
+        // 周一至周四不受影响
+        long monday = millis(friday.plusDays(3));
+        assertEquals(4 * DAILY, engine.rentalFeeCents(SUV, BEIJING, DAILY, monday, monday + 4 * RentalPricing.DAY_MILLIS));
+    }
+
+    @Test
+    void scopedSeason_onlyAppliesToItsTypeAndLocation() {
+        LocalDate peakStart = nextFriday().plusDays(3);
+        PricingRule peak = rule(PricingRuleType.SEASON, SUV, SHANGHAI, "50");
+        peak.setStartDate(peakStart);
+        peak.setEndDate(peakStart.plusDays(1));
+        rules.add(peak);
+        engine.reload();
+
+        // 旺季 2 天 + 平日 1 天
+        long start = millis(peakStart.minusDays(1));
+        long end = start + 3 * RentalPricing.DAY_MILLIS;
+        assertEquals(DAILY + 2 * 15_000, engine.rentalFeeCents(SUV, SHANGHAI, DAILY, start, end));
+        assertEquals(3 * DAILY, engine.rentalFeeCents(SEDAN, SHANGHAI, DAILY, start, end));
+        assertEquals(3 * DAILY, engine.rentalFeeCents(SUV, BEIJING, DAILY, start, end));
+        assertEquals(3 * DAILY, engine.rentalFeeCents(SUV, 99, DAILY, start, end), "unknown locations use the global table");
+        assertEquals(4, engine.tableCount());
+    }
+
+    @Test
+    void durationDiscount_usesHighestTierReached() {
+        PricingRule weekly = rule(PricingRuleType.DURATION, null, null, "-10");
+        weekly.setMinDays(7);
+        PricingRule monthly = rule(PricingRuleType.DURATION, null, null, "-25");
+        monthly.setMinDays(30);
+        rules.addAll(List.of(weekly, monthly));
+        engine.reload();
+
+        long start = millis(LocalDate.now().plusDays(10));
+        assertEquals(6 * DAILY, engine.rentalFeeCents(SEDAN, BEIJING, DAILY, start, start + 6 * RentalPricing.DAY_MILLIS));
+        assertEquals(63_000, engine.rentalFeeCents(SEDAN, BEIJING, DAILY, start, start + 7 * RentalPricing.DAY_MILLIS));
+        assertEquals(225_000, engine.rentalFeeCents(SEDAN, BEIJING, DAILY, start, start + 30 * RentalPricing.DAY_MILLIS));
+    }
+
+    @Test
+    void datesBeyondThePrecomputedHorizon_priceTheSame() {
+        rules.add(rule(PricingRuleType.WEEKEND, null, null, "15.5"));
+        PricingRule season = rule(PricingRuleType.SEASON, null, null, "-30");
+        season.setStartDate(LocalDate.now().plusDays(380));
+        season.setEndDate(LocalDate.now().plusDays(420));
+        rules.add(season);
+        engine.reload();
+        PricingRuleEngine wide = new PricingRuleEngine(repository, ZoneOffset.UTC, 2000);
+        wide.reload();
+
+        for (int offset = 350; offset < 450; offset += 3) {
+            long start = millis(LocalDate.now().plusDays(offset));
+            long end = start + 9 * RentalPricing.DAY_MILLIS;
+            assertEquals(wide.rentalFeeCents(SUV, BEIJING, 12_345, start, end),
+                    engine.rentalFeeCents(SUV, BEIJING, 12_345, start, end), "offset " + offset);
+        }
+    }
+
+    @Test
+    void reloadIfChanged_recompilesOnlyWhenTheFingerprintMoves() {
+        engine.reload();
+        long version = engine.version();
+
+        engine.reloadIfChanged();
+        assertEquals(version, engine.version());
+
+        rules.add(rule(PricingRuleType.WEEKEND, null, null, "10"));
+        engine.reloadIfChanged();
+        assertEquals(version + 1, engine.version());
+        verify(repository, times(2)).findByEnabledTrueOrderByIdAsc();
+    }
+
+    private static PricingRule rule(PricingRuleType type, Byte vehicleTypeId, Integer locationId, String percent) {
+        PricingRule rule = new PricingRule();
+        rule.setName(type.name());
+        rule.setRuleType(type);
+        rule.setVehicleTypeId(vehicleTypeId);
+        rule.setLocationId(locationId);
+        rule.setAdjustmentPercent(new BigDecimal(percent));
+        return rule;
+    }
+
+    private static LocalDate nextFriday() {
+        LocalDate day = LocalDate.now().plusDays(7);
+        while (day.getDayOfWeek() != DayOfWeek.FRIDAY) {
+            day = day.plusDays(1);
+        }
+        return day;
+    }
+
+    private static long millis(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
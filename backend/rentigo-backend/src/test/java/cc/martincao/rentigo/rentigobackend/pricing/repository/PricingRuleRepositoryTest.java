@@ -0,0 +1,59 @@
+package cc.martincao.rentigo.rentigobackend.pricing.repository;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleFingerprint;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRuleType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PricingRuleRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PricingRuleRepository pricingRuleRepository;
+
+    @Test
+    void fingerprint_changesWhenRulesAreAddedOrRemoved() {
+        PricingRuleFingerprint empty = pricingRuleRepository.fingerprint();
+        assertEquals(0, empty.count());
+        assertNull(empty.lastUpdated());
+
+        PricingRule weekend = persist("Weekend", true);
+        PricingRule disabled = persist("Old promo", false);
+        entityManager.flush();
+        PricingRuleFingerprint two = pricingRuleRepository.fingerprint();
+        assertEquals(2, two.count());
+        assertNotNull(two.lastUpdated());
+        assertEquals(two, pricingRuleRepository.fingerprint());
+
+        assertEquals(List.of(weekend.getId()), pricingRuleRepository.findByEnabledTrueOrderByIdAsc().stream()
+                .map(PricingRule::getId).toList());
+
+        entityManager.remove(disabled);
+        entityManager.flush();
+        assertNotEquals(two, pricingRuleRepository.fingerprint());
+    }
+
+    private PricingRule persist(String name, boolean enabled) {
+        PricingRule rule = new PricingRule();
+        rule.setName(name);
+        rule.setRuleType(PricingRuleType.WEEKEND);
+        rule.setAdjustmentPercent(new BigDecimal("20.00"));
+        rule.setEnabled(enabled);
+        return entityManager.persist(rule);
+    }
+}
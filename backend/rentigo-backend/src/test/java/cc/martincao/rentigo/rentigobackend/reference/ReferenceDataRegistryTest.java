@@ -0,0 +1,128 @@
+package cc.martincao.rentigo.rentigobackend.reference;
+
+import cc.martincao.rentigo.rentigobackend.reference.dto.LocationDTO;
+import cc.martincao.rentigo.rentigobackend.reference.dto.VehicleTypeDTO;
+import cc.martincao.rentigo.rentigobackend.reference.event.ReferenceDataRefreshedEvent;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.Role;
+import cc.martincao.rentigo.rentigobackend.user.repository.RoleRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.LocationRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleTypeRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.service.impl.VehicleServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ReferenceDataRegistryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleTypeRepository vehicleTypeRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private final List<Object> events = new ArrayList<>();
+    private JpaFixtures fixtures;
+    private ReferenceDataRegistry registry;
+    private VehicleType suv;
+    private Location shanghai;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new JpaFixtures(entityManager);
+        fixtures.type("Sedan");
+        suv = fixtures.type("SUV");
+        fixtures.location("Beijing");
+        shanghai = fixtures.location("Shanghai");
+        Role role = new Role();
+        role.setId(1);
+        role.setName("ROLE_USER");
+        entityManager.persist(role);
+        entityManager.flush();
+        entityManager.clear();
+
+        registry = new ReferenceDataRegistry(vehicleTypeRepository, locationRepository, roleRepository, events::add);
+        registry.refresh();
+    }
+
+    @Test
+    void lookups_areServedFromSnapshot() {
+        String etag = registry.etag();
+
+        assertEquals(List.of("Sedan", "SUV"), registry.vehicleTypes().stream().map(VehicleTypeDTO::getTypeName).toList());
+        assertEquals(List.of("Beijing", "Shanghai"), registry.locations().stream().map(LocationDTO::getCity).toList());
+        assertTrue(registry.locationExists(shanghai.getId()));
+        assertFalse(registry.locationExists(-1));
+        assertEquals(1, registry.findRole("ROLE_USER").orElseThrow().getId());
+        assertTrue(registry.findVehicleType((byte) -1).isEmpty());
+        // 每次返回新实例，调用方修改不会污染快照
+        assertNotSame(registry.findVehicleType(suv.getId()).orElseThrow(),
+                registry.findVehicleType(suv.getId()).orElseThrow());
+
+        fixtures.location("Guangzhou");
+        entityManager.flush();
+        assertEquals(2, registry.locations().size());
+        registry.refresh();
+        assertEquals(3, registry.locations().size());
+        assertNotEquals(etag, registry.etag());
+        // 每次载入都通知依赖参考数据的索引重建
+        assertEquals(List.of(1L, 2L), events.stream()
+                .map(event -> ((ReferenceDataRefreshedEvent) event).getVersion())
+                .toList());
+    }
+
+    @Test
+    void addVehicle_onlyInsertsVehicleRow() {
+        VehicleServiceImpl vehicleService = new VehicleServiceImpl(vehicleRepository, registry,
+                event -> { }, null, null);
+        VehicleDTO request = new VehicleDTO(null, "Model Y", suv.getId(), null, null,
+                shanghai.getId(), "Blue", new BigDecimal("320.00"), VehicleStatus.AVAILABLE, "SH-0001");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        VehicleDTO saved = vehicleService.addVehicle(request);
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals("SUV", saved.getVehicleTypeName());
+        entityManager.clear();
+        Vehicle stored = vehicleRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(suv.getId(), stored.getVehicleType().getId());
+        assertEquals(shanghai.getId(), stored.getLocation().getId());
+    }
+}
@@ -0,0 +1,122 @@
+package cc.martincao.rentigo.rentigobackend.rental.availability;
+
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.exception.RentalBusinessException;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RentalAvailabilityIndexTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long BASE = System.currentTimeMillis() + 30 * DAY;
+
+    private RentalAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        RentalRepository rentalRepository = mock(RentalRepository.class);
+        when(rentalRepository.findIntervalsEndingAfter(any(), eq(RentalStatus.CANCELLED))).thenReturn(List.of(
+                // 车辆 1：一段很长的租赁包住后面几段短租
+                new RentalInterval(1L, 1L, BASE, BASE + 20 * DAY),
+                new RentalInterval(2L, 1L, BASE + 2 * DAY, BASE + 3 * DAY),
+                new RentalInterval(3L, 1L, BASE + 30 * DAY, BASE + 32 * DAY),
+                new RentalInterval(4L, 2L, BASE + 5 * DAY, BASE + 6 * DAY)));
+        index = new RentalAvailabilityIndex(rentalRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void isFree_detectsOverlapsUsingHalfOpenIntervals() {
+        assertFalse(index.isFree(1L, day(19), day(25)), "covered by the long rental");
+        assertTrue(index.isFree(1L, day(20), day(30)), "gap between rentals");
+        assertTrue(index.isFree(1L, day(-3), day(0)), "ends exactly when the first rental starts");
+        assertFalse(index.isFree(1L, day(29), day(31)));
+        assertTrue(index.isFree(2L, day(0), day(5)));
+        assertFalse(index.isFree(2L, day(0), day(100)));
+        assertTrue(index.isFree(99L, day(0), day(100)), "vehicle without rentals");
+    }
+
+    @Test
+    void reserve_rejectsOverlapAndAcceptsAdjacentPeriods() {
+        index.reserve(10L, 2L, day(6), day(8));
+        assertFalse(index.isFree(2L, day(7), day(9)));
+
+        RentalBusinessException ex = assertThrows(RentalBusinessException.class,
+                () -> index.reserve(11L, 2L, day(4), day(6)));
+        assertTrue(ex.getMessage().contains("already booked"));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void reserve_isUndoneWhenTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.reserve(10L, 2L, day(10), day(12));
+            assertFalse(index.isFree(2L, day(10), day(11)));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(index.isFree(2L, day(10), day(11)));
+    }
+
+    @Test
+    void onRentalChanged_shrinksOnEarlyReturnAndDropsCancelled() {
+        index.onRentalChanged(new RentalChangedEvent(1L, 1L, new Date(BASE), new Date(BASE + 20 * DAY),
+                new Date(BASE + 4 * DAY), RentalStatus.FINISHED));
+        assertTrue(index.isFree(1L, day(4), day(20)));
+        assertFalse(index.isFree(1L, day(3), day(5)), "still rented until the actual return");
+
+        index.onRentalChanged(new RentalChangedEvent(4L, 2L, new Date(BASE + 5 * DAY), new Date(BASE + 6 * DAY),
+                null, RentalStatus.CANCELLED));
+        assertTrue(index.isFree(2L, day(0), day(100)));
+    }
+
+    @Test
+    void concurrentReservationsForSamePeriod_admitExactlyOne() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            long rentalId = 100 + i;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    index.reserve(rentalId, 3L, day(1), day(4));
+                    accepted.incrementAndGet();
+                } catch (RentalBusinessException | InterruptedException ignored) {
+                    // 冲突
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, accepted.get());
+    }
+
+    private static Date day(int offset) {
+        return new Date(BASE + offset * DAY);
+    }
+}
@@ -0,0 +1,140 @@
+package cc.martincao.rentigo.rentigobackend.rental.calendar;
+
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalInterval;
+import cc.martincao.rentigo.rentigobackend.rental.dto.CalendarGranularity;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalCalendarDTO;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RentalOccupancyCalendarTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final YearMonth JULY = YearMonth.of(2025, 7);
+    private static final long JULY_START = Instant.parse("2025-07-01T00:00:00Z").toEpochMilli();
+
+    private RentalRepository rentalRepository;
+    private final List<RentalInterval> intervals = new ArrayList<>();
+    private RentalOccupancyCalendar calendar;
+
+    @BeforeEach
+    void setUp() {
+        rentalRepository = mock(RentalRepository.class);
+        when(rentalRepository.findIntervalsOverlapping(anyCollection(), any(), any(), eq(RentalStatus.CANCELLED)))
+                .thenAnswer(invocation -> {
+                    Collection<Long> vehicleIds = invocation.getArgument(0);
+                    return intervals.stream().filter(i -> vehicleIds.contains(i.vehicleId())).toList();
+                });
+        calendar = new RentalOccupancyCalendar(rentalRepository, ZoneId.of("UTC"), 3, 1000, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void hourCalendar_setsEveryHourTouchedByARental() {
+        // 7 月 2 日 10:30 到 12:00，以及从 6 月底跨入 7 月 1 日 02:00
+        intervals.add(new RentalInterval(1L, 1L, at(24 + 10) + HOUR / 2, at(24 + 12)));
+        intervals.add(new RentalInterval(2L, 1L, JULY_START - 5 * HOUR, at(2)));
+
+        RentalCalendarDTO result = calendar.getCalendar(List.of(1L, 2L), JULY, CalendarGranularity.HOUR);
+
+        assertEquals(31 * 24, result.getSlots());
+        assertEquals(new Date(JULY_START), result.getFrom());
+        assertEquals("2025-07", result.getMonth());
+        BitSet bits = decode(result.getOccupancy().get(1L));
+        assertEquals(BitSet.valueOf(new long[]{0b11L | (0b11L << 34)}), bits);
+        assertEquals(93, Base64.getDecoder().decode(result.getOccupancy().get(2L)).length, "padded to the whole month");
+        assertTrue(decode(result.getOccupancy().get(2L)).isEmpty());
+    }
+
+    @Test
+    void dayCalendar_foldsHoursIntoDays() {
+        intervals.add(new RentalInterval(1L, 1L, at(24 + 23), at(3 * 24 + 1)));
+        intervals.add(new RentalInterval(2L, 1L, at(30 * 24 + 20), at(40 * 24)));
+
+        RentalCalendarDTO result = calendar.getCalendar(List.of(1L), JULY, CalendarGranularity.DAY);
+
+        assertEquals(31, result.getSlots());
+        BitSet days = decode(result.getOccupancy().get(1L));
+        assertEquals(BitSet.valueOf(new long[]{0b1110L | (1L << 30)}), days);
+    }
+
+    @Test
+    void cachedMonths_areServedWithoutQueryingAgain() {
+        intervals.add(new RentalInterval(1L, 1L, at(0), at(5)));
+        calendar.getCalendar(List.of(1L, 2L), JULY, CalendarGranularity.DAY);
+        calendar.getCalendar(List.of(1L, 2L), JULY, CalendarGranularity.HOUR);
+        calendar.getCalendar(List.of(2L, 3L), JULY, CalendarGranularity.DAY);
+
+        verify(rentalRepository).findIntervalsOverlapping(eq(List.of(1L, 2L)), any(), any(), any());
+        verify(rentalRepository).findIntervalsOverlapping(eq(List.of(3L)), any(), any(), any());
+        verifyNoMoreInteractions(rentalRepository);
+        assertEquals(3, calendar.size());
+    }
+
+    @Test
+    void rentalChange_invalidatesEveryMonthItCovers() {
+        calendar.getCalendar(List.of(1L, 2L), JULY, CalendarGranularity.DAY);
+        calendar.getCalendar(List.of(1L), JULY.plusMonths(1), CalendarGranularity.DAY);
+        calendar.getCalendar(List.of(1L), JULY.plusMonths(2), CalendarGranularity.DAY);
+
+        // 计划 7 月底到 8 月初，实际晚还到 8 月中
+        intervals.add(new RentalInterval(1L, 1L, at(29 * 24), at(45 * 24)));
+        calendar.onRentalChanged(new RentalChangedEvent(1L, 1L, new Date(at(29 * 24)), new Date(at(33 * 24)),
+                new Date(at(45 * 24)), RentalStatus.FINISHED));
+
+        assertEquals(2, calendar.size(), "September and vehicle 2 stay cached");
+        RentalCalendarDTO august = calendar.getCalendar(List.of(1L), JULY.plusMonths(1), CalendarGranularity.DAY);
+        assertEquals(BitSet.valueOf(new long[]{(1L << 14) - 1}), decode(august.getOccupancy().get(1L)));
+    }
+
+    @Test
+    void invalidationDuringLoad_doesNotCacheStaleBitsets() {
+        when(rentalRepository.findIntervalsOverlapping(anyCollection(), any(), any(), any())).thenAnswer(invocation -> {
+            // 加载过程中另一笔租赁提交
+            calendar.onRentalChanged(new RentalChangedEvent(9L, 1L, new Date(at(0)), new Date(at(5)), null,
+                    RentalStatus.PENDING_PAYMENT));
+            return List.of();
+        });
+
+        calendar.getCalendar(List.of(1L), JULY, CalendarGranularity.DAY);
+
+        assertEquals(0, calendar.size());
+    }
+
+    @Test
+    void getCalendar_validatesRequest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.getCalendar(List.of(), JULY, CalendarGranularity.DAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.getCalendar(List.of(1L, 2L, 3L, 4L), JULY, CalendarGranularity.DAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.getCalendar(List.of(1L), null, CalendarGranularity.DAY));
+    }
+
+    private static long at(int hoursIntoJuly) {
+        return JULY_START + hoursIntoJuly * HOUR;
+    }
+
+    private static BitSet decode(String encoded) {
+        return BitSet.valueOf(Base64.getDecoder().decode(encoded));
+    }
+}
@@ -0,0 +1,123 @@
+package cc.martincao.rentigo.rentigobackend.rental.controller;
+
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import cc.martincao.rentigo.rentigobackend.rental.service.impl.RentalServiceImpl;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /api/rentals/my 的读路径只应发出一条 SQL（租赁 join 用户、车辆的 DTO 投影），不随租赁或车辆数量增加查询
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MyRentalsQueryCountTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long NOW = System.currentTimeMillis();
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    private JpaFixtures fixtures;
+    private RentalController controller;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        RentalServiceImpl rentalService = new RentalServiceImpl(rentalRepository, null, null, null,
+                event -> { }, null, null, null, null, 365);
+        controller = new RentalController(rentalService, null, null, null, null);
+
+        fixtures = new JpaFixtures(entityManager);
+        User renter = fixtures.user("renter");
+        User other = fixtures.user("other");
+        VehicleType type = fixtures.type("Sedan");
+        Location location = fixtures.location("Beijing");
+        // 每笔租赁一辆不同的车，N+1 时查询数会随租赁数增长
+        for (int i = 0; i < 5; i++) {
+            persistRental(renter, fixtures.vehicle(type, location, "Sedan " + i, VehicleStatus.AVAILABLE), i);
+        }
+        persistRental(other, fixtures.vehicle(type, location, "Other", VehicleStatus.AVAILABLE), 0);
+        entityManager.flush();
+        entityManager.clear();
+
+        // 与 JWT 过滤器一致：principal 是用户实体
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(renter, null, renter.getAuthorities()));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void myRentals_runsSingleStatement() {
+        List<RentalResponseDTO> rentals = controller.getMyRentals().getBody();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertNotNull(rentals);
+        assertEquals(List.of("Sedan 4", "Sedan 3", "Sedan 2", "Sedan 1", "Sedan 0"),
+                rentals.stream().map(RentalResponseDTO::getVehicleModel).toList());
+        assertTrue(rentals.stream().allMatch(r -> "renter".equals(r.getUsername())));
+    }
+
+    @Test
+    void myRentalsPage_runsSingleStatementPerPage() {
+        CursorPage<RentalResponseDTO> first = controller.getMyRentalsPage(null, 3).getBody();
+        assertNotNull(first);
+        CursorPage<RentalResponseDTO> second = controller.getMyRentalsPage(first.getNextCursor(), 3).getBody();
+        assertNotNull(second);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(List.of("Sedan 4", "Sedan 3", "Sedan 2"),
+                first.getItems().stream().map(RentalResponseDTO::getVehicleModel).toList());
+        assertTrue(first.isHasMore());
+        assertEquals(List.of("Sedan 1", "Sedan 0"),
+                second.getItems().stream().map(RentalResponseDTO::getVehicleModel).toList());
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+    }
+
+    private void persistRental(User user, Vehicle vehicle, int sequence) {
+        Rental rental = fixtures.rental(user, vehicle, new Date(NOW + DAY), new Date(NOW + 2 * DAY), RentalStatus.PAID);
+        fixtures.setCreatedAt(rental, new Date(NOW - (5 - sequence) * DAY));
+    }
+}
@@ -0,0 +1,143 @@
+package cc.martincao.rentigo.rentigobackend.rental.hold;
+
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReservationHoldWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long TTL = Duration.ofMinutes(15).toMillis();
+
+    private RentalRepository rentalRepository;
+    private final List<Object> published = new ArrayList<>();
+    private ReservationHoldWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        rentalRepository = mock(RentalRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ApplicationEventPublisher publisher = published::add;
+        // 8 个槽、1 秒刻度：一圈只有 8 秒，15 分钟的保留期要绕很多圈
+        wheel = new ReservationHoldWheel(rentalRepository, transactionManager, publisher,
+                Duration.ofMillis(TTL), Duration.ofMillis(TICK), 8, 2);
+    }
+
+    @Test
+    void advance_returnsOnlyHoldsWhoseDeadlinePassed() {
+        long now = 1_000_000;
+        wheel.advance(now);
+        wheel.schedule(1L, now + 3 * TICK);
+        wheel.schedule(2L, now + 20 * TICK);
+        wheel.schedule(3L, now + TTL);
+
+        assertEquals(List.of(), wheel.advance(now + 2 * TICK));
+        assertEquals(List.of(1L), wheel.advance(now + 3 * TICK));
+        assertEquals(List.of(), wheel.advance(now + 19 * TICK), "one full rotation later, not yet due");
+        assertEquals(List.of(2L), wheel.advance(now + 20 * TICK));
+        // 长时间未推进（超过一圈）也不会漏掉
+        assertEquals(List.of(3L), wheel.advance(now + TTL + 5 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void leavingPendingPayment_cancelsHold() {
+        long now = System.currentTimeMillis();
+        wheel.advance(now);
+        wheel.onRentalChanged(event(1L, RentalStatus.PENDING_PAYMENT));
+        wheel.onRentalChanged(event(2L, RentalStatus.PENDING_PAYMENT));
+        wheel.onRentalChanged(event(1L, RentalStatus.PAID));
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(2L), wheel.advance(now + TTL + TICK));
+    }
+
+    @Test
+    void rescheduling_replacesEarlierDeadline() {
+        long now = 1_000_000;
+        wheel.advance(now);
+        wheel.schedule(1L, now + 2 * TICK);
+        wheel.advance(now + TICK);
+        wheel.schedule(1L, now + 10 * TICK);
+
+        assertEquals(List.of(), wheel.advance(now + 5 * TICK));
+        assertEquals(List.of(1L), wheel.advance(now + 10 * TICK));
+    }
+
+    @Test
+    void rebuild_expiresOverdueHoldsOnFirstTick() {
+        long now = System.currentTimeMillis();
+        when(rentalRepository.findPendingHolds(RentalStatus.PENDING_PAYMENT)).thenReturn(List.of(
+                new PendingHold(1L, now - 2 * TTL),
+                new PendingHold(2L, now - TTL - TICK),
+                new PendingHold(3L, now)));
+        wheel.rebuild();
+
+        assertEquals(List.of(1L, 2L), wheel.advance(now));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void tick_cancelsDueHoldsInBatchesAndPublishesChanges() {
+        long overdue = System.currentTimeMillis() - TTL - TICK;
+        for (long id = 1; id <= 5; id++) {
+            wheel.schedule(id, overdue);
+        }
+        when(rentalRepository.cancelPending(anyCollection(), eq(RentalStatus.PENDING_PAYMENT),
+                eq(RentalStatus.CANCELLED), any(Date.class))).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return ids.size();
+        });
+        when(rentalRepository.findChangeEvents(anyCollection(), eq(RentalStatus.CANCELLED))).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> event(id, RentalStatus.CANCELLED)).toList();
+        });
+
+        wheel.tick();
+
+        verify(rentalRepository, times(3)).cancelPending(anyCollection(), any(), any(), any());
+        assertEquals(5, published.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void tick_retriesBatchWhenUpdateFails() {
+        wheel.schedule(1L, System.currentTimeMillis() - TICK);
+        when(rentalRepository.cancelPending(anyCollection(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(0);
+
+        wheel.tick();
+        assertEquals(1, wheel.size(), "failed batch is rescheduled");
+
+        // 下一个刻度重试
+        List<Long> retried = wheel.advance(System.currentTimeMillis() + TICK);
+        assertEquals(List.of(1L), retried);
+        wheel.expire(retried);
+        assertEquals(0, wheel.size());
+        verify(rentalRepository, times(2)).cancelPending(anyCollection(), any(), any(), any());
+        verify(rentalRepository, never()).findChangeEvents(anyCollection(), any());
+    }
+
+    private static RentalChangedEvent event(Long rentalId, RentalStatus status) {
+        return new RentalChangedEvent(rentalId, 7L, new Date(), new Date(), null, status);
+    }
+}
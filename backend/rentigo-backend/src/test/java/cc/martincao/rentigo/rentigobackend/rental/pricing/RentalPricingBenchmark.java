@@ -0,0 +1,82 @@
+package cc.martincao.rentigo.rentigobackend.rental.pricing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计价 JMH 基准：重构前的 BigDecimal 计算与 {@link RentalPricing} 的整数（分）计算对比，附带每次调用的分配量
+ * <p>
+ * 默认跳过，手动运行：
+ * {@code ./mvnw test -Dtest=RentalPricingBenchmark -Dbenchmark=true}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RentalPricingBenchmark {
+
+    private static final int SAMPLES = 1024;
+    private static final long END = 1_750_000_000_000L;
+
+    private final BigDecimal[] dailyPrices = new BigDecimal[SAMPLES];
+    private final long[] dailyPriceCents = new long[SAMPLES];
+    private final long[] starts = new long[SAMPLES];
+    private final long[] returns = new long[SAMPLES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            dailyPrices[i] = BigDecimal.valueOf(5_000 + random.nextInt(95_000), 2);
+            dailyPriceCents[i] = RentalPricing.toCents(dailyPrices[i]);
+            starts[i] = END - (1 + random.nextInt(14)) * RentalPricing.DAY_MILLIS;
+            returns[i] = END + random.nextInt(72) * RentalPricing.HOUR_MILLIS + random.nextInt(3_600_000);
+        }
+    }
+
+    @Benchmark
+    public void legacyBigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(RentalPricingTest.legacyRentalFee(dailyPrices[i], starts[i], END));
+            blackhole.consume(RentalPricingTest.legacyOvertimeFee(dailyPrices[i], END, returns[i]));
+        }
+    }
+
+    @Benchmark
+    public void centsEngine(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(RentalPricing.rentalFeeCents(dailyPriceCents[i], starts[i], END));
+            blackhole.consume(RentalPricing.overtimeFeeCents(dailyPriceCents[i], END, returns[i]));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RentalPricingBenchmark.class.getName() + "\\.")
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
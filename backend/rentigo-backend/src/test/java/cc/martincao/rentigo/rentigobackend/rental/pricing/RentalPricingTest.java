@@ -0,0 +1,97 @@
+package cc.martincao.rentigo.rentigobackend.rental.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RentalPricingTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long END = 1_750_000_000_000L;
+
+    @Test
+    void rentalFee_chargesWholeDaysWithAOneDayMinimum() {
+        Date start = new Date(END - 3 * RentalPricing.DAY_MILLIS - 5 * HOUR);
+        assertEquals(new BigDecimal("297.00"), RentalPricing.rentalFee(new BigDecimal("99.00"), start, new Date(END)));
+        assertEquals(9900, RentalPricing.rentalFeeCents(9900, END - 23 * HOUR, END));
+    }
+
+    @Test
+    void overtime_graceCoversAnythingBelowSevenFullHours() {
+        assertEquals(0, RentalPricing.overtimeFeeCents(24000, END, END + 6 * HOUR + 59 * MINUTE));
+        // 去掉 6 小时宽限后剩 1 小时：240 ÷ 24 × 2 = 20
+        assertEquals(2000, RentalPricing.overtimeFeeCents(24000, END, END + 7 * HOUR));
+        assertEquals(4000, RentalPricing.overtimeFeeCents(24000, END, END + 7 * HOUR + 1));
+        assertEquals(0, RentalPricing.overtimeFeeCents(24000, END, END - HOUR));
+    }
+
+    @Test
+    void overtime_isCappedAtOneAndAHalfDailyPricePerOverdueDay() {
+        // 30 小时计费 = 2 个逾期天：min(30 × 20, 2 × 360) = 600
+        assertEquals(60000, RentalPricing.overtimeFeeCents(24000, END, END + 36 * HOUR));
+        // 20 小时：min(400, 360) = 360
+        assertEquals(36000, RentalPricing.overtimeFeeCents(24000, END, END + 26 * HOUR));
+        // 封顶金额带半分时四舍五入：99.99 × 1.5 = 149.985
+        assertEquals(14999, RentalPricing.overtimeFeeCents(9999, END, END + 26 * HOUR));
+    }
+
+    @Test
+    void matchesTheBigDecimalRulesItReplaced() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            BigDecimal dailyPrice = BigDecimal.valueOf(random.nextInt(500_000), 2);
+            long start = END - random.nextInt(60) * RentalPricing.DAY_MILLIS - random.nextInt((int) RentalPricing.DAY_MILLIS);
+            long returned = END + (long) (random.nextDouble() * 20 * RentalPricing.DAY_MILLIS) - HOUR;
+
+            assertEquals(0, legacyRentalFee(dailyPrice, start, END)
+                    .compareTo(RentalPricing.rentalFee(dailyPrice, new Date(start), new Date(END))));
+            // 旧实现的封顶金额可能精确到 0.001，落库（两位小数）时四舍五入
+            assertEquals(legacyOvertimeFee(dailyPrice, END, returned).setScale(2, RoundingMode.HALF_UP),
+                    RentalPricing.overtimeFee(dailyPrice, new Date(END), new Date(returned)),
+                    () -> dailyPrice + " returned " + (returned - END) + "ms late");
+        }
+    }
+
+    @Test
+    void toCents_rejectsFractionsOfACent() {
+        assertEquals(9900, RentalPricing.toCents(new BigDecimal("99")));
+        assertThrows(ArithmeticException.class, () -> RentalPricing.toCents(new BigDecimal("99.001")));
+    }
+
+    /**
+     * 重构前的租金计算：RentalServiceImpl 按整天数计算，落库时 trg_rental_before_insert 触发器再按最少一天覆盖
+     */
+    static BigDecimal legacyRentalFee(BigDecimal dailyPrice, long start, long end) {
+        long days = Math.max(TimeUnit.DAYS.convert(end - start, TimeUnit.MILLISECONDS), 1);
+        return dailyPrice.multiply(new BigDecimal(days));
+    }
+
+    /**
+     * 重构前 returnRental 中的逾期费计算
+     */
+    static BigDecimal legacyOvertimeFee(BigDecimal dailyPrice, long end, long returned) {
+        if (returned <= end) {
+            return BigDecimal.ZERO;
+        }
+        long overdueHours = TimeUnit.HOURS.convert(returned - end, TimeUnit.MILLISECONDS);
+        if (overdueHours <= 6) {
+            return BigDecimal.ZERO;
+        }
+        long overdueMillisAfterFree = returned - end - TimeUnit.HOURS.toMillis(6);
+        long chargeableHoursCeilUp = (overdueMillisAfterFree + TimeUnit.HOURS.toMillis(1) - 1) / TimeUnit.HOURS.toMillis(1);
+        BigDecimal hourlyBasePrice = dailyPrice.divide(new BigDecimal("24"), 2, RoundingMode.HALF_UP);
+        BigDecimal hourlyOvertimePrice = hourlyBasePrice.multiply(new BigDecimal("2"));
+        BigDecimal totalOvertimeFee = hourlyOvertimePrice.multiply(new BigDecimal(chargeableHoursCeilUp));
+        BigDecimal dailyFeeLimit = dailyPrice.multiply(new BigDecimal("1.5"));
+        long overdueDays = (chargeableHoursCeilUp / 24) + (chargeableHoursCeilUp % 24 > 0 ? 1 : 0);
+        BigDecimal maxTotalFee = dailyFeeLimit.multiply(new BigDecimal(overdueDays));
+        return totalOvertimeFee.min(maxTotalFee);
+    }
+}
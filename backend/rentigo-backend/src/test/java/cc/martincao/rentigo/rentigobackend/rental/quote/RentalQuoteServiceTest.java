@@ -0,0 +1,177 @@
+package cc.martincao.rentigo.rentigobackend.rental.quote;
+
+import cc.martincao.rentigo.rentigobackend.pricing.dto.PricingRuleFingerprint;
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.engine.PricingRuleEngine;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRule;
+import cc.martincao.rentigo.rentigobackend.pricing.model.PricingRuleType;
+import cc.martincao.rentigo.rentigobackend.pricing.repository.PricingRuleRepository;
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalQuoteDTO;
+import cc.martincao.rentigo.rentigobackend.rental.exception.RentalBusinessException;
+import cc.martincao.rentigo.rentigobackend.rental.pricing.RentalPricing;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleAvailabilityCounters;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RentalQuoteServiceTest {
+
+    private static final byte SUV = 1;
+    private static final long DAY = RentalPricing.DAY_MILLIS;
+    // 2030-01-07 是星期一
+    private static final long MONDAY = 1_893_974_400_000L;
+
+    private VehicleRepository vehicleRepository;
+    private ReferenceDataRegistry referenceData;
+    private final List<PricingRule> rules = new ArrayList<>();
+    private PricingRuleEngine engine;
+    private VehicleAvailabilityCounters counters;
+    private UtilizationPricing utilization;
+    private RentalQuoteService service;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        PricingRuleRepository ruleRepository = mock(PricingRuleRepository.class);
+        when(ruleRepository.findByEnabledTrueOrderByIdAsc()).thenAnswer(invocation -> List.copyOf(rules));
+        when(ruleRepository.fingerprint()).thenAnswer(invocation -> new PricingRuleFingerprint(rules.size(), null));
+        engine = new PricingRuleEngine(ruleRepository, ZoneOffset.UTC, 400);
+        engine.reload();
+
+        VehicleType type = new VehicleType();
+        type.setId(SUV);
+        type.setDepositAmount(new BigDecimal("500.00"));
+        Location location = new Location();
+        location.setId(1);
+        vehicle = new Vehicle();
+        vehicle.setId(7L);
+        vehicle.setVehicleType(type);
+        vehicle.setLocation(location);
+        vehicle.setDailyPrice(new BigDecimal("99.00"));
+
+        vehicleRepository = mock(VehicleRepository.class);
+        when(vehicleRepository.findById(7L)).thenAnswer(invocation -> Optional.of(vehicle));
+        referenceData = mock(ReferenceDataRegistry.class);
+        when(referenceData.findVehicleType(SUV)).thenReturn(Optional.of(type));
+        counters = new VehicleAvailabilityCounters(vehicleRepository);
+        utilization = new UtilizationPricing(counters, true, Duration.ofHours(6), 0.3, 0.7,
+                new BigDecimal("0.8"), new BigDecimal("1.3"), new BigDecimal("0.01"));
+        service = new RentalQuoteService(vehicleRepository, engine, utilization, referenceData, 365, 1000,
+                Duration.ofMinutes(10), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void quote_pricesFeeDepositAndOvertimePolicy() {
+        RentalQuoteDTO quote = service.quote(7L, new Date(MONDAY), new Date(MONDAY + 3 * DAY));
+
+        assertEquals(3, quote.getBillableDays());
+        assertEquals(new BigDecimal("297.00"), quote.getRentalFee());
+        assertEquals(new BigDecimal("1.0000"), quote.getPriceMultiplier());
+        assertEquals(new BigDecimal("500.00"), quote.getDepositAmount());
+        assertEquals(6, quote.getOvertimePolicy().getGraceHours());
+        assertEquals(new BigDecimal("8.26"), quote.getOvertimePolicy().getHourlyRate());
+        assertEquals(new BigDecimal("148.50"), quote.getOvertimePolicy().getDailyCap());
+        verify(vehicleRepository, only()).findById(7L);
+    }
+
+    @Test
+    void repeatedQuotes_areServedFromTheCache() {
+        RentalQuoteDTO first = service.quote(7L, new Date(MONDAY), new Date(MONDAY + 2 * DAY));
+        for (int i = 0; i < 100; i++) {
+            assertSame(first, service.quote(7L, new Date(MONDAY), new Date(MONDAY + 2 * DAY)));
+        }
+        service.quote(7L, new Date(MONDAY), new Date(MONDAY + 4 * DAY));
+
+        verify(vehicleRepository, times(1)).findById(7L);
+        verify(referenceData, times(2)).findVehicleType(SUV);
+        assertEquals(2, service.cachedQuoteCount());
+    }
+
+    @Test
+    void ruleChange_repricesWithTheNewVersion() {
+        Date start = new Date(MONDAY + 4 * DAY);   // 星期五
+        Date end = new Date(MONDAY + 6 * DAY);
+        assertEquals(new BigDecimal("198.00"), service.quote(7L, start, end).getRentalFee());
+
+        PricingRule weekend = new PricingRule();
+        weekend.setRuleType(PricingRuleType.WEEKEND);
+        weekend.setAdjustmentPercent(new BigDecimal("20"));
+        rules.add(weekend);
+        engine.reload();
+
+        // 星期五原价 + 星期六上浮 20%
+        assertEquals(new BigDecimal("217.80"), service.quote(7L, start, end).getRentalFee());
+    }
+
+    @Test
+    void vehicleChange_reloadsThePrice() {
+        Date start = new Date(MONDAY);
+        Date end = new Date(MONDAY + DAY);
+        assertEquals(new BigDecimal("99.00"), service.quote(7L, start, end).getRentalFee());
+
+        VehicleDTO previous = VehicleDTO.fromEntity(vehicle);
+        vehicle.setDailyPrice(new BigDecimal("120.00"));
+        service.onVehicleChanged(VehicleChangedEvent.updated(previous, VehicleDTO.fromEntity(vehicle)));
+
+        assertEquals(new BigDecimal("120.00"), service.quote(7L, start, end).getRentalFee());
+        verify(vehicleRepository, times(2)).findById(7L);
+    }
+
+    @Test
+    void idleFleet_discountsTheQuoteButNotTheOvertimePolicy() {
+        Date start = new Date(MONDAY);
+        Date end = new Date(MONDAY + 2 * DAY);
+        assertEquals(new BigDecimal("198.00"), service.quote(7L, start, end).getRentalFee());
+
+        // 同网点同车型只有这一辆空闲车：出租率为 0，按下限 0.8 调价
+        VehicleDTO idle = VehicleDTO.fromEntity(vehicle);
+        idle.setStatus(VehicleStatus.AVAILABLE);
+        counters.onVehicleChanged(VehicleChangedEvent.added(idle));
+        utilization.onVehicleChanged(VehicleChangedEvent.added(idle));
+
+        RentalQuoteDTO quote = service.quote(7L, start, end);
+        assertEquals(new BigDecimal("0.8000"), quote.getPriceMultiplier());
+        assertEquals(new BigDecimal("158.40"), quote.getRentalFee());
+        assertEquals(new BigDecimal("99.00"), quote.getDailyPrice());
+        assertEquals(new BigDecimal("8.26"), quote.getOvertimePolicy().getHourlyRate());
+    }
+
+    @Test
+    void invalidRequests_areRejectedWithoutTouchingTheDatabase() {
+        Date start = new Date(MONDAY);
+        assertThrows(RentalBusinessException.class, () -> service.quote(7L, start, start));
+        assertThrows(RentalBusinessException.class, () -> service.quote(7L, start, null));
+        assertThrows(RentalBusinessException.class, () -> service.quote(7L, start, new Date(MONDAY + 366 * DAY)));
+        assertThrows(IllegalArgumentException.class, () -> service.quote(null, start, new Date(MONDAY + DAY)));
+        verify(vehicleRepository, never()).findById(any());
+    }
+
+    @Test
+    void unknownVehicle_failsAndIsNotCached() {
+        when(vehicleRepository.findById(8L)).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> service.quote(8L, new Date(MONDAY), new Date(MONDAY + DAY)));
+        assertThrows(RuntimeException.class, () -> service.quote(8L, new Date(MONDAY), new Date(MONDAY + DAY)));
+        verify(vehicleRepository, times(2)).findById(8L);
+        assertEquals(0, service.cachedQuoteCount());
+    }
+}
@@ -0,0 +1,142 @@
+package cc.martincao.rentigo.rentigobackend.rental.repository;
+
+import cc.martincao.rentigo.rentigobackend.common.dto.CursorPage;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalKeyset;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 管理端租赁分页：每页一条 SQL（租赁 join 用户、车辆的 DTO 投影），keyset 在创建时间相同时按 id 续页
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RentalQueryRepositoryTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    private JpaFixtures fixtures;
+    private Statistics statistics;
+    private User alice;
+    private User bob;
+    private Vehicle beijingSedan;
+    private Vehicle shanghaiSedan;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new JpaFixtures(entityManager);
+        alice = fixtures.user("alice");
+        bob = fixtures.user("bob");
+        VehicleType type = fixtures.type("Sedan");
+        beijingSedan = fixtures.vehicle(type, fixtures.location("Beijing"), "Sedan", VehicleStatus.AVAILABLE);
+        shanghaiSedan = fixtures.vehicle(type, fixtures.location("Shanghai"), "Sedan", VehicleStatus.AVAILABLE);
+        entityManager.flush();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void pagesInCreationOrder_continuingAcrossEqualTimestamps() {
+        Long oldest = persistRental(alice, beijingSedan, RentalStatus.FINISHED, T0);
+        // 三笔同一时刻创建的租赁，跨页时按 id 倒序续接，不重复也不遗漏
+        Long tiedA = persistRental(bob, beijingSedan, RentalStatus.PAID, T0 + HOUR);
+        Long tiedB = persistRental(alice, shanghaiSedan, RentalStatus.PAID, T0 + HOUR);
+        Long tiedC = persistRental(bob, shanghaiSedan, RentalStatus.ACTIVE, T0 + HOUR);
+        Long newest = persistRental(alice, beijingSedan, RentalStatus.PENDING_PAYMENT, T0 + 2 * HOUR);
+        entityManager.clear();
+        statistics.clear();
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<RentalResponseDTO> page = page(new RentalSearchCriteria(), cursor, 2);
+            page.getItems().forEach(rental -> ids.add(rental.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of(newest, tiedC, tiedB, tiedA, oldest), ids);
+        assertEquals(3, pages);
+        assertEquals(pages, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void filters_combineAndProjectUserAndVehicle() {
+        persistRental(alice, beijingSedan, RentalStatus.PAID, T0);
+        Long match = persistRental(alice, beijingSedan, RentalStatus.PAID, T0 + HOUR);
+        persistRental(alice, shanghaiSedan, RentalStatus.PAID, T0 + HOUR);
+        persistRental(bob, beijingSedan, RentalStatus.PAID, T0 + HOUR);
+        persistRental(alice, beijingSedan, RentalStatus.CANCELLED, T0 + HOUR);
+        persistRental(alice, beijingSedan, RentalStatus.PAID, T0 + 3 * HOUR);
+        entityManager.clear();
+        statistics.clear();
+
+        RentalSearchCriteria criteria = new RentalSearchCriteria();
+        criteria.setStatus(RentalStatus.PAID);
+        criteria.setLocationId(beijingSedan.getLocation().getId());
+        criteria.setUserId(alice.getId());
+        criteria.setCreatedFrom(new Date(T0 + HOUR));
+        criteria.setCreatedTo(new Date(T0 + 3 * HOUR));
+        CursorPage<RentalResponseDTO> page = page(criteria, null, 20);
+
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.isHasMore());
+        RentalResponseDTO rental = page.getItems().get(0);
+        assertEquals(match, rental.getId());
+        assertEquals("alice", rental.getUsername());
+        assertEquals(beijingSedan.getId(), rental.getVehicleId());
+        assertEquals("Sedan", rental.getVehicleModel());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        criteria = new RentalSearchCriteria();
+        criteria.setVehicleId(shanghaiSedan.getId());
+        assertEquals(1, page(criteria, null, 20).getItems().size());
+    }
+
+    private CursorPage<RentalResponseDTO> page(RentalSearchCriteria criteria, String cursor, int size) {
+        List<RentalResponseDTO> rows = rentalRepository.findPage(criteria, RentalKeyset.fromCursor(cursor), size + 1);
+        return CursorPage.of(rows, size, RentalKeyset::toCursor);
+    }
+
+    private Long persistRental(User user, Vehicle vehicle, RentalStatus status, long createdAt) {
+        Rental rental = fixtures.rental(user, vehicle, new Date(T0 + 24 * HOUR), new Date(T0 + 48 * HOUR), status);
+        fixtures.setCreatedAt(rental, new Date(createdAt));
+        return rental.getId();
+    }
+}
@@ -0,0 +1,123 @@
+package cc.martincao.rentigo.rentigobackend.rental.repository;
+
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalInterval;
+import cc.martincao.rentigo.rentigobackend.rental.event.RentalChangedEvent;
+import cc.martincao.rentigo.rentigobackend.rental.hold.PendingHold;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RentalRepositoryTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = System.currentTimeMillis();
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    private JpaFixtures fixtures;
+    private User user;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new JpaFixtures(entityManager);
+        user = fixtures.user("renter");
+        vehicle = fixtures.vehicle(fixtures.type("Sedan"), fixtures.location("Beijing"), "Sedan",
+                VehicleStatus.AVAILABLE);
+    }
+
+    @Test
+    void findIntervalsEndingAfter_skipsCancelledAndPastRentals() {
+        Rental upcoming = persistRental(NOW + DAY, NOW + 3 * DAY, null, RentalStatus.PAID);
+        persistRental(NOW + DAY, NOW + 3 * DAY, null, RentalStatus.CANCELLED);
+        persistRental(NOW - 10 * DAY, NOW - 8 * DAY, null, RentalStatus.FINISHED);
+        // 提前归还：占用截止到实际归还时间
+        Rental returnedEarly = persistRental(NOW - 2 * DAY, NOW + 5 * DAY, new Date(NOW - DAY), RentalStatus.FINISHED);
+        entityManager.flush();
+
+        List<RentalInterval> intervals = rentalRepository.findIntervalsEndingAfter(
+                new Date(NOW - DAY - 1000), RentalStatus.CANCELLED);
+
+        assertEquals(2, intervals.size());
+        RentalInterval early = intervals.stream()
+                .filter(i -> i.rentalId().equals(returnedEarly.getId())).findFirst().orElseThrow();
+        assertEquals(NOW - DAY, early.end());
+        assertTrue(intervals.stream().anyMatch(i -> i.rentalId().equals(upcoming.getId())
+                && i.vehicleId().equals(vehicle.getId())));
+    }
+
+    @Test
+    void findIntervalsOverlapping_returnsRentalsTouchingTheWindow() {
+        Rental inside = persistRental(NOW + DAY, NOW + 2 * DAY, null, RentalStatus.PAID);
+        // 计划在窗口内结束，但晚还进入窗口之后
+        Rental lateReturn = persistRental(NOW - 3 * DAY, NOW - DAY, new Date(NOW + DAY), RentalStatus.FINISHED);
+        persistRental(NOW + DAY, NOW + 2 * DAY, null, RentalStatus.CANCELLED);
+        persistRental(NOW + 10 * DAY, NOW + 12 * DAY, null, RentalStatus.PAID);
+        persistRental(NOW - 5 * DAY, NOW, null, RentalStatus.FINISHED);
+        entityManager.flush();
+
+        List<RentalInterval> intervals = rentalRepository.findIntervalsOverlapping(List.of(vehicle.getId()),
+                new Date(NOW), new Date(NOW + 10 * DAY), RentalStatus.CANCELLED);
+
+        assertEquals(List.of(inside.getId(), lateReturn.getId()),
+                intervals.stream().map(RentalInterval::rentalId).sorted().toList());
+        assertEquals(List.of(), rentalRepository.findIntervalsOverlapping(List.of(vehicle.getId() + 1),
+                new Date(NOW), new Date(NOW + 10 * DAY), RentalStatus.CANCELLED));
+    }
+
+    @Test
+    void cancelPending_onlyCancelsRentalsStillAwaitingPayment() {
+        Rental abandoned = persistRental(NOW + DAY, NOW + 3 * DAY, null, RentalStatus.PENDING_PAYMENT);
+        // 保留期满前刚完成支付
+        Rental paid = persistRental(NOW + 5 * DAY, NOW + 6 * DAY, null, RentalStatus.PAID);
+        Rental untouched = persistRental(NOW + 8 * DAY, NOW + 9 * DAY, null, RentalStatus.PENDING_PAYMENT);
+        entityManager.flush();
+
+        List<Long> expired = List.of(abandoned.getId(), paid.getId());
+        int cancelled = rentalRepository.cancelPending(expired, RentalStatus.PENDING_PAYMENT,
+                RentalStatus.CANCELLED, new Date());
+        entityManager.clear();
+
+        assertEquals(1, cancelled);
+        assertEquals(RentalStatus.CANCELLED, rentalRepository.findById(abandoned.getId()).orElseThrow().getStatus());
+        assertEquals(1, rentalRepository.findById(abandoned.getId()).orElseThrow().getVersion());
+        assertEquals(RentalStatus.PAID, rentalRepository.findById(paid.getId()).orElseThrow().getStatus());
+        assertEquals(RentalStatus.PENDING_PAYMENT, rentalRepository.findById(untouched.getId()).orElseThrow().getStatus());
+
+        List<RentalChangedEvent> events = rentalRepository.findChangeEvents(expired, RentalStatus.CANCELLED);
+        assertEquals(1, events.size());
+        assertEquals(abandoned.getId(), events.get(0).getRentalId());
+        assertEquals(vehicle.getId(), events.get(0).getVehicleId());
+        assertEquals(List.of(untouched.getId()), rentalRepository.findPendingHolds(RentalStatus.PENDING_PAYMENT)
+                .stream().map(PendingHold::rentalId).toList());
+    }
+
+    private Rental persistRental(long start, long end, Date actualReturn, RentalStatus status) {
+        Rental rental = fixtures.rental(user, vehicle, new Date(start), new Date(end), status);
+        rental.setActualReturnTime(actualReturn);
+        return rental;
+    }
+}
@@ -0,0 +1,236 @@
+package cc.martincao.rentigo.rentigobackend.rental.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.payment.dto.CreatePaymentSessionRequest;
+import cc.martincao.rentigo.rentigobackend.payment.dto.PaymentResponseDTO;
+import cc.martincao.rentigo.rentigobackend.payment.event.CheckoutRequestedEvent;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.payment.service.PaymentService;
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.engine.PricingRuleEngine;
+import cc.martincao.rentigo.rentigobackend.pricing.repository.PricingRuleRepository;
+import cc.martincao.rentigo.rentigobackend.rental.availability.BookingAdmission;
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalAvailabilityIndex;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalRequestDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.BatchRentalResponseDTO;
+import cc.martincao.rentigo.rentigobackend.rental.dto.CheckoutStatus;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalRequestDTO;
+import cc.martincao.rentigo.rentigobackend.rental.exception.BookingConflictException;
+import cc.martincao.rentigo.rentigobackend.rental.exception.RentalBusinessException;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.repository.UserRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleAvailabilityCounters;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量预订：每次调用走独立事务，验证全部成功或整批回滚（数据库与占用索引都不残留）
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RentalBatchBookingTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long BASE = System.currentTimeMillis() + 30 * DAY;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PricingRuleRepository pricingRuleRepository;
+
+    private PaymentService paymentService;
+    private RentalAvailabilityIndex index;
+    private RentalServiceImpl service;
+    private TransactionTemplate transactionTemplate;
+    private Long userId;
+    private final List<Long> vehicleIds = new ArrayList<>();
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        JpaFixtures fixtures = JpaFixtures.committed(entityManagerFactory);
+        userId = fixtures.user("corporate").getId();
+        VehicleType suv = fixtures.type("SUV", 7, "500.00");
+        VehicleType sedan = fixtures.type("Sedan", 5, "300.00");
+        Location location = fixtures.location("Shanghai");
+        for (int i = 0; i < 3; i++) {
+            vehicleIds.add(fixtures.vehicle(i == 0 ? suv : sedan, location, "Fleet " + i, "White", "100.00",
+                    VehicleStatus.AVAILABLE).getId());
+        }
+
+        paymentService = mock(PaymentService.class);
+        PaymentResponseDTO pending = new PaymentResponseDTO();
+        pending.setId(42L);
+        when(paymentService.createPendingPayment(any(), anyLong())).thenReturn(pending);
+        index = new RentalAvailabilityIndex(rentalRepository);
+        service = new RentalServiceImpl(rentalRepository, vehicleRepository, userRepository, paymentService,
+                events::add, index, new BookingAdmission(16, Duration.ofMillis(200)),
+                new PricingRuleEngine(pricingRuleRepository, ZoneOffset.UTC, 400),
+                new UtilizationPricing(new VehicleAvailabilityCounters(vehicleRepository), false, Duration.ofHours(6), 0.3, 0.7,
+                        new BigDecimal("0.8"), new BigDecimal("1.3"), new BigDecimal("0.01")), 365);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from rentals");
+        jdbcTemplate.update("delete from vehicle");
+        jdbcTemplate.update("delete from location");
+        jdbcTemplate.update("delete from vehicle_type");
+        jdbcTemplate.update("delete from user");
+    }
+
+    @Test
+    void batch_booksEveryVehicleWithOneCombinedDeposit() {
+        BatchRentalResponseDTO result = book(item(0, 0, 2), item(1, 0, 2), item(2, 1, 4));
+
+        assertEquals(3, result.getRentals().size());
+        assertEquals(new BigDecimal("1100.00"), result.getDepositAmount());
+        assertEquals(new BigDecimal("700.00"), result.getTotalAmount());
+        // 支付页在提交后创建，响应里只带待支付记录
+        assertEquals(42L, result.getPaymentId());
+        assertEquals(CheckoutStatus.PENDING, result.getCheckoutStatus());
+        assertNull(result.getCheckoutUrl());
+        assertTrue(result.getRentals().stream().allMatch(r -> result.getBatchId().equals(r.getBatchId())));
+        assertEquals(3, rentalRepository.findByBatchId(result.getBatchId()).size());
+
+        ArgumentCaptor<CreatePaymentSessionRequest> payment = ArgumentCaptor.forClass(CreatePaymentSessionRequest.class);
+        verify(paymentService, times(1)).createPendingPayment(payment.capture(), eq(userId));
+        verify(paymentService, never()).createCheckoutSession(any(), anyLong());
+        assertEquals(PaymentType.DEPOSIT, payment.getValue().getPaymentType());
+        assertEquals(new BigDecimal("1100.00"), payment.getValue().getAmount());
+        assertEquals(result.getRentals().get(0).getId(), payment.getValue().getRentalId());
+        assertEquals(1, events.stream().filter(CheckoutRequestedEvent.class::isInstance)
+                .map(CheckoutRequestedEvent.class::cast)
+                .filter(event -> event.getPaymentId() == 42L)
+                .count());
+
+        vehicleIds.forEach(id -> assertEquals(1, vehicleVersion(id)));
+        assertFalse(index.isFree(vehicleIds.get(2), day(3), day(5)));
+    }
+
+    @Test
+    void conflictOnOneVehicle_rejectsWholeBatch() {
+        book(item(1, 1, 3));
+        clearInvocations(paymentService);
+
+        assertThrows(BookingConflictException.class, () -> book(item(0, 0, 2), item(1, 0, 2), item(2, 0, 2)));
+
+        assertEquals(1, rentalCount());
+        verifyNoInteractions(paymentService);
+        assertTrue(index.isFree(vehicleIds.get(0), day(0), day(2)));
+    }
+
+    @Test
+    void overlappingPeriodsForSameVehicleInsideBatch_rollBackEverything() {
+        assertThrows(BookingConflictException.class, () -> book(item(0, 0, 2), item(2, 0, 3), item(0, 1, 4)));
+
+        assertEquals(0, rentalCount());
+        assertTrue(index.isFree(vehicleIds.get(0), day(0), day(2)), "reservations made before the conflict are undone");
+        assertTrue(index.isFree(vehicleIds.get(2), day(0), day(3)));
+        vehicleIds.forEach(id -> assertEquals(0, vehicleVersion(id)));
+    }
+
+    @Test
+    void unbookableVehicle_rejectsWholeBatch() {
+        jdbcTemplate.update("update vehicle set status = ? where id = ?",
+                VehicleStatus.MAINTENANCE.ordinal(), vehicleIds.get(2));
+
+        assertThrows(RentalBusinessException.class, () -> book(item(0, 0, 2), item(2, 0, 2)));
+        assertEquals(0, rentalCount());
+    }
+
+    @Test
+    void periodLongerThanQuoteLimit_isRejected() {
+        // 与报价相同的上限：365 天可以预订，366 天连报价都拿不到，也不能预订
+        assertThrows(RentalBusinessException.class, () -> book(item(0, 0, 2), item(1, 0, 366)));
+        assertEquals(0, rentalCount());
+        verifyNoInteractions(paymentService);
+
+        assertEquals(1, book(item(1, 0, 365)).getRentals().size());
+    }
+
+    @Test
+    void emptyOrOversizedBatch_isRejected() {
+        assertThrows(RentalBusinessException.class, this::book);
+        RentalRequestDTO[] tooMany = IntStream.range(0, RentalServiceImpl.MAX_BATCH_SIZE + 1)
+                .mapToObj(i -> item(i % 3, 2 * i, 2 * i + 1))
+                .toArray(RentalRequestDTO[]::new);
+        assertThrows(RentalBusinessException.class, () -> book(tooMany));
+        assertEquals(0, rentalCount());
+    }
+
+    private BatchRentalResponseDTO book(RentalRequestDTO... items) {
+        BatchRentalRequestDTO request = new BatchRentalRequestDTO();
+        request.setRentals(List.of(items));
+        return transactionTemplate.execute(status -> service.createBatchRental(request, userId));
+    }
+
+    private RentalRequestDTO item(int vehicle, int startDay, int endDay) {
+        RentalRequestDTO item = new RentalRequestDTO();
+        item.setVehicleId(vehicleIds.get(vehicle));
+        item.setStartTime(day(startDay));
+        item.setEndTime(day(endDay));
+        return item;
+    }
+
+    private int rentalCount() {
+        return jdbcTemplate.queryForObject("select count(*) from rentals", Integer.class);
+    }
+
+    private int vehicleVersion(Long vehicleId) {
+        return jdbcTemplate.queryForObject("select version from vehicle where id = ?", Integer.class, vehicleId);
+    }
+
+    private static Date day(int offset) {
+        return new Date(BASE + offset * DAY);
+    }
+}
@@ -0,0 +1,226 @@
+package cc.martincao.rentigo.rentigobackend.rental.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.payment.dto.PaymentResponseDTO;
+import cc.martincao.rentigo.rentigobackend.payment.service.PaymentService;
+import cc.martincao.rentigo.rentigobackend.pricing.dynamic.UtilizationPricing;
+import cc.martincao.rentigo.rentigobackend.pricing.engine.PricingRuleEngine;
+import cc.martincao.rentigo.rentigobackend.pricing.repository.PricingRuleRepository;
+import cc.martincao.rentigo.rentigobackend.rental.availability.BookingAdmission;
+import cc.martincao.rentigo.rentigobackend.rental.availability.RentalAvailabilityIndex;
+import cc.martincao.rentigo.rentigobackend.rental.dto.RentalRequestDTO;
+import cc.martincao.rentigo.rentigobackend.rental.exception.BookingConflictException;
+import cc.martincao.rentigo.rentigobackend.rental.repository.RentalRepository;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.repository.UserRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.index.VehicleAvailabilityCounters;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 并发预订压力测试：每次预订走独立事务（与生产中事务代理一致），测试本身不包事务，结束后手动清理
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RentalBookingConcurrencyTest {
+
+    private static final int REQUESTS = 500;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long BASE = System.currentTimeMillis() + 30 * DAY;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PricingRuleRepository pricingRuleRepository;
+
+    private PaymentService paymentService;
+    private TransactionTemplate transactionTemplate;
+    private Long userId;
+    private Long vehicleId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JpaFixtures fixtures = JpaFixtures.committed(entityManagerFactory);
+        userId = fixtures.user("renter").getId();
+        vehicleId = fixtures.vehicle(fixtures.type("SUV", 7), fixtures.location("Shanghai"), "Promo SUV", "White",
+                "99.00", VehicleStatus.AVAILABLE).getId();
+
+        paymentService = mock(PaymentService.class);
+        when(paymentService.createPendingPayment(any(), anyLong())).thenReturn(pendingPayment());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from rentals");
+        jdbcTemplate.update("delete from vehicle");
+        jdbcTemplate.update("delete from location");
+        jdbcTemplate.update("delete from vehicle_type");
+        jdbcTemplate.update("delete from user");
+    }
+
+    @Test
+    void burstOnSamePeriod_admitsExactlyOneBooking() throws Exception {
+        RentalServiceImpl service = newService(new RentalAvailabilityIndex(rentalRepository),
+                new BookingAdmission(16, Duration.ofMillis(200)));
+
+        List<Throwable> failures = fire(REQUESTS, i -> book(service, day(0), day(3)));
+
+        assertEquals(REQUESTS - 1, failures.size());
+        assertTrue(failures.stream().allMatch(BookingConflictException.class::isInstance),
+                "losers fail with a conflict: " + failures.stream().filter(f -> !(f instanceof BookingConflictException)).findFirst());
+        assertEquals(1, rentalCount());
+        assertEquals(1, vehicleVersion());
+    }
+
+    @Test
+    void burstOnDisjointPeriods_serializesWithoutLostUpdates() throws Exception {
+        // 等待上限放宽到足以让所有请求排完队，验证串行化后每笔预订都落库且版本号逐一递增
+        RentalServiceImpl service = newService(new RentalAvailabilityIndex(rentalRepository),
+                new BookingAdmission(16, Duration.ofMinutes(1)));
+
+        List<Throwable> failures = fire(REQUESTS, i -> book(service, day(2 * i), day(2 * i + 1)));
+
+        assertEquals(List.of(), failures);
+        assertEquals(REQUESTS, rentalCount());
+        assertEquals(REQUESTS, vehicleVersion());
+    }
+
+    @Test
+    void concurrentBookingsOnTwoInstances_onlyOneCommits() throws Exception {
+        // 两个"实例"各有自己的索引和准入锁，彼此看不到对方；两笔预订都写到待支付记录这一步后再一起提交
+        CyclicBarrier bothInFlight = new CyclicBarrier(2);
+        when(paymentService.createPendingPayment(any(), anyLong())).thenAnswer(invocation -> {
+            bothInFlight.await(10, TimeUnit.SECONDS);
+            return pendingPayment();
+        });
+        RentalServiceImpl nodeA = newService(new RentalAvailabilityIndex(rentalRepository),
+                new BookingAdmission(16, Duration.ofMillis(200)));
+        RentalServiceImpl nodeB = newService(new RentalAvailabilityIndex(rentalRepository),
+                new BookingAdmission(16, Duration.ofMillis(200)));
+
+        List<Throwable> failures = fire(2, i -> book(i == 0 ? nodeA : nodeB, day(0), day(3)));
+
+        assertEquals(1, failures.size());
+        assertInstanceOf(OptimisticLockingFailureException.class, failures.get(0),
+                "the second commit trips over the vehicle version");
+        assertEquals(1, rentalCount());
+        assertEquals(1, vehicleVersion());
+    }
+
+    private RentalServiceImpl newService(RentalAvailabilityIndex index, BookingAdmission admission) {
+        return new RentalServiceImpl(rentalRepository, vehicleRepository, userRepository, paymentService,
+                event -> { }, index, admission, new PricingRuleEngine(pricingRuleRepository, ZoneOffset.UTC, 400),
+                new UtilizationPricing(new VehicleAvailabilityCounters(vehicleRepository), false, Duration.ofHours(6), 0.3, 0.7,
+                        new BigDecimal("0.8"), new BigDecimal("1.3"), new BigDecimal("0.01")), 365);
+    }
+
+    private static PaymentResponseDTO pendingPayment() {
+        PaymentResponseDTO payment = new PaymentResponseDTO();
+        payment.setId(1L);
+        return payment;
+    }
+
+    private void book(RentalServiceImpl service, Date start, Date end) {
+        RentalRequestDTO request = new RentalRequestDTO();
+        request.setVehicleId(vehicleId);
+        request.setStartTime(start);
+        request.setEndTime(end);
+        transactionTemplate.executeWithoutResult(status -> service.createRental(request, userId));
+    }
+
+    /**
+     * 所有请求就绪后同时放行，返回失败的异常
+     */
+    private List<Throwable> fire(int requests, IntConsumer booking) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        CountDownLatch ready = new CountDownLatch(requests);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            int n = i;
+            futures.add(pool.submit(() -> {
+                ready.countDown();
+                go.await();
+                booking.accept(n);
+                return null;
+            }));
+        }
+        ready.await();
+        go.countDown();
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<?> future : futures) {
+            try {
+                future.get(2, TimeUnit.MINUTES);
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        pool.shutdown();
+        return failures;
+    }
+
+    private int rentalCount() {
+        return jdbcTemplate.queryForObject("select count(*) from rentals", Integer.class);
+    }
+
+    private int vehicleVersion() {
+        return jdbcTemplate.queryForObject("select version from vehicle where id = ?", Integer.class, vehicleId);
+    }
+
+    private static Date day(int offset) {
+        return new Date(BASE + offset * DAY);
+    }
+}
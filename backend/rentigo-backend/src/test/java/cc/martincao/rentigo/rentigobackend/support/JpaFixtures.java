@@ -0,0 +1,163 @@
+package cc.martincao.rentigo.rentigobackend.support;
+
+import cc.martincao.rentigo.rentigobackend.payment.model.Payment;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentStatus;
+import cc.martincao.rentigo.rentigobackend.payment.model.PaymentType;
+import cc.martincao.rentigo.rentigobackend.rental.model.Rental;
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * @DataJpaTest 共用的测试数据构造：只填必填列和测试关心的字段，其余取固定默认值
+ * <p>
+ * 默认写入测试事务（随测试回滚）；不在测试事务内运行的测试用 {@link #committed} 逐条提交，需自行清理。
+ */
+public class JpaFixtures {
+
+    private final Session session;
+
+    public JpaFixtures(TestEntityManager entityManager) {
+        this.session = new Session() {
+            @Override
+            public <T> T persist(T entity) {
+                return entityManager.persist(entity);
+            }
+
+            @Override
+            public void execute(Consumer<EntityManager> work) {
+                entityManager.flush();
+                work.accept(entityManager.getEntityManager());
+            }
+        };
+    }
+
+    private JpaFixtures(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * 每次写入在独立事务中提交，返回的实体已游离
+     */
+    public static JpaFixtures committed(EntityManagerFactory entityManagerFactory) {
+        return new JpaFixtures(new Session() {
+            @Override
+            public <T> T persist(T entity) {
+                execute(entityManager -> entityManager.persist(entity));
+                return entity;
+            }
+
+            @Override
+            public void execute(Consumer<EntityManager> work) {
+                EntityManager entityManager = entityManagerFactory.createEntityManager();
+                try {
+                    entityManager.getTransaction().begin();
+                    work.accept(entityManager);
+                    entityManager.getTransaction().commit();
+                } finally {
+                    if (entityManager.getTransaction().isActive()) {
+                        entityManager.getTransaction().rollback();
+                    }
+                    entityManager.close();
+                }
+            }
+        });
+    }
+
+    public User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        return session.persist(user);
+    }
+
+    public VehicleType type(String name) {
+        return type(name, 5);
+    }
+
+    public VehicleType type(String name, int seats) {
+        return type(name, seats, "500.00");
+    }
+
+    public VehicleType type(String name, int seats, String depositAmount) {
+        VehicleType type = new VehicleType();
+        type.setTypeName(name);
+        type.setSeats(seats);
+        type.setDepositAmount(new BigDecimal(depositAmount));
+        return session.persist(type);
+    }
+
+    public Location location(String city) {
+        Location location = new Location();
+        location.setCity(city);
+        location.setCenterName(city + " Center");
+        location.setAddress(city + " Road");
+        return session.persist(location);
+    }
+
+    public Vehicle vehicle(VehicleType type, Location location, String model, VehicleStatus status) {
+        return vehicle(type, location, model, "White", "200.00", status);
+    }
+
+    public Vehicle vehicle(VehicleType type, Location location, String model, String color, String dailyPrice,
+                           VehicleStatus status) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setModel(model);
+        vehicle.setVehicleType(type);
+        vehicle.setLocation(location);
+        vehicle.setColor(color);
+        vehicle.setDailyPrice(new BigDecimal(dailyPrice));
+        vehicle.setStatus(status);
+        return session.persist(vehicle);
+    }
+
+    public Rental rental(User user, Vehicle vehicle, Date startTime, Date endTime, RentalStatus status) {
+        Rental rental = new Rental();
+        rental.setUser(user);
+        rental.setVehicle(vehicle);
+        rental.setStartTime(startTime);
+        rental.setEndTime(endTime);
+        rental.setStatus(status);
+        rental.setTotalAmount(new BigDecimal("400.00"));
+        return session.persist(rental);
+    }
+
+    public Payment payment(Rental rental, PaymentType type, PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setRental(rental);
+        payment.setUser(rental.getUser());
+        payment.setAmount(new BigDecimal("500.00"));
+        payment.setPaymentType(type);
+        payment.setStatus(status);
+        return session.persist(payment);
+    }
+
+    /**
+     * created_at 由 @CreationTimestamp 写入，需要固定先后顺序的测试在插入后改写
+     */
+    public void setCreatedAt(Rental rental, Date createdAt) {
+        session.execute(entityManager -> entityManager
+                .createQuery("update Rental r set r.createdAt = :createdAt where r.id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", rental.getId())
+                .executeUpdate());
+    }
+
+    private interface Session {
+
+        <T> T persist(T entity);
+
+        void execute(Consumer<EntityManager> work);
+    }
+}
@@ -1,5 +1,6 @@
 package cc.martincao.rentigo.rentigobackend.user.service.impl;
 
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
 import cc.martincao.rentigo.rentigobackend.user.Role;
 import cc.martincao.rentigo.rentigobackend.user.User;
 import cc.martincao.rentigo.rentigobackend.user.dto.LoginRequest;
@@ -32,7 +33,6 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageRequest;
 
-import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -71,6 +71,9 @@ class UserServiceImplTest {
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private ReferenceDataRegistry referenceData;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -117,8 +120,8 @@ class UserServiceImplTest {
         when(userRepository.existsByUsername(anyString())).thenReturn(false);
         when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
-        // Mock getReferenceById as it's used in the implementation
-        when(roleRepository.getReferenceById(eq(1))).thenReturn(userRole); 
+        // 默认角色取自参考数据快照
+        when(referenceData.findRole("ROLE_USER")).thenReturn(Optional.of(userRole));
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(modelMapper.map(any(User.class), eq(UserResponse.class))).thenReturn(userResponse);
 
@@ -134,8 +137,8 @@ class UserServiceImplTest {
         verify(userRepository).existsByUsername("testuser");
         verify(userRepository).existsByEmail("test@example.com");
         verify(passwordEncoder).encode("password123");
-        // Verify getReferenceById was called
-        verify(roleRepository).getReferenceById(eq(1)); 
+        verify(referenceData).findRole("ROLE_USER");
+        verify(roleRepository, never()).getReferenceById(anyInt());
         verify(userRepository).save(any(User.class));
         verify(modelMapper).map(user, UserResponse.class);
     }
@@ -153,7 +156,7 @@ class UserServiceImplTest {
         verify(userRepository).existsByUsername("testuser");
         verify(userRepository, never()).existsByEmail(anyString());
         verify(passwordEncoder, never()).encode(anyString());
-        verify(roleRepository, never()).getReferenceById(anyInt());
+        verify(referenceData, never()).findRole(anyString());
         verify(userRepository, never()).save(any(User.class));
         verify(modelMapper, never()).map(any(), any());
     }
@@ -172,7 +175,7 @@ class UserServiceImplTest {
         verify(userRepository).existsByUsername("testuser");
         verify(userRepository).existsByEmail("test@example.com");
         verify(passwordEncoder, never()).encode(anyString());
-        verify(roleRepository, never()).getReferenceById(anyInt());
+        verify(referenceData, never()).findRole(anyString());
         verify(userRepository, never()).save(any(User.class));
         verify(modelMapper, never()).map(any(), any());
     }
@@ -187,19 +190,17 @@ class UserServiceImplTest {
         when(userRepository.existsByUsername(anyString())).thenReturn(false);
         when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
-        // Use eq(1) for precise argument matching and simulate RoleNotFoundException via EntityNotFoundException
-        when(roleRepository.getReferenceById(eq(1)))
-                .thenThrow(new EntityNotFoundException("Simulated ENE for default role not found"));
+        when(referenceData.findRole("ROLE_USER")).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(RoleNotFoundException.class, () -> {
             userService.register(request); // Use the local request object
         });
 
-        assertEquals("角色未找到: 1", exception.getMessage());
+        assertEquals("Default user role not found.", exception.getMessage());
         verify(userRepository).existsByUsername("testUser"); // Verify with local request's username
         verify(userRepository).existsByEmail("test@example.com"); // Verify with local request's email
         verify(passwordEncoder).encode("password"); // Verify with local request's password
-        verify(roleRepository).getReferenceById(1);
+        verify(referenceData).findRole("ROLE_USER");
         verify(userRepository, never()).save(any(User.class));
         verify(modelMapper, never()).map(any(), any());
     }
@@ -380,8 +381,7 @@ class UserServiceImplTest {
         when(userRepository.existsByUsername(request.getUsername())).thenReturn(false);
         when(userRepository.existsByEmail(request.getEmail())).thenReturn(false);
         when(passwordEncoder.encode(request.getPassword())).thenReturn("encodedPassword");
-        // Use eq(1) for precise argument matching
-        when(roleRepository.getReferenceById(eq(1))).thenReturn(defaultRole); 
+        when(referenceData.findRole("ROLE_USER")).thenReturn(Optional.of(defaultRole));
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
             User u = invocation.getArgument(0);
             u.setId(1L); 
@@ -399,7 +399,7 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).existsByUsername("newUser");
         verify(userRepository, times(1)).existsByEmail("new@example.com");
         verify(passwordEncoder, times(1)).encode("password123");
-        verify(roleRepository, times(1)).getReferenceById(1);
+        verify(referenceData, times(1)).findRole("ROLE_USER");
         verify(userRepository, times(1)).save(any(User.class));
         verify(modelMapper, times(1)).map(any(User.class), eq(UserResponse.class));
     }
@@ -420,7 +420,7 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).existsByUsername("existingUser");
         verify(userRepository, never()).existsByEmail(anyString());
         verify(passwordEncoder, never()).encode(anyString());
-        verify(roleRepository, never()).getReferenceById(anyInt());
+        verify(referenceData, never()).findRole(anyString());
         verify(userRepository, never()).save(any(User.class));
         verify(modelMapper, never()).map(any(), any());
     }
@@ -442,7 +442,7 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).existsByUsername("newUser");
         verify(userRepository, times(1)).existsByEmail("existing@example.com");
         verify(passwordEncoder, never()).encode(anyString());
-        verify(roleRepository, never()).getReferenceById(anyInt());
+        verify(referenceData, never()).findRole(anyString());
         verify(userRepository, never()).save(any(User.class));
         verify(modelMapper, never()).map(any(), any());
     }
@@ -0,0 +1,111 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.cache;
+
+import cc.martincao.rentigo.rentigobackend.config.CacheConfig;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleCatalogCacheTest {
+
+    private Cache cache;
+    private VehicleCatalogCache vehicleCatalogCache;
+    private VehicleCatalogVersion catalogVersion;
+
+    @BeforeEach
+    void setUp() {
+        CacheManager cacheManager = new CacheConfig().cacheManager(100, Duration.ofMinutes(10));
+        cache = cacheManager.getCache(VehicleCatalogCache.CACHE_NAME);
+        catalogVersion = new VehicleCatalogVersion();
+        vehicleCatalogCache = new VehicleCatalogCache(cacheManager, catalogVersion);
+
+        cache.put(1, List.of());
+        cache.put(2, List.of());
+        cache.put(3, List.of());
+        cache.put(VehicleCatalogCache.ALL_KEY, List.of());
+    }
+
+    @Test
+    void onVehicleChanged_evictsOnlyAffectedLocationAndAll() {
+        vehicleCatalogCache.onVehicleChanged(VehicleChangedEvent.updated(vehicle(1), vehicle(1)));
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(VehicleCatalogCache.ALL_KEY));
+        assertNotNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void onVehicleChanged_relocationEvictsBothLocations() {
+        vehicleCatalogCache.onVehicleChanged(VehicleChangedEvent.updated(vehicle(1), vehicle(2)));
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void onVehiclesBulkChanged_evictsListedLocationsAndAll() {
+        vehicleCatalogCache.onVehiclesBulkChanged(new VehiclesBulkChangedEvent(Set.of(1, 3), 5));
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(3));
+        assertNull(cache.get(VehicleCatalogCache.ALL_KEY));
+        assertNotNull(cache.get(2));
+    }
+
+    @Test
+    void onVehicleChanged_bumpsVersionOfAffectedLocationsOnly() {
+        String location1 = catalogVersion.etag(1);
+        String location2 = catalogVersion.etag(2);
+        String all = catalogVersion.etag(null);
+
+        vehicleCatalogCache.onVehicleChanged(VehicleChangedEvent.updated(vehicle(1), vehicle(1)));
+
+        assertNotEquals(location1, catalogVersion.etag(1));
+        assertEquals(location2, catalogVersion.etag(2));
+        assertNotEquals(all, catalogVersion.etag(null));
+    }
+
+    @Test
+    void onReferenceDataRefreshed_clearsCacheAndBumpsEveryLocation() {
+        vehicleCatalogCache.onVehicleChanged(VehicleChangedEvent.updated(vehicle(1), vehicle(1)));
+        String location1 = catalogVersion.etag(1);
+        String location2 = catalogVersion.etag(2);
+        String all = catalogVersion.etag(null);
+
+        // 车型名称、押金变了，所有地点的缓存和 ETag 都不能再用
+        vehicleCatalogCache.onReferenceDataRefreshed();
+
+        assertNull(cache.get(2));
+        assertNull(cache.get(3));
+        assertNotEquals(location1, catalogVersion.etag(1));
+        assertNotEquals(location2, catalogVersion.etag(2));
+        assertNotEquals(all, catalogVersion.etag(null));
+    }
+
+    @Test
+    void stats_recordsHitsAndMisses() {
+        cache.get(1);
+        cache.get(99);
+
+        assertEquals(1L, vehicleCatalogCache.stats().get("hitCount"));
+        assertEquals(1L, vehicleCatalogCache.stats().get("missCount"));
+    }
+
+    private VehicleDTO vehicle(Integer locationId) {
+        VehicleDTO dto = new VehicleDTO();
+        dto.setId(10L);
+        dto.setLocationId(locationId);
+        return dto;
+    }
+}
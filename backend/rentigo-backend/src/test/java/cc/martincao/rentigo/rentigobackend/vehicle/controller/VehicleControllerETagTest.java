@@ -0,0 +1,80 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.controller;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.cache.VehicleCatalogVersion;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.service.VehicleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class VehicleControllerETagTest {
+
+    private VehicleService vehicleService;
+    private VehicleCatalogVersion catalogVersion;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        vehicleService = mock(VehicleService.class);
+        catalogVersion = new VehicleCatalogVersion();
+        VehicleDTO vehicle = new VehicleDTO();
+        vehicle.setId(1L);
+        vehicle.setLocationId(1);
+        when(vehicleService.listVehicles(1)).thenReturn(List.of(vehicle));
+        when(vehicleService.listAllVehicles()).thenReturn(List.of(vehicle));
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new VehicleController(vehicleService, null, null, null, catalogVersion, null, null)).build();
+    }
+
+    @Test
+    void list_returnsNotModifiedWithoutLoadingWhenETagIsCurrent() throws Exception {
+        String etag = mockMvc.perform(get("/api/vehicle/list").param("locationId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/vehicle/list").param("locationId", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(vehicleService, times(1)).listVehicles(1);
+    }
+
+    @Test
+    void list_returnsFreshBodyAfterCatalogChange() throws Exception {
+        String etag = mockMvc.perform(get("/api/vehicle/list"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        catalogVersion.bump(Set.of(2));
+
+        String newEtag = mockMvc.perform(get("/api/vehicle/list").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+        verify(vehicleService, times(2)).listAllVehicles();
+    }
+
+    @Test
+    void list_changeElsewhereKeepsLocationETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/vehicle/list").param("locationId", "1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        catalogVersion.bump(Set.of(2));
+
+        assertEquals(etag, catalogVersion.etag(1));
+        mockMvc.perform(get("/api/vehicle/list").param("locationId", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+}
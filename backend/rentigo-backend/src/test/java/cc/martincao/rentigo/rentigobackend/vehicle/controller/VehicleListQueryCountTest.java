@@ -0,0 +1,107 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.controller;
+
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.vehicle.cache.VehicleCatalogVersion;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.service.impl.VehicleServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /api/vehicle/list 的读路径只应发出一条 SQL（车辆 join 车型的 DTO 投影），不随车型/地点数量增加查询
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class VehicleListQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    private JpaFixtures fixtures;
+    private VehicleController controller;
+    private Statistics statistics;
+    private Location beijing;
+
+    @BeforeEach
+    void setUp() {
+        // 服务直接构造，不经过缓存代理，保证每次调用都真正访问数据库
+        VehicleServiceImpl vehicleService = new VehicleServiceImpl(vehicleRepository, null,
+                event -> { }, null, null);
+        controller = new VehicleController(vehicleService, null, null, null, new VehicleCatalogVersion(), null, null);
+
+        fixtures = new JpaFixtures(entityManager);
+        VehicleType sedan = fixtures.type("Sedan");
+        VehicleType suv = fixtures.type("SUV");
+        VehicleType truck = fixtures.type("Truck");
+        beijing = fixtures.location("Beijing");
+        Location shanghai = fixtures.location("Shanghai");
+        Location guangzhou = fixtures.location("Guangzhou");
+        persistVehicle(sedan, beijing, VehicleStatus.AVAILABLE);
+        persistVehicle(suv, beijing, VehicleStatus.AVAILABLE);
+        persistVehicle(truck, beijing, VehicleStatus.RENTED);
+        persistVehicle(suv, shanghai, VehicleStatus.AVAILABLE);
+        persistVehicle(truck, guangzhou, VehicleStatus.AVAILABLE);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listAll_runsSingleStatement() {
+        List<VehicleDTO> vehicles = controller.listVehicles(null, webRequest()).getBody();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertNotNull(vehicles);
+        assertEquals(5, vehicles.size());
+        assertTrue(vehicles.stream().allMatch(v -> v.getVehicleTypeName() != null && v.getLocationId() != null));
+    }
+
+    @Test
+    void listByLocation_runsSingleStatement() {
+        List<VehicleDTO> vehicles = controller.listVehicles(beijing.getId(), webRequest()).getBody();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertNotNull(vehicles);
+        assertEquals(List.of("Sedan", "SUV"), vehicles.stream().map(VehicleDTO::getVehicleTypeName).toList());
+        assertEquals(0, new BigDecimal("500.00").compareTo(vehicles.get(0).getDepositAmount()));
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    private void persistVehicle(VehicleType type, Location location, VehicleStatus status) {
+        fixtures.vehicle(type, location, type.getTypeName() + " model", status);
+    }
+}
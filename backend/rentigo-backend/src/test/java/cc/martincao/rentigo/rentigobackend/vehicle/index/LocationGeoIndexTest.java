@@ -0,0 +1,94 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.index;
+
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.reference.dto.LocationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocationGeoIndexTest {
+
+    @Test
+    void within_matchesBruteForceScan() {
+        Random random = new Random(7);
+        List<LocationDTO> locations = new ArrayList<>();
+        for (int i = 1; i <= 5_000; i++) {
+            locations.add(location(i, 18 + random.nextDouble() * 30, 98 + random.nextDouble() * 30));
+        }
+        LocationGeoIndex index = index(locations);
+
+        for (int q = 0; q < 200; q++) {
+            double lat = 18 + random.nextDouble() * 30;
+            double lng = 98 + random.nextDouble() * 30;
+            double radiusKm = 1 + random.nextDouble() * 150;
+
+            List<Integer> expected = locations.stream()
+                    .filter(l -> LocationGeoIndex.distanceKm(lat, lng, l.getLat().doubleValue(), l.getLng().doubleValue()) <= radiusKm)
+                    .sorted((a, b) -> Double.compare(
+                            LocationGeoIndex.distanceKm(lat, lng, a.getLat().doubleValue(), a.getLng().doubleValue()),
+                            LocationGeoIndex.distanceKm(lat, lng, b.getLat().doubleValue(), b.getLng().doubleValue())))
+                    .map(LocationDTO::getId)
+                    .collect(Collectors.toList());
+            assertEquals(expected, ids(index.within(lat, lng, radiusKm)));
+        }
+    }
+
+    @Test
+    void within_handlesAntimeridianAndSkipsLocationsWithoutCoordinates() {
+        LocationDTO unlocated = new LocationDTO();
+        unlocated.setId(3);
+        LocationGeoIndex index = index(List.of(location(1, 0, 179.95), location(2, 0, -179.95), unlocated));
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(1, 2), ids(index.within(0, 179.99, 20)));
+    }
+
+    @Test
+    void distanceKm_beijingToShanghai() {
+        double distance = LocationGeoIndex.distanceKm(39.9042, 116.4074, 31.2304, 121.4737);
+        assertEquals(1067, distance, 5);
+    }
+
+    @Test
+    void rebuild_followsTheReferenceDataSnapshot() {
+        ReferenceDataRegistry referenceData = mock(ReferenceDataRegistry.class);
+        when(referenceData.locations()).thenReturn(List.of(location(1, 31.2, 121.4)));
+        LocationGeoIndex index = new LocationGeoIndex(referenceData, 0.1);
+        index.rebuild();
+
+        // 管理员新增网点并刷新参考数据
+        when(referenceData.locations()).thenReturn(List.of(location(1, 31.2, 121.4), location(2, 31.21, 121.41)));
+        index.rebuild();
+
+        assertEquals(List.of(1, 2), ids(index.within(31.2, 121.4, 5)));
+    }
+
+    private static LocationGeoIndex index(List<LocationDTO> locations) {
+        ReferenceDataRegistry referenceData = mock(ReferenceDataRegistry.class);
+        when(referenceData.locations()).thenReturn(locations);
+        LocationGeoIndex index = new LocationGeoIndex(referenceData, 0.1);
+        index.rebuild();
+        return index;
+    }
+
+    private static List<Integer> ids(List<LocationGeoIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.location().getId()).collect(Collectors.toList());
+    }
+
+    private static LocationDTO location(int id, double lat, double lng) {
+        LocationDTO location = new LocationDTO();
+        location.setId(id);
+        location.setCity("City " + id);
+        location.setLat(BigDecimal.valueOf(lat));
+        location.setLng(BigDecimal.valueOf(lng));
+        return location;
+    }
+}
@@ -0,0 +1,120 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.index;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.LocationAvailabilityDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleStatusCount;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VehicleAvailabilityCountersTest {
+
+    private VehicleRepository vehicleRepository;
+    private VehicleAvailabilityCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = mock(VehicleRepository.class);
+        when(vehicleRepository.countByLocationTypeAndStatus()).thenReturn(List.of(
+                new VehicleStatusCount(10, (byte) 1, VehicleStatus.AVAILABLE, 3L),
+                new VehicleStatusCount(10, (byte) 2, VehicleStatus.AVAILABLE, 2L),
+                new VehicleStatusCount(10, (byte) 2, VehicleStatus.RENTED, 1L),
+                new VehicleStatusCount(20, (byte) 1, VehicleStatus.AVAILABLE, 4L)));
+        counters = new VehicleAvailabilityCounters(vehicleRepository);
+        counters.reconcile();
+    }
+
+    @Test
+    void summary_groupsByLocationWithTypeBreakdown() {
+        List<LocationAvailabilityDTO> summary = counters.summary(VehicleStatus.AVAILABLE);
+
+        assertEquals(2, summary.size());
+        assertEquals(10, summary.get(0).getLocationId());
+        assertEquals(5, summary.get(0).getTotal());
+        assertEquals(Map.of((byte) 1, 3L, (byte) 2, 2L), summary.get(0).getByVehicleType());
+        assertEquals(4, summary.get(1).getTotal());
+    }
+
+    @Test
+    void onVehicleChanged_movesOneVehicleBetweenCounters() {
+        String etag = counters.etag();
+
+        counters.onVehicleChanged(VehicleChangedEvent.updated(
+                vehicle(10, (byte) 2, VehicleStatus.AVAILABLE), vehicle(10, (byte) 2, VehicleStatus.RENTED)));
+        counters.onVehicleChanged(VehicleChangedEvent.updated(
+                vehicle(10, (byte) 1, VehicleStatus.AVAILABLE), vehicle(30, (byte) 1, VehicleStatus.AVAILABLE)));
+        counters.onVehicleChanged(VehicleChangedEvent.removed(vehicle(20, (byte) 1, VehicleStatus.AVAILABLE)));
+
+        assertEquals(1, counters.count(10, (byte) 2, VehicleStatus.AVAILABLE));
+        assertEquals(2, counters.count(10, (byte) 2, VehicleStatus.RENTED));
+        assertEquals(2, counters.count(10, (byte) 1, VehicleStatus.AVAILABLE));
+        assertEquals(1, counters.count(30, (byte) 1, VehicleStatus.AVAILABLE));
+        assertEquals(3, counters.count(20, (byte) 1, VehicleStatus.AVAILABLE));
+        assertNotEquals(etag, counters.etag());
+    }
+
+    @Test
+    void concurrentTransitions_areNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            boolean rent = i % 2 == 0;
+            executor.execute(() -> counters.onVehicleChanged(VehicleChangedEvent.updated(
+                    vehicle(20, (byte) 1, rent ? VehicleStatus.AVAILABLE : VehicleStatus.RENTED),
+                    vehicle(20, (byte) 1, rent ? VehicleStatus.RENTED : VehicleStatus.AVAILABLE))));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(4, counters.count(20, (byte) 1, VehicleStatus.AVAILABLE));
+        assertEquals(0, counters.count(20, (byte) 1, VehicleStatus.RENTED));
+    }
+
+    @Test
+    void reconcile_correctsDriftFromDatabase() {
+        counters.onVehicleChanged(VehicleChangedEvent.added(vehicle(10, (byte) 1, VehicleStatus.AVAILABLE)));
+
+        assertEquals(1, counters.reconcile());
+        assertEquals(3, counters.count(10, (byte) 1, VehicleStatus.AVAILABLE));
+        assertEquals(0, counters.reconcile());
+    }
+
+    @Test
+    void deltaCommittedBeforeReconcile_isNotCountedTwice() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            counters.onVehicleChanged(VehicleChangedEvent.updated(
+                    vehicle(20, (byte) 1, VehicleStatus.AVAILABLE), vehicle(20, (byte) 1, VehicleStatus.RENTED)));
+            // 变更已提交，监听器执行前先跑了一次对账，结果已包含这次出租
+            when(vehicleRepository.countByLocationTypeAndStatus()).thenReturn(List.of(
+                    new VehicleStatusCount(20, (byte) 1, VehicleStatus.AVAILABLE, 3L),
+                    new VehicleStatusCount(20, (byte) 1, VehicleStatus.RENTED, 1L)));
+            counters.reconcile();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(3, counters.count(20, (byte) 1, VehicleStatus.AVAILABLE));
+        assertEquals(1, counters.count(20, (byte) 1, VehicleStatus.RENTED));
+    }
+
+    private static VehicleDTO vehicle(Integer locationId, Byte typeId, VehicleStatus status) {
+        return new VehicleDTO(1L, "Model", typeId, "Type", BigDecimal.valueOf(500),
+                locationId, "White", BigDecimal.valueOf(200), status, null);
+    }
+}
@@ -0,0 +1,289 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.index;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.FacetCount;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleFacetQuery;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleFacetResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class VehicleFacetIndexTest {
+
+    // 模拟已提交的车辆表：监听器按 id 回读
+    private final Map<Long, VehicleDTO> rows = new ConcurrentHashMap<>();
+    // 全量扫描时执行的钩子，用于在扫描期间插入并发变更
+    private final AtomicReference<Runnable> duringScan = new AtomicReference<>(() -> { });
+    private final AtomicInteger fullScans = new AtomicInteger();
+    private VehicleRepository vehicleRepository;
+    private VehicleFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Stream.of(
+                vehicle(1L, 1, "Sedan", 10, "White", "199.00", VehicleStatus.AVAILABLE),
+                vehicle(2L, 1, "Sedan", 10, "Black", "250.00", VehicleStatus.AVAILABLE),
+                vehicle(3L, 2, "SUV", 10, "white", "320.00", VehicleStatus.AVAILABLE),
+                vehicle(4L, 2, "SUV", 20, "Red", "300.00", VehicleStatus.RENTED),
+                vehicle(5L, 2, "SUV", 20, "White", "410.00", VehicleStatus.AVAILABLE))
+                .map(VehicleDTO::fromEntity)
+                .forEach(dto -> rows.put(dto.getId(), dto));
+        vehicleRepository = mock(VehicleRepository.class, withSettings().stubOnly());
+        when(vehicleRepository.findAllDtos()).thenAnswer(invocation -> {
+            fullScans.incrementAndGet();
+            List<VehicleDTO> snapshot = rows.values().stream()
+                    .sorted(Comparator.comparing(VehicleDTO::getId))
+                    .toList();
+            duringScan.getAndSet(() -> { }).run();
+            return snapshot;
+        });
+        when(vehicleRepository.findDtoById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<Long>getArgument(0))));
+        when(vehicleRepository.findDtosByIds(anyCollection()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).stream()
+                        .map(rows::get)
+                        .filter(Objects::nonNull)
+                        .toList());
+        index = new VehicleFacetIndex(vehicleRepository, 100);
+        index.rebuild();
+    }
+
+    @Test
+    void search_intersectsFiltersAndOrdersByPrice() {
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setStatus(VehicleStatus.AVAILABLE);
+        query.setColor(" WHITE ");
+
+        VehicleFacetResult result = index.search(query);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(List.of(1L, 3L, 5L), ids(result));
+    }
+
+    @Test
+    void search_priceRangeIsExactWithinBuckets() {
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setMinPrice(new BigDecimal("250.00"));
+        query.setMaxPrice(new BigDecimal("319.99"));
+
+        assertEquals(List.of(2L, 4L), ids(index.search(query)));
+    }
+
+    @Test
+    void search_facetCountsIgnoreTheirOwnFilter() {
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setStatus(VehicleStatus.AVAILABLE);
+        query.setVehicleTypeId((byte) 2);
+
+        VehicleFacetResult result = index.search(query);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(Map.of("Sedan", 2, "SUV", 2), counts(result.getFacets().get(VehicleFacetIndex.FACET_VEHICLE_TYPE)));
+        assertEquals(Map.of("AVAILABLE", 2, "RENTED", 1), counts(result.getFacets().get(VehicleFacetIndex.FACET_STATUS)));
+        assertEquals(Map.of("300-400", 1, "400-500", 1), counts(result.getFacets().get(VehicleFacetIndex.FACET_PRICE)));
+    }
+
+    @Test
+    void onVehicleChanged_movesVehicleBetweenFacets() {
+        VehicleDTO before = VehicleDTO.fromEntity(vehicle(4L, 2, "SUV", 20, "Red", "300.00", VehicleStatus.RENTED));
+        VehicleDTO after = VehicleDTO.fromEntity(vehicle(4L, 2, "SUV", 10, "Red", "300.00", VehicleStatus.AVAILABLE));
+        rows.put(4L, after);
+        index.onVehicleChanged(VehicleChangedEvent.updated(before, after));
+        index.onVehicleChanged(VehicleChangedEvent.removed(rows.remove(1L)));
+
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setLocationId(10);
+        query.setStatus(VehicleStatus.AVAILABLE);
+
+        assertEquals(List.of(2L, 4L, 3L), ids(index.search(query)));
+        assertEquals(4, index.size());
+        assertEquals(Map.of(10, 3, 20, 1), index.availableCounts(List.of(10, 20, 30)));
+    }
+
+    @Test
+    void onVehicleChanged_lateEventsDoNotRestoreStaleSnapshots() {
+        VehicleDTO rented = rows.get(4L);
+        VehicleDTO moved = VehicleDTO.fromEntity(vehicle(4L, 2, "SUV", 10, "Red", "300.00", VehicleStatus.AVAILABLE));
+        VehicleDTO maintenance = VehicleDTO.fromEntity(vehicle(4L, 2, "SUV", 10, "Red", "300.00", VehicleStatus.MAINTENANCE));
+        // 两次变更依次提交，但后提交的监听器先执行
+        rows.put(4L, maintenance);
+        index.onVehicleChanged(VehicleChangedEvent.updated(moved, maintenance));
+        index.onVehicleChanged(VehicleChangedEvent.updated(rented, moved));
+        // 删除已提交并已重建，修改 2 号车的事件才到达
+        VehicleDTO repriced = rows.remove(2L);
+        index.rebuild();
+        index.onVehicleChanged(VehicleChangedEvent.updated(repriced, repriced));
+
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setStatus(VehicleStatus.MAINTENANCE);
+        assertEquals(List.of(4L), ids(index.search(query)));
+        assertEquals(4, index.size());
+        assertEquals(Map.of(10, 2, 20, 1), index.availableCounts(List.of(10, 20)));
+    }
+
+    @Test
+    void onVehicleChanged_readsTheRowWithoutBlockingSearches() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(vehicleRepository.findDtoById(4L)).thenAnswer(invocation -> {
+            reading.countDown();
+            release.await();
+            return Optional.of(rows.get(4L));
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> change = executor.submit(() -> index.onVehicleChanged(
+                    VehicleChangedEvent.updated(rows.get(4L), rows.get(4L))));
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            // 回读还没返回，查询照常完成
+            assertEquals(5, index.search(new VehicleFacetQuery()).getTotal());
+            assertEquals(Map.of(10, 3, 20, 1), index.availableCounts(List.of(10, 20)));
+
+            release.countDown();
+            change.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rebuild_keepsChangesAppliedWhileScanning() {
+        VehicleDTO rented = rows.get(4L);
+        VehicleDTO available = VehicleDTO.fromEntity(vehicle(4L, 2, "SUV", 20, "Red", "300.00", VehicleStatus.AVAILABLE));
+        // 全量扫描已读完旧行，此时 4 号车的变更提交并先于重建应用
+        duringScan.set(() -> {
+            rows.put(4L, available);
+            index.onVehicleChanged(VehicleChangedEvent.updated(rented, available));
+        });
+
+        index.rebuild();
+
+        VehicleFacetQuery query = new VehicleFacetQuery();
+        query.setStatus(VehicleStatus.RENTED);
+        assertEquals(0, index.search(query).getTotal());
+        assertEquals(Map.of(10, 3, 20, 2), index.availableCounts(List.of(10, 20)));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void onVehiclesBulkChanged_rereadsOnlyTrackedVehicles() {
+        int scans = fullScans.get();
+        VehicleDTO repriced = VehicleDTO.fromEntity(vehicle(2L, 1, "Sedan", 10, "Black", "150.00", VehicleStatus.AVAILABLE));
+        VehicleDTO imported = VehicleDTO.fromEntity(vehicle(6L, 1, "Sedan", 20, "Green", "120.00", VehicleStatus.AVAILABLE));
+        rows.put(2L, repriced);
+        rows.put(6L, imported);
+        rows.remove(5L);
+
+        index.onVehiclesBulkChanged(new VehiclesBulkChangedEvent(Set.of(10, 20), Set.of(2L, 5L, 6L), 3));
+
+        assertEquals(scans, fullScans.get());
+        assertEquals(List.of(6L, 2L, 1L, 4L, 3L), ids(index.search(new VehicleFacetQuery())));
+
+        // 未逐辆记录时整体重建
+        index.onVehiclesBulkChanged(new VehiclesBulkChangedEvent(Set.of(10), 2_000));
+        assertEquals(scans + 1, fullScans.get());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void concurrentUpdates_keepFacetsConsistent() throws Exception {
+        int writers = 4;
+        int updatesPerWriter = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        List<Future<?>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int w = 0; w < writers; w++) {
+            long vehicleId = 100L + w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                VehicleDTO previous = null;
+                for (int i = 0; i < updatesPerWriter; i++) {
+                    VehicleDTO current = VehicleDTO.fromEntity(vehicle(vehicleId, 1 + i % 2, i % 2 == 0 ? "Sedan" : "SUV",
+                            10 + i % 3, "Blue", String.valueOf(100 + i % 400), VehicleStatus.values()[i % 4]));
+                    rows.put(vehicleId, current);
+                    index.onVehicleChanged(new VehicleChangedEvent(previous, current));
+                    previous = current;
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < updatesPerWriter; i++) {
+                    VehicleFacetResult result = index.search(new VehicleFacetQuery());
+                    int byStatus = result.getFacets().get(VehicleFacetIndex.FACET_STATUS).stream()
+                            .mapToInt(FacetCount::getCount).sum();
+                    assertEquals(result.getTotal(), byStatus);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(5 + writers, index.size());
+        VehicleFacetQuery blue = new VehicleFacetQuery();
+        blue.setColor("blue");
+        assertEquals(writers, index.search(blue).getTotal());
+    }
+
+    private static List<Long> ids(VehicleFacetResult result) {
+        return result.getItems().stream().map(VehicleDTO::getId).collect(Collectors.toList());
+    }
+
+    private static Map<String, Integer> counts(List<FacetCount> facet) {
+        return facet.stream().collect(Collectors.toMap(FacetCount::getLabel, FacetCount::getCount));
+    }
+
+    private static Vehicle vehicle(Long id, int typeId, String typeName, int locationId,
+                                   String color, String price, VehicleStatus status) {
+        VehicleType type = new VehicleType();
+        type.setId((byte) typeId);
+        type.setTypeName(typeName);
+        Location location = new Location();
+        location.setId(locationId);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setModel("Model " + id);
+        vehicle.setVehicleType(type);
+        vehicle.setLocation(location);
+        vehicle.setColor(color);
+        vehicle.setDailyPrice(new BigDecimal(price));
+        vehicle.setStatus(status);
+        return vehicle;
+    }
+}
@@ -0,0 +1,163 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.repository;
+
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleKeyset;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按时间段找车基准：2 万辆车、100 万条历史租赁上的反连接搜索延迟（p50 / p99）
+ * <p>
+ * 默认跳过，手动运行：
+ * {@code ./mvnw test -Dtest=VehicleAvailabilitySearchBenchmark -Dbenchmark=true}
+ * <p>
+ * H2 与 MySQL 的执行计划不同，结果用于比较改动前后的相对变化；索引与 init_db.sql 保持一致。
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VehicleAvailabilitySearchBenchmark {
+
+    private static final int FLEET_SIZE = 20_000;
+    private static final int RENTALS_PER_VEHICLE = 50;
+    private static final int LOCATIONS = 50;
+    private static final int TYPES = 11;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2_000;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = System.currentTimeMillis();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void seed() {
+        for (int t = 1; t <= TYPES; t++) {
+            jdbcTemplate.update("insert into vehicle_type (id, type_name, seats, deposit_amount, created_at, updated_at) "
+                    + "values (?, ?, ?, 500.00, current_timestamp, current_timestamp)", t, "Type " + t, 2 + t % 7);
+        }
+        for (int l = 1; l <= LOCATIONS; l++) {
+            jdbcTemplate.update("insert into location (id, city, center_name, address, created_at, updated_at) "
+                    + "values (?, ?, ?, 'n/a', current_timestamp, current_timestamp)", l, "City " + (l % 20), "Center " + l);
+        }
+        jdbcTemplate.update("insert into user (id, username, email, password_hash, status) "
+                + "values (1, 'bench', 'bench@example.com', 'hash', 0)");
+
+        List<Object[]> vehicles = new ArrayList<>(FLEET_SIZE);
+        for (int i = 1; i <= FLEET_SIZE; i++) {
+            vehicles.add(new Object[]{
+                    i,
+                    "Model " + (i % 300),
+                    1 + random.nextInt(TYPES),
+                    1 + random.nextInt(LOCATIONS),
+                    BigDecimal.valueOf(80 + random.nextInt(920)),
+                    random.nextInt(10) < 8 ? 0 : 1 + random.nextInt(3)
+            });
+        }
+        jdbcTemplate.batchUpdate("insert into vehicle (id, model, vehicle_type_id, location_id, color, daily_price, status, "
+                + "created_at, updated_at) values (?, ?, ?, ?, 'White', ?, ?, current_timestamp, current_timestamp)", vehicles);
+
+        // 每辆车一串首尾相接的租赁：约一年历史，最后几条落在未来的预订期内
+        String insertRental = "insert into rentals (user_id, vehicle_id, start_time, end_time, actual_return_time, status, "
+                + "total_amount, deposit_amount, deposit_status, overtime_amount, version, created_at, updated_at) "
+                + "values (1, ?, ?, ?, ?, ?, 400.00, 0, 0, 0, 0, current_timestamp, current_timestamp)";
+        List<Object[]> rentals = new ArrayList<>(BATCH_SIZE);
+        for (int v = 1; v <= FLEET_SIZE; v++) {
+            long start = NOW - 340 * DAY + random.nextInt(10) * DAY;
+            for (int r = 0; r < RENTALS_PER_VEHICLE; r++) {
+                long end = start + (1 + random.nextInt(7)) * DAY;
+                boolean past = end < NOW;
+                RentalStatus status = random.nextInt(20) == 0 ? RentalStatus.CANCELLED
+                        : past ? RentalStatus.FINISHED : RentalStatus.PAID;
+                rentals.add(new Object[]{
+                        v, new Timestamp(start), new Timestamp(end),
+                        past && status == RentalStatus.FINISHED ? new Timestamp(end) : null,
+                        status.ordinal()
+                });
+                if (rentals.size() == BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(insertRental, rentals);
+                    rentals.clear();
+                }
+                start = end + random.nextInt(8) * DAY;
+            }
+        }
+        jdbcTemplate.batchUpdate(insertRental, rentals);
+
+        // 与 init_db.sql 中的索引一致
+        jdbcTemplate.execute("create index idx_vehicle_loc_status_price on vehicle(location_id, status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_status_price on vehicle(status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_type_status_price on vehicle(vehicle_type_id, status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_loc_type_status_price on vehicle(location_id, vehicle_type_id, status, daily_price)");
+        jdbcTemplate.execute("create index idx_location_city on location(city)");
+        jdbcTemplate.execute("create index idx_rentals_vehicle_end on rentals(vehicle_id, end_time, start_time, actual_return_time, status)");
+        jdbcTemplate.execute("create index idx_rentals_vehicle_return on rentals(vehicle_id, actual_return_time, start_time, status)");
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void availabilitySearchLatency() {
+        for (int i = 0; i < WARMUP; i++) {
+            runRandomSearch();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            runRandomSearch();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[ITERATIONS / 2] / 1_000_000.0;
+        double p99 = nanos[(int) (ITERATIONS * 0.99)] / 1_000_000.0;
+        System.out.printf("Availability search over %,d vehicles / %,d rentals: p50=%.2f ms, p99=%.2f ms%n",
+                FLEET_SIZE, FLEET_SIZE * RENTALS_PER_VEHICLE, p50, p99);
+        assertTrue(p99 < 50, "p99 availability search latency regressed: " + p99 + " ms");
+    }
+
+    private void runRandomSearch() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        if (random.nextBoolean()) {
+            criteria.setLocationId(1 + random.nextInt(LOCATIONS));
+        } else {
+            criteria.setCity("City " + random.nextInt(20));
+        }
+        if (random.nextBoolean()) {
+            criteria.setVehicleTypeId((byte) (1 + random.nextInt(TYPES)));
+        }
+        long from = NOW + random.nextInt(60) * DAY;
+        criteria.setAvailableFrom(new Date(from));
+        criteria.setAvailableTo(new Date(from + (1 + random.nextInt(7)) * DAY));
+        vehicleRepository.findPage(criteria, VehicleKeyset.first(VehicleSortKey.PRICE, Sort.Direction.ASC), 21);
+        entityManager.clear();
+    }
+}
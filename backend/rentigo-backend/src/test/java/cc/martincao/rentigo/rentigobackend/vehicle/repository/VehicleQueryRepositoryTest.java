@@ -0,0 +1,224 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.repository;
+
+import cc.martincao.rentigo.rentigobackend.rental.model.RentalStatus;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.User;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleKeyset;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehiclePatch;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleStatusCount;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Location;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.Vehicle;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class VehicleQueryRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    private JpaFixtures fixtures;
+    private VehicleType sedan;
+    private VehicleType suv;
+    private Location beijing;
+    private Location shanghai;
+
+    @BeforeEach
+    void setUp() {
+        fixtures = new JpaFixtures(entityManager);
+        sedan = fixtures.type("Sedan", 5);
+        suv = fixtures.type("SUV", 7);
+        beijing = fixtures.location("Beijing");
+        shanghai = fixtures.location("Shanghai");
+
+        persistVehicle(sedan, beijing, "White", "200.00", VehicleStatus.AVAILABLE);
+        persistVehicle(suv, beijing, "Black", "300.00", VehicleStatus.AVAILABLE);
+        persistVehicle(suv, beijing, "White", "300.00", VehicleStatus.AVAILABLE);
+        persistVehicle(suv, shanghai, "White", "350.00", VehicleStatus.AVAILABLE);
+        persistVehicle(sedan, shanghai, "Red", "150.00", VehicleStatus.RENTED);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findPage_appliesAllCriteria() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setCity("Beijing");
+        criteria.setMinSeats(6);
+        criteria.setMinPrice(new BigDecimal("250"));
+        criteria.setMaxPrice(new BigDecimal("320"));
+        criteria.setColor("White");
+        criteria.setStatus(VehicleStatus.AVAILABLE);
+
+        List<VehicleDTO> result = vehicleRepository.findPage(criteria,
+                VehicleKeyset.first(VehicleSortKey.PRICE, Sort.Direction.ASC), 10);
+
+        assertEquals(1, result.size());
+        assertEquals("SUV", result.get(0).getVehicleTypeName());
+        assertEquals(suv.getId(), result.get(0).getVehicleTypeId());
+        assertEquals(0, new BigDecimal("500.00").compareTo(result.get(0).getDepositAmount()));
+        assertEquals(beijing.getId(), result.get(0).getLocationId());
+    }
+
+    @Test
+    void findPage_walksPriceKeysetWithoutGapsOrDuplicates() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        List<BigDecimal> prices = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+
+        VehicleKeyset keyset = VehicleKeyset.first(VehicleSortKey.PRICE, Sort.Direction.DESC);
+        while (true) {
+            List<VehicleDTO> page = vehicleRepository.findPage(criteria, keyset, 2);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(v -> {
+                prices.add(v.getDailyPrice());
+                ids.add(v.getId());
+            });
+            VehicleDTO last = page.get(page.size() - 1);
+            keyset = new VehicleKeyset(VehicleSortKey.PRICE, Sort.Direction.DESC, last.getDailyPrice(), last.getId());
+        }
+
+        assertEquals(5, ids.size());
+        assertEquals(5, ids.stream().distinct().count());
+        for (int i = 1; i < prices.size(); i++) {
+            assertTrue(prices.get(i - 1).compareTo(prices.get(i)) >= 0);
+        }
+    }
+
+    @Test
+    void findPage_excludesVehiclesWithOverlappingRentals() {
+        long day = TimeUnit.DAYS.toMillis(1);
+        long from = System.currentTimeMillis() + 10 * day;
+        long to = from + 4 * day;
+        User user = fixtures.user("renter");
+        Vehicle booked = persistVehicle(suv, shanghai, "Black", "320.00", VehicleStatus.AVAILABLE);
+        Vehicle cancelledOnly = persistVehicle(suv, shanghai, "Black", "330.00", VehicleStatus.AVAILABLE);
+        Vehicle returnedEarly = persistVehicle(suv, shanghai, "Black", "340.00", VehicleStatus.AVAILABLE);
+        Vehicle backToBack = persistVehicle(suv, shanghai, "Black", "345.00", VehicleStatus.RENTED);
+        Vehicle returnedLate = persistVehicle(suv, shanghai, "Black", "310.00", VehicleStatus.AVAILABLE);
+        persistVehicle(suv, shanghai, "Black", "100.00", VehicleStatus.MAINTENANCE);
+        persistRental(user, booked, from + day, from + 2 * day, null, RentalStatus.PAID);
+        persistRental(user, cancelledOnly, from, to, null, RentalStatus.CANCELLED);
+        // 原定与窗口重叠，但已在窗口开始前提前归还
+        persistRental(user, returnedEarly, from - 3 * day, from + day, new Date(from - day), RentalStatus.FINISHED);
+        // 在窗口开始时刻归还、窗口结束时刻开始的相邻租赁不算重叠
+        persistRental(user, backToBack, from - 2 * day, from, null, RentalStatus.ACTIVE);
+        persistRental(user, backToBack, to, to + day, null, RentalStatus.PAID);
+        // 计划在窗口前结束，但超时到窗口内才归还
+        persistRental(user, returnedLate, from - 3 * day, from - day, new Date(from + day), RentalStatus.FINISHED);
+        entityManager.flush();
+        entityManager.clear();
+
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setCity("Shanghai");
+        criteria.setVehicleTypeId(suv.getId());
+        criteria.setAvailableFrom(new Date(from));
+        criteria.setAvailableTo(new Date(to));
+
+        List<Long> ids = vehicleRepository.findPage(criteria,
+                VehicleKeyset.first(VehicleSortKey.PRICE, Sort.Direction.ASC), 10)
+                .stream().map(VehicleDTO::getId).toList();
+
+        assertEquals(List.of(cancelledOnly.getId(), returnedEarly.getId(), backToBack.getId()),
+                ids.subList(0, 3));
+        assertEquals(4, ids.size());
+        assertFalse(ids.contains(booked.getId()));
+        assertFalse(ids.contains(returnedLate.getId()));
+    }
+
+    @Test
+    void bulkUpdate_repricesVehiclesMatchedThroughSubqueries() {
+        VehicleSearchCriteria filter = new VehicleSearchCriteria();
+        filter.setCity("Beijing");
+        filter.setMinSeats(6);
+        VehiclePatch patch = new VehiclePatch();
+        patch.setPriceFactor(new BigDecimal("1.1"));
+
+        assertEquals(2, vehicleRepository.bulkUpdate(filter, patch));
+        entityManager.clear();
+
+        List<BigDecimal> prices = vehicleRepository.findAllDtos().stream()
+                .filter(v -> v.getLocationId().equals(beijing.getId()))
+                .map(VehicleDTO::getDailyPrice)
+                .sorted()
+                .toList();
+        assertEquals(List.of(new BigDecimal("200.00"), new BigDecimal("330.00"), new BigDecimal("330.00")), prices);
+    }
+
+    @Test
+    void bulkUpdate_relocationSkipsRentedVehicles() {
+        VehicleSearchCriteria filter = new VehicleSearchCriteria();
+        filter.setLocationId(shanghai.getId());
+        VehiclePatch patch = new VehiclePatch();
+        patch.setLocationId(beijing.getId());
+        patch.setStatus(VehicleStatus.MAINTENANCE);
+
+        assertEquals(List.of(shanghai.getId()), vehicleRepository.findBulkUpdateLocationIds(filter, patch));
+        assertEquals(1, vehicleRepository.findBulkUpdateIds(filter, patch, 10).size());
+        assertEquals(1, vehicleRepository.bulkUpdate(filter, patch));
+        entityManager.clear();
+
+        List<VehicleDTO> remaining = vehicleRepository.findAllDtos().stream()
+                .filter(v -> v.getLocationId().equals(shanghai.getId()))
+                .toList();
+        assertEquals(1, remaining.size());
+        assertEquals(VehicleStatus.RENTED, remaining.get(0).getStatus());
+        assertEquals(1, vehicleRepository.findDtosByLocationIdAndStatus(beijing.getId(), VehicleStatus.MAINTENANCE).size());
+    }
+
+    @Test
+    void countInvalidPricesAfter_detectsNonPositiveResults() {
+        VehicleSearchCriteria filter = new VehicleSearchCriteria();
+        filter.setCity("Beijing");
+        VehiclePatch patch = new VehiclePatch();
+        patch.setPriceDelta(new BigDecimal("-250"));
+
+        assertEquals(1, vehicleRepository.countInvalidPricesAfter(filter, patch));
+        patch.setPriceDelta(new BigDecimal("-150"));
+        assertEquals(0, vehicleRepository.countInvalidPricesAfter(filter, patch));
+    }
+
+    @Test
+    void countByLocationTypeAndStatus_groupsAllThreeDimensions() {
+        List<VehicleStatusCount> counts = vehicleRepository.countByLocationTypeAndStatus();
+
+        assertEquals(4, counts.size());
+        assertEquals(5, counts.stream().mapToLong(VehicleStatusCount::getCount).sum());
+        assertTrue(counts.contains(new VehicleStatusCount(beijing.getId(), suv.getId(), VehicleStatus.AVAILABLE, 2L)));
+        assertTrue(counts.contains(new VehicleStatusCount(shanghai.getId(), sedan.getId(), VehicleStatus.RENTED, 1L)));
+    }
+
+    private Vehicle persistVehicle(VehicleType type, Location location, String color, String price, VehicleStatus status) {
+        return fixtures.vehicle(type, location, type.getTypeName() + " " + color, color, price, status);
+    }
+
+    private void persistRental(User user, Vehicle vehicle, long start, long end, Date actualReturn, RentalStatus status) {
+        fixtures.rental(user, vehicle, new Date(start), new Date(end), status).setActualReturnTime(actualReturn);
+    }
+}
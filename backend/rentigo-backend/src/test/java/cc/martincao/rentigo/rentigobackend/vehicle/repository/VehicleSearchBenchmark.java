@@ -0,0 +1,132 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.repository;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleKeyset;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSearchCriteria;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleSortKey;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多条件搜索基准：10 万辆合成车队上的搜索延迟（p50 / p99）
+ * <p>
+ * 默认跳过，手动运行：
+ * {@code ./mvnw test -Dtest=VehicleSearchBenchmark -Dbenchmark=true}
+ * <p>
+ * H2 与 MySQL 的执行计划不同，结果用于比较改动前后的相对变化；索引与 init_db.sql 保持一致。
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VehicleSearchBenchmark {
+
+    private static final int FLEET_SIZE = 100_000;
+    private static final int LOCATIONS = 50;
+    private static final int TYPES = 11;
+    private static final String[] COLORS = {"White", "Black", "Silver", "Red", "Blue", "Grey"};
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void seedFleet() {
+        for (int t = 1; t <= TYPES; t++) {
+            jdbcTemplate.update("insert into vehicle_type (id, type_name, seats, deposit_amount, created_at, updated_at) "
+                    + "values (?, ?, ?, 500.00, current_timestamp, current_timestamp)", t, "Type " + t, 2 + t % 7);
+        }
+        for (int l = 1; l <= LOCATIONS; l++) {
+            jdbcTemplate.update("insert into location (id, city, center_name, address, created_at, updated_at) "
+                    + "values (?, ?, ?, 'n/a', current_timestamp, current_timestamp)", l, "City " + (l % 20), "Center " + l);
+        }
+        List<Object[]> rows = new ArrayList<>(FLEET_SIZE);
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            rows.add(new Object[]{
+                    "Model " + (i % 300),
+                    1 + random.nextInt(TYPES),
+                    1 + random.nextInt(LOCATIONS),
+                    COLORS[random.nextInt(COLORS.length)],
+                    BigDecimal.valueOf(80 + random.nextInt(920)),
+                    random.nextInt(10) < 7 ? 0 : 1 + random.nextInt(3)
+            });
+        }
+        jdbcTemplate.batchUpdate("insert into vehicle (model, vehicle_type_id, location_id, color, daily_price, status, "
+                + "created_at, updated_at) values (?, ?, ?, ?, ?, ?, current_timestamp, current_timestamp)", rows);
+
+        // 与 init_db.sql 中的索引一致
+        jdbcTemplate.execute("create index idx_vehicle_price on vehicle(daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_loc_status_price on vehicle(location_id, status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_status_price on vehicle(status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_type_status_price on vehicle(vehicle_type_id, status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_loc_type_status_price on vehicle(location_id, vehicle_type_id, status, daily_price)");
+        jdbcTemplate.execute("create index idx_vehicle_status_color_price on vehicle(status, color, daily_price)");
+        jdbcTemplate.execute("create index idx_location_city on location(city)");
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void searchLatency() {
+        for (int i = 0; i < WARMUP; i++) {
+            runRandomSearch();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            runRandomSearch();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[ITERATIONS / 2] / 1_000_000.0;
+        double p99 = nanos[(int) (ITERATIONS * 0.99)] / 1_000_000.0;
+        System.out.printf("Vehicle search over %,d vehicles: p50=%.2f ms, p99=%.2f ms%n", FLEET_SIZE, p50, p99);
+        assertTrue(p99 < 100, "p99 search latency regressed: " + p99 + " ms");
+    }
+
+    private void runRandomSearch() {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setStatus(VehicleStatus.AVAILABLE);
+        if (random.nextBoolean()) {
+            criteria.setLocationId(1 + random.nextInt(LOCATIONS));
+        }
+        if (random.nextBoolean()) {
+            criteria.setVehicleTypeId((byte) (1 + random.nextInt(TYPES)));
+        }
+        if (random.nextInt(3) == 0) {
+            criteria.setColor(COLORS[random.nextInt(COLORS.length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            criteria.setMinSeats(4);
+        }
+        int low = 80 + random.nextInt(600);
+        criteria.setMinPrice(BigDecimal.valueOf(low));
+        criteria.setMaxPrice(BigDecimal.valueOf(low + 200));
+        vehicleRepository.findPage(criteria, VehicleKeyset.first(VehicleSortKey.PRICE, Sort.Direction.ASC), 21);
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.repository.RoleRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportFormat;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.LocationRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleTypeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批量导入基准：10 万行 CSV，输入流按需生成，不在内存中拼出整个文件
+ * <p>
+ * 默认跳过，手动运行：
+ * {@code ./mvnw test -Dtest=VehicleImportBenchmark -Dbenchmark=true}
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VehicleImportBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VehicleTypeRepository vehicleTypeRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from vehicle");
+        jdbcTemplate.update("delete from location");
+        jdbcTemplate.update("delete from vehicle_type");
+    }
+
+    @Test
+    void import100kRows() {
+        JpaFixtures fixtures = JpaFixtures.committed(entityManagerFactory);
+        byte typeId = fixtures.type("Sedan").getId();
+        int locationId = fixtures.location("Beijing").getId();
+
+        ReferenceDataRegistry referenceData = new ReferenceDataRegistry(vehicleTypeRepository, locationRepository,
+                roleRepository, event -> { });
+        referenceData.refresh();
+        VehicleImportServiceImpl importService = new VehicleImportServiceImpl(jdbcTemplate, transactionManager,
+                referenceData, new ObjectMapper(), event -> { }, 500);
+
+        long start = System.nanoTime();
+        VehicleImportResult result = importService.importVehicles(
+                new GeneratedCsv(typeId, locationId), VehicleImportFormat.CSV);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Imported %,d vehicles in %,d ms%n", result.getImported(), millis);
+        assertEquals(ROWS, result.getImported());
+    }
+
+    /**
+     * 逐行生成 CSV 的输入流
+     */
+    private static final class GeneratedCsv extends InputStream {
+        private final byte typeId;
+        private final int locationId;
+        private int row = -1;
+        private byte[] current = new byte[0];
+        private int position;
+
+        private GeneratedCsv(byte typeId, int locationId) {
+            this.typeId = typeId;
+            this.locationId = locationId;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == current.length) {
+                if (row == ROWS) {
+                    return -1;
+                }
+                String line = row < 0
+                        ? "model,vehicleTypeId,locationId,color,dailyPrice,licensePlate\n"
+                        : "Model " + row % 300 + "," + typeId + "," + locationId + ",White," + (100 + row % 900)
+                        + ",BJ" + row + "\n";
+                current = line.getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                row++;
+            }
+            return current[position++];
+        }
+    }
+}
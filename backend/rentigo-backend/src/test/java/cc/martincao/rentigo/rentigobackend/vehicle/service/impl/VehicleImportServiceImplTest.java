@@ -0,0 +1,193 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.service.impl;
+
+import cc.martincao.rentigo.rentigobackend.reference.ReferenceDataRegistry;
+import cc.martincao.rentigo.rentigobackend.support.JpaFixtures;
+import cc.martincao.rentigo.rentigobackend.user.repository.RoleRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportError;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportFormat;
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleImportResult;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.LocationRepository;
+import cc.martincao.rentigo.rentigobackend.vehicle.repository.VehicleTypeRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 导入按批提交独立事务，测试本身不包事务，结束后手动清理
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VehicleImportServiceImplTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VehicleTypeRepository vehicleTypeRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Object> events = new ArrayList<>();
+    private VehicleImportServiceImpl importService;
+    private Byte typeId;
+    private Integer locationId;
+
+    @BeforeEach
+    void setUp() {
+        JpaFixtures fixtures = JpaFixtures.committed(entityManagerFactory);
+        typeId = fixtures.type("Sedan").getId();
+        locationId = fixtures.location("Beijing").getId();
+
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        ReferenceDataRegistry referenceData = new ReferenceDataRegistry(vehicleTypeRepository, locationRepository,
+                roleRepository, event -> { });
+        referenceData.refresh();
+        importService = new VehicleImportServiceImpl(jdbcTemplate, transactionManager, referenceData,
+                objectMapper, events::add, 2);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from vehicle");
+        jdbcTemplate.update("delete from location");
+        jdbcTemplate.update("delete from vehicle_type");
+    }
+
+    @Test
+    void importCsv_insertsValidRowsAndReportsInvalidOnes() {
+        jdbcTemplate.update("insert into vehicle (model, vehicle_type_id, location_id, daily_price, status, license_plate, "
+                + "created_at, updated_at) values ('Existing', ?, ?, 100, 0, 'TAKEN', current_timestamp, current_timestamp)",
+                typeId, locationId);
+
+        String csv = String.join("\n",
+                "model,vehicleTypeId,locationId,color,dailyPrice,status,licensePlate",
+                "Camry," + typeId + "," + locationId + ",White,299.00,AVAILABLE,P1",
+                "\"Accord, Sport\"," + typeId + "," + locationId + ",,320.50,maintenance,P2",
+                "",
+                "Civic,99," + locationId + ",Red,200,,P3",
+                "Golf," + typeId + ",999,Red,200,,P4",
+                "Model 3," + typeId + "," + locationId + ",Black,-1,,P5",
+                "Model Y," + typeId + "," + locationId + ",Black,400,,P1",
+                "Corolla," + typeId + "," + locationId + ",Grey,180,,TAKEN",
+                "Passat," + typeId + "," + locationId + ",Blue,abc,,P6",
+                "Lavida," + typeId + "," + locationId + ",Blue,150,,");
+
+        VehicleImportResult result = importService.importVehicles(stream(csv), VehicleImportFormat.CSV);
+
+        assertEquals(9, result.getTotal());
+        assertEquals(3, result.getImported());
+        assertEquals(6, result.getFailed());
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L),
+                result.getErrors().stream().map(VehicleImportError::getLine).sorted().collect(Collectors.toList()));
+        assertEquals(4, jdbcTemplate.queryForObject("select count(*) from vehicle", Integer.class));
+        assertEquals("Accord, Sport", jdbcTemplate.queryForObject(
+                "select model from vehicle where license_plate = 'P2'", String.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select status from vehicle where license_plate = 'P2'", Integer.class));
+
+        assertEquals(1, events.size());
+        VehiclesBulkChangedEvent event = (VehiclesBulkChangedEvent) events.get(0);
+        assertEquals(3, event.getCount());
+        assertEquals(Set.of(locationId), event.getLocationIds());
+        // 导入量不大时带上生成的 id，索引只需回读这些车辆
+        assertEquals(Set.copyOf(jdbcTemplate.queryForList(
+                "select id from vehicle where model <> 'Existing'", Long.class)), event.getVehicleIds());
+    }
+
+    @Test
+    void importNdjson_streamsRowsInBatches() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            ndjson.append("{\"model\":\"Car ").append(i).append("\",\"vehicleTypeId\":").append(typeId)
+                    .append(",\"locationId\":").append(locationId).append(",\"dailyPrice\":").append(100 + i)
+                    .append(",\"licensePlate\":\"N").append(i).append("\"}\n");
+        }
+        ndjson.append("{\"model\":\"Broken\",\"vehicleTypeId\":\n");
+        ndjson.append("{\"model\":\"Bad status\",\"vehicleTypeId\":").append(typeId)
+                .append(",\"locationId\":").append(locationId).append(",\"dailyPrice\":1,\"status\":\"FLYING\"}\n");
+
+        VehicleImportResult result = importService.importVehicles(stream(ndjson.toString()), VehicleImportFormat.NDJSON);
+
+        assertEquals(9, result.getTotal());
+        assertEquals(7, result.getImported());
+        assertEquals(List.of(8L, 9L), result.getErrors().stream().map(VehicleImportError::getLine).toList());
+        assertEquals(7, jdbcTemplate.queryForObject("select count(*) from vehicle where status = 0", Integer.class));
+    }
+
+    @Test
+    void interruptedStream_stillAnnouncesCommittedBatches() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            ndjson.append("{\"model\":\"Car ").append(i).append("\",\"vehicleTypeId\":").append(typeId)
+                    .append(",\"locationId\":").append(locationId).append(",\"dailyPrice\":100}\n");
+        }
+        // 客户端中途断开
+        InputStream disconnected = new SequenceInputStream(stream(ndjson.toString()), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        assertThrows(UncheckedIOException.class,
+                () -> importService.importVehicles(disconnected, VehicleImportFormat.NDJSON));
+
+        // 前两批（4 行）已提交，第 5 行还在未提交的批次里
+        assertEquals(4, jdbcTemplate.queryForObject("select count(*) from vehicle", Integer.class));
+        assertEquals(1, events.size());
+        assertEquals(4, ((VehiclesBulkChangedEvent) events.get(0)).getCount());
+    }
+
+    @Test
+    void importCsv_rejectsUnknownHeader() {
+        assertThrows(IllegalArgumentException.class, () -> importService.importVehicles(
+                stream("model,vehicleTypeId,locationId,dailyPrice,seats\n"), VehicleImportFormat.CSV));
+    }
+
+    @Test
+    void splitCsv_handlesQuotesAndEscapes() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""),
+                VehicleImportServiceImpl.splitCsv("a,\"b, c\",\"say \"\"hi\"\"\","));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,200 @@
+package cc.martincao.rentigo.rentigobackend.vehicle.stream;
+
+import cc.martincao.rentigo.rentigobackend.vehicle.dto.VehicleDTO;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehicleChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.event.VehiclesBulkChangedEvent;
+import cc.martincao.rentigo.rentigobackend.vehicle.model.VehicleStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleAvailabilityBroadcasterTest {
+
+    private VehicleAvailabilityBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new VehicleAvailabilityBroadcaster(2, 4, 3, Duration.ofMinutes(1),
+                Duration.ofMillis(100), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void vehicleChange_reachesSubscribersOfItsLocationAndAll() throws Exception {
+        RecordingEmitter location1 = new RecordingEmitter();
+        RecordingEmitter location2 = new RecordingEmitter();
+        RecordingEmitter all = new RecordingEmitter();
+        broadcaster.register(1, location1);
+        broadcaster.register(2, location2);
+        broadcaster.register(null, all);
+
+        broadcaster.onVehicleChanged(VehicleChangedEvent.updated(
+                vehicle(VehicleStatus.AVAILABLE), vehicle(VehicleStatus.RENTED)));
+
+        location1.await(1);
+        all.await(1);
+        assertTrue(location1.text().contains("event:availability"));
+        assertTrue(location1.text().contains("status=RENTED"));
+        assertTrue(all.text().contains("vehicleId=7"));
+        Thread.sleep(50);
+        assertEquals(0, location2.events.size());
+    }
+
+    @Test
+    void slowSubscriber_isBoundedAndResynced_withoutBlockingPublisher() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        broadcaster.register(1, slow);
+
+        long started = System.nanoTime();
+        broadcaster.onVehicleChanged(VehicleChangedEvent.updated(
+                vehicle(VehicleStatus.AVAILABLE), vehicle(VehicleStatus.MAINTENANCE)));
+        // 等第一条进入发送，后续消息才确定都在队列里
+        assertTrue(slow.sending.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i < 100; i++) {
+            broadcaster.onVehicleChanged(VehicleChangedEvent.updated(
+                    vehicle(VehicleStatus.AVAILABLE), vehicle(VehicleStatus.MAINTENANCE)));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000,
+                "publisher must not wait for a blocked subscriber");
+
+        release.countDown();
+        Thread.sleep(200);
+        // 第一条已在发送中，其余超出队列上限，折叠成 resync
+        assertTrue(slow.events.size() <= 1 + 4, "queued events must stay bounded");
+        assertTrue(slow.text().contains("event:resync"));
+    }
+
+    @Test
+    void bulkChange_sendsResyncToAffectedLocations() throws Exception {
+        RecordingEmitter location1 = new RecordingEmitter();
+        RecordingEmitter location2 = new RecordingEmitter();
+        broadcaster.register(1, location1);
+        broadcaster.register(2, location2);
+
+        broadcaster.onVehiclesBulkChanged(new VehiclesBulkChangedEvent(Set.of(2), 10));
+
+        location2.await(1);
+        assertTrue(location2.text().contains("event:resync"));
+        assertEquals(0, location1.events.size());
+    }
+
+    @Test
+    void register_rejectsBeyondMaxSubscribers_andFreesSlotOnError() throws Exception {
+        RecordingEmitter failing = new RecordingEmitter();
+        failing.fail = true;
+        assertTrue(broadcaster.register(1, failing));
+        assertTrue(broadcaster.register(1, new RecordingEmitter()));
+        assertTrue(broadcaster.register(1, new RecordingEmitter()));
+        assertFalse(broadcaster.register(1, new RecordingEmitter()));
+
+        broadcaster.heartbeat();
+        Thread.sleep(100);
+
+        assertEquals(2, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void stalledSubscribers_areEvicted_withoutStarvingOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stalled1 = new RecordingEmitter(release);
+        RecordingEmitter stalled2 = new RecordingEmitter(release);
+        RecordingEmitter healthy = new RecordingEmitter();
+        broadcaster.register(1, stalled1);
+        broadcaster.register(1, stalled2);
+        Thread.sleep(50);
+        // 两个客户端不读，占满两个分发线程；之后注册的订阅者排在分发池队列里
+        broadcaster.heartbeat();
+        Thread.sleep(50);
+        broadcaster.register(1, healthy);
+        broadcaster.onVehicleChanged(VehicleChangedEvent.updated(
+                vehicle(VehicleStatus.AVAILABLE), vehicle(VehicleStatus.RENTED)));
+
+        Thread.sleep(200);
+        broadcaster.evictStalled();
+
+        healthy.await(1);
+        assertTrue(healthy.text().contains("status=RENTED"));
+        assertEquals(1, broadcaster.subscriberCount());
+        release.countDown();
+    }
+
+    @Test
+    void enqueueAfterShutdown_closesSubscriberInsteadOfThrowing() {
+        broadcaster.register(1, new RecordingEmitter());
+        broadcaster.shutdown();
+
+        assertDoesNotThrow(broadcaster::heartbeat);
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    private static VehicleDTO vehicle(VehicleStatus status) {
+        return new VehicleDTO(7L, "Model 3", (byte) 1, "Sedan", BigDecimal.valueOf(500),
+                1, "Red", BigDecimal.valueOf(299), status, "A12345");
+    }
+
+    /**
+     * 记录写出的事件；可选阻塞，模拟网络慢的客户端
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release;
+        volatile boolean fail;
+
+        RecordingEmitter() {
+            this(null);
+        }
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            sending.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 2000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(events.size() >= count, "expected " + count + " events, got " + events.size());
+        }
+
+        String text() {
+            return String.join("\n", events);
+        }
+    }
+}